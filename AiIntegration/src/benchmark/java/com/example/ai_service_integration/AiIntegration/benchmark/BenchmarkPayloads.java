@@ -0,0 +1,63 @@
+package com.example.ai_service_integration.AiIntegration.benchmark;
+
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * Realistic request and response bodies shared by the benchmarks.
+ */
+final class BenchmarkPayloads {
+
+    private static final String WORDS = "The quick brown fox jumps over the lazy dog while the model explains "
+            + "reactive streams, \"backpressure\" and unicode like café or 日本語 in detail.\n";
+
+    private static final String[] VOCABULARY = ("the a of to and in is that for it as with on be by this are from or "
+            + "model prompt answer request response stream token latency cache upstream client server body bytes "
+            + "compress window buffer payload reactive netty json field value error retry timeout budget session "
+            + "explain summarize compare describe list why how which when example code function return class method "
+            + "customer order invoice shipping refund account password report quarterly revenue growth market").split(" ");
+
+    private BenchmarkPayloads() {
+    }
+
+    static OpenAiApiRequest request(int promptChars) {
+        return OpenAiApiRequest.builder()
+                .model("gpt-3.5-turbo")
+                .messages(Collections.singletonList(
+                        OpenAiApiRequest.Message.builder().role("user").content(text(promptChars)).build()))
+                .max_tokens(500)
+                .temperature(0.7)
+                .build();
+    }
+
+    // Shaped like a real chat completion, including fields the DTO does not map and must skip
+    static String response(int completionChars) {
+        String content = text(completionChars).replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        return "{\"id\":\"chatcmpl-9x7Y2bQk3ZpLmN4vR8sT1uW6\",\"object\":\"chat.completion\",\"created\":1717171717,"
+                + "\"model\":\"gpt-3.5-turbo-0125\",\"system_fingerprint\":\"fp_3b956da36b\","
+                + "\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":\"" + content + "\"},"
+                + "\"logprobs\":null,\"finish_reason\":\"stop\"}],"
+                + "\"usage\":{\"prompt_tokens\":57,\"completion_tokens\":" + (completionChars / 4)
+                + ",\"total_tokens\":" + (57 + completionChars / 4) + "}}";
+    }
+
+    // Words drawn at random (fixed seed): compresses about like real prose, unlike text()'s one repeated line
+    static String prose(int chars) {
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder(chars + 16);
+        while (text.length() < chars) {
+            text.append(VOCABULARY[random.nextInt(VOCABULARY.length)]).append(random.nextInt(12) == 0 ? ".\n" : " ");
+        }
+        return text.substring(0, chars);
+    }
+
+    static String text(int chars) {
+        StringBuilder text = new StringBuilder(chars + WORDS.length());
+        while (text.length() < chars) {
+            text.append(WORDS);
+        }
+        return text.substring(0, chars);
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.ai_service_integration.AiIntegration.benchmark;
+
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiResponse;
+import com.example.ai_service_integration.AiIntegration.service.codec.OpenAiRequestEncoder;
+import com.example.ai_service_integration.AiIntegration.service.codec.OpenAiResponseDecoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON cost of one completion: writing the request body, reading the response body (small and
+ * large answers) and pulling the answer out of the parsed response.
+ * <p>
+ * The {@code webflux*} benchmarks go through the codecs the {@code WebClient} uses by default
+ * (Jackson data binding into a {@link DataBuffer}); the {@code compact*} ones through
+ * {@link OpenAiRequestEncoder} and {@link OpenAiResponseDecoder} ({@code openai.http.compact-codec}).
+ * Compare their {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class CodecBenchmark {
+
+    @Param({"256", "16384"})
+    private int payloadChars;
+
+    // Configured like the application's mapper (unknown properties ignored)
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private OpenAiApiRequest request;
+    private byte[] responseBytes;
+    private OpenAiApiResponse response;
+
+    private static final ResolvableType REQUEST_TYPE = ResolvableType.forClass(OpenAiApiRequest.class);
+    private static final ResolvableType RESPONSE_TYPE = ResolvableType.forClass(OpenAiApiResponse.class);
+    private static final DefaultDataBufferFactory BUFFERS = DefaultDataBufferFactory.sharedInstance;
+
+    private final Jackson2JsonEncoder jacksonEncoder = new Jackson2JsonEncoder(objectMapper);
+    private final Jackson2JsonDecoder jacksonDecoder = new Jackson2JsonDecoder(objectMapper);
+    private final OpenAiRequestEncoder compactEncoder = new OpenAiRequestEncoder();
+    private final OpenAiResponseDecoder compactDecoder = new OpenAiResponseDecoder();
+
+    @Setup
+    public void setUp() throws Exception {
+        request = BenchmarkPayloads.request(payloadChars);
+        responseBytes = BenchmarkPayloads.response(payloadChars).getBytes(StandardCharsets.UTF_8);
+        response = objectMapper.readValue(responseBytes, OpenAiApiResponse.class);
+    }
+
+    @Benchmark
+    public byte[] serializeRequest() throws Exception {
+        return objectMapper.writeValueAsBytes(request);
+    }
+
+    @Benchmark
+    public OpenAiApiResponse deserializeResponse() throws Exception {
+        return objectMapper.readValue(responseBytes, OpenAiApiResponse.class);
+    }
+
+    @Benchmark
+    public String firstCompletionContent() {
+        return response.getFirstCompletionContent();
+    }
+
+    @Benchmark
+    public int webfluxEncodeRequest() {
+        return release(jacksonEncoder.encodeValue(request, BUFFERS, REQUEST_TYPE, MediaType.APPLICATION_JSON, null));
+    }
+
+    @Benchmark
+    public int compactEncodeRequest() {
+        return release(compactEncoder.encodeValue(request, BUFFERS, REQUEST_TYPE, MediaType.APPLICATION_JSON, null));
+    }
+
+    // Wrapping the bytes does not copy them, so only the decoder's own allocations are measured
+    @Benchmark
+    public String webfluxDecodeResponse() {
+        OpenAiApiResponse decoded = (OpenAiApiResponse) jacksonDecoder.decode(BUFFERS.wrap(responseBytes), RESPONSE_TYPE,
+                MediaType.APPLICATION_JSON, null);
+        return decoded.getFirstCompletionContent();
+    }
+
+    @Benchmark
+    public String compactDecodeResponse() {
+        return compactDecoder.decode(BUFFERS.wrap(responseBytes), RESPONSE_TYPE, MediaType.APPLICATION_JSON, null)
+                .getFirstCompletionContent();
+    }
+
+    private static int release(DataBuffer buffer) {
+        int written = buffer.readableByteCount();
+        DataBufferUtils.release(buffer);
+        return written;
+    }
+}
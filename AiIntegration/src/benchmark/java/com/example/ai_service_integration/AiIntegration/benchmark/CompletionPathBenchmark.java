@@ -0,0 +1,93 @@
+package com.example.ai_service_integration.AiIntegration.benchmark;
+
+import com.example.ai_service_integration.AiIntegration.dto.CompletionResponse;
+import com.example.ai_service_integration.AiIntegration.service.OpenAiServiceImpl;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of {@link OpenAiServiceImpl#getAiCompletion} end to end: building the request,
+ * encoding it, a pooled HTTP round trip to an in-process stub that answers at once, decoding
+ * the answer and mapping it. The stub's own share is included, so compare runs with each other.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class CompletionPathBenchmark {
+
+    @Param({"256", "16384"})
+    private int payloadChars;
+
+    private LoopResources loops;
+    private ConnectionProvider connectionProvider;
+    private DisposableServer stub;
+    private OpenAiServiceImpl service;
+    private String prompt;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        byte[] body = BenchmarkPayloads.response(payloadChars).getBytes(StandardCharsets.UTF_8);
+        loops = LoopResources.create("jmh", 2, true);
+        stub = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .runOn(loops)
+                .route(routes -> routes.post("/v1/chat/completions", (request, response) -> request.receive().then()
+                        .then(response.header(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON)
+                                .sendByteArray(Mono.just(body)).then())))
+                .bindNow();
+
+        connectionProvider = ConnectionProvider.create("jmh", 16);
+        WebClient webClient = WebClient.builder()
+                .baseUrl("http://127.0.0.1:" + stub.port() + "/v1/chat/completions")
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider).runOn(loops)))
+                .build();
+
+        service = new OpenAiServiceImpl(webClient, Jackson2ObjectMapperBuilder.json().build());
+        ReflectionTestUtils.setField(service, "model", "gpt-3.5-turbo");
+        ReflectionTestUtils.setField(service, "maxTokens", 500);
+        ReflectionTestUtils.setField(service, "temperature", 0.7);
+        prompt = BenchmarkPayloads.text(Math.min(payloadChars, 2048));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        stub.disposeNow();
+        connectionProvider.disposeLater().block();
+        loops.disposeLater().block();
+    }
+
+    @Benchmark
+    public CompletionResponse getAiCompletion() {
+        return service.getAiCompletion(prompt).block();
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.ai_service_integration.AiIntegration.benchmark;
+
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.example.ai_service_integration.AiIntegration.service.compression.StreamingGzip;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * CPU against bytes for gzip request bodies ({@code openai.compression.upstream.level}): the time to
+ * compress a chat request whose prompt is {@code payloadChars} of prose, in 8 KB pieces as
+ * {@link StreamingGzip} gets them from the encoder, and the time to inflate it again. The bytes
+ * saved at each level are printed once per trial, before the measurements.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class CompressionBenchmark {
+
+    private static final int PIECE_BYTES = 8192;
+    private static final DefaultDataBufferFactory BUFFERS = DefaultDataBufferFactory.sharedInstance;
+
+    @Param({"1024", "8192", "65536"})
+    private int payloadChars;
+
+    @Param({"1", "6", "9"})
+    private int level;
+
+    private byte[] body;
+    private byte[] compressed;
+    private final byte[] inflateBuffer = new byte[PIECE_BYTES];
+
+    @Setup
+    public void setUp() throws IOException {
+        OpenAiApiRequest request = OpenAiApiRequest.builder()
+                .model("gpt-4o")
+                .messages(Collections.singletonList(OpenAiApiRequest.Message.builder()
+                        .role("user").content(BenchmarkPayloads.prose(payloadChars)).build()))
+                .max_tokens(500)
+                .temperature(0.7)
+                .build();
+        body = new ObjectMapper().writeValueAsBytes(request);
+        DataBuffer[] pieces = pieces();
+        compressed = new byte[Arrays.stream(pieces).mapToInt(DataBuffer::readableByteCount).sum()];
+        int written = 0;
+        for (DataBuffer piece : pieces) {
+            int length = piece.readableByteCount();
+            piece.read(compressed, written, length);
+            written += length;
+        }
+        System.out.printf("%nlevel %d: %d bytes -> %d bytes (%.1f%%)%n", level, body.length, compressed.length,
+                100.0 * compressed.length / body.length);
+    }
+
+    @Benchmark
+    public int compress() {
+        int written = 0;
+        for (DataBuffer piece : pieces()) {
+            written += piece.readableByteCount();
+            DataBufferUtils.release(piece);
+        }
+        return written;
+    }
+
+    @Benchmark
+    public int inflate() throws IOException {
+        int read = 0;
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed), PIECE_BYTES)) {
+            for (int n; (n = in.read(inflateBuffer)) > 0; ) {
+                read += n;
+            }
+        }
+        return read;
+    }
+
+    // Compressed output, piece by piece, as GzipRequestFilter sends it
+    private DataBuffer[] pieces() {
+        StreamingGzip gzip = new StreamingGzip(level);
+        int count = (body.length + PIECE_BYTES - 1) / PIECE_BYTES;
+        DataBuffer[] output = new DataBuffer[count + 1];
+        try {
+            for (int i = 0; i < count; i++) {
+                int offset = i * PIECE_BYTES;
+                output[i] = gzip.compress(BUFFERS.wrap(ByteBuffer.wrap(body, offset, Math.min(PIECE_BYTES, body.length - offset))), BUFFERS);
+            }
+            output[count] = gzip.finish(BUFFERS);
+        } finally {
+            gzip.end();
+        }
+        return output;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.ai_service_integration.AiIntegration.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks of this package with the GC profiler always on, so every result comes
+ * with its allocation rate ({@code gc.alloc.rate.norm} = bytes allocated per operation).
+ * <p>
+ * {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.example.ai_service_integration.AiIntegration.benchmark.JmhRunner -Dbenchmark.args="Codec"}
+ * <p>
+ * Arguments are regular JMH command line options (benchmark regex, {@code -f}, {@code -i}, ...).
+ * Without a regex every benchmark of this package runs.
+ */
+public final class JmhRunner {
+
+    private JmhRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        OptionsBuilder builder = new OptionsBuilder();
+        if (commandLine.getIncludes().isEmpty()) {
+            builder.include(JmhRunner.class.getPackageName() + "\\..*Benchmark\\.");
+        }
+        Options options = builder.parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
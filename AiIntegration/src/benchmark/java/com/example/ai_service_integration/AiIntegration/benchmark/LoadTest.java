@@ -0,0 +1,103 @@
+package com.example.ai_service_integration.AiIntegration.benchmark;
+
+import com.example.ai_service_integration.AiIntegration.AiIntegration.support.FakeOpenAiServer;
+import com.example.ai_service_integration.AiIntegration.AiIntegration.support.LatencyProfile;
+import com.example.ai_service_integration.AiIntegration.AiIntegration.support.LoadGenerator;
+import com.example.ai_service_integration.AiIntegration.AiIntegrationApplication;
+import com.example.ai_service_integration.AiIntegration.dto.CompletionRequest;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Offline load test: runs the application against {@link FakeOpenAiServer} and drives it with the
+ * open-loop {@link LoadGenerator}, so throttling, upstream failures and latency spread can be
+ * reproduced without network access or an API key.
+ * <p>
+ * {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.example.ai_service_integration.AiIntegration.benchmark.LoadTest -Dbenchmark.args="--rps=200 --latency=lognormal:300ms,0.8"}
+ * <p>
+ * Options: {@code --rps}, {@code --duration}, {@code --timeout}, {@code --latency} (see
+ * {@link LatencyProfile#parse}), {@code --throttle-rate}, {@code --server-error-rate},
+ * {@code --completion-chars}, {@code --distinct-prompts} (0 means every prompt is unique).
+ * Any other {@code --openai.*} option is handed to the application unchanged.
+ */
+public final class LoadTest {
+
+    // The load client gets its own event loop: the application shuts down Reactor Netty's global
+    // resources when its context closes
+    private static final LoopResources CLIENT_LOOPS = LoopResources.create("load-client", 2, true);
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) {
+        SimpleCommandLinePropertySource options = new SimpleCommandLinePropertySource(args);
+        int rps = Integer.parseInt(option(options, "rps", "100"));
+        Duration duration = DurationStyle.detectAndParse(option(options, "duration", "30s"));
+        Duration timeout = DurationStyle.detectAndParse(option(options, "timeout", "30s"));
+        int distinctPrompts = Integer.parseInt(option(options, "distinct-prompts", "0"));
+
+        FakeOpenAiServer upstream = FakeOpenAiServer.builder()
+                .latency(LatencyProfile.parse(option(options, "latency", "lognormal:300ms,0.8")))
+                .throttleRate(Double.parseDouble(option(options, "throttle-rate", "0")))
+                .serverErrorRate(Double.parseDouble(option(options, "server-error-rate", "0")))
+                .completionChars(Integer.parseInt(option(options, "completion-chars", "400")))
+                .start();
+        ConfigurableApplicationContext app = null;
+        try {
+            String[] defaults = {"--server.port=0",
+                    "--openai.api.url=" + upstream.url(),
+                    "--openai.api.key=load-test",
+                    "--logging.level.root=WARN",
+                    "--logging.level.com.example=WARN",
+                    "--logging.level.org.springframework.web.reactive.function.client=WARN"};
+            app = new SpringApplicationBuilder(AiIntegrationApplication.class, ReactorNettyServer.class)
+                    .web(WebApplicationType.REACTIVE)
+                    .run(concat(defaults, args)); // Later arguments win, so --openai.* overrides apply
+            int port = app.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+
+            HttpClient httpClient = HttpClient.create(ConnectionProvider.builder("load-client")
+                            .maxConnections(Math.max(500, rps * 2))
+                            .pendingAcquireMaxCount(-1)
+                            .build())
+                    .runOn(CLIENT_LOOPS);
+            WebClient client = WebClient.builder()
+                    .baseUrl("http://localhost:" + port)
+                    .clientConnector(new ReactorClientHttpConnector(httpClient))
+                    .build();
+            LoadGenerator load = new LoadGenerator(client, "/api/ai/complete",
+                    index -> new CompletionRequest("Load test prompt " + (distinctPrompts > 0 ? index % distinctPrompts : index)),
+                    timeout);
+
+            LoadGenerator.Report report = load.run(rps, duration);
+            System.out.printf("%nupstream requests=%d%n%s%n", upstream.requestCount(), report);
+        } finally {
+            if (app != null) {
+                app.close();
+            }
+            upstream.close();
+            CLIENT_LOOPS.disposeLater().block();
+        }
+    }
+
+    private static String[] concat(String[] first, String[] second) {
+        String[] all = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, all, first.length, second.length);
+        return all;
+    }
+
+    private static String option(SimpleCommandLinePropertySource options, String name, String defaultValue) {
+        String value = options.getProperty(name);
+        return value != null ? value : defaultValue;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.ai_service_integration.AiIntegration.benchmark;
+
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Pins reactive runs to Reactor Netty. The benchmark profile puts Tomcat on the classpath for the
+ * servlet comparison, and Spring Boot otherwise prefers Tomcat for reactive applications too.
+ */
+@Configuration(proxyBeanMethods = false)
+class ReactorNettyServer {
+
+    @Bean
+    NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.ai_service_integration.AiIntegration.benchmark;
+
+import com.example.ai_service_integration.AiIntegration.AiIntegration.support.FakeOpenAiServer;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.stream.Stream;
+
+/**
+ * Time from {@code java} being launched until {@code /actuator/health/readiness} answers 200,
+ * warm-up included, for the application built by {@code mvn -Pstartup package}. Each mode is
+ * started {@code --runs} times in a fresh JVM, against {@link FakeOpenAiServer}:
+ * <pre>
+ * default   plain jar, no AOT, JDK default CDS archive only
+ * cds       plus the application's AppCDS archive (app.jsa)
+ * aot-cds   plus the AOT-generated bean definitions (-Dspring.aot.enabled=true)
+ * </pre>
+ * {@code mvn -Pstartup package && mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.example.ai_service_integration.AiIntegration.benchmark.StartupBenchmark -Dbenchmark.args="--runs=5"}
+ * <p>
+ * Options: {@code --runs}, {@code --modes} (comma-separated), {@code --directory} (defaults to
+ * {@code target/startup}), {@code --timeout} per start in seconds. Any {@code --openai.*} option
+ * is handed to the application unchanged.
+ */
+public final class StartupBenchmark {
+
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(10);
+
+    private StartupBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        SimpleCommandLinePropertySource options = new SimpleCommandLinePropertySource(args);
+        int runs = Integer.parseInt(option(options, "runs", "5"));
+        List<String> modes = Arrays.asList(option(options, "modes", "default,cds,aot-cds").split(","));
+        Path directory = Paths.get(option(options, "directory", "target/startup")).toAbsolutePath();
+        Duration timeout = Duration.ofSeconds(Long.parseLong(option(options, "timeout", "120")));
+        String jar = applicationJar(directory);
+        List<String> passThrough = Arrays.stream(args).filter(arg -> arg.startsWith("--openai.")).toList();
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        try (FakeOpenAiServer upstream = FakeOpenAiServer.builder().start()) {
+            for (String mode : modes) {
+                LongSummaryStatistics millis = new LongSummaryStatistics();
+                for (int run = 0; run < runs; run++) {
+                    millis.accept(timeToReady(client, directory, jar, mode, upstream.url(), passThrough, timeout));
+                }
+                System.out.printf("%-8s runs=%d  mean=%d ms  min=%d ms  max=%d ms%n",
+                        mode, runs, Math.round(millis.getAverage()), millis.getMin(), millis.getMax());
+            }
+        }
+    }
+
+    private static long timeToReady(HttpClient client, Path directory, String jar, String mode, String upstreamUrl,
+                                    List<String> passThrough, Duration timeout) throws IOException, InterruptedException {
+        int port = freePort();
+        List<String> command = new ArrayList<>(List.of(Paths.get(System.getProperty("java.home"), "bin", "java").toString()));
+        switch (mode) {
+            case "default" -> {
+            }
+            case "cds" -> command.add("-XX:SharedArchiveFile=app.jsa");
+            case "aot-cds" -> command.addAll(List.of("-XX:SharedArchiveFile=app.jsa", "-Dspring.aot.enabled=true"));
+            default -> throw new IllegalArgumentException("Unknown mode " + mode);
+        }
+        command.addAll(List.of("-jar", jar, "--server.port=" + port, "--openai.api.url=" + upstreamUrl,
+                "--openai.api.key=startup-benchmark", "--logging.level.root=WARN", "--logging.level.com.example=WARN"));
+        command.addAll(passThrough);
+
+        HttpRequest readiness = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/health/readiness"))
+                .timeout(Duration.ofSeconds(1))
+                .build();
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .directory(directory.toFile())
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        try {
+            long deadline = start + timeout.toNanos();
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException(mode + ": application exited with " + process.exitValue());
+                }
+                try {
+                    if (client.send(readiness, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return (System.nanoTime() - start) / 1_000_000;
+                    }
+                } catch (IOException e) {
+                    // Not listening yet
+                }
+                Thread.sleep(POLL_INTERVAL.toMillis());
+            }
+            throw new IllegalStateException(mode + ": not ready within " + timeout.toSeconds() + " s");
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private static String applicationJar(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(".jar"))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("No jar in " + directory + ", build it with mvn -Pstartup package"));
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static String option(SimpleCommandLinePropertySource options, String name, String defaultValue) {
+        String value = options.getProperty(name);
+        return value != null ? value : defaultValue;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.ai_service_integration.AiIntegration.benchmark;
+
+import com.example.ai_service_integration.AiIntegration.service.token.BpeTokenizer;
+import com.example.ai_service_integration.AiIntegration.service.token.CharacterTokenEstimator;
+import com.example.ai_service_integration.AiIntegration.service.token.PreTokenizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of counting a prompt's tokens before the call: the BPE tokenizer against the
+ * four-characters-per-token estimate it replaces, and the pre-tokenizer on its own.
+ * Throughput in MB/s is {@code payloadChars} (about as many UTF-8 bytes) divided by the time per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class TokenizerBenchmark {
+
+    @Param({"1024", "65536"})
+    private int payloadChars;
+
+    private final CharacterTokenEstimator characterEstimator = new CharacterTokenEstimator();
+    private BpeTokenizer bpeTokenizer;
+    private String text;
+
+    @Setup
+    public void setUp() throws Exception {
+        try (InputStream in = TokenizerBenchmark.class.getResourceAsStream("/tokenizer/cl100k_base.tiktoken")) {
+            bpeTokenizer = BpeTokenizer.load(in);
+        }
+        text = BenchmarkPayloads.text(payloadChars);
+    }
+
+    @Benchmark
+    public int bpeCountTokens() {
+        return bpeTokenizer.countTokens(text);
+    }
+
+    @Benchmark
+    public int characterEstimate() {
+        return characterEstimator.estimate(text);
+    }
+
+    @Benchmark
+    public int preTokenize() {
+        int pieces = 0;
+        for (int start = 0; start < text.length(); start = PreTokenizer.nextPieceEnd(text, start)) {
+            pieces++;
+        }
+        return pieces;
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.ai_service_integration.AiIntegration.benchmark;
+
+import com.example.ai_service_integration.AiIntegration.AiIntegrationApplication;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Compares the servlet (Tomcat) and reactive (Netty) runtimes of the application with a fixed
+ * number of concurrent in-flight requests against a local stand-in for the OpenAI API.
+ * <p>
+ * {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark.args="--concurrency=512 --duration=20s"}
+ * <p>
+ * Options: {@code --concurrency}, {@code --warmup}, {@code --duration}, {@code --upstream-latency},
+ * {@code --modes} (comma separated, default {@code servlet,reactive}). Heap and thread figures
+ * include the load client and the stub, which are the same in every mode, so compare modes with
+ * each other rather than reading the absolute numbers.
+ */
+public final class WebStackBenchmark {
+
+    private static final String RESPONSE_BODY = "{\"id\":\"chatcmpl-bench\",\"object\":\"chat.completion\",\"created\":0,"
+            + "\"model\":\"gpt-bench\",\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\","
+            + "\"content\":\"benchmark answer\"},\"finish_reason\":\"stop\"}],"
+            + "\"usage\":{\"prompt_tokens\":5,\"completion_tokens\":2,\"total_tokens\":7}}";
+
+    private static final int MAX_LATENCY_SAMPLES = 1 << 21;
+
+    // The stub and the load client get their own event loops: the application under test shuts
+    // down Reactor Netty's global resources when its context closes
+    private static final LoopResources BENCHMARK_LOOPS = LoopResources.create("benchmark", 2, true);
+
+    private WebStackBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        SimpleCommandLinePropertySource options = new SimpleCommandLinePropertySource(args);
+        int concurrency = Integer.parseInt(option(options, "concurrency", "256"));
+        Duration warmup = DurationStyle.detectAndParse(option(options, "warmup", "5s"));
+        Duration duration = DurationStyle.detectAndParse(option(options, "duration", "15s"));
+        Duration upstreamLatency = DurationStyle.detectAndParse(option(options, "upstream-latency", "200ms"));
+        String[] modes = option(options, "modes", "servlet,reactive").split(",");
+
+        DisposableServer upstream = startUpstream(upstreamLatency);
+        List<String> report = new ArrayList<>();
+        try {
+            for (String mode : modes) {
+                WebApplicationType type = WebApplicationType.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+                report.add(run(type, upstream.port(), concurrency, warmup, duration));
+            }
+        } finally {
+            upstream.disposeNow();
+            BENCHMARK_LOOPS.disposeLater().block();
+        }
+
+        System.out.printf("%nconcurrency=%d upstream-latency=%s duration=%s%n", concurrency, upstreamLatency, duration);
+        System.out.printf("%-9s %10s %9s %9s %8s %14s %8s%n",
+                "mode", "req/s", "p50 ms", "p99 ms", "errors", "heap/inflight", "threads");
+        report.forEach(System.out::println);
+    }
+
+    private static String run(WebApplicationType type, int upstreamPort, int concurrency,
+                              Duration warmup, Duration duration) throws InterruptedException {
+        ConfigurableApplicationContext app = new SpringApplicationBuilder(AiIntegrationApplication.class, ReactorNettyServer.class)
+                .web(type)
+                .run("--server.port=0",
+                        "--openai.api.url=http://localhost:" + upstreamPort + "/v1/chat/completions",
+                        "--openai.api.key=benchmark",
+                        "--openai.cache.enabled=false",
+                        "--openai.single-flight.enabled=false",
+                        "--openai.rate-limit.enabled=false", // The account's budget would cap throughput, not the web stack
+                        "--logging.level.root=WARN",
+                        "--logging.level.com.example=WARN",
+                        "--logging.level.org.springframework.web.reactive.function.client=WARN");
+        int port = app.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+
+        ConnectionProvider pool = ConnectionProvider.builder("benchmark-client")
+                .maxConnections(concurrency)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        WebClient client = WebClient.builder()
+                .baseUrl("http://localhost:" + port)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(pool).runOn(BENCHMARK_LOOPS)))
+                .build();
+        try {
+            drive(client, concurrency, warmup, new Recorder());
+
+            long idleHeap = usedHeapAfterGc();
+            int idleThreads = ManagementFactory.getThreadMXBean().getThreadCount();
+
+            Recorder recorder = new Recorder();
+            Thread sampler = new Thread(() -> recorder.sampleWhileRunning(duration));
+            sampler.start();
+            long started = System.nanoTime();
+            drive(client, concurrency, duration, recorder);
+            double seconds = (System.nanoTime() - started) / 1e9;
+            sampler.join();
+
+            long heapPerRequest = Math.max(0, recorder.medianHeap() - idleHeap) / concurrency;
+            return String.format("%-9s %10.0f %9.1f %9.1f %8d %11d KB %8d",
+                    type.name().toLowerCase(Locale.ROOT),
+                    recorder.completed.get() / seconds,
+                    recorder.percentileMillis(0.50),
+                    recorder.percentileMillis(0.99),
+                    recorder.errors.get(),
+                    heapPerRequest / 1024,
+                    recorder.peakThreads.get() - idleThreads);
+        } finally {
+            pool.disposeLater().block();
+            app.close();
+        }
+    }
+
+    // Closed loop: every worker keeps exactly one request in flight until the deadline
+    private static void drive(WebClient client, int concurrency, Duration duration, Recorder recorder) {
+        long deadline = System.nanoTime() + duration.toNanos();
+        Flux.range(0, concurrency)
+                .flatMap(worker -> Mono.defer(() -> call(client, worker, recorder))
+                        .repeat(() -> System.nanoTime() < deadline), concurrency)
+                .blockLast();
+    }
+
+    private static Mono<Void> call(WebClient client, int worker, Recorder recorder) {
+        long start = System.nanoTime();
+        return client.post()
+                .uri("/api/ai/complete")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"prompt\":\"benchmark prompt " + worker + "\"}")
+                .retrieve()
+                .toBodilessEntity()
+                .doOnSuccess(response -> recorder.record(System.nanoTime() - start))
+                .onErrorResume(e -> {
+                    recorder.errors.incrementAndGet();
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private static DisposableServer startUpstream(Duration latency) {
+        return HttpServer.create()
+                .runOn(BENCHMARK_LOOPS)
+                .host("localhost")
+                .port(0)
+                .handle((request, response) -> request.receive().then()
+                        .then(Mono.delay(latency))
+                        .then(response.header(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON)
+                                .sendString(Mono.just(RESPONSE_BODY))
+                                .then()))
+                .bindNow();
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        System.gc();
+        Thread.sleep(200);
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static String option(SimpleCommandLinePropertySource options, String name, String defaultValue) {
+        String value = options.getProperty(name);
+        return value != null ? value : defaultValue;
+    }
+
+    private static final class Recorder {
+        private final AtomicLongArray latencies = new AtomicLongArray(MAX_LATENCY_SAMPLES);
+        private final AtomicInteger samples = new AtomicInteger();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicInteger peakThreads = new AtomicInteger();
+        private final long[] heapSamples = new long[3];
+
+        void record(long latencyNanos) {
+            completed.incrementAndGet();
+            int slot = samples.getAndIncrement();
+            if (slot < MAX_LATENCY_SAMPLES) {
+                latencies.set(slot, latencyNanos);
+            }
+        }
+
+        // Heap after GC at 1/4, 2/4 and 3/4 of the run, while the in-flight count is steady
+        void sampleWhileRunning(Duration duration) {
+            try {
+                for (int i = 0; i < heapSamples.length; i++) {
+                    Thread.sleep(duration.toMillis() / (heapSamples.length + 1));
+                    peakThreads.accumulateAndGet(ManagementFactory.getThreadMXBean().getThreadCount(), Math::max);
+                    heapSamples[i] = usedHeapAfterGc();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        long medianHeap() {
+            long[] sorted = heapSamples.clone();
+            Arrays.sort(sorted);
+            return sorted[sorted.length / 2];
+        }
+
+        double percentileMillis(double percentile) {
+            int count = Math.min(samples.get(), MAX_LATENCY_SAMPLES);
+            if (count == 0) {
+                return Double.NaN;
+            }
+            long[] sorted = new long[count];
+            for (int i = 0; i < count; i++) {
+                sorted[i] = latencies.get(i);
+            }
+            Arrays.sort(sorted);
+            return sorted[Math.min(count - 1, (int) (percentile * count))] / 1e6;
+        }
+    }
+}
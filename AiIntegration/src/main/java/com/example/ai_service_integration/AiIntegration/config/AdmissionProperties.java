@@ -0,0 +1,52 @@
+package com.example.ai_service_integration.AiIntegration.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-tenant admission in front of the API ({@code openai.admission.*} in application.yml).
+ * A request belongs to the tenant listing its API key under {@code tenants}; requests with any
+ * other key, or none, share the anonymous tenant, with weight 1 and normal priority.
+ */
+@Data
+@ConfigurationProperties(prefix = "openai.admission")
+public class AdmissionProperties {
+
+    private boolean enabled = false;
+    private int maxConcurrency = 64; // Requests in progress at once, over all tenants
+    private int maxQueuePerTenant = 100; // Queued requests of one tenant; beyond it requests are rejected at once
+    private int maxQueued = 1000; // Queued requests over all tenants; beyond it requests are rejected at once
+    private int maxTenantQueues = 1000; // Tenants queued apart at once; requests of further tenants share the anonymous queue
+    private Duration target = Duration.ofMillis(100); // Acceptable queue delay once a tenant's queue is standing
+    private Duration interval = Duration.ofSeconds(1); // Queue delay allowed otherwise; a queue not empty for this long is standing
+    private String apiKeyHeader = "X-Api-Key"; // Identifies the tenant, if it holds one of the tenants' api-keys
+    private String priorityHeader = "X-Priority"; // high|normal|low; can lower the tenant's priority, never raise it
+    private Map<String, Tenant> tenants = new HashMap<>();
+
+    public enum Priority {
+        HIGH, NORMAL, LOW // Served strictly in this order
+    }
+
+    @Data
+    public static class Tenant {
+        private int weight = 1; // Share of the slots relative to other waiting tenants of the same priority
+        private Priority priority = Priority.NORMAL;
+        private List<String> apiKeys = new ArrayList<>(); // Keys that identify the tenant; no one else can claim its share
+    }
+
+    public int weightOf(String tenant) {
+        Tenant settings = tenants.get(tenant);
+        return settings != null ? Math.max(1, settings.getWeight()) : 1;
+    }
+
+    public Priority priorityOf(String tenant) {
+        Tenant settings = tenants.get(tenant);
+        return settings != null ? settings.getPriority() : Priority.NORMAL;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.ai_service_integration.AiIntegration.config;
+
+import com.example.ai_service_integration.AiIntegration.service.AiService;
+import com.example.ai_service_integration.AiIntegration.service.OpenAiServiceImpl;
+import com.example.ai_service_integration.AiIntegration.service.cache.CachingAiService;
+import com.example.ai_service_integration.AiIntegration.service.cache.SimilarityCachingAiService;
+import com.example.ai_service_integration.AiIntegration.service.job.JobService;
+import com.example.ai_service_integration.AiIntegration.service.metrics.MetricsAiService;
+import com.example.ai_service_integration.AiIntegration.service.session.SessionService;
+import com.example.ai_service_integration.AiIntegration.service.store.CompletionStore;
+import com.example.ai_service_integration.AiIntegration.service.store.PersistentCachingAiService;
+import com.example.ai_service_integration.AiIntegration.service.token.TokenEstimator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Assembles the {@link AiService} the controller talks to: the OpenAI implementation
+ * wrapped in whichever decorators are enabled.
+ */
+@Configuration
+public class AiServiceConfig {
+
+    @Value("${openai.api.model}")
+    private String model;
+
+    @Value("${openai.api.max-tokens}")
+    private Integer maxTokens;
+
+    @Value("${openai.api.temperature}")
+    private Double temperature;
+
+    @Value("${openai.cache.enabled:true}")
+    private boolean cacheEnabled;
+
+    @Value("${openai.cache.max-size:10000}")
+    private long cacheMaxSize;
+
+    @Value("${openai.cache.ttl:10m}")
+    private Duration cacheTtl;
+
+    // Closed after the AiService that uses it, which writes the manifest for a fast restart
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "openai.store", name = "enabled", havingValue = "true")
+    public CompletionStore completionStore(CompletionStoreProperties properties) throws IOException {
+        return CompletionStore.open(properties);
+    }
+
+    @Bean
+    @Primary
+    public AiService aiService(OpenAiServiceImpl openAiServiceImpl, SimilarityCacheProperties similarityCacheProperties,
+                               ObjectProvider<CompletionStore> completionStore, MeterRegistry meterRegistry) {
+        AiService service = openAiServiceImpl;
+        CompletionStore store = completionStore.getIfAvailable();
+        if (store != null) {
+            service = new PersistentCachingAiService(service, store, model, maxTokens, temperature, meterRegistry);
+        }
+        if (cacheEnabled) {
+            service = new CachingAiService(service, model, maxTokens, temperature, cacheMaxSize, cacheTtl, meterRegistry);
+        }
+        if (similarityCacheProperties.isEnabled()) {
+            service = new SimilarityCachingAiService(service, similarityCacheProperties, meterRegistry);
+        }
+        return new MetricsAiService(service, model, meterRegistry);
+    }
+
+    // Closed before the AiService, so results in flight are not written to a stopped pipeline
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "openai.jobs", name = "enabled", havingValue = "true")
+    public JobService jobService(JobProperties properties, AiService aiService, ObjectMapper objectMapper,
+                                 MeterRegistry meterRegistry) throws IOException {
+        return new JobService(properties, aiService, objectMapper, meterRegistry);
+    }
+
+    // History is budgeted against the window of the configured model, less the room kept for the answer
+    @Bean
+    @ConditionalOnProperty(prefix = "openai.sessions", name = "enabled", havingValue = "true")
+    public SessionService sessionService(SessionProperties properties, AiService aiService, TokenEstimator tokenEstimator,
+                                         TokenBudgetProperties tokenBudgetProperties, MeterRegistry meterRegistry) {
+        int promptTokens = tokenBudgetProperties.contextWindowFor(model) - maxTokens;
+        return new SessionService(properties, aiService, tokenEstimator, promptTokens, meterRegistry);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.ai_service_integration.AiIntegration.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Circuit breaker in front of the upstream API ({@code openai.circuit-breaker.*} in application.yml).
+ */
+@Data
+@ConfigurationProperties(prefix = "openai.circuit-breaker")
+public class CircuitBreakerProperties {
+
+    private boolean enabled = true;
+    private double failureRateThreshold = 0.5; // Share of failed calls in the window that opens the circuit
+    private int slidingWindowSize = 20; // Most recent calls the failure rate is computed over
+    private int minimumCalls = 10; // Calls needed in the window before the rate is trusted
+    private Duration openDuration = Duration.ofSeconds(30); // Fail fast this long before probing again
+    private int halfOpenTrials = 3; // Probe calls that must all succeed to close the circuit
+}
@@ -0,0 +1,23 @@
+package com.example.ai_service_integration.AiIntegration.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Disk-backed completion store ({@code openai.store.*} in application.yml).
+ */
+@Data
+@ConfigurationProperties(prefix = "openai.store")
+public class CompletionStoreProperties {
+
+    private boolean enabled = false;
+    private String directory = "data/completion-store";
+    private Duration ttl = Duration.ofDays(7);
+    private DataSize segmentSize = DataSize.ofMegabytes(256); // One log file; at most 1 GB, and a record must fit in one
+    private long expectedEntries = 1_000_000; // Initial index size; the index grows past it on its own
+    private Duration compactionInterval = Duration.ofMinutes(10); // Zero turns background compaction off
+    private double compactionThreshold = 0.5; // Share of dead bytes at which a segment is rewritten
+}
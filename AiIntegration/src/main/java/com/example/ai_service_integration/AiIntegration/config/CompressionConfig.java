@@ -0,0 +1,37 @@
+package com.example.ai_service_integration.AiIntegration.config;
+
+import com.example.ai_service_integration.AiIntegration.service.compression.BoundedContentDecompressor;
+import com.example.ai_service_integration.AiIntegration.service.compression.HttpByteCounters;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.NettyPipeline;
+
+/**
+ * Client-facing leg of body compression. Responses are compressed by Reactor Netty itself
+ * ({@code server.compression.*}: negotiated by Accept-Encoding, above a minimum size, chunk by
+ * chunk as they are written); this adds the other direction and the byte counters.
+ */
+@Configuration
+public class CompressionConfig {
+
+    public static final String REQUEST_DECOMPRESSOR = "ai.requestDecompressor";
+
+    // Request bodies sent with Content-Encoding gzip or deflate are inflated chunk by chunk before
+    // the application reads them, so controllers and their size limits see the plain body; past
+    // max-inflated-request-size the request fails with 413
+    @Bean
+    public NettyServerCustomizer compressionServerCustomizer(CompressionProperties properties, MeterRegistry meterRegistry) {
+        HttpByteCounters counters = properties.isMetrics() ? HttpByteCounters.client(meterRegistry) : null;
+        long maxInflatedBytes = properties.getMaxInflatedRequestSize().toBytes();
+        return httpServer -> httpServer.doOnChannelInit((observer, channel, remoteAddress) -> {
+            if (properties.isRequestDecompression() && channel.pipeline().get(NettyPipeline.ReactiveBridge) != null) {
+                channel.pipeline().addBefore(NettyPipeline.ReactiveBridge, REQUEST_DECOMPRESSOR, new BoundedContentDecompressor(maxInflatedBytes));
+            }
+            if (counters != null) {
+                counters.addTo(channel.pipeline());
+            }
+        });
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.ai_service_integration.AiIntegration.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Body compression on both legs ({@code openai.compression.*} in application.yml). Compressed
+ * responses to clients are Spring Boot's {@code server.compression.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "openai.compression")
+public class CompressionProperties {
+
+    private boolean requestDecompression = true; // Accept gzip/deflate request bodies (Content-Encoding) from clients
+    private DataSize maxInflatedRequestSize = DataSize.ofMegabytes(32); // A compressed body inflating past this fails with 413
+    private boolean metrics = true; // ai.http.bytes: body bytes on the wire and after decoding, per leg and direction
+    private final Upstream upstream = new Upstream();
+
+    @Data
+    public static class Upstream {
+        private boolean acceptCompressed = true; // Send Accept-Encoding: gzip; answers are inflated as they arrive
+        private boolean compressRequests = false; // Gzip request bodies; only for upstreams that accept Content-Encoding
+        private DataSize minRequestSize = DataSize.ofKilobytes(1); // Smaller request bodies are sent as they are
+        private int level = 1; // Deflate level, 1 (fastest) to 9 (smallest)
+    }
+}
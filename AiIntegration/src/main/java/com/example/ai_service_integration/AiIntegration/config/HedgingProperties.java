@@ -0,0 +1,20 @@
+package com.example.ai_service_integration.AiIntegration.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Hedged upstream requests ({@code openai.hedging.*} in application.yml).
+ */
+@Data
+@ConfigurationProperties(prefix = "openai.hedging")
+public class HedgingProperties {
+
+    private boolean enabled = false;
+    private double percentile = 0.95; // Hedge once a call is slower than this share of recent calls
+    private Duration minDelay = Duration.ofMillis(100); // Never hedge sooner than this
+    private int minSamples = 50; // Recent calls needed before the percentile is trusted
+    private int maxInFlight = 16; // Hedges running at once; beyond this, slow calls just wait
+}
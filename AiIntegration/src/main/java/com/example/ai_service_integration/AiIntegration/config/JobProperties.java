@@ -0,0 +1,24 @@
+package com.example.ai_service_integration.AiIntegration.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Asynchronous completion jobs ({@code openai.jobs.*} in application.yml).
+ */
+@Data
+@ConfigurationProperties(prefix = "openai.jobs")
+public class JobProperties {
+
+    private boolean enabled = false;
+    private String directory = "data/jobs";
+    private double rate = 5; // Prompts started per second, over all jobs
+    private int concurrency = 4; // Prompts in progress at once
+    private int maxPrompts = 100_000; // Per job
+    private int maxAttempts = 3; // Per prompt, for failures worth retrying (429, 503)
+    private Duration retryBackoff = Duration.ofSeconds(1); // Wait before the first retry, doubled for each one after; a longer Retry-After wins
+    private Duration retention = Duration.ofDays(7); // Finished jobs are deleted this long after submission
+    private Duration pollInterval = Duration.ofSeconds(1); // How often a followed result stream checks for news
+}
@@ -0,0 +1,26 @@
+package com.example.ai_service_integration.AiIntegration.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Choice between a small, fast model and a large one per request ({@code openai.model-routing.*}
+ * in application.yml).
+ */
+@Data
+@ConfigurationProperties(prefix = "openai.model-routing")
+public class ModelRoutingProperties {
+
+    private boolean enabled = false;
+    private String smallModel = "gpt-4o-mini";
+    private String largeModel = "gpt-4o";
+    private int maxSmallPromptTokens = 500; // Longer prompts go to the large model
+    private List<String> largeMarkers = new ArrayList<>(); // Phrases (any case) that send a prompt to the large model
+    private boolean fallback = true; // Try the other model once when the chosen one is overloaded (429/503)
+    private boolean deadlineAware = true; // Take the small model when the large one would likely miss the client's deadline
+    private double latencyPercentile = 0.5; // Of recent large-model calls, for the deadline check
+    private int minSamples = 20; // Recent calls needed before the latency prediction is trusted
+}
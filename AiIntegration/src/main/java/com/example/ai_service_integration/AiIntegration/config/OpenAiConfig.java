@@ -1,20 +1,42 @@
 package com.example.ai_service_integration.AiIntegration.config;
 
+import com.example.ai_service_integration.AiIntegration.service.AiRequestContext;
+import com.example.ai_service_integration.AiIntegration.service.codec.OpenAiRequestEncoder;
+import com.example.ai_service_integration.AiIntegration.service.codec.OpenAiResponseDecoder;
+import com.example.ai_service_integration.AiIntegration.service.compression.GzipRequestFilter;
+import com.example.ai_service_integration.AiIntegration.service.compression.HttpByteCounters;
+import com.example.ai_service_integration.AiIntegration.service.metrics.AiMetrics;
+import com.example.ai_service_integration.AiIntegration.service.tracing.UpstreamTracing;
+import com.example.ai_service_integration.AiIntegration.service.upstream.UpstreamBackend;
+import com.example.ai_service_integration.AiIntegration.service.upstream.UpstreamBackends;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.netty.channel.ChannelOption;
-import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.socket.nio.NioChannelOption;
 import io.netty.handler.timeout.WriteTimeoutHandler;
+import jdk.net.ExtendedSocketOptions;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
-import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 @Configuration
+@EnableConfigurationProperties({OpenAiHttpClientProperties.class, RateLimitProperties.class, HedgingProperties.class,
+        RetryProperties.class, CircuitBreakerProperties.class, RoutingProperties.class, SimilarityCacheProperties.class,
+        CompletionStoreProperties.class, TokenBudgetProperties.class, AdmissionProperties.class,
+        JobProperties.class, TimeoutProperties.class, WarmupProperties.class,
+        SessionProperties.class, ModelRoutingProperties.class, PricingProperties.class, CompressionProperties.class})
 public class OpenAiConfig {
 
     @Value("${openai.api.url}")
@@ -23,24 +45,121 @@ public class OpenAiConfig {
     @Value("${openai.api.key}")
     private String openaiApiKey;
 
-    @Value("${openai.api.timeout}")
-    private int timeoutMillis;
+    private final OpenAiHttpClientProperties httpProperties;
+    private final TimeoutProperties timeoutProperties;
+    private final CompressionProperties compressionProperties;
+    private final MeterRegistry meterRegistry;
 
+    public OpenAiConfig(OpenAiHttpClientProperties httpProperties, TimeoutProperties timeoutProperties,
+                        CompressionProperties compressionProperties, MeterRegistry meterRegistry) {
+        this.httpProperties = httpProperties;
+        this.timeoutProperties = timeoutProperties;
+        this.compressionProperties = compressionProperties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Named pool so its gauges (reactor.netty.connection.provider.*) can be told apart
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider openAiConnectionProvider() {
+        OpenAiHttpClientProperties.Pool pool = httpProperties.getPool();
+        ConnectionProvider.Builder builder = ConnectionProvider.builder(pool.getName())
+                .maxConnections(pool.getMaxConnections())
+                .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .maxLifeTime(pool.getMaxLifeTime())
+                .evictInBackground(pool.getEvictionInterval())
+                .metrics(pool.isMetrics());
+        return (pool.isLifo() ? builder.lifo() : builder.fifo()).build();
+    }
+
+    @Bean
+    public WebClient openAiWebClient(ConnectionProvider openAiConnectionProvider) {
+        return webClient(httpClient(openAiConnectionProvider), openaiApiUrl, RoutingProperties.Auth.BEARER, openaiApiKey);
+    }
 
+    // The default openai.api.* backend first, then any extra ones from openai.routing.backends
     @Bean
-    public WebClient openAiWebClient() {
-        HttpClient httpClient = HttpClient.create()
-                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, timeoutMillis) // Connection timeout
-                .responseTimeout(Duration.ofMillis(timeoutMillis)) // Response timeout
+    public UpstreamBackends upstreamBackends(WebClient openAiWebClient, ConnectionProvider openAiConnectionProvider,
+                                             RoutingProperties routingProperties) {
+        List<UpstreamBackend> backends = new ArrayList<>();
+        backends.add(new UpstreamBackend(AiRequestContext.DEFAULT_API_KEY_ID, openAiWebClient));
+        HttpClient httpClient = httpClient(openAiConnectionProvider);
+        for (RoutingProperties.Backend backend : routingProperties.getBackends()) {
+            backends.add(new UpstreamBackend(backend.getId(),
+                    webClient(httpClient, backend.getUrl(), backend.getAuth(), backend.getKey())));
+        }
+        return new UpstreamBackends(backends);
+    }
+
+    // Only transport limits here: how long a completion may take is up to AdaptiveTimeoutFilter,
+    // and an idle-read limit would cut off long generations that send nothing until they are done
+    private HttpClient httpClient(ConnectionProvider connectionProvider) {
+        long writeMillis = timeoutProperties.getWrite().toMillis();
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) timeoutProperties.getConnect().toMillis())
+                .responseTimeout(timeoutProperties.getMax()) // Backstop for calls outside the filter chain
+                .keepAlive(true) // HTTP persistent connections, so pooled connections are reused
                 .doOnConnected(conn ->
-                        conn.addHandlerLast(new ReadTimeoutHandler(timeoutMillis, TimeUnit.MILLISECONDS))
-                                .addHandlerLast(new WriteTimeoutHandler(timeoutMillis, TimeUnit.MILLISECONDS)));
+                        conn.addHandlerLast(new WriteTimeoutHandler(writeMillis, TimeUnit.MILLISECONDS)))
+                .doOnRequest((request, conn) -> UpstreamTracing.requestSent(request.currentContextView()))
+                .doOnResponse((response, conn) -> UpstreamTracing.responseReceived(response.currentContextView()))
+                .compress(compressionProperties.getUpstream().isAcceptCompressed()); // Inflated chunk by chunk, not buffered
+        if (compressionProperties.isMetrics()) {
+            HttpByteCounters counters = HttpByteCounters.upstream(meterRegistry,
+                    !compressionProperties.getUpstream().isCompressRequests());
+            httpClient = httpClient.doOnChannelInit((observer, channel, remoteAddress) -> counters.addTo(channel.pipeline()));
+        }
+
+        if (httpProperties.isHttp2()) {
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11);
+        }
+        return withTcpKeepAlive(httpClient, httpProperties.getKeepAlive());
+    }
 
-        return WebClient.builder()
-                .baseUrl(openaiApiUrl)
+    // OpenAI takes a bearer token, Azure OpenAI an api-key header
+    private WebClient webClient(HttpClient httpClient, String url, RoutingProperties.Auth auth, String key) {
+        WebClient.Builder builder = WebClient.builder()
+                .baseUrl(url)
                 .defaultHeader(HttpHeaders.CONTENT_TYPE, "application/json")
-                .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + openaiApiKey)
                 .clientConnector(new ReactorClientHttpConnector(httpClient))
-                .build();
+                .filter(UpstreamTracing.correlationIdFilter());
+        CompressionProperties.Upstream compression = compressionProperties.getUpstream();
+        if (compression.isCompressRequests()) {
+            builder.filter(new GzipRequestFilter((int) compression.getMinRequestSize().toBytes(), compression.getLevel(),
+                    AiMetrics.httpBytes(meterRegistry, "upstream", "request", "content")));
+        }
+        if (httpProperties.isCompactCodec()) {
+            // Typed codecs win over the generic Jackson ones for these two classes only
+            builder.codecs(codecs -> {
+                codecs.customCodecs().registerWithDefaultConfig(new OpenAiRequestEncoder());
+                codecs.customCodecs().registerWithDefaultConfig(new OpenAiResponseDecoder());
+            });
+        }
+        if (auth == RoutingProperties.Auth.API_KEY) {
+            builder.defaultHeader("api-key", key);
+        } else {
+            builder.defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + key);
+        }
+        return builder.build();
+    }
+
+    // Keep-alive probes stop NATs and load balancers from silently dropping connections that sit idle
+    // in the pool or wait long for an answer; they only help if they start before max-idle-time
+    private static HttpClient withTcpKeepAlive(HttpClient httpClient, OpenAiHttpClientProperties.KeepAlive keepAlive) {
+        if (!keepAlive.isEnabled()) {
+            return httpClient.option(ChannelOption.SO_KEEPALIVE, false);
+        }
+        int idleSeconds = (int) keepAlive.getIdle().toSeconds();
+        int intervalSeconds = (int) keepAlive.getInterval().toSeconds();
+        httpClient = httpClient.option(ChannelOption.SO_KEEPALIVE, true);
+        if (Epoll.isAvailable()) {
+            return httpClient.option(EpollChannelOption.TCP_KEEPIDLE, idleSeconds)
+                    .option(EpollChannelOption.TCP_KEEPINTVL, intervalSeconds)
+                    .option(EpollChannelOption.TCP_KEEPCNT, keepAlive.getCount());
+        }
+        return httpClient.option(NioChannelOption.of(ExtendedSocketOptions.TCP_KEEPIDLE), idleSeconds)
+                .option(NioChannelOption.of(ExtendedSocketOptions.TCP_KEEPINTERVAL), intervalSeconds)
+                .option(NioChannelOption.of(ExtendedSocketOptions.TCP_KEEPCOUNT), keepAlive.getCount());
     }
 }
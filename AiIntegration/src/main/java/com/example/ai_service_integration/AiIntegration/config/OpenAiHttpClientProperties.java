@@ -0,0 +1,41 @@
+package com.example.ai_service_integration.AiIntegration.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Transport settings of the OpenAI {@code WebClient}: the connection pool and the socket options
+ * of pooled connections ({@code openai.http.*} in application.yml).
+ */
+@Data
+@ConfigurationProperties(prefix = "openai.http")
+public class OpenAiHttpClientProperties {
+
+    private final Pool pool = new Pool();
+    private final KeepAlive keepAlive = new KeepAlive();
+    private boolean http2 = false; // Offer HTTP/2 via ALPN on https URLs, falling back to HTTP/1.1
+    private boolean compactCodec = true; // Prefix-caching request encoder and field-picking response decoder
+
+    @Data
+    public static class Pool {
+        private String name = "openai"; // Also the "name" tag of the pool gauges
+        private int maxConnections = 500;
+        private int pendingAcquireMaxCount = 1000; // Requests allowed to wait for a connection (-1 = unbounded)
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(45);
+        private Duration maxIdleTime = Duration.ofSeconds(30); // Close before the server silently drops the connection
+        private Duration maxLifeTime = Duration.ofMinutes(10);
+        private Duration evictionInterval = Duration.ofSeconds(30); // 0 = only check on acquire
+        private boolean lifo = true; // Reuse the most recently released (warmest) connection first
+        private boolean metrics = true;
+    }
+
+    @Data
+    public static class KeepAlive {
+        private boolean enabled = true; // TCP keep-alive probes on idle pooled connections
+        private Duration idle = Duration.ofSeconds(15); // Keep below pool max-idle-time, or pooled connections are closed before the first probe
+        private Duration interval = Duration.ofSeconds(15);
+        private int count = 4;
+    }
+}
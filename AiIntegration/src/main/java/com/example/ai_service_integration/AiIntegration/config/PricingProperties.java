@@ -0,0 +1,33 @@
+package com.example.ai_service_integration.AiIntegration.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Token prices by model ({@code openai.pricing.*} in application.yml), for the cost meter.
+ * Models without a price are not costed.
+ */
+@Data
+@ConfigurationProperties(prefix = "openai.pricing")
+public class PricingProperties {
+
+    private Map<String, Price> models = new HashMap<>();
+
+    @Data
+    public static class Price {
+        private double prompt; // USD per million prompt tokens
+        private double completion; // USD per million completion tokens
+    }
+
+    /** USD billed for a call, or 0 for a model without a price. */
+    public double costOf(String model, long promptTokens, long completionTokens) {
+        Price price = model != null ? models.get(model) : null;
+        if (price == null) {
+            return 0;
+        }
+        return (promptTokens * price.getPrompt() + completionTokens * price.getCompletion()) / 1_000_000;
+    }
+}
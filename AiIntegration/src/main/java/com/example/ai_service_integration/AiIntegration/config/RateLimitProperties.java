@@ -0,0 +1,59 @@
+package com.example.ai_service_integration.AiIntegration.config;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Client-side budget for upstream calls ({@code openai.rate-limit.*} in application.yml).
+ * Limits can be narrowed per model, per API key, and per model of one API key; each value
+ * falls back to the next less specific level.
+ */
+@Data
+@ConfigurationProperties(prefix = "openai.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = false;
+    private Duration maxWait = Duration.ofSeconds(5); // Longest a request may queue for budget before a 429
+    private int maxQueue = 500; // Requests allowed to wait for budget at once
+    private int requestsPerMinute = 3500;
+    private int tokensPerMinute = 90000;
+    private Map<String, Limits> models = new HashMap<>();
+    private Map<String, KeyLimits> keys = new HashMap<>(); // By API key id ("default" for openai.api.key)
+
+    @Data
+    public static class Limits {
+        private Integer requestsPerMinute;
+        private Integer tokensPerMinute;
+    }
+
+    @Data
+    @EqualsAndHashCode(callSuper = true)
+    public static class KeyLimits extends Limits {
+        private Map<String, Limits> models = new HashMap<>();
+    }
+
+    /** Effective limits for one API key and model, most specific setting first. */
+    public Limits limitsFor(String keyId, String model) {
+        KeyLimits key = keys.get(keyId);
+        Limits[] levels = {key != null ? key.getModels().get(model) : null, key, models.get(model)};
+
+        Limits effective = new Limits();
+        effective.setRequestsPerMinute(requestsPerMinute);
+        effective.setTokensPerMinute(tokensPerMinute);
+        for (int i = levels.length - 1; i >= 0; i--) {
+            Limits level = levels[i];
+            if (level != null && level.getRequestsPerMinute() != null) {
+                effective.setRequestsPerMinute(level.getRequestsPerMinute());
+            }
+            if (level != null && level.getTokensPerMinute() != null) {
+                effective.setTokensPerMinute(level.getTokensPerMinute());
+            }
+        }
+        return effective;
+    }
+}
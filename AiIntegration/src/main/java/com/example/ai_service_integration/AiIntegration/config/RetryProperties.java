@@ -0,0 +1,20 @@
+package com.example.ai_service_integration.AiIntegration.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Retries of failed upstream calls ({@code openai.retry.*} in application.yml).
+ */
+@Data
+@ConfigurationProperties(prefix = "openai.retry")
+public class RetryProperties {
+
+    private boolean enabled = true;
+    private int maxAttempts = 3; // First call included
+    private Duration initialBackoff = Duration.ofMillis(250);
+    private Duration maxBackoff = Duration.ofSeconds(5);
+    private Duration maxRetryAfter = Duration.ofSeconds(10); // Give up rather than honour a longer Retry-After
+}
@@ -0,0 +1,37 @@
+package com.example.ai_service_integration.AiIntegration.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Load balancing of upstream calls over several backends ({@code openai.routing.*} in
+ * application.yml). The backend configured under {@code openai.api} always takes part, with the
+ * id "default"; {@code backends} adds more keys or endpoints (e.g. Azure OpenAI deployments).
+ */
+@Data
+@ConfigurationProperties(prefix = "openai.routing")
+public class RoutingProperties {
+
+    public enum Strategy { LEAST_OUTSTANDING, EWMA_LATENCY }
+
+    public enum Auth { BEARER, API_KEY } // OpenAI-style bearer token or Azure-style api-key header
+
+    private boolean enabled = false;
+    private Strategy strategy = Strategy.LEAST_OUTSTANDING;
+    private int ejectionThreshold = 3; // Consecutive 429/5xx answers before a backend is ejected
+    private Duration ejectionDuration = Duration.ofSeconds(30); // How long an ejected backend sits out
+    private double ewmaWeight = 0.3; // Weight of the newest latency sample in the moving average
+    private List<Backend> backends = new ArrayList<>();
+
+    @Data
+    public static class Backend {
+        private String id; // Also the API key id the rate limits are configured under
+        private String url; // Full chat completions URL
+        private String key;
+        private Auth auth = Auth.BEARER;
+    }
+}
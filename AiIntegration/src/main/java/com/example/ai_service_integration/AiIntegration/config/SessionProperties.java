@@ -0,0 +1,25 @@
+package com.example.ai_service_integration.AiIntegration.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Server-side conversation sessions ({@code openai.sessions.*} in application.yml).
+ */
+@Data
+@ConfigurationProperties(prefix = "openai.sessions")
+public class SessionProperties {
+
+    private boolean enabled = false;
+    private DataSize maxMemory = DataSize.ofMegabytes(64); // Off-heap history of all sessions; least recently used go first
+    private DataSize blockSize = DataSize.ofKilobytes(4); // Unit the memory is handed out in
+    private DataSize maxSessionSize = DataSize.ofKilobytes(256); // Per session; its oldest messages are dropped beyond this
+    private Duration idleTimeout = Duration.ofMinutes(30); // A session untouched this long is forgotten
+    private int maxSessions = 100_000; // Sessions kept at once, empty ones included; least recently used go first
+    private String systemPrompt = ""; // Sent first in every session, if set
+    private int verbatimMessages = 6; // Most recent messages always sent in full, if they fit
+    private int compactedMessageTokens = 64; // Older messages are cut to this many tokens (0 drops them instead)
+}
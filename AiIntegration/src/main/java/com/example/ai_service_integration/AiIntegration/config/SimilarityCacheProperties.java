@@ -0,0 +1,23 @@
+package com.example.ai_service_integration.AiIntegration.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Near-duplicate prompt cache ({@code openai.similarity-cache.*} in application.yml).
+ */
+@Data
+@ConfigurationProperties(prefix = "openai.similarity-cache")
+public class SimilarityCacheProperties {
+
+    private boolean enabled = false;
+    private double threshold = 0.9; // Minimum estimated Jaccard similarity of the prompts' shingle sets
+    private int shingleSize = 5; // Characters per shingle of the normalized prompt
+    private int bands = 32; // LSH bands; bands * rows MinHash values make up a signature
+    private int rows = 4;
+    private int maxCandidates = 32; // Candidates compared per lookup, so hot buckets stay cheap
+    private long maxSize = 10000;
+    private Duration ttl = Duration.ofMinutes(10);
+}
@@ -0,0 +1,27 @@
+package com.example.ai_service_integration.AiIntegration.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Upstream timeouts ({@code openai.timeouts.*} in application.yml). The transport limits are
+ * fixed; how long a completion may take is learned per model from recent calls, and until
+ * there are enough of those {@code openai.api.timeout} applies.
+ */
+@Data
+@ConfigurationProperties(prefix = "openai.timeouts")
+public class TimeoutProperties {
+
+    private Duration connect = Duration.ofSeconds(5); // TCP and TLS handshake
+    private Duration firstByte = Duration.ofSeconds(15); // Streams: until the response starts, and between events
+    private Duration write = Duration.ofSeconds(10); // Sending the request
+    private boolean adaptive = true; // Derive each call's deadline from recent latency of its model
+    private double percentile = 0.99; // Share of recent calls of the same size that would have made the deadline
+    private double headroom = 1.5; // Factor on top of that latency
+    private int minSamples = 20; // Recent calls needed before the model's latency is trusted
+    private Duration min = Duration.ofSeconds(2); // Adaptive deadlines never go below...
+    private Duration max = Duration.ofSeconds(120); // ...or above these; max also bounds the transport
+    private String deadlineHeader = "X-Request-Timeout"; // Client's own time budget in milliseconds
+}
@@ -0,0 +1,31 @@
+package com.example.ai_service_integration.AiIntegration.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pre-flight prompt budgeting against the model's context window ({@code openai.token-budget.*}
+ * in application.yml).
+ */
+@Data
+@ConfigurationProperties(prefix = "openai.token-budget")
+public class TokenBudgetProperties {
+
+    private boolean enabled = true;
+    private int contextWindow = 16385; // Prompt plus completion tokens; default for models not listed below
+    private Map<String, Integer> models = new HashMap<>(); // Context window by model
+    private Overflow overflow = Overflow.REJECT;
+    private int minCompletionTokens = 16; // A prompt leaving less room than this for the answer overflows
+
+    public enum Overflow {
+        REJECT, // Fail with a 400 before calling upstream
+        TRUNCATE // Cut the end of the last message to fit
+    }
+
+    public int contextWindowFor(String model) {
+        return models.getOrDefault(model, contextWindow);
+    }
+}
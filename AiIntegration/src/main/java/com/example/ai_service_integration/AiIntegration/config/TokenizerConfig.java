@@ -0,0 +1,43 @@
+package com.example.ai_service_integration.AiIntegration.config;
+
+import com.example.ai_service_integration.AiIntegration.service.token.BpeTokenizer;
+import com.example.ai_service_integration.AiIntegration.service.token.CharacterTokenEstimator;
+import com.example.ai_service_integration.AiIntegration.service.token.TokenEstimator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Provides the {@link TokenEstimator} used for rate limiting and prompt budgeting: the BPE
+ * tokenizer when its vocabulary can be read, the four-characters-per-token estimate otherwise.
+ */
+@Configuration
+public class TokenizerConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenizerConfig.class);
+
+    @Value("${openai.tokenizer.vocabulary:classpath:tokenizer/cl100k_base.tiktoken}")
+    private String vocabulary;
+
+    @Bean
+    public TokenEstimator tokenEstimator(ResourceLoader resourceLoader) {
+        if (!vocabulary.isBlank()) {
+            Resource resource = resourceLoader.getResource(vocabulary);
+            try (InputStream in = resource.getInputStream()) {
+                BpeTokenizer tokenizer = BpeTokenizer.load(in);
+                logger.info("Loaded BPE vocabulary {} ({} tokens).", vocabulary, tokenizer.size());
+                return tokenizer;
+            } catch (IOException e) {
+                logger.warn("Could not load BPE vocabulary {}, estimating four characters per token: {}", vocabulary, e.toString());
+            }
+        }
+        return new CharacterTokenEstimator();
+    }
+}
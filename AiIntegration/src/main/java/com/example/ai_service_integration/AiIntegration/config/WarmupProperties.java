@@ -0,0 +1,19 @@
+package com.example.ai_service_integration.AiIntegration.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Warm-up before the service reports ready ({@code openai.warmup.*} in application.yml).
+ */
+@Data
+@ConfigurationProperties(prefix = "openai.warmup")
+public class WarmupProperties {
+
+    private boolean enabled = true;
+    private int connections = 8; // Upstream connections opened into the pool per backend in use, TLS handshake included
+    private int codecRounds = 200; // Encode/decode round trips, so the first requests find the codecs compiled
+    private Duration timeout = Duration.ofSeconds(10); // Readiness turns green after this even if warm-up is not done
+}
@@ -0,0 +1,147 @@
+package com.example.ai_service_integration.AiIntegration.controller;
+
+import com.example.ai_service_integration.AiIntegration.config.AdmissionProperties;
+import com.example.ai_service_integration.AiIntegration.config.AdmissionProperties.Priority;
+import com.example.ai_service_integration.AiIntegration.dto.CompletionResponse;
+import com.example.ai_service_integration.AiIntegration.service.AiRequestContext;
+import com.example.ai_service_integration.AiIntegration.service.AiServiceException;
+import com.example.ai_service_integration.AiIntegration.service.admission.FairQueueScheduler;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Admits requests to {@code /api/ai/**} through a {@link FairQueueScheduler}, so one busy
+ * tenant queues behind its own requests instead of taking every slot. A request holds its slot
+ * until the response is fully written, streams and batches included. Requests the scheduler
+ * sheds get a 503 with Retry-After before reaching the controller.
+ * <p>
+ * The job API ({@code /api/ai/jobs/**}) is left out: its calls only touch the job files, its
+ * prompts are paced by the job service itself, and a result stream that follows a job for hours
+ * would otherwise keep an interactive slot all that time.
+ * <p>
+ * The tenant is the configured tenant whose {@code api-keys} hold the {@code api-key-header}
+ * value; requests without a key, or with a key no tenant lists, are {@code anonymous}. Keys are
+ * the only identity checked here: taking a tenant from a plain header, or a queue per unknown key,
+ * would let a client pose as another tenant or get a fresh queue on every request.
+ */
+@Component
+@ConditionalOnProperty(name = "openai.admission.enabled", havingValue = "true")
+public class AdmissionWebFilter implements WebFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionWebFilter.class);
+
+    private static final String API_PATH = "/api/ai/";
+    private static final String JOBS_PATH = "/api/ai/jobs";
+
+    private final AdmissionProperties properties;
+    private final FairQueueScheduler scheduler;
+    private final ObjectMapper objectMapper;
+    private final Map<String, String> tenantsByKey = new HashMap<>(); // Key fingerprint to tenant; keys themselves are not kept
+
+    public AdmissionWebFilter(AdmissionProperties properties, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.scheduler = new FairQueueScheduler(properties, meterRegistry);
+        this.objectMapper = objectMapper;
+        properties.getTenants().forEach((tenant, settings) -> settings.getApiKeys().forEach(key -> {
+            String other = tenantsByKey.put(fingerprint(key.trim()), tenant);
+            if (other != null && !other.equals(tenant)) {
+                throw new IllegalArgumentException("API key listed for both tenants " + other + " and " + tenant);
+            }
+        }));
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String path = exchange.getRequest().getPath().value();
+        if (!path.startsWith(API_PATH) || path.equals(JOBS_PATH) || path.startsWith(JOBS_PATH + "/")) {
+            return chain.filter(exchange);
+        }
+        HttpHeaders headers = exchange.getRequest().getHeaders();
+        String tenant = tenantOf(headers.getFirst(properties.getApiKeyHeader()));
+        Priority priority = priorityOf(tenant, headers.getFirst(properties.getPriorityHeader()));
+
+        return Mono.usingWhen(queued(scheduler.acquire(tenant, priority)),
+                        permit -> chain.filter(exchange),
+                        permit -> Mono.fromRunnable(permit::release))
+                .onErrorResume(AiServiceException.class, e -> {
+                    if (exchange.getResponse().isCommitted()) {
+                        return Mono.error(e);
+                    }
+                    logger.warn("Shedding request of tenant {}: {}", tenant, e.getMessage());
+                    return reject(exchange.getResponse(), e);
+                });
+    }
+
+    // Time spent waiting for a slot is the request's queue.admission span
+    private static <T> Mono<T> queued(Mono<T> permit) {
+        return Mono.deferContextual(context -> {
+            long start = System.nanoTime();
+            return permit.doOnNext(acquired -> AiRequestContext.getTrace(context).record("queue.admission", start));
+        });
+    }
+
+    private String tenantOf(String apiKey) {
+        if (apiKey == null || apiKey.isBlank()) {
+            return FairQueueScheduler.ANONYMOUS;
+        }
+        return tenantsByKey.getOrDefault(fingerprint(apiKey.trim()), FairQueueScheduler.ANONYMOUS);
+    }
+
+    // The header may lower the tenant's configured priority, never raise it
+    private Priority priorityOf(String tenant, String requested) {
+        Priority configured = properties.priorityOf(tenant);
+        if (requested == null) {
+            return configured;
+        }
+        try {
+            Priority priority = Priority.valueOf(requested.trim().toUpperCase(Locale.ROOT));
+            return priority.compareTo(configured) > 0 ? priority : configured;
+        } catch (IllegalArgumentException e) {
+            return configured;
+        }
+    }
+
+    private Mono<Void> reject(ServerHttpResponse response, AiServiceException e) {
+        response.setStatusCode(e.getStatus());
+        if (e.getRetryAfter() != null) {
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER, ErrorResponses.retryAfterSeconds(e.getRetryAfter()));
+        }
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(new CompletionResponse("Request rejected: " + e.getMessage(), null));
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+        } catch (JsonProcessingException ex) {
+            return response.setComplete();
+        }
+    }
+
+    // SHA-256 of the key, so lookups do not compare the secret itself
+    private static String fingerprint(String apiKey) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(apiKey.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -1,39 +1,156 @@
 package com.example.ai_service_integration.AiIntegration.controller;
 
+import com.example.ai_service_integration.AiIntegration.dto.BatchCompletionResult;
+import com.example.ai_service_integration.AiIntegration.dto.CompletionChunk;
 import com.example.ai_service_integration.AiIntegration.dto.CompletionRequest;
 import com.example.ai_service_integration.AiIntegration.dto.CompletionResponse;
+import com.example.ai_service_integration.AiIntegration.service.AiRequestContext;
+import com.example.ai_service_integration.AiIntegration.service.AiResponseMetadata;
 import com.example.ai_service_integration.AiIntegration.service.AiService;
+import com.example.ai_service_integration.AiIntegration.service.AiServiceException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.http.HttpStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Locale;
+
 @RestController
 @RequestMapping("/api/ai")
 public class AiController {
 
     private static final Logger logger = LoggerFactory.getLogger(AiController.class);
 
+    // Present when the answer was cached for a similar, not identical, prompt; the value is the similarity
+    public static final String APPROXIMATE_MATCH_HEADER = "X-Cache-Approximate-Match";
+
+    // "small" or "large": the caller's preferred model size, when model routing is enabled
+    public static final String MODEL_HINT_HEADER = "X-Model-Hint";
+
     private final AiService aiService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${openai.batch.concurrency:8}")
+    private int batchConcurrency; // Max upstream calls in flight per batch
 
-    public AiController(AiService aiService) {
+    public AiController(AiService aiService, ObjectMapper objectMapper) {
         this.aiService = aiService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping("/complete")
-    public Mono<ResponseEntity<CompletionResponse>> generateCompletion(@Valid @RequestBody CompletionRequest request) {
-        logger.info("Received request for AI completion.");
+    public Mono<ResponseEntity<CompletionResponse>> generateCompletion(@Valid @RequestBody CompletionRequest request,
+                                                                       @RequestHeader(value = HttpHeaders.CACHE_CONTROL, required = false) String cacheControl,
+                                                                       @RequestHeader(value = MODEL_HINT_HEADER, required = false) String modelHint) {
+        logger.debug("Received request for AI completion.");
 
+        AiResponseMetadata metadata = new AiResponseMetadata();
         return aiService.getAiCompletion(request.getPrompt())
-                .map(ResponseEntity::ok)
+                .map(response -> withMetadataHeaders(ResponseEntity.ok(), metadata).body(response))
+                .onErrorResume(AiServiceException.class, e -> {
+                    logger.warn("AI completion request failed with status {}: {}", e.getStatus().value(), e.getMessage());
+                    return Mono.just(ErrorResponses.completionError(e));
+                })
                 .onErrorResume(RuntimeException.class, e -> {
                     logger.error("Error processing AI completion request", e);
-                    // Return a bad request or internal server error depending on the error
-                    return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                            .body(new CompletionResponse("Error generating completion: " + e.getMessage(), null)));
+                    return Mono.just(ErrorResponses.unexpectedError(e));
+                })
+                .contextWrite(AiRequestContext.withModelHint(modelHint))
+                .contextWrite(AiRequestContext.withCacheBypass(isCacheBypass(cacheControl)))
+                .contextWrite(AiRequestContext.withResponseMetadata(metadata));
+    }
+
+    @PostMapping(value = "/complete/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<CompletionChunk>> streamCompletion(@Valid @RequestBody CompletionRequest request) {
+        logger.debug("Received request for streamed AI completion.");
+
+        return aiService.streamAiCompletion(request.getPrompt())
+                .map(chunk -> ServerSentEvent.builder(chunk).build())
+                .doOnCancel(() -> logger.debug("Client disconnected, cancelling upstream stream."))
+                .onErrorResume(RuntimeException.class, e -> {
+                    logger.error("Error processing streamed AI completion request", e);
+                    // Headers are already sent, so report the failure as a final "error" event
+                    return Mono.just(ServerSentEvent.builder(
+                                    new CompletionChunk("Error generating completion: " + e.getMessage(), null, "error"))
+                            .event("error")
+                            .build());
                 });
     }
+
+    @PostMapping(value = "/complete/batch", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BatchCompletionResult> generateBatchCompletion(@RequestBody Flux<CompletionRequest> requests) {
+        logger.debug("Received batch of AI completion requests.");
+
+        // Array elements are decoded as they arrive, so work starts before the whole body is read
+        return completeBatch(requests.map(BatchItem::of));
+    }
+
+    @PostMapping(value = "/complete/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BatchCompletionResult> generateBatchCompletionFromNdjson(@RequestBody Flux<String> requestLines) {
+        logger.debug("Received NDJSON batch of AI completion requests.");
+
+        // Lines are parsed one by one so a malformed line only fails its own item
+        return completeBatch(requestLines
+                .filter(line -> !line.isBlank())
+                .map(this::parseBatchLine));
+    }
+
+    // Results are streamed in completion order; each carries the index of its prompt
+    private Flux<BatchCompletionResult> completeBatch(Flux<BatchItem> items) {
+        return items.index()
+                .flatMap(indexed -> completeBatchItem(indexed.getT1().intValue(), indexed.getT2()), batchConcurrency);
+    }
+
+    private Mono<BatchCompletionResult> completeBatchItem(int index, BatchItem item) {
+        if (item.error() != null) {
+            return Mono.just(BatchCompletionResult.failure(index, item.error()));
+        }
+        return aiService.getAiCompletion(item.prompt())
+                .map(response -> BatchCompletionResult.success(index, response))
+                .onErrorResume(RuntimeException.class, e -> {
+                    logger.warn("Batch item {} failed: {}", index, e.getMessage());
+                    return Mono.just(BatchCompletionResult.failure(index, "Error generating completion: " + e.getMessage()));
+                });
+    }
+
+    private BatchItem parseBatchLine(String line) {
+        try {
+            return BatchItem.of(objectMapper.readValue(line, CompletionRequest.class));
+        } catch (JsonProcessingException e) {
+            return new BatchItem(null, "Malformed request: " + e.getOriginalMessage());
+        }
+    }
+
+    // A prompt to complete, or the reason it was rejected before reaching the service
+    private record BatchItem(String prompt, String error) {
+
+        static BatchItem of(CompletionRequest request) {
+            if (request == null || request.getPrompt() == null || request.getPrompt().isBlank()) {
+                return new BatchItem(null, "Prompt cannot be empty");
+            }
+            return new BatchItem(request.getPrompt(), null);
+        }
+    }
+
+    private static ResponseEntity.BodyBuilder withMetadataHeaders(ResponseEntity.BodyBuilder response, AiResponseMetadata metadata) {
+        Double similarity = metadata.getApproximateMatchSimilarity();
+        if (similarity != null) {
+            response.header(APPROXIMATE_MATCH_HEADER, String.format(Locale.ROOT, "%.3f", similarity));
+        }
+        return response;
+    }
+
+    // "Cache-Control: no-cache" (or no-store) forces a fresh upstream answer for this request
+    private static boolean isCacheBypass(String cacheControl) {
+        return cacheControl != null && (cacheControl.contains("no-cache") || cacheControl.contains("no-store"));
+    }
 }
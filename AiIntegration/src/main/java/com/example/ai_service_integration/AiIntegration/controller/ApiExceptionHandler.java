@@ -0,0 +1,38 @@
+package com.example.ai_service_integration.AiIntegration.controller;
+
+import com.example.ai_service_integration.AiIntegration.dto.CompletionResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.ServerWebInputException;
+
+import java.util.stream.Collectors;
+
+/**
+ * Turns request validation and decoding failures into the same {@link CompletionResponse} error
+ * body the controller uses, instead of the framework's default error page.
+ */
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiExceptionHandler.class);
+
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<CompletionResponse> handleValidationFailure(WebExchangeBindException e) {
+        String reason = e.getBindingResult().getAllErrors().stream()
+                .map(DefaultMessageSourceResolvable::getDefaultMessage)
+                .collect(Collectors.joining("; "));
+        logger.debug("Rejected invalid request: {}", reason);
+        return ResponseEntity.badRequest().body(new CompletionResponse("Invalid request: " + reason, null));
+    }
+
+    @ExceptionHandler(ServerWebInputException.class)
+    public ResponseEntity<CompletionResponse> handleUnreadableRequest(ServerWebInputException e) {
+        logger.debug("Rejected unreadable request: {}", e.getReason());
+        return ResponseEntity.badRequest().body(new CompletionResponse("Invalid request: " + e.getReason(), null));
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.ai_service_integration.AiIntegration.controller;
+
+import com.example.ai_service_integration.AiIntegration.service.AiRequestContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Starts the clock on a client's own time budget: a request carrying the {@code deadline-header}
+ * (milliseconds) gets a deadline in its Reactor context that every upstream call made for it is
+ * held to. Runs right after tracing, so time spent queueing for admission counts against the
+ * budget too. Budgets above {@code openai.timeouts.max} are cut down to it, since no upstream
+ * response may take longer anyway; values that are not a positive number of milliseconds are
+ * ignored.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class DeadlineWebFilter implements WebFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeadlineWebFilter.class);
+
+    private final String deadlineHeader;
+    private final long maxMillis;
+
+    public DeadlineWebFilter(@Value("${openai.timeouts.deadline-header:X-Request-Timeout}") String deadlineHeader,
+                             @Value("${openai.timeouts.max:120s}") Duration max) {
+        this.deadlineHeader = deadlineHeader;
+        this.maxMillis = max.toMillis();
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String value = exchange.getRequest().getHeaders().getFirst(deadlineHeader);
+        if (value == null) {
+            return chain.filter(exchange);
+        }
+        long millis;
+        try {
+            millis = Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            millis = 0; // Not a number, or beyond a long
+        }
+        if (millis <= 0) {
+            logger.debug("Ignoring malformed {} header: {}", deadlineHeader, value);
+            return chain.filter(exchange);
+        }
+        return chain.filter(exchange).contextWrite(AiRequestContext.withDeadline(Duration.ofMillis(Math.min(millis, maxMillis))));
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.ai_service_integration.AiIntegration.controller;
+
+import com.example.ai_service_integration.AiIntegration.dto.CompletionResponse;
+import com.example.ai_service_integration.AiIntegration.service.AiServiceException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+
+/** Error answers shared by the controllers and filters that speak {@link CompletionResponse}. */
+final class ErrorResponses {
+
+    private ErrorResponses() {
+    }
+
+    // Status chosen by the service layer, plus Retry-After when it has a hint
+    static ResponseEntity<CompletionResponse> completionError(AiServiceException e) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(e.getStatus());
+        if (e.getRetryAfter() != null) {
+            response.header(HttpHeaders.RETRY_AFTER, retryAfterSeconds(e.getRetryAfter()));
+        }
+        return response.body(new CompletionResponse("Error generating completion: " + e.getMessage(), null));
+    }
+
+    // Anything the service layer did not turn into an AiServiceException
+    static ResponseEntity<CompletionResponse> unexpectedError(RuntimeException e) {
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(new CompletionResponse("Error generating completion: " + e.getMessage(), null));
+    }
+
+    // Whole seconds, rounded up, as Retry-After wants them
+    static String retryAfterSeconds(Duration retryAfter) {
+        return String.valueOf(Math.max(1, (retryAfter.toMillis() + 999) / 1000));
+    }
+}
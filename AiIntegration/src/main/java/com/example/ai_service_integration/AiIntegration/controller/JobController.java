@@ -0,0 +1,120 @@
+package com.example.ai_service_integration.AiIntegration.controller;
+
+import com.example.ai_service_integration.AiIntegration.config.JobProperties;
+import com.example.ai_service_integration.AiIntegration.dto.BatchCompletionResult;
+import com.example.ai_service_integration.AiIntegration.dto.CompletionRequest;
+import com.example.ai_service_integration.AiIntegration.dto.CompletionResponse;
+import com.example.ai_service_integration.AiIntegration.service.AiServiceException;
+import com.example.ai_service_integration.AiIntegration.service.job.JobService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.URI;
+
+/**
+ * Job API for large offline workloads: submit many prompts at once, get a job id back right
+ * away, then poll the job or read (and optionally follow) its results as NDJSON.
+ */
+@RestController
+@RequestMapping("/api/ai/jobs")
+@ConditionalOnProperty(name = "openai.jobs.enabled", havingValue = "true")
+public class JobController {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobController.class);
+
+    private final JobService jobService;
+    private final JobProperties properties;
+    private final ObjectMapper objectMapper;
+
+    public JobController(JobService jobService, JobProperties properties, ObjectMapper objectMapper) {
+        this.jobService = jobService;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Object>> submitJob(@RequestBody Flux<CompletionRequest> requests) {
+        logger.info("Received job submission.");
+        return submit(requests);
+    }
+
+    @PostMapping(consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<ResponseEntity<Object>> submitJobFromNdjson(@RequestBody Flux<String> requestLines) {
+        logger.info("Received NDJSON job submission.");
+        return submit(requestLines
+                .filter(line -> !line.isBlank())
+                .map(this::parseLine));
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<Object>> getJob(@PathVariable String id) {
+        return Mono.fromCallable(() -> ResponseEntity.ok().<Object>body(jobService.status(id)))
+                .onErrorResume(AiServiceException.class, e -> Mono.just(errorResponse(e)));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Object>> cancelJob(@PathVariable String id) {
+        return Mono.fromCallable(() -> ResponseEntity.ok().<Object>body(jobService.cancel(id)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(AiServiceException.class, e -> Mono.just(errorResponse(e)));
+    }
+
+    // Results in the order they finished; with follow=true the stream stays open until the job is done
+    @GetMapping(value = "/{id}/results", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<ResponseEntity<Flux<BatchCompletionResult>>> getJobResults(@PathVariable String id,
+                                                                         @RequestParam(defaultValue = "false") boolean follow) {
+        return Mono.fromCallable(() -> ResponseEntity.ok().body(jobService.results(id, follow)))
+                .onErrorResume(AiServiceException.class, e -> Mono.just(ResponseEntity.status(e.getStatus()).build()));
+    }
+
+    // Prompts are checked up front: a job either is stored whole or not at all
+    private Mono<ResponseEntity<Object>> submit(Flux<CompletionRequest> requests) {
+        int maxPrompts = properties.getMaxPrompts();
+        return requests
+                .index()
+                .map(indexed -> {
+                    CompletionRequest request = indexed.getT2();
+                    if (indexed.getT1() >= maxPrompts) {
+                        throw new AiServiceException(HttpStatus.BAD_REQUEST, "A job can have at most " + maxPrompts + " prompts");
+                    }
+                    if (request == null || request.getPrompt() == null || request.getPrompt().isBlank()) {
+                        throw new AiServiceException(HttpStatus.BAD_REQUEST, "Prompt " + indexed.getT1() + " cannot be empty");
+                    }
+                    return request.getPrompt();
+                })
+                .collectList()
+                .flatMap(prompts -> {
+                    if (prompts.isEmpty()) {
+                        return Mono.error(new AiServiceException(HttpStatus.BAD_REQUEST, "A job needs at least one prompt"));
+                    }
+                    return Mono.fromCallable(() -> jobService.submit(prompts)).subscribeOn(Schedulers.boundedElastic());
+                })
+                .map(status -> ResponseEntity.accepted()
+                        .location(URI.create("/api/ai/jobs/" + status.getId()))
+                        .<Object>body(status))
+                .onErrorResume(AiServiceException.class, e -> Mono.just(errorResponse(e)));
+    }
+
+    private CompletionRequest parseLine(String line) {
+        try {
+            return objectMapper.readValue(line, CompletionRequest.class);
+        } catch (JsonProcessingException e) {
+            throw new AiServiceException(HttpStatus.BAD_REQUEST, "Malformed request: " + e.getOriginalMessage());
+        }
+    }
+
+    private static ResponseEntity<Object> errorResponse(AiServiceException e) {
+        logger.debug("Job request failed with status {}: {}", e.getStatus().value(), e.getMessage());
+        return ResponseEntity.status(e.getStatus()).body(new CompletionResponse("Job request failed: " + e.getMessage(), null));
+    }
+}
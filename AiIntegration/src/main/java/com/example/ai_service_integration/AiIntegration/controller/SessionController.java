@@ -0,0 +1,74 @@
+package com.example.ai_service_integration.AiIntegration.controller;
+
+import com.example.ai_service_integration.AiIntegration.dto.CompletionRequest;
+import com.example.ai_service_integration.AiIntegration.dto.CompletionResponse;
+import com.example.ai_service_integration.AiIntegration.dto.SessionInfo;
+import com.example.ai_service_integration.AiIntegration.service.AiServiceException;
+import com.example.ai_service_integration.AiIntegration.service.session.SessionService;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.regex.Pattern;
+
+/**
+ * Conversations kept on the server: the client starts a session, gets back an id issued by the
+ * server (random and unguessable, so it cannot name or reach anyone else's session) and then
+ * sends only its new messages; earlier turns of the session are added by the {@link SessionService}.
+ */
+@RestController
+@RequestMapping("/api/ai/sessions")
+@ConditionalOnProperty(name = "openai.sessions.enabled", havingValue = "true")
+public class SessionController {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionController.class);
+
+    private static final Pattern SESSION_ID = Pattern.compile("[A-Za-z0-9._-]{1,128}");
+
+    private final SessionService sessionService;
+
+    public SessionController(SessionService sessionService) {
+        this.sessionService = sessionService;
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<SessionInfo>> createSession() {
+        return Mono.fromSupplier(() -> {
+            String id = sessionService.create();
+            return ResponseEntity.created(URI.create("/api/ai/sessions/" + id)).body(new SessionInfo(id));
+        });
+    }
+
+    @PostMapping("/{sessionId}/complete")
+    public Mono<ResponseEntity<CompletionResponse>> complete(@PathVariable String sessionId,
+                                                             @Valid @RequestBody CompletionRequest request) {
+        logger.debug("Received request for AI completion in a session.");
+        if (!SESSION_ID.matcher(sessionId).matches()) {
+            return Mono.just(ErrorResponses.completionError(new AiServiceException(HttpStatus.BAD_REQUEST,
+                    "Session id must be 1 to 128 letters, digits, '.', '_' or '-'")));
+        }
+        return sessionService.complete(sessionId, request.getPrompt())
+                .map(ResponseEntity::ok)
+                .onErrorResume(AiServiceException.class, e -> {
+                    logger.warn("Session completion request failed with status {}: {}", e.getStatus().value(), e.getMessage());
+                    return Mono.just(ErrorResponses.completionError(e));
+                })
+                .onErrorResume(RuntimeException.class, e -> {
+                    logger.error("Error processing session completion request", e);
+                    return Mono.just(ErrorResponses.unexpectedError(e));
+                });
+    }
+
+    @DeleteMapping("/{sessionId}")
+    public Mono<ResponseEntity<Void>> endSession(@PathVariable String sessionId) {
+        return Mono.fromSupplier(() -> sessionService.end(sessionId)
+                ? ResponseEntity.noContent().<Void>build()
+                : ResponseEntity.notFound().<Void>build());
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.ai_service_integration.AiIntegration.controller;
+
+import com.example.ai_service_integration.AiIntegration.service.AiRequestContext;
+import com.example.ai_service_integration.AiIntegration.service.tracing.RequestTrace;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * Gives every request a correlation id, taken from the {@code request-id-header} when the client
+ * sent a usable one and made up otherwise, and echoes it in the response. The id travels in the
+ * Reactor context to every upstream call made for the request.
+ * <p>
+ * Head-based sampling: a {@code sample-rate} share of requests is picked on arrival and has its
+ * spans recorded, logged as one line once the response is done. Runs first, so the
+ * {@code controller} span covers everything the server does for the request.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class TracingWebFilter implements WebFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(TracingWebFilter.class);
+
+    private static final Pattern USABLE_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}"); // Safe to log and pass on
+
+    private final double sampleRate;
+    private final String requestIdHeader;
+
+    public TracingWebFilter(@Value("${openai.tracing.sample-rate:0.01}") double sampleRate,
+                            @Value("${openai.tracing.request-id-header:X-Request-Id}") String requestIdHeader) {
+        this.sampleRate = sampleRate;
+        this.requestIdHeader = requestIdHeader;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String id = exchange.getRequest().getHeaders().getFirst(requestIdHeader);
+        if (id == null || !USABLE_ID.matcher(id).matches()) {
+            id = RequestTrace.newId();
+        }
+        boolean sampled = sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+        RequestTrace trace = new RequestTrace(id, sampled);
+        exchange.getResponse().getHeaders().set(requestIdHeader, id);
+
+        Mono<Void> response = chain.filter(exchange);
+        if (sampled) {
+            response = response.doFinally(signal -> finished(exchange, trace));
+        }
+        return response.contextWrite(AiRequestContext.withTrace(trace));
+    }
+
+    private static void finished(ServerWebExchange exchange, RequestTrace trace) {
+        trace.record("controller", trace.startNanos());
+        if (logger.isInfoEnabled()) {
+            HttpStatusCode status = exchange.getResponse().getStatusCode();
+            logger.info("Trace {} {} {} {}: {}", trace.id(), exchange.getRequest().getMethod(),
+                    exchange.getRequest().getPath().value(), status != null ? status.value() : "-", trace.format());
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.ai_service_integration.AiIntegration.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchCompletionResult {
+    private int index; // Position of the prompt in the submitted batch
+    private String completion;
+    private String model;
+    private String error; // Set instead of completion when this item failed
+
+    public static BatchCompletionResult success(int index, CompletionResponse response) {
+        return new BatchCompletionResult(index, response.getCompletion(), response.getModel(), null);
+    }
+
+    public static BatchCompletionResult failure(int index, String error) {
+        return new BatchCompletionResult(index, null, null, error);
+    }
+}
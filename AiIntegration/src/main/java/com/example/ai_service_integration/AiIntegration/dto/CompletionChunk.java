@@ -0,0 +1,14 @@
+package com.example.ai_service_integration.AiIntegration.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompletionChunk {
+    private String delta; // Text generated since the previous chunk
+    private String model;
+    private String finishReason; // Set on the last chunk (e.g. "stop", "length")
+}
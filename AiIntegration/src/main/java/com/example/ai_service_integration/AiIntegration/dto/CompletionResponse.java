@@ -1,5 +1,6 @@
 package com.example.ai_service_integration.AiIntegration.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
@@ -8,6 +9,16 @@ import lombok.AllArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 public class CompletionResponse {
+
+    // Answered in place of an empty completion from the API
+    public static final String NO_COMPLETION = "No completion generated.";
+
     private String completion;
     private String model; // Optional: Include model info
+
+    /** False for an empty completion and for the {@link #NO_COMPLETION} placeholder; such answers are not worth keeping. */
+    @JsonIgnore
+    public boolean hasCompletion() {
+        return completion != null && !completion.isBlank() && !NO_COMPLETION.equals(completion);
+    }
 }
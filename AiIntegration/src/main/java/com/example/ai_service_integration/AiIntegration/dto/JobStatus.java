@@ -0,0 +1,23 @@
+package com.example.ai_service_integration.AiIntegration.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobStatus {
+    private String id;
+    private State state;
+    private int total; // Prompts submitted
+    private int completed; // Prompts answered
+    private int failed; // Prompts that gave up; their results carry the error
+    private Instant createdAt;
+
+    public enum State {
+        QUEUED, RUNNING, COMPLETED, CANCELLED
+    }
+}
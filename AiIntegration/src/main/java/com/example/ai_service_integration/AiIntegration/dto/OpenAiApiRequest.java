@@ -1,5 +1,6 @@
 package com.example.ai_service_integration.AiIntegration.dto;;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Builder;
 import lombok.Data;
 
@@ -7,11 +8,13 @@ import java.util.List;
 
 @Data
 @Builder
+@JsonInclude(JsonInclude.Include.NON_NULL) // Leave optional fields such as stream out of the payload
 public class OpenAiApiRequest {
     private String model;
     private List<Message> messages; // List of messages for chat completion
     private Integer max_tokens;
     private Double temperature;
+    private Boolean stream; // true asks OpenAI for Server-Sent Events chunks
 
     @Data
     @Builder
@@ -0,0 +1,42 @@
+package com.example.ai_service_integration.AiIntegration.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+// One "data:" event of a streamed chat completion (stream: true)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OpenAiStreamChunk {
+    private String id;
+    private String model;
+    private List<Choice> choices;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Choice {
+        private int index;
+        private Delta delta; // Only the newly generated part of the message
+        private String finish_reason;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Delta {
+        private String role;
+        private String content;
+    }
+
+    // Helper method to get the first choice, if any
+    public Choice getFirstChoice() {
+        if (choices != null && !choices.isEmpty()) {
+            return choices.get(0);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.ai_service_integration.AiIntegration.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SessionInfo {
+    private String id; // Issued by the server; the only key to the session
+}
@@ -0,0 +1,131 @@
+package com.example.ai_service_integration.AiIntegration.service;
+
+import com.example.ai_service_integration.AiIntegration.service.tracing.RequestTrace;
+import com.example.ai_service_integration.AiIntegration.service.upstream.UpstreamBackend;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request options that travel with the reactive pipeline instead of widening the
+ * {@link AiService} signature. The controller writes them into the Reactor context and
+ * the service layer reads them back where it needs them.
+ */
+public final class AiRequestContext {
+
+    /** Boolean flag: skip the completion cache for this request (read and write). */
+    public static final String CACHE_BYPASS = AiRequestContext.class.getName() + ".cacheBypass";
+
+    /** String: id of the API key the upstream call is made with; absent means the configured {@code openai.api.key}. */
+    public static final String API_KEY_ID = AiRequestContext.class.getName() + ".apiKeyId";
+
+    public static final String DEFAULT_API_KEY_ID = "default";
+
+    /** {@link UpstreamBackend}: where the upstream call goes; absent means the {@code openai.api} backend. */
+    public static final String UPSTREAM_BACKEND = AiRequestContext.class.getName() + ".upstreamBackend";
+
+    /** {@link AiResponseMetadata}: where the service layer records facts for the response headers; may be absent. */
+    public static final String RESPONSE_METADATA = AiRequestContext.class.getName() + ".responseMetadata";
+
+    /** Long: when the client stops waiting, in nanoseconds of the Reactor scheduler clock; absent means no deadline. */
+    public static final String DEADLINE = AiRequestContext.class.getName() + ".deadline";
+
+    /** String: the caller's preferred model size, "small" or "large"; absent leaves the choice to model routing. */
+    public static final String MODEL_HINT = AiRequestContext.class.getName() + ".modelHint";
+
+    /** {@link RequestTrace}: the request's correlation id and, if sampled, its spans; absent means {@link RequestTrace#NONE}. */
+    public static final String TRACE = AiRequestContext.class.getName() + ".trace";
+
+    // Longer timeouts are as good as none, and still far from overflowing the clock's nanoseconds
+    private static final Duration MAX_DEADLINE = Duration.ofDays(365);
+
+    private AiRequestContext() {
+    }
+
+    /**
+     * {@code context} without any one request's entries, for an upstream call made on behalf of
+     * several requests; {@code trace} records the shared call's spans.
+     */
+    public static Context forSharedCall(ContextView context, RequestTrace trace) {
+        return Context.of(context)
+                .delete(CACHE_BYPASS)
+                .delete(API_KEY_ID)
+                .delete(UPSTREAM_BACKEND)
+                .delete(RESPONSE_METADATA)
+                .delete(DEADLINE)
+                .delete(MODEL_HINT)
+                .put(TRACE, trace);
+    }
+
+    public static Context withCacheBypass(boolean bypass) {
+        return Context.of(CACHE_BYPASS, bypass);
+    }
+
+    public static boolean isCacheBypass(ContextView context) {
+        return context.getOrDefault(CACHE_BYPASS, Boolean.FALSE);
+    }
+
+    public static String getApiKeyId(ContextView context) {
+        return context.getOrDefault(API_KEY_ID, DEFAULT_API_KEY_ID);
+    }
+
+    // The backend's id doubles as the API key id, so rate limits follow the chosen backend
+    public static Context withUpstreamBackend(UpstreamBackend backend) {
+        return Context.of(UPSTREAM_BACKEND, backend, API_KEY_ID, backend.id());
+    }
+
+    public static UpstreamBackend getUpstreamBackend(ContextView context) {
+        return context.getOrDefault(UPSTREAM_BACKEND, null);
+    }
+
+    /** A deadline {@code timeout} from now; null or non-positive means none. */
+    public static Context withDeadline(Duration timeout) {
+        if (timeout == null || timeout.isZero() || timeout.isNegative()) {
+            return Context.empty();
+        }
+        Duration bounded = timeout.compareTo(MAX_DEADLINE) < 0 ? timeout : MAX_DEADLINE;
+        return Context.of(DEADLINE, Schedulers.parallel().now(TimeUnit.NANOSECONDS) + bounded.toNanos());
+    }
+
+    /** Time left until the client's deadline, or empty without one; zero or negative once it passed. */
+    public static Optional<Duration> getTimeLeft(ContextView context) {
+        Long deadline = context.getOrDefault(DEADLINE, null);
+        if (deadline == null) {
+            return Optional.empty();
+        }
+        return Optional.of(Duration.ofNanos(deadline - Schedulers.parallel().now(TimeUnit.NANOSECONDS)));
+    }
+
+    /** Null or blank means no hint. */
+    public static Context withModelHint(String hint) {
+        if (hint == null || hint.isBlank()) {
+            return Context.empty();
+        }
+        return Context.of(MODEL_HINT, hint.trim().toLowerCase(Locale.ROOT));
+    }
+
+    public static String getModelHint(ContextView context) {
+        return context.getOrDefault(MODEL_HINT, null);
+    }
+
+    public static Context withTrace(RequestTrace trace) {
+        return Context.of(TRACE, trace);
+    }
+
+    public static RequestTrace getTrace(ContextView context) {
+        return context.getOrDefault(TRACE, RequestTrace.NONE);
+    }
+
+    public static Context withResponseMetadata(AiResponseMetadata metadata) {
+        return Context.of(RESPONSE_METADATA, metadata);
+    }
+
+    public static AiResponseMetadata getResponseMetadata(ContextView context) {
+        return context.getOrDefault(RESPONSE_METADATA, null);
+    }
+}
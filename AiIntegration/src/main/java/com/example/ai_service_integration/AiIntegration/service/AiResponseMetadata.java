@@ -0,0 +1,30 @@
+package com.example.ai_service_integration.AiIntegration.service;
+
+/**
+ * Facts about how a response was produced that the client should see alongside it. The
+ * controller puts an instance into the Reactor context (see {@link AiRequestContext}) and turns
+ * what the service layer recorded into response headers; the metrics decorator reads the model
+ * the call was routed to from it.
+ */
+public final class AiResponseMetadata {
+
+    private volatile Double approximateMatchSimilarity; // null unless served for a similar, not identical, prompt
+    private volatile String routedModel; // null unless model routing sent the call upstream
+
+    public void recordApproximateMatch(double similarity) {
+        this.approximateMatchSimilarity = similarity;
+    }
+
+    public Double getApproximateMatchSimilarity() {
+        return approximateMatchSimilarity;
+    }
+
+    /** The model that answered: the last one tried, so a fallback overrides the first choice. */
+    public void recordRoutedModel(String model) {
+        this.routedModel = model;
+    }
+
+    public String getRoutedModel() {
+        return routedModel;
+    }
+}
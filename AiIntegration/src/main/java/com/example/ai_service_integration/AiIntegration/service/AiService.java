@@ -1,8 +1,18 @@
 package com.example.ai_service_integration.AiIntegration.service;
 
+import com.example.ai_service_integration.AiIntegration.dto.CompletionChunk;
 import com.example.ai_service_integration.AiIntegration.dto.CompletionResponse;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 public interface AiService {
     Mono<CompletionResponse> getAiCompletion(String prompt);
-}
\ No newline at end of file
+
+    Flux<CompletionChunk> streamAiCompletion(String prompt);
+
+    // A whole conversation, oldest message first; the answer depends on all of it, so it is never cached
+    Mono<CompletionResponse> getChatCompletion(List<OpenAiApiRequest.Message> messages);
+}
\ No newline at end of file
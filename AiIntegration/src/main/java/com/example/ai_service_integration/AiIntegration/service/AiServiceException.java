@@ -0,0 +1,38 @@
+package com.example.ai_service_integration.AiIntegration.service;
+
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+
+/**
+ * Failure the service layer wants reported to the client with a specific HTTP status
+ * (e.g. 429 when the client-side rate limit cannot admit a request in time), optionally
+ * with a hint of when retrying makes sense.
+ */
+public class AiServiceException extends RuntimeException {
+
+    private final HttpStatus status;
+    private final Duration retryAfter; // null when there is no useful hint
+
+    public AiServiceException(HttpStatus status, String message) {
+        this(status, message, null, null);
+    }
+
+    public AiServiceException(HttpStatus status, String message, Duration retryAfter) {
+        this(status, message, retryAfter, null);
+    }
+
+    public AiServiceException(HttpStatus status, String message, Duration retryAfter, Throwable cause) {
+        super(message, cause);
+        this.status = status;
+        this.retryAfter = retryAfter;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -1,27 +1,56 @@
 package com.example.ai_service_integration.AiIntegration.service;
 
+import com.example.ai_service_integration.AiIntegration.dto.CompletionChunk;
 import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
 import com.example.ai_service_integration.AiIntegration.dto.CompletionResponse;
 import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest.Message;
 import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiResponse;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiStreamChunk;
+import com.example.ai_service_integration.AiIntegration.service.tracing.UpstreamTracing;
+import com.example.ai_service_integration.AiIntegration.service.upstream.UpstreamBackend;
+import com.example.ai_service_integration.AiIntegration.service.upstream.UpstreamErrors;
+import com.example.ai_service_integration.AiIntegration.service.upstream.UpstreamExchange;
+import com.example.ai_service_integration.AiIntegration.service.upstream.UpstreamFilter;
+import com.example.ai_service_integration.AiIntegration.service.upstream.UpstreamStreamExchange;
+import com.example.ai_service_integration.AiIntegration.service.upstream.UpstreamTimeoutException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
 
+import java.time.Duration;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class OpenAiServiceImpl implements AiService {
 
     private static final Logger logger = LoggerFactory.getLogger(OpenAiServiceImpl.class);
 
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_EVENT =
+            new ParameterizedTypeReference<>() {};
+    private static final String STREAM_DONE = "[DONE]"; // Sentinel data of the last streamed event
+
     private final WebClient openAiWebClient;
+    private final ObjectMapper objectMapper;
+
+    // Raw calls wrapped in the ordered upstream filters (single-flight, ...)
+    private UpstreamExchange upstream = this::callOpenAi;
+    private UpstreamStreamExchange upstreamStream = this::streamOpenAi;
 
     @Value("${openai.api.model}")
     private String model;
@@ -32,40 +61,170 @@ public class OpenAiServiceImpl implements AiService {
     @Value("${openai.api.temperature}")
     private Double temperature;
 
-    public OpenAiServiceImpl(@Qualifier("openAiWebClient") WebClient openAiWebClient) {
+    @Value("${openai.timeouts.first-byte:15s}")
+    private Duration firstByteTimeout = Duration.ofSeconds(15);
+
+    @Value("${openai.logging.max-prompt-chars:200}")
+    private int maxPromptChars = 200; // Prompts can be huge; logs only get their beginning
+
+    public OpenAiServiceImpl(@Qualifier("openAiWebClient") WebClient openAiWebClient, ObjectMapper objectMapper) {
         this.openAiWebClient = openAiWebClient;
+        this.objectMapper = objectMapper;
+    }
+
+    @Autowired(required = false)
+    public void setUpstreamFilters(List<UpstreamFilter> upstreamFilters) {
+        UpstreamExchange chain = this::callOpenAi;
+        UpstreamStreamExchange streamChain = this::streamOpenAi;
+        for (int i = upstreamFilters.size() - 1; i >= 0; i--) {
+            UpstreamFilter filter = upstreamFilters.get(i);
+            UpstreamExchange next = chain;
+            UpstreamStreamExchange nextStream = streamChain;
+            chain = request -> filter.filter(request, next);
+            streamChain = request -> filter.filterStream(request, nextStream);
+        }
+        this.upstream = chain;
+        this.upstreamStream = streamChain;
     }
 
     @Override
     public Mono<CompletionResponse> getAiCompletion(String prompt) {
-        logger.debug("Sending prompt to OpenAI: {}", prompt);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Sending prompt to OpenAI: {}", abbreviate(prompt));
+        }
 
-        OpenAiApiRequest requestBody = OpenAiApiRequest.builder()
-                .model(model)
-                .messages(Collections.singletonList(
-                        Message.builder().role("user").content(prompt).build()
-                ))
-                .max_tokens(maxTokens)
-                .temperature(temperature)
-                .build();
+        OpenAiApiRequest requestBody = buildRequest(prompt, null);
 
-        return openAiWebClient.post()
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue(requestBody)
-                .retrieve()
-                .bodyToMono(OpenAiApiResponse.class)
+        return complete(requestBody);
+    }
+
+    @Override
+    public Mono<CompletionResponse> getChatCompletion(List<Message> messages) {
+        logger.debug("Sending conversation of {} messages to OpenAI.", messages.size());
+
+        return complete(buildRequest(messages, null));
+    }
+
+    private Mono<CompletionResponse> complete(OpenAiApiRequest requestBody) {
+        return Mono.deferContextual(context -> upstream.exchange(requestBody)
                 .map(apiResponse -> {
                     String completion = apiResponse.getFirstCompletionContent();
                     if (completion == null || completion.trim().isEmpty()) {
-                        logger.warn("OpenAI API returned empty or null completion for prompt: {}", prompt);
-                        return new CompletionResponse("No completion generated.", apiResponse.getModel());
+                        logger.warn("OpenAI API returned empty or null completion for prompt: {}", abbreviate(lastContent(requestBody)));
+                        return new CompletionResponse(CompletionResponse.NO_COMPLETION, apiResponse.getModel());
                     }
                     logger.debug("Received completion from OpenAI.");
                     return new CompletionResponse(completion.trim(), apiResponse.getModel());
                 })
-                .onErrorResume(WebClientResponseException.class, e -> {
-                    logger.error("OpenAI API error: Status={}, Body={}", e.getStatusCode(), e.getResponseBodyAsString(), e);
-                    return Mono.error(new RuntimeException("Error calling OpenAI API: " + e.getResponseBodyAsString()));
-                });
+                .onErrorMap(WebClientResponseException.class, e -> toServiceException(e, context))
+                .onErrorMap(UpstreamTimeoutException.class,
+                        e -> new AiServiceException(HttpStatus.GATEWAY_TIMEOUT, e.getMessage(), null, e)));
+    }
+
+    @Override
+    public Flux<CompletionChunk> streamAiCompletion(String prompt) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("Streaming prompt to OpenAI: {}", abbreviate(prompt));
+        }
+
+        OpenAiApiRequest requestBody = buildRequest(prompt, Boolean.TRUE);
+
+        return Flux.deferContextual(context -> upstreamStream.exchange(requestBody)
+                .mapNotNull(OpenAiServiceImpl::toCompletionChunk)
+                .onErrorMap(WebClientResponseException.class, e -> toServiceException(e, context))
+                .onErrorMap(UpstreamTimeoutException.class,
+                        e -> new AiServiceException(HttpStatus.GATEWAY_TIMEOUT, e.getMessage(), null, e))
+                .onErrorMap(TimeoutException.class, e -> new AiServiceException(HttpStatus.GATEWAY_TIMEOUT,
+                        "OpenAI sent nothing for " + firstByteTimeout.toMillis() + " ms while streaming", null, e)));
+    }
+
+    // Throttling stays a 429 (with the server's retry hint), upstream outages become a 502 and
+    // anything else is our own fault, reported as a 500
+    private AiServiceException toServiceException(WebClientResponseException e, ContextView context) {
+        logger.error("OpenAI API error: Status={}, Request={}, Body={}", e.getStatusCode(),
+                AiRequestContext.getTrace(context).id(), e.getResponseBodyAsString(), e);
+        HttpStatus status = e.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value() ? HttpStatus.TOO_MANY_REQUESTS
+                : e.getStatusCode().is5xxServerError() ? HttpStatus.BAD_GATEWAY
+                : HttpStatus.INTERNAL_SERVER_ERROR;
+        return new AiServiceException(status, "Error calling OpenAI API: " + e.getResponseBodyAsString(),
+                UpstreamErrors.retryAfter(e).orElse(null), e);
+    }
+
+    private String abbreviate(String text) {
+        if (text == null || text.length() <= maxPromptChars) {
+            return text;
+        }
+        return text.substring(0, maxPromptChars) + "… (" + text.length() + " chars)";
+    }
+
+    private static String lastContent(OpenAiApiRequest request) {
+        List<Message> messages = request.getMessages();
+        return messages == null || messages.isEmpty() ? null : messages.get(messages.size() - 1).getContent();
+    }
+
+    // Role-only and empty events carry nothing for the client and are skipped
+    private static CompletionChunk toCompletionChunk(OpenAiStreamChunk streamChunk) {
+        OpenAiStreamChunk.Choice choice = streamChunk.getFirstChoice();
+        if (choice == null) {
+            return null;
+        }
+        String content = choice.getDelta() != null ? choice.getDelta().getContent() : null;
+        if ((content == null || content.isEmpty()) && choice.getFinish_reason() == null) {
+            return null;
+        }
+        return new CompletionChunk(content, streamChunk.getModel(), choice.getFinish_reason());
+    }
+
+    private OpenAiApiRequest buildRequest(String prompt, Boolean stream) {
+        return buildRequest(Collections.singletonList(Message.builder().role("user").content(prompt).build()), stream);
+    }
+
+    private OpenAiApiRequest buildRequest(List<Message> messages, Boolean stream) {
+        return OpenAiApiRequest.builder()
+                .model(model)
+                .messages(messages)
+                .max_tokens(maxTokens)
+                .temperature(temperature)
+                .stream(stream)
+                .build();
+    }
+
+    // Goes to the backend a routing filter picked, if any, and to openai.api otherwise
+    private Mono<OpenAiApiResponse> callOpenAi(OpenAiApiRequest requestBody) {
+        return Mono.deferContextual(context -> {
+            UpstreamBackend backend = AiRequestContext.getUpstreamBackend(context);
+            WebClient webClient = backend != null ? backend.webClient() : openAiWebClient;
+            return UpstreamTracing.trace(webClient.post()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(requestBody)
+                    .retrieve()
+                    .bodyToMono(OpenAiApiResponse.class), "upstream.decode");
+        });
+    }
+
+    // Events are decoded one by one as they arrive; demand from the client drives reads from the
+    // upstream connection, and cancelling the Flux closes it
+    private Flux<OpenAiStreamChunk> streamOpenAi(OpenAiApiRequest requestBody) {
+        return Flux.deferContextual(context -> {
+            UpstreamBackend backend = AiRequestContext.getUpstreamBackend(context);
+            WebClient webClient = backend != null ? backend.webClient() : openAiWebClient;
+            Flux<ServerSentEvent<String>> events = webClient.post()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .accept(MediaType.TEXT_EVENT_STREAM)
+                    .bodyValue(requestBody)
+                    .retrieve()
+                    .bodyToFlux(SSE_EVENT);
+            return UpstreamTracing.trace(events, "upstream.stream")
+                    .timeout(firstByteTimeout) // A stream that went quiet is as good as dead; comments count as signs of life
+                    .mapNotNull(ServerSentEvent::data)
+                    .takeWhile(data -> !STREAM_DONE.equals(data.trim()))
+                    .handle((data, sink) -> {
+                        try {
+                            sink.next(objectMapper.readValue(data, OpenAiStreamChunk.class));
+                        } catch (JsonProcessingException e) {
+                            sink.error(new RuntimeException("Malformed stream event from OpenAI API: " + e.getOriginalMessage(), e));
+                        }
+                    });
+        });
     }
-}
\ No newline at end of file
+}
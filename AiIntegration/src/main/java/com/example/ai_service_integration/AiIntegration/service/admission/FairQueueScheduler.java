@@ -0,0 +1,307 @@
+package com.example.ai_service_integration.AiIntegration.service.admission;
+
+import com.example.ai_service_integration.AiIntegration.config.AdmissionProperties;
+import com.example.ai_service_integration.AiIntegration.config.AdmissionProperties.Priority;
+import com.example.ai_service_integration.AiIntegration.service.AiServiceException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpStatus;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hands out at most {@code max-concurrency} slots, queueing everyone else per tenant.
+ * <p>
+ * Priority classes are served strictly in order. Within a class, tenants with waiting requests
+ * take turns (deficit round robin): each turn a tenant is granted up to its weight in requests,
+ * so a tenant with a thousand queued requests gets no more than its share.
+ * <p>
+ * Each tenant queue is shed in the manner of CoDel adapted to request queues: a request may
+ * wait up to {@code interval}, but once the tenant's queue has not been empty for a whole
+ * {@code interval} it is standing, and its requests may only wait {@code target}. Requests
+ * that wait longer fail with a 503 and a Retry-After hint instead of letting latency grow.
+ * Only the queue that is standing sheds; other tenants are unaffected.
+ * <p>
+ * At most {@code max-queued} requests wait at once, and at most {@code max-tenant-queues}
+ * tenants get a queue of their own; requests of further tenants wait in the
+ * {@link #ANONYMOUS} queue until some queue empties.
+ */
+public class FairQueueScheduler {
+
+    /** Tenant of requests that name none, and of tenants beyond {@code max-tenant-queues}. */
+    public static final String ANONYMOUS = "anonymous";
+
+    private final AdmissionProperties properties;
+    private final Map<Priority, PriorityClass> classes = new EnumMap<>(Priority.class);
+    private int inFlight;
+    private int queued;
+    private int tenantQueues;
+
+    private final Counter admitted;
+    private final Counter shed;
+    private final Counter rejected;
+    private final Timer queueDelay;
+
+    public FairQueueScheduler(AdmissionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        for (Priority priority : Priority.values()) {
+            classes.put(priority, new PriorityClass());
+        }
+        this.admitted = meterRegistry.counter("ai.admission.requests", "result", "admitted");
+        this.shed = meterRegistry.counter("ai.admission.requests", "result", "shed");
+        this.rejected = meterRegistry.counter("ai.admission.requests", "result", "rejected");
+        this.queueDelay = Timer.builder("ai.admission.queue.delay")
+                .description("Time requests waited for a slot")
+                .register(meterRegistry);
+        Gauge.builder("ai.admission.queued", this, FairQueueScheduler::queued).register(meterRegistry);
+        Gauge.builder("ai.admission.in-flight", this, FairQueueScheduler::inFlight).register(meterRegistry);
+    }
+
+    /**
+     * Waits for a slot for the tenant; the permit must be released when the request is done.
+     * Cancelling while queued gives up the place in the queue.
+     */
+    public Mono<Permit> acquire(String tenant, Priority priority) {
+        return Mono.<Permit>create(sink -> {
+            Waiter waiter = new Waiter(sink, now());
+            List<Waiter> granted = new ArrayList<>();
+            List<Waiter> dropped = new ArrayList<>();
+            String full = null; // Why the request is turned away, if it is
+            synchronized (this) {
+                PriorityClass priorityClass = classes.get(priority);
+                TenantQueue queue = priorityClass.tenants.get(tenant);
+                if (queue == null && tenantQueues >= properties.getMaxTenantQueues()) {
+                    queue = priorityClass.tenants.get(ANONYMOUS);
+                }
+                if (queued >= properties.getMaxQueued()) {
+                    full = "Too many queued requests";
+                } else if (queue != null && queue.waiters.size() >= properties.getMaxQueuePerTenant()) {
+                    full = "Too many queued requests for tenant " + queue.tenant;
+                }
+                if (full == null) {
+                    if (queue == null) {
+                        String owner = tenantQueues < properties.getMaxTenantQueues() ? tenant : ANONYMOUS;
+                        queue = new TenantQueue(owner, priorityClass, properties.weightOf(owner), waiter.enqueuedAt);
+                        priorityClass.tenants.put(owner, queue);
+                        tenantQueues++;
+                    }
+                    waiter.queue = queue;
+                    enqueue(waiter);
+                    dispatch(granted, dropped);
+                    if (waiter.queue != null) {
+                        long maxWait = queue.maxWait(waiter.enqueuedAt);
+                        waiter.timeout = Schedulers.parallel().schedule(() -> expire(waiter), maxWait, TimeUnit.NANOSECONDS);
+                    }
+                }
+            }
+            if (full != null) {
+                rejected.increment();
+                sink.error(overloaded(full));
+                return;
+            }
+            sink.onCancel(() -> cancel(waiter));
+            complete(granted, dropped);
+        }).doOnDiscard(Permit.class, Permit::release); // Granted just as the caller cancelled
+    }
+
+    public synchronized int queued() {
+        return queued;
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    private void release() {
+        List<Waiter> granted = new ArrayList<>();
+        List<Waiter> dropped = new ArrayList<>();
+        synchronized (this) {
+            inFlight--;
+            dispatch(granted, dropped);
+        }
+        complete(granted, dropped);
+    }
+
+    private void expire(Waiter waiter) {
+        synchronized (this) {
+            if (waiter.queue == null) {
+                return;
+            }
+            remove(waiter);
+        }
+        shed.increment();
+        waiter.sink.error(overloaded("Request waited too long for a slot"));
+    }
+
+    private void cancel(Waiter waiter) {
+        synchronized (this) {
+            if (waiter.queue == null) {
+                return;
+            }
+            remove(waiter);
+        }
+        waiter.timeout.dispose();
+    }
+
+    // Sinks are completed outside the lock: granting runs the caller's request
+    private void complete(List<Waiter> granted, List<Waiter> dropped) {
+        long now = now();
+        for (Waiter waiter : granted) {
+            disposeTimeout(waiter);
+            admitted.increment();
+            queueDelay.record(now - waiter.enqueuedAt, TimeUnit.NANOSECONDS);
+            waiter.sink.success(new Permit(this));
+        }
+        for (Waiter waiter : dropped) {
+            disposeTimeout(waiter);
+            shed.increment();
+            waiter.sink.error(overloaded("Request waited too long for a slot"));
+        }
+    }
+
+    // Fills free slots; requests found to have waited past their queue's current limit are dropped (CoDel drops at dequeue)
+    private void dispatch(List<Waiter> granted, List<Waiter> dropped) {
+        long now = now();
+        while (inFlight < properties.getMaxConcurrency()) {
+            Waiter waiter = next();
+            if (waiter == null) {
+                return;
+            }
+            TenantQueue queue = waiter.queue;
+            remove(waiter);
+            if (now - waiter.enqueuedAt > queue.maxWait(now)) {
+                dropped.add(waiter);
+            } else {
+                inFlight++;
+                granted.add(waiter);
+            }
+        }
+    }
+
+    // Head of the next tenant in turn, highest priority first; charges the tenant's deficit
+    private Waiter next() {
+        for (PriorityClass priorityClass : classes.values()) {
+            TenantQueue queue = priorityClass.turns.peekFirst();
+            if (queue == null) {
+                continue;
+            }
+            if (queue.credits == 0) {
+                queue.credits = queue.weight;
+            }
+            if (--queue.credits == 0 && queue.waiters.size() > 1) {
+                priorityClass.turns.addLast(priorityClass.turns.pollFirst());
+            }
+            return queue.waiters.peekFirst();
+        }
+        return null;
+    }
+
+    private void enqueue(Waiter waiter) {
+        TenantQueue queue = waiter.queue;
+        if (queue.waiters.isEmpty()) {
+            queue.priorityClass.turns.addLast(queue);
+        }
+        queue.waiters.addLast(waiter);
+        queued++;
+    }
+
+    // An emptied queue leaves the rotation and is forgotten, so idle tenants cost nothing
+    private void remove(Waiter waiter) {
+        TenantQueue queue = waiter.queue;
+        waiter.queue = null;
+        queue.waiters.remove(waiter);
+        queued--;
+        if (queue.waiters.isEmpty()) {
+            queue.priorityClass.turns.remove(queue);
+            queue.priorityClass.tenants.remove(queue.tenant);
+            tenantQueues--;
+        }
+    }
+
+    private static void disposeTimeout(Waiter waiter) {
+        if (waiter.timeout != null) {
+            waiter.timeout.dispose();
+        }
+    }
+
+    private AiServiceException overloaded(String reason) {
+        return new AiServiceException(HttpStatus.SERVICE_UNAVAILABLE, reason + ", please retry later", properties.getInterval());
+    }
+
+    // Follows the Reactor scheduler clock so virtual time in tests drives queue delays too
+    private static long now() {
+        return Schedulers.parallel().now(TimeUnit.NANOSECONDS);
+    }
+
+    /** A held slot; releasing it more than once has no effect. */
+    public static final class Permit {
+
+        private final FairQueueScheduler scheduler;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(FairQueueScheduler scheduler) {
+            this.scheduler = scheduler;
+        }
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                scheduler.release();
+            }
+        }
+    }
+
+    private static final class PriorityClass {
+        final Map<String, TenantQueue> tenants = new HashMap<>();
+        final ArrayDeque<TenantQueue> turns = new ArrayDeque<>(); // Tenants with waiting requests, next in turn first
+    }
+
+    private final class TenantQueue {
+
+        final String tenant;
+        final PriorityClass priorityClass;
+        final int weight;
+        final long createdAt; // Queues exist only while non-empty, so this is when it was last empty
+        final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+        int credits; // Requests left in the current turn
+
+        TenantQueue(String tenant, PriorityClass priorityClass, int weight, long createdAt) {
+            this.tenant = tenant;
+            this.priorityClass = priorityClass;
+            this.weight = weight;
+            this.createdAt = createdAt;
+        }
+
+        long maxWait(long now) {
+            Duration interval = properties.getInterval();
+            boolean standing = now - createdAt > interval.toNanos();
+            return (standing ? properties.getTarget() : interval).toNanos();
+        }
+    }
+
+    private static final class Waiter {
+
+        final MonoSink<Permit> sink;
+        final long enqueuedAt;
+        TenantQueue queue; // null once granted, dropped or cancelled
+        Disposable timeout;
+
+        Waiter(MonoSink<Permit> sink, long enqueuedAt) {
+            this.sink = sink;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.ai_service_integration.AiIntegration.service.cache;
+
+import com.example.ai_service_integration.AiIntegration.dto.CompletionChunk;
+import com.example.ai_service_integration.AiIntegration.dto.CompletionResponse;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.example.ai_service_integration.AiIntegration.service.AiRequestContext;
+import com.example.ai_service_integration.AiIntegration.service.AiService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * {@link AiService} decorator that answers repeated prompts from a bounded in-memory cache.
+ * Entries are evicted by size and by age; failed upstream calls are never cached.
+ */
+public class CachingAiService implements AiService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CachingAiService.class);
+
+    private final AiService delegate;
+    private final String model;
+    private final Integer maxTokens;
+    private final Double temperature;
+    private final Cache<CompletionCacheKey, CompletionResponse> cache;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter bypasses;
+
+    public CachingAiService(AiService delegate, String model, Integer maxTokens, Double temperature,
+                            long maximumSize, Duration ttl, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.model = model;
+        this.maxTokens = maxTokens;
+        this.temperature = temperature;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .executor(Runnable::run) // Keep eviction accounting on the calling thread
+                .evictionListener((CompletionCacheKey key, CompletionResponse value, RemovalCause cause) ->
+                        meterRegistry.counter("ai.cache.evictions", "cause", cause.name().toLowerCase(Locale.ROOT)).increment())
+                .build();
+
+        this.hits = meterRegistry.counter("ai.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("ai.cache.requests", "result", "miss");
+        this.bypasses = meterRegistry.counter("ai.cache.requests", "result", "bypass");
+        Gauge.builder("ai.cache.size", cache, Cache::estimatedSize).register(meterRegistry);
+    }
+
+    @Override
+    public Mono<CompletionResponse> getAiCompletion(String prompt) {
+        return Mono.deferContextual(context -> {
+            if (AiRequestContext.isCacheBypass(context)) {
+                bypasses.increment();
+                return delegate.getAiCompletion(prompt);
+            }
+
+            CompletionCacheKey key = CompletionCacheKey.of(prompt, model, AiRequestContext.getModelHint(context), maxTokens, temperature);
+            CompletionResponse cached = cache.getIfPresent(key);
+            if (cached != null) {
+                hits.increment();
+                logger.debug("Serving completion from cache.");
+                return Mono.just(cached);
+            }
+
+            misses.increment();
+            return delegate.getAiCompletion(prompt)
+                    .doOnNext(response -> {
+                        if (response.hasCompletion()) {
+                            cache.put(key, response);
+                        }
+                    });
+        });
+    }
+
+    // Streams are passed through untouched: their value is in the early chunks, not the whole answer
+    @Override
+    public Flux<CompletionChunk> streamAiCompletion(String prompt) {
+        return delegate.streamAiCompletion(prompt);
+    }
+
+    @Override
+    public Mono<CompletionResponse> getChatCompletion(List<OpenAiApiRequest.Message> messages) {
+        return delegate.getChatCompletion(messages);
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.ai_service_integration.AiIntegration.service.cache;
+
+import java.util.regex.Pattern;
+
+/**
+ * Identity of a completion for caching purposes: the normalized prompt plus every request
+ * parameter that changes the upstream answer. That includes the caller's model hint, since model
+ * routing may send the same prompt to a different model for it.
+ */
+public record CompletionCacheKey(String prompt, String model, String modelHint, Integer maxTokens, Double temperature) {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    public static CompletionCacheKey of(String prompt, String model, String modelHint, Integer maxTokens, Double temperature) {
+        return new CompletionCacheKey(normalize(prompt), model, modelHint, maxTokens, temperature);
+    }
+
+    // Collapse runs of whitespace so trivially reformatted prompts share an entry
+    static String normalize(String prompt) {
+        return prompt == null ? "" : WHITESPACE.matcher(prompt.strip()).replaceAll(" ");
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.ai_service_integration.AiIntegration.service.cache;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * MinHash signatures of a text's character shingles. The share of positions at which two
+ * signatures agree estimates the Jaccard similarity of the two shingle sets, so near-duplicate
+ * texts can be compared (and bucketed, see {@link SimilarityCachingAiService}) without keeping
+ * the shingles around.
+ */
+public class MinHasher {
+
+    private final int shingleSize;
+    private final long[] multipliers; // One (odd) multiply-shift hash function per signature position
+    private final long[] increments;
+
+    public MinHasher(int signatureLength, int shingleSize, long seed) {
+        if (signatureLength < 1 || shingleSize < 1) {
+            throw new IllegalArgumentException("Signature length and shingle size must be positive");
+        }
+        this.shingleSize = shingleSize;
+        this.multipliers = new long[signatureLength];
+        this.increments = new long[signatureLength];
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < signatureLength; i++) {
+            multipliers[i] = random.nextLong() | 1;
+            increments[i] = random.nextLong();
+        }
+    }
+
+    public int signatureLength() {
+        return multipliers.length;
+    }
+
+    // Texts shorter than one shingle are a single shingle
+    public int[] signature(String text) {
+        int[] signature = new int[multipliers.length];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        int shingles = Math.max(1, text.length() - shingleSize + 1);
+        for (int start = 0; start < shingles; start++) {
+            long shingle = hash(text, start, Math.min(text.length(), start + shingleSize));
+            for (int i = 0; i < signature.length; i++) {
+                int value = (int) ((multipliers[i] * shingle + increments[i]) >>> 33);
+                if (value < signature[i]) {
+                    signature[i] = value;
+                }
+            }
+        }
+        return signature;
+    }
+
+    /** Estimated Jaccard similarity: the share of positions where both signatures agree. */
+    public static double similarity(int[] first, int[] second) {
+        int equal = 0;
+        for (int i = 0; i < first.length; i++) {
+            if (first[i] == second[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / first.length;
+    }
+
+    // FNV-1a over the shingle's characters, finished with a 64-bit mix so nearby shingles spread out
+    private static long hash(String text, int from, int to) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = from; i < to; i++) {
+            hash = (hash ^ text.charAt(i)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
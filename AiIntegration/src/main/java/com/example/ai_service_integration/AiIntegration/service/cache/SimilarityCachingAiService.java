@@ -0,0 +1,233 @@
+package com.example.ai_service_integration.AiIntegration.service.cache;
+
+import com.example.ai_service_integration.AiIntegration.config.SimilarityCacheProperties;
+import com.example.ai_service_integration.AiIntegration.dto.CompletionChunk;
+import com.example.ai_service_integration.AiIntegration.dto.CompletionResponse;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.example.ai_service_integration.AiIntegration.service.AiRequestContext;
+import com.example.ai_service_integration.AiIntegration.service.AiResponseMetadata;
+import com.example.ai_service_integration.AiIntegration.service.AiService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * {@link AiService} decorator that answers prompts which are near-duplicates of an earlier one.
+ * Prompts are normalized (case, whitespace, closing punctuation), turned into MinHash signatures of their
+ * character shingles and indexed with locality-sensitive hashing: the signature is cut into bands
+ * and prompts sharing any band land in the same bucket. Candidates from the buckets are compared
+ * by signature and the most similar one above the threshold is served.
+ * <p>
+ * Answers served for a different prompt are marked in the request's {@link AiResponseMetadata},
+ * which the controller reports as a response header. Entries are bounded by size and age like
+ * the exact {@link CachingAiService}; evicted entries leave the index with them, atomically with
+ * their eviction, so the buckets never hold a prompt the cache has dropped. Prompts sent with
+ * different model hints are never matched with each other, as routing may answer them with
+ * different models.
+ */
+public class SimilarityCachingAiService implements AiService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SimilarityCachingAiService.class);
+
+    private static final Pattern TRAILING_PUNCTUATION = Pattern.compile("[\\s.!?,;:\\u2026]+$");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final long SEED = 0x5eed_1e55_c0ffeeL; // Fixed, so signatures are comparable across restarts
+
+    private final AiService delegate;
+    private final double threshold;
+    private final int bands;
+    private final int rows;
+    private final int maxCandidates;
+    private final MinHasher minHasher;
+
+    private final Cache<Key, Entry> entries; // By model hint and normalized prompt
+    private final Map<Long, Set<Key>> buckets = new ConcurrentHashMap<>(); // LSH band key -> prompts
+
+    private final Counter hits;
+    private final Counter approximateHits;
+    private final Counter misses;
+    private final Counter bypasses;
+    private final DistributionSummary similarities;
+
+    public SimilarityCachingAiService(AiService delegate, SimilarityCacheProperties properties, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.threshold = properties.getThreshold();
+        this.bands = properties.getBands();
+        this.rows = properties.getRows();
+        this.maxCandidates = properties.getMaxCandidates();
+        this.minHasher = new MinHasher(bands * rows, properties.getShingleSize(), SEED);
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxSize())
+                .expireAfterWrite(properties.getTtl())
+                // Runs inside the eviction, under the entry's lock, like the indexing in store()
+                .evictionListener((Key key, Entry entry, RemovalCause cause) -> {
+                    unindex(key, entry);
+                    meterRegistry.counter("ai.similarity-cache.evictions", "cause", cause.name().toLowerCase(Locale.ROOT)).increment();
+                })
+                .build();
+
+        this.hits = meterRegistry.counter("ai.similarity-cache.requests", "result", "hit");
+        this.approximateHits = meterRegistry.counter("ai.similarity-cache.requests", "result", "approximate");
+        this.misses = meterRegistry.counter("ai.similarity-cache.requests", "result", "miss");
+        this.bypasses = meterRegistry.counter("ai.similarity-cache.requests", "result", "bypass");
+        this.similarities = DistributionSummary.builder("ai.similarity-cache.similarity")
+                .description("Estimated Jaccard similarity of approximate hits")
+                .register(meterRegistry);
+        Gauge.builder("ai.similarity-cache.size", entries, Cache::estimatedSize).register(meterRegistry);
+        Gauge.builder("ai.similarity-cache.buckets", buckets, Map::size).register(meterRegistry);
+    }
+
+    @Override
+    public Mono<CompletionResponse> getAiCompletion(String prompt) {
+        return Mono.deferContextual(context -> {
+            String normalized = normalize(prompt);
+            if (AiRequestContext.isCacheBypass(context) || normalized.isEmpty()) {
+                bypasses.increment();
+                return delegate.getAiCompletion(prompt);
+            }
+
+            Key key = new Key(AiRequestContext.getModelHint(context), normalized);
+            String exactPrompt = CompletionCacheKey.normalize(prompt);
+            Entry same = entries.getIfPresent(key);
+            if (same != null) {
+                return serve(same, exactPrompt, 1.0, AiRequestContext.getResponseMetadata(context));
+            }
+
+            int[] signature = minHasher.signature(normalized);
+            Match match = findSimilar(key.modelHint(), signature);
+            if (match != null) {
+                return serve(match.entry(), exactPrompt, match.similarity(), AiRequestContext.getResponseMetadata(context));
+            }
+
+            misses.increment();
+            return delegate.getAiCompletion(prompt)
+                    .doOnNext(response -> {
+                        if (response.hasCompletion()) {
+                            store(key, new Entry(exactPrompt, signature, response));
+                        }
+                    });
+        });
+    }
+
+    // Streams are passed through untouched, as in the exact cache
+    @Override
+    public Flux<CompletionChunk> streamAiCompletion(String prompt) {
+        return delegate.streamAiCompletion(prompt);
+    }
+
+    @Override
+    public Mono<CompletionResponse> getChatCompletion(List<OpenAiApiRequest.Message> messages) {
+        return delegate.getChatCompletion(messages);
+    }
+
+    // Lower case, single spaces, no closing "?" or ".": the differences that never change the question.
+    // Operators and symbols stay, since "2+2" and "2*2" or "a < b" and "a > b" ask different things
+    static String normalize(String prompt) {
+        if (prompt == null) {
+            return "";
+        }
+        String text = TRAILING_PUNCTUATION.matcher(prompt.toLowerCase(Locale.ROOT)).replaceAll("");
+        return WHITESPACE.matcher(text.strip()).replaceAll(" ");
+    }
+
+    private Mono<CompletionResponse> serve(Entry entry, String exactPrompt, double similarity, AiResponseMetadata metadata) {
+        if (entry.prompt().equals(exactPrompt)) {
+            hits.increment();
+            logger.debug("Serving completion from similarity cache (same prompt).");
+        } else {
+            approximateHits.increment();
+            similarities.record(similarity);
+            if (metadata != null) {
+                metadata.recordApproximateMatch(similarity);
+            }
+            logger.debug("Serving completion cached for a similar prompt (similarity {}).", similarity);
+        }
+        return Mono.just(entry.response());
+    }
+
+    private Match findSimilar(String modelHint, int[] signature) {
+        Set<Key> candidates = new LinkedHashSet<>();
+        for (int band = 0; band < bands && candidates.size() < maxCandidates; band++) {
+            Set<Key> bucket = buckets.get(bandKey(band, signature));
+            if (bucket != null) {
+                for (Key candidate : bucket) {
+                    if (candidates.size() >= maxCandidates) {
+                        break;
+                    }
+                    if (Objects.equals(candidate.modelHint(), modelHint)) {
+                        candidates.add(candidate);
+                    }
+                }
+            }
+        }
+
+        Match best = null;
+        for (Key candidate : candidates) {
+            Entry entry = entries.getIfPresent(candidate);
+            if (entry == null) {
+                continue; // Expired, and unindexed on its next cleanup
+            }
+            double similarity = MinHasher.similarity(signature, entry.signature());
+            if (similarity >= threshold && (best == null || similarity > best.similarity())) {
+                best = new Match(entry, similarity);
+            }
+        }
+        return best;
+    }
+
+    // Indexed under the entry's lock: an eviction of the same prompt either comes first and finds
+    // nothing to unindex, or comes after and unindexes all of it. A replaced entry has the same
+    // signature, so the same buckets
+    private void store(Key key, Entry entry) {
+        entries.asMap().compute(key, (stored, previous) -> {
+            for (int band = 0; band < bands; band++) {
+                buckets.computeIfAbsent(bandKey(band, entry.signature()), bandKey -> ConcurrentHashMap.newKeySet()).add(stored);
+            }
+            return entry;
+        });
+    }
+
+    private void unindex(Key key, Entry entry) {
+        for (int band = 0; band < bands; band++) {
+            buckets.computeIfPresent(bandKey(band, entry.signature()), (bandKey, bucket) -> {
+                bucket.remove(key);
+                return bucket.isEmpty() ? null : bucket;
+            });
+        }
+    }
+
+    // Band index mixed with the band's rows, so equal rows in different bands do not collide
+    private long bandKey(int band, int[] signature) {
+        long key = band;
+        for (int row = band * rows, end = row + rows; row < end; row++) {
+            key = key * 0x9e3779b97f4a7c15L + signature[row];
+        }
+        return key;
+    }
+
+    private record Key(String modelHint, String prompt) {
+    }
+
+    private record Entry(String prompt, int[] signature, CompletionResponse response) {
+    }
+
+    private record Match(Entry entry, double similarity) {
+    }
+}
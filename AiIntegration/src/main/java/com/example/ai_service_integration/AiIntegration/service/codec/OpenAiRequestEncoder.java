@@ -0,0 +1,177 @@
+package com.example.ai_service_integration.AiIntegration.service.codec;
+
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonFactoryBuilder;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractEncoder;
+import org.springframework.core.codec.EncodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes {@link OpenAiApiRequest} bodies without going through Jackson data binding. The part
+ * that is the same for every call ({@code model}, {@code max_tokens}, {@code temperature}) is
+ * serialized once and cached as bytes; per request only the messages are escaped and appended,
+ * directly into the outgoing buffer.
+ * <p>
+ * The output is the same JSON document Jackson would write, with the fields in a different order.
+ */
+public class OpenAiRequestEncoder extends AbstractEncoder<OpenAiApiRequest> {
+
+    // Messages are written as a run of root-level objects: no separator between them (the encoder
+    // adds the commas) and the data buffer stays open when the generator closes
+    private static final JsonFactory JSON = new JsonFactoryBuilder()
+            .rootValueSeparator((String) null)
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .build();
+
+    private static final int MAX_CACHED_PREFIXES = 64; // Guards against unbounded parameter variety
+
+    private static final String SHORT_ESCAPES = "\b\t\n\f\r"; // Control characters with a two-character escape
+    private static final int MESSAGE_OVERHEAD = "{\"role\":,\"content\":}".length();
+
+    private static final byte[] END = ascii("]}");
+    private static final byte[] END_STREAM = ascii("],\"stream\":true}");
+    private static final byte[] END_NO_STREAM = ascii("],\"stream\":false}");
+
+    private final Map<Prefix, byte[]> prefixes = new ConcurrentHashMap<>();
+
+    public OpenAiRequestEncoder() {
+        super(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+        return OpenAiApiRequest.class.isAssignableFrom(elementType.toClass()) && super.canEncode(elementType, mimeType);
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<? extends OpenAiApiRequest> inputStream, DataBufferFactory bufferFactory,
+                                   ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+        return Flux.from(inputStream).map(request -> encodeValue(request, bufferFactory, elementType, mimeType, hints));
+    }
+
+    @Override
+    public DataBuffer encodeValue(OpenAiApiRequest request, DataBufferFactory bufferFactory,
+                                  ResolvableType valueType, MimeType mimeType, Map<String, Object> hints) {
+        byte[] prefix = prefix(request);
+        List<OpenAiApiRequest.Message> messages = request.getMessages() != null ? request.getMessages() : List.of();
+
+        Boolean stream = request.getStream();
+        byte[] end = stream == null ? END : stream ? END_STREAM : END_NO_STREAM;
+
+        DataBuffer buffer = bufferFactory.allocateBuffer(prefix.length + messagesLength(messages) + end.length);
+        try {
+            buffer.write(prefix);
+            // Escaping goes through the generator's pooled buffers straight into the data buffer
+            try (JsonGenerator generator = JSON.createGenerator(buffer.asOutputStream())) {
+                for (int i = 0; i < messages.size(); i++) {
+                    OpenAiApiRequest.Message message = messages.get(i);
+                    if (i > 0) {
+                        generator.writeRaw(',');
+                    }
+                    generator.writeStartObject();
+                    generator.writeStringField("role", message.getRole());
+                    generator.writeStringField("content", message.getContent());
+                    generator.writeEndObject();
+                }
+            }
+            buffer.write(end);
+            return buffer;
+        } catch (IOException e) {
+            DataBufferUtils.release(buffer);
+            throw new EncodingException("Could not write request messages: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            DataBufferUtils.release(buffer);
+            throw e;
+        }
+    }
+
+    // Exact size of the escaped UTF-8 output, so the buffer never has to grow (and copy) while writing
+    private static int messagesLength(List<OpenAiApiRequest.Message> messages) {
+        int length = Math.max(0, messages.size() - 1); // Commas
+        for (OpenAiApiRequest.Message message : messages) {
+            length += MESSAGE_OVERHEAD + escapedLength(message.getRole()) + escapedLength(message.getContent());
+        }
+        return length;
+    }
+
+    private static int escapedLength(String value) {
+        if (value == null) {
+            return 4; // null
+        }
+        int length = 2; // Quotes
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length += c == '"' || c == '\\' ? 2 : c >= 0x20 ? 1 : SHORT_ESCAPES.indexOf(c) >= 0 ? 2 : 6;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isSurrogate(c)) {
+                length += 6; // Jackson escapes each half of a surrogate pair as six ASCII characters
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    // {"model":...,"max_tokens":...,"temperature":...,"messages":[ with null fields left out
+    private byte[] prefix(OpenAiApiRequest request) {
+        Prefix key = new Prefix(request.getModel(), request.getMax_tokens(), request.getTemperature());
+        byte[] prefix = prefixes.get(key);
+        if (prefix == null) {
+            prefix = writePrefix(key);
+            if (prefixes.size() < MAX_CACHED_PREFIXES) {
+                prefixes.putIfAbsent(key, prefix);
+            }
+        }
+        return prefix;
+    }
+
+    private static byte[] writePrefix(Prefix key) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        int length;
+        try (JsonGenerator generator = JSON.createGenerator(out)) {
+            generator.writeStartObject();
+            if (key.model() != null) {
+                generator.writeStringField("model", key.model());
+            }
+            if (key.maxTokens() != null) {
+                generator.writeNumberField("max_tokens", key.maxTokens());
+            }
+            if (key.temperature() != null) {
+                generator.writeNumberField("temperature", key.temperature());
+            }
+            generator.writeArrayFieldStart("messages");
+            generator.flush();
+            length = out.size(); // Closing the generator appends "]}", which is not part of the prefix
+        } catch (IOException e) {
+            throw new EncodingException("Could not write request prefix: " + e.getMessage(), e);
+        }
+        return Arrays.copyOf(out.toByteArray(), length);
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private record Prefix(String model, Integer maxTokens, Double temperature) {
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.ai_service_integration.AiIntegration.service.codec;
+
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiResponse;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractDataBufferDecoder;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads {@link OpenAiApiResponse} bodies with a streaming token parser instead of Jackson data
+ * binding. Only what the pipeline uses is kept: id, model, the first choice (message and finish
+ * reason) and the usage. Every other field and any further choices are skipped without being
+ * materialized.
+ */
+public class OpenAiResponseDecoder extends AbstractDataBufferDecoder<OpenAiApiResponse> {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    public OpenAiResponseDecoder() {
+        super(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+    }
+
+    @Override
+    public boolean canDecode(ResolvableType elementType, MimeType mimeType) {
+        return elementType.toClass() == OpenAiApiResponse.class && super.canDecode(elementType, mimeType);
+    }
+
+    // A response is one JSON document, so the whole body is joined before parsing
+    @Override
+    public Flux<OpenAiApiResponse> decode(Publisher<DataBuffer> input, ResolvableType elementType,
+                                          MimeType mimeType, Map<String, Object> hints) {
+        return decodeToMono(input, elementType, mimeType, hints).flux();
+    }
+
+    @Override
+    public OpenAiApiResponse decode(DataBuffer buffer, ResolvableType targetType,
+                                    MimeType mimeType, Map<String, Object> hints) throws DecodingException {
+        try (JsonParser parser = JSON.createParser(buffer.asInputStream())) {
+            return readResponse(parser);
+        } catch (JsonProcessingException e) {
+            throw new DecodingException("JSON decoding error: " + e.getOriginalMessage(), e);
+        } catch (IOException e) {
+            throw new DecodingException("I/O error while parsing input stream", e);
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+    private static OpenAiApiResponse readResponse(JsonParser parser) throws IOException {
+        expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+        OpenAiApiResponse response = new OpenAiApiResponse();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "id" -> response.setId(parser.getValueAsString());
+                case "object" -> response.setObject(parser.getValueAsString());
+                case "created" -> response.setCreated(parser.getValueAsLong());
+                case "model" -> response.setModel(parser.getValueAsString());
+                case "choices" -> response.setChoices(readFirstChoice(parser, value));
+                case "usage" -> response.setUsage(readUsage(parser, value));
+                default -> parser.skipChildren();
+            }
+        }
+        return response;
+    }
+
+    private static List<OpenAiApiResponse.Choice> readFirstChoice(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        expect(parser, value, JsonToken.START_ARRAY);
+        OpenAiApiResponse.Choice first = null;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (first == null && parser.currentToken() == JsonToken.START_OBJECT) {
+                first = readChoice(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return first != null ? Collections.singletonList(first) : Collections.emptyList();
+    }
+
+    private static OpenAiApiResponse.Choice readChoice(JsonParser parser) throws IOException {
+        OpenAiApiResponse.Choice choice = new OpenAiApiResponse.Choice();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "index" -> choice.setIndex(parser.getValueAsInt());
+                case "finish_reason" -> choice.setFinish_reason(parser.getValueAsString());
+                case "message" -> choice.setMessage(readMessage(parser, value));
+                default -> parser.skipChildren();
+            }
+        }
+        return choice;
+    }
+
+    private static OpenAiApiRequest.Message readMessage(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        expect(parser, value, JsonToken.START_OBJECT);
+        OpenAiApiRequest.Message.MessageBuilder message = OpenAiApiRequest.Message.builder();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "role" -> message.role(parser.getValueAsString());
+                case "content" -> message.content(parser.getValueAsString());
+                default -> parser.skipChildren();
+            }
+        }
+        return message.build();
+    }
+
+    private static OpenAiApiResponse.Usage readUsage(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        expect(parser, value, JsonToken.START_OBJECT);
+        OpenAiApiResponse.Usage usage = new OpenAiApiResponse.Usage();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "prompt_tokens" -> usage.setPrompt_tokens(parser.getValueAsInt());
+                case "completion_tokens" -> usage.setCompletion_tokens(parser.getValueAsInt());
+                case "total_tokens" -> usage.setTotal_tokens(parser.getValueAsInt());
+                default -> parser.skipChildren();
+            }
+        }
+        return usage;
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws JsonProcessingException {
+        if (actual != expected) {
+            throw new JsonParseException(parser,
+                    "Unexpected token " + actual + " in OpenAI response, expected " + expected);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.ai_service_integration.AiIntegration.service.compression;
+
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpContentDecompressor;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMessage;
+import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.ReferenceCountUtil;
+import reactor.netty.channel.ChannelOperations;
+import reactor.netty.http.HttpOperations;
+
+import java.util.List;
+
+/**
+ * Inflates gzip and deflate request bodies like {@link HttpContentDecompressor}, up to
+ * {@code maxInflatedBytes} per body. Netty inflates without any bound, so a few kilobytes of gzip
+ * could expand into gigabytes, and streamed uploads (NDJSON batches and jobs) never meet the
+ * codec's in-memory limit. A body that inflates past the limit is cut off: the client gets a 413
+ * and the connection is closed, or just the close if its response has started already. Bodies
+ * sent uncompressed are not counted. Not sharable; one instance per connection.
+ */
+public class BoundedContentDecompressor extends HttpContentDecompressor {
+
+    private final long maxInflatedBytes;
+    private boolean compressed; // The body of the current request is being inflated
+    private long inflated;
+    private boolean rejected; // The rest of the current request is dropped
+
+    public BoundedContentDecompressor(long maxInflatedBytes) {
+        this.maxInflatedBytes = maxInflatedBytes;
+    }
+
+    @Override
+    protected EmbeddedChannel newContentDecoder(String contentEncoding) throws Exception {
+        EmbeddedChannel decoder = super.newContentDecoder(contentEncoding);
+        compressed = decoder != null;
+        return decoder;
+    }
+
+    // The message handed in is released by the caller, dropped or not
+    @Override
+    protected void decode(ChannelHandlerContext ctx, HttpObject msg, List<Object> out) throws Exception {
+        if (msg instanceof HttpMessage) {
+            compressed = false;
+            inflated = 0;
+            rejected = false;
+        } else if (rejected) {
+            return;
+        }
+        int start = out.size();
+        super.decode(ctx, msg, out);
+        if (!compressed) {
+            return;
+        }
+        for (int i = start; i < out.size(); i++) {
+            if (out.get(i) instanceof HttpContent content) {
+                inflated += content.content().readableBytes();
+            }
+        }
+        if (inflated > maxInflatedBytes) {
+            for (int i = out.size() - 1; i >= start; i--) {
+                if (out.get(i) instanceof HttpContent) {
+                    ReferenceCountUtil.release(out.remove(i));
+                }
+            }
+            reject(ctx);
+        }
+    }
+
+    private void reject(ChannelHandlerContext ctx) {
+        rejected = true;
+        if (ChannelOperations.get(ctx.channel()) instanceof HttpOperations<?, ?> operations && operations.hasSentHeaders()) {
+            ctx.close();
+            return;
+        }
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE);
+        response.headers()
+                .set(HttpHeaderNames.CONTENT_LENGTH, 0)
+                .set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+        ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+    }
+}
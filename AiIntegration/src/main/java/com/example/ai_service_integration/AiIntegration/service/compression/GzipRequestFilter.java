@@ -0,0 +1,112 @@
+package com.example.ai_service_integration.AiIntegration.service.compression;
+
+import io.micrometer.core.instrument.Counter;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.client.reactive.ClientHttpRequestDecorator;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Sends request bodies gzip-compressed ({@code Content-Encoding: gzip}). A body written in one
+ * piece, as every encoded JSON value is, is compressed only from {@code minSize} bytes on and keeps
+ * an exact Content-Length. A body written as a stream is compressed piece by piece as it goes out
+ * and sent chunked. Requests that already carry a Content-Encoding are left alone.
+ */
+public class GzipRequestFilter implements ExchangeFilterFunction {
+
+    private static final String GZIP = "gzip";
+
+    private final int minSize;
+    private final int level;
+    private final Counter contentBytes; // Request bytes before compression
+
+    public GzipRequestFilter(int minSize, int level, Counter contentBytes) {
+        this.minSize = minSize;
+        this.level = level;
+        this.contentBytes = contentBytes;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        if (request.headers().containsKey(HttpHeaders.CONTENT_ENCODING)) {
+            return next.exchange(request);
+        }
+        BodyInserter<?, ? super ClientHttpRequest> body = request.body();
+        return next.exchange(ClientRequest.from(request)
+                .body((outputMessage, context) -> body.insert(new CompressingRequest(outputMessage), context))
+                .build());
+    }
+
+    private final class CompressingRequest extends ClientHttpRequestDecorator {
+
+        CompressingRequest(ClientHttpRequest delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            if (body instanceof Mono) {
+                return Mono.<DataBuffer>from(body).singleOptional().flatMap(buffer ->
+                        super.writeWith(Mono.justOrEmpty(buffer.map(this::compressWhole))));
+            }
+            getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+            getHeaders().set(HttpHeaders.CONTENT_ENCODING, GZIP);
+            return super.writeWith(Flux.defer(() -> compressStream(Flux.from(body))));
+        }
+
+        private DataBuffer compressWhole(DataBuffer buffer) {
+            int size = buffer.readableByteCount();
+            contentBytes.increment(size);
+            if (size < minSize) {
+                return buffer;
+            }
+            DataBufferFactory bufferFactory = bufferFactory();
+            StreamingGzip gzip = new StreamingGzip(level);
+            try {
+                DataBuffer compressed = bufferFactory.join(List.of(
+                        gzip.compress(buffer, bufferFactory), gzip.finish(bufferFactory)));
+                getHeaders().setContentLength(compressed.readableByteCount());
+                getHeaders().set(HttpHeaders.CONTENT_ENCODING, GZIP);
+                return compressed;
+            } finally {
+                gzip.end();
+                DataBufferUtils.release(buffer);
+            }
+        }
+
+        private Flux<DataBuffer> compressStream(Flux<? extends DataBuffer> body) {
+            DataBufferFactory bufferFactory = bufferFactory();
+            StreamingGzip gzip = new StreamingGzip(level);
+            return body
+                    .<DataBuffer>map(buffer -> {
+                        contentBytes.increment(buffer.readableByteCount());
+                        try {
+                            return gzip.compress(buffer, bufferFactory);
+                        } finally {
+                            DataBufferUtils.release(buffer);
+                        }
+                    })
+                    .concatWith(Mono.fromSupplier(() -> gzip.finish(bufferFactory)))
+                    .filter(buffer -> {
+                        if (buffer.readableByteCount() > 0) {
+                            return true;
+                        }
+                        DataBufferUtils.release(buffer); // The deflater is still filling its window
+                        return false;
+                    })
+                    .doFinally(signal -> gzip.end());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.ai_service_integration.AiIntegration.service.compression;
+
+import com.example.ai_service_integration.AiIntegration.service.metrics.AiMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import reactor.netty.NettyPipeline;
+
+/**
+ * Counts HTTP body bytes of one leg into {@link AiMetrics#HTTP_BYTES} at two points of a Reactor
+ * Netty pipeline: right after the HTTP codec, where bodies are as they travel ("wire"), and right
+ * before the application ("content"). Compression handlers sit between the two, so a compressed
+ * body shows up smaller on the wire than in content; an uncompressed one counts the same in both.
+ * <p>
+ * HTTP/2 connections have no HTTP/1.1 codec and are not counted.
+ */
+public final class HttpByteCounters {
+
+    public static final String WIRE_HANDLER = "ai.wireBytes";
+    public static final String CONTENT_HANDLER = "ai.contentBytes";
+
+    private final ChannelHandler wire;
+    private final ChannelHandler content;
+
+    private HttpByteCounters(ChannelHandler wire, ChannelHandler content) {
+        this.wire = wire;
+        this.content = content;
+    }
+
+    /** Client-facing server: requests come in, responses go out. */
+    public static HttpByteCounters client(MeterRegistry meterRegistry) {
+        return new HttpByteCounters(
+                new Counting(AiMetrics.httpBytes(meterRegistry, "client", "request", "wire"),
+                        AiMetrics.httpBytes(meterRegistry, "client", "response", "wire")),
+                new Counting(AiMetrics.httpBytes(meterRegistry, "client", "request", "content"),
+                        AiMetrics.httpBytes(meterRegistry, "client", "response", "content")));
+    }
+
+    /**
+     * Upstream client: requests go out, responses come in. Request bodies compressed by
+     * {@link GzipRequestFilter} are already gzip when they reach Netty, so their content bytes are
+     * counted by the filter instead ({@code countRequestContent} false).
+     */
+    public static HttpByteCounters upstream(MeterRegistry meterRegistry, boolean countRequestContent) {
+        return new HttpByteCounters(
+                new Counting(AiMetrics.httpBytes(meterRegistry, "upstream", "response", "wire"),
+                        AiMetrics.httpBytes(meterRegistry, "upstream", "request", "wire")),
+                new Counting(AiMetrics.httpBytes(meterRegistry, "upstream", "response", "content"),
+                        countRequestContent ? AiMetrics.httpBytes(meterRegistry, "upstream", "request", "content") : null));
+    }
+
+    /** Adds the counters around whatever sits between the codec and the reactive bridge, now or later. */
+    public void addTo(ChannelPipeline pipeline) {
+        if (pipeline.get(NettyPipeline.HttpCodec) == null) {
+            return;
+        }
+        pipeline.addAfter(NettyPipeline.HttpCodec, WIRE_HANDLER, wire);
+        pipeline.addBefore(NettyPipeline.ReactiveBridge, CONTENT_HANDLER, content);
+    }
+
+    // Reads and writes are counted as they pass, so nothing is held back or copied
+    @ChannelHandler.Sharable
+    static final class Counting extends ChannelDuplexHandler {
+
+        private final Counter inbound;
+        private final Counter outbound; // Null when counted elsewhere
+
+        Counting(Counter inbound, Counter outbound) {
+            this.inbound = inbound;
+            this.outbound = outbound;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            count(inbound, msg);
+            ctx.fireChannelRead(msg);
+        }
+
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+            count(outbound, msg);
+            ctx.write(msg, promise);
+        }
+
+        // Body chunks only: header-only messages (HttpRequest, HttpResponse) hold no content
+        private static void count(Counter counter, Object msg) {
+            if (counter == null) {
+                return;
+            }
+            if (msg instanceof ByteBufHolder holder) {
+                counter.increment(holder.content().readableBytes());
+            } else if (msg instanceof ByteBuf buffer) {
+                counter.increment(buffer.readableBytes());
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.ai_service_integration.AiIntegration.service.compression;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Gzip (RFC 1952) over a body that arrives in pieces: each piece is deflated as it comes and its
+ * output handed on, so only the deflater's window is held, never the whole body. Not thread-safe;
+ * one instance per body, and {@link #end()} it when done.
+ */
+public final class StreamingGzip {
+
+    // Magic, deflate, no flags, no modification time, no extra flags, unknown OS
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final Deflater deflater;
+    private final CRC32 crc = new CRC32();
+    private final byte[] chunk = new byte[8192];
+    private boolean started;
+
+    public StreamingGzip(int level) {
+        this.deflater = new Deflater(level, true);
+    }
+
+    /**
+     * Deflates {@code input} (left unreleased) and returns what the deflater let out so far, which
+     * may be nothing while it is still filling its window.
+     */
+    public DataBuffer compress(DataBuffer input, DataBufferFactory bufferFactory) {
+        DataBuffer output = bufferFactory.allocateBuffer(Math.max(64, input.readableByteCount() / 2));
+        writeHeader(output);
+        try (DataBuffer.ByteBufferIterator buffers = input.readableByteBuffers()) {
+            while (buffers.hasNext()) {
+                ByteBuffer buffer = buffers.next();
+                crc.update(buffer.duplicate());
+                deflater.setInput(buffer);
+                while (!deflater.needsInput()) {
+                    drain(output);
+                }
+            }
+        }
+        return output;
+    }
+
+    /** The rest of the deflate stream and the gzip trailer (CRC-32 and length of the input). */
+    public DataBuffer finish(DataBufferFactory bufferFactory) {
+        DataBuffer output = bufferFactory.allocateBuffer(64);
+        writeHeader(output);
+        deflater.finish();
+        while (!deflater.finished()) {
+            drain(output);
+        }
+        writeIntLe(output, (int) crc.getValue());
+        writeIntLe(output, (int) deflater.getBytesRead());
+        return output;
+    }
+
+    public void end() {
+        deflater.end();
+    }
+
+    private void writeHeader(DataBuffer output) {
+        if (!started) {
+            output.write(HEADER);
+            started = true;
+        }
+    }
+
+    private void drain(DataBuffer output) {
+        int length = deflater.deflate(chunk, 0, chunk.length, Deflater.NO_FLUSH);
+        output.write(chunk, 0, length);
+    }
+
+    private static void writeIntLe(DataBuffer output, int value) {
+        output.write(new byte[] {(byte) value, (byte) (value >>> 8), (byte) (value >>> 16), (byte) (value >>> 24)});
+    }
+}
@@ -0,0 +1,348 @@
+package com.example.ai_service_integration.AiIntegration.service.job;
+
+import com.example.ai_service_integration.AiIntegration.dto.BatchCompletionResult;
+import com.example.ai_service_integration.AiIntegration.dto.JobStatus;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Properties;
+
+/**
+ * One submitted job and its directory, which is all the state there is:
+ * <pre>
+ * job.properties   created-at, total
+ * prompts.ndjson   one JSON string per prompt, written once at submission
+ * results.ndjson   one {@link BatchCompletionResult} per answered prompt, appended as they finish
+ * cancelled        present once the job was cancelled
+ * </pre>
+ * A prompt is done once its result line is on disk; loading a job replays the results to find
+ * the prompts still to do. Prompts in progress at a crash are simply done again, and so are
+ * prompts whose result line cannot be read back.
+ */
+final class Job implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(Job.class);
+
+    private static final String PROPERTIES = "job.properties";
+    private static final String PROMPTS = "prompts.ndjson";
+    private static final String RESULTS = "results.ndjson";
+    private static final String CANCELLED = "cancelled";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final boolean WINDOWS = System.getProperty("os.name", "").startsWith("Windows");
+
+    final String id;
+    final Path directory;
+    final Instant createdAt;
+    final int total;
+
+    private final ObjectMapper objectMapper;
+    private final FileChannel results;
+    private final BitSet done;
+    private int completed;
+    private int failed;
+    private boolean cancelled;
+
+    // Prompts not yet handed out are read lazily, so a large job costs a bit per prompt in memory
+    private BufferedReader prompts;
+    private int cursor;
+    private final PriorityQueue<Retry> retries = new PriorityQueue<>(Comparator.comparingLong(Retry::notBefore));
+    private final Map<Integer, Integer> attempts = new HashMap<>(); // Only prompts that failed before
+    private int inFlight;
+
+    /** A prompt handed out for completion. */
+    record Item(Job job, int index, String prompt) {
+    }
+
+    // A failed prompt held back until its wait is over (epoch millis)
+    private record Retry(Item item, long notBefore) {
+    }
+
+    /**
+     * Result lines from a byte offset of the results file, and where the next read starts.
+     * {@code jobFinished} is taken before reading: once it is set, an empty page is the end.
+     */
+    record ResultPage(List<BatchCompletionResult> results, long nextOffset, boolean jobFinished) {
+    }
+
+    private Job(String id, Path directory, Instant createdAt, int total, ObjectMapper objectMapper) throws IOException {
+        this.id = id;
+        this.directory = directory;
+        this.createdAt = createdAt;
+        this.total = total;
+        this.objectMapper = objectMapper;
+        this.done = new BitSet(total);
+        this.results = FileChannel.open(directory.resolve(RESULTS),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.cancelled = Files.exists(directory.resolve(CANCELLED));
+    }
+
+    /**
+     * Writes the job next to {@code directory} and moves it in place, so a crash leaves no
+     * half-written job. Both files, the temporary directory and, after the move, the jobs
+     * directory are forced to disk first, so the job also survives a power loss once this returns.
+     */
+    static Job create(Path directory, String id, Instant createdAt, List<String> prompts, ObjectMapper objectMapper) throws IOException {
+        Path temp = directory.resolveSibling(directory.getFileName() + TEMP_SUFFIX);
+        Files.createDirectories(temp);
+        try (BufferedWriter writer = Files.newBufferedWriter(temp.resolve(PROMPTS), StandardCharsets.UTF_8)) {
+            for (String prompt : prompts) {
+                writer.write(objectMapper.writeValueAsString(prompt));
+                writer.write('\n');
+            }
+        }
+        Properties properties = new Properties();
+        properties.setProperty("created-at", String.valueOf(createdAt.toEpochMilli()));
+        properties.setProperty("total", String.valueOf(prompts.size()));
+        try (OutputStream out = Files.newOutputStream(temp.resolve(PROPERTIES))) {
+            properties.store(out, null);
+        }
+        force(temp.resolve(PROMPTS));
+        force(temp.resolve(PROPERTIES));
+        force(temp); // The entries of both files
+        Files.move(temp, directory, StandardCopyOption.ATOMIC_MOVE);
+        force(directory.getParent()); // The move itself
+        return load(directory, objectMapper);
+    }
+
+    // On a directory this makes its entries durable; Windows cannot open a directory to do so,
+    // so there the move is only as durable as the file system makes it on its own
+    private static void force(Path path) throws IOException {
+        boolean isDirectory = Files.isDirectory(path);
+        try (FileChannel channel = FileChannel.open(path, isDirectory ? StandardOpenOption.READ : StandardOpenOption.WRITE)) {
+            channel.force(true);
+        } catch (IOException e) {
+            if (!isDirectory || !WINDOWS) {
+                throw e;
+            }
+        }
+    }
+
+    static Job load(Path directory, ObjectMapper objectMapper) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(directory.resolve(PROPERTIES))) {
+            properties.load(in);
+        }
+        Job job = new Job(directory.getFileName().toString(), directory,
+                Instant.ofEpochMilli(Long.parseLong(properties.getProperty("created-at"))),
+                Integer.parseInt(properties.getProperty("total")), objectMapper);
+        job.replayResults();
+        return job;
+    }
+
+    static boolean isTemporary(Path directory) {
+        return directory.getFileName().toString().endsWith(TEMP_SUFFIX);
+    }
+
+    /**
+     * Next prompt to complete (failures done waiting first), or null when everything is handed
+     * out or only failures still waiting are left.
+     */
+    synchronized Item next(long now) throws IOException {
+        if (cancelled) {
+            return null;
+        }
+        Item item = null;
+        if (!retries.isEmpty() && retries.peek().notBefore() <= now) {
+            item = retries.poll().item();
+        }
+        while (item == null && cursor < total) {
+            if (prompts == null) {
+                prompts = Files.newBufferedReader(directory.resolve(PROMPTS), StandardCharsets.UTF_8);
+            }
+            String line = prompts.readLine();
+            if (line == null) {
+                throw new IOException("Prompts file of job " + id + " ends after " + cursor + " of " + total + " prompts");
+            }
+            int index = cursor++;
+            if (!done.get(index)) {
+                item = new Item(this, index, objectMapper.readValue(line, String.class));
+            }
+        }
+        if (item != null) {
+            inFlight++;
+        }
+        return item;
+    }
+
+    /** Whether there may be more to hand out; false for finished and cancelled jobs. */
+    synchronized boolean hasPending() {
+        return !cancelled && (!retries.isEmpty() || cursor < total);
+    }
+
+    synchronized void record(BatchCompletionResult result) throws IOException {
+        inFlight--;
+        if (done.get(result.getIndex())) {
+            return;
+        }
+        byte[] line = (objectMapper.writeValueAsString(result) + '\n').getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.wrap(line);
+        long position = results.size();
+        while (buffer.hasRemaining()) {
+            position += results.write(buffer, position);
+        }
+        count(result);
+        if (isFinished()) {
+            results.force(false);
+        }
+    }
+
+    /**
+     * Puts a prompt back for another attempt, not handed out before {@code backoff} (doubled for
+     * every earlier retry) or the upstream's {@code retryAfter} has passed, whichever is longer.
+     * False once it has used up {@code maxAttempts}.
+     */
+    synchronized boolean retry(Item item, int maxAttempts, Duration backoff, Duration retryAfter, long now) {
+        int attempt = attempts.merge(item.index(), 1, Integer::sum) + 1;
+        if (attempt > maxAttempts || cancelled) {
+            return false;
+        }
+        Duration wait = backoff.multipliedBy(1L << Math.min(attempt - 2, 16));
+        if (retryAfter != null && retryAfter.compareTo(wait) > 0) {
+            wait = retryAfter;
+        }
+        inFlight--;
+        retries.add(new Retry(item, now + wait.toMillis()));
+        return true;
+    }
+
+    synchronized void cancel() throws IOException {
+        if (!cancelled && !isFinished()) {
+            Files.createFile(directory.resolve(CANCELLED));
+            cancelled = true;
+            retries.clear();
+        }
+    }
+
+    synchronized boolean isFinished() {
+        return cancelled || completed + failed == total;
+    }
+
+    synchronized JobStatus status() {
+        JobStatus.State state = cancelled ? JobStatus.State.CANCELLED
+                : completed + failed == total ? JobStatus.State.COMPLETED
+                : completed + failed + inFlight > 0 ? JobStatus.State.RUNNING
+                : JobStatus.State.QUEUED;
+        return new JobStatus(id, state, total, completed, failed, createdAt);
+    }
+
+    /**
+     * Complete result lines from {@code offset}, reading at most about {@code maxBytes}. Lines
+     * that do not hold a result of this job are skipped; their prompts count as not done.
+     */
+    ResultPage read(long offset, int maxBytes) throws IOException {
+        boolean finished = isFinished();
+        ByteBuffer buffer = ByteBuffer.allocate(maxBytes);
+        results.read(buffer, offset);
+        byte[] bytes = buffer.array();
+        int end = buffer.position();
+        while (end > 0 && bytes[end - 1] != '\n') {
+            end--; // A line still being written is left for the next read
+        }
+        List<BatchCompletionResult> page = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < end; i++) {
+            if (bytes[i] == '\n') {
+                BatchCompletionResult result = parse(bytes, start, i - start, offset + start);
+                if (result != null) {
+                    page.add(result);
+                }
+                start = i + 1;
+            }
+        }
+        if (end == 0 && buffer.position() == maxBytes) {
+            return read(offset, maxBytes * 2); // One line longer than the buffer
+        }
+        return new ResultPage(page, offset + end, finished);
+    }
+
+    private BatchCompletionResult parse(byte[] bytes, int start, int length, long position) {
+        BatchCompletionResult result;
+        try {
+            result = objectMapper.readValue(bytes, start, length, BatchCompletionResult.class);
+        } catch (JsonProcessingException e) {
+            logger.warn("Skipping unreadable result line at byte {} of job {}: {}", position, id, e.getOriginalMessage());
+            return null;
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // Parsing a byte array does no I/O
+        }
+        if (result.getIndex() < 0 || result.getIndex() >= total) {
+            logger.warn("Skipping result line at byte {} of job {}: no prompt {}", position, id, result.getIndex());
+            return null;
+        }
+        return result;
+    }
+
+    // Rebuilds the counters from disk, cutting off a line a crash left half-written
+    private void replayResults() throws IOException {
+        long offset = 0;
+        while (true) {
+            ResultPage page = read(offset, 1 << 20);
+            if (page.nextOffset() == offset) {
+                break;
+            }
+            for (BatchCompletionResult result : page.results()) {
+                if (!done.get(result.getIndex())) {
+                    count(result);
+                }
+            }
+            offset = page.nextOffset();
+        }
+        if (results.size() > offset) {
+            results.truncate(offset);
+        }
+    }
+
+    private void count(BatchCompletionResult result) {
+        done.set(result.getIndex());
+        if (result.getError() != null) {
+            failed++;
+        } else {
+            completed++;
+        }
+    }
+
+    void delete() throws IOException {
+        close();
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (prompts != null) {
+                prompts.close();
+            }
+        } finally {
+            results.close();
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.example.ai_service_integration.AiIntegration.service.job;
+
+import com.example.ai_service_integration.AiIntegration.config.JobProperties;
+import com.example.ai_service_integration.AiIntegration.dto.BatchCompletionResult;
+import com.example.ai_service_integration.AiIntegration.dto.JobStatus;
+import com.example.ai_service_integration.AiIntegration.service.AiService;
+import com.example.ai_service_integration.AiIntegration.service.AiServiceException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Runs completion jobs in the background: a job's prompts are written to disk on submission
+ * and worked off by a pool of {@code concurrency} workers through the {@link AiService},
+ * starting at most {@code rate} prompts per second over all jobs. Jobs with work left take
+ * turns, one prompt each, so a huge job does not hold up a small one submitted after it.
+ * <p>
+ * Results are appended to the job's directory as they finish, and jobs left unfinished by a
+ * shutdown or crash carry on where they stopped when the service starts again.
+ */
+public class JobService implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobService.class);
+
+    private static final int PAGE_BYTES = 64 * 1024;
+
+    private final JobProperties properties;
+    private final AiService aiService;
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final ArrayDeque<Job> turns = new ArrayDeque<>(); // Jobs with prompts left to hand out
+    private final Disposable worker;
+    private final Disposable cleanup;
+
+    private final Counter completed;
+    private final Counter failed;
+    private final Counter retried;
+
+    public JobService(JobProperties properties, AiService aiService, ObjectMapper objectMapper,
+                      MeterRegistry meterRegistry) throws IOException {
+        this.properties = properties;
+        this.aiService = aiService;
+        this.objectMapper = objectMapper;
+        this.directory = Paths.get(properties.getDirectory());
+        this.completed = meterRegistry.counter("ai.jobs.prompts", "result", "completed");
+        this.failed = meterRegistry.counter("ai.jobs.prompts", "result", "failed");
+        this.retried = meterRegistry.counter("ai.jobs.prompts", "result", "retried");
+        Gauge.builder("ai.jobs.active", this, JobService::activeJobs).register(meterRegistry);
+
+        Files.createDirectories(directory);
+        resume();
+
+        long periodNanos = (long) (TimeUnit.SECONDS.toNanos(1) / properties.getRate());
+        this.worker = Flux.interval(Duration.ofNanos(periodNanos), Schedulers.boundedElastic())
+                .onBackpressureDrop() // Ticks while all workers are busy are not saved up for later
+                .mapNotNull(tick -> nextItem())
+                .flatMap(this::complete, properties.getConcurrency())
+                .subscribe();
+        long retentionCheck = Math.max(1, Math.min(properties.getRetention().toMinutes(), 60));
+        this.cleanup = Schedulers.boundedElastic().schedulePeriodically(this::deleteExpired,
+                retentionCheck, retentionCheck, TimeUnit.MINUTES);
+    }
+
+    /** Stores the prompts and queues them; the job is safe on disk when this returns. */
+    public JobStatus submit(List<String> prompts) throws IOException {
+        String id = UUID.randomUUID().toString();
+        Job job = Job.create(directory.resolve(id), id, Instant.ofEpochMilli(now()), prompts, objectMapper);
+        jobs.put(id, job);
+        synchronized (turns) {
+            turns.addLast(job);
+        }
+        logger.info("Queued job {} with {} prompts.", id, prompts.size());
+        return job.status();
+    }
+
+    public JobStatus status(String id) {
+        return find(id).status();
+    }
+
+    public JobStatus cancel(String id) throws IOException {
+        Job job = find(id);
+        job.cancel();
+        return job.status();
+    }
+
+    /**
+     * The job's results so far, in the order they finished. With {@code follow} the stream stays
+     * open and delivers new results until the job is finished.
+     */
+    public Flux<BatchCompletionResult> results(String id, boolean follow) {
+        Job job = find(id);
+        return readFrom(job, 0, follow).concatMapIterable(Job.ResultPage::results);
+    }
+
+    // One page per read; nothing new at the end of the file waits for news only when following
+    private Flux<Job.ResultPage> readFrom(Job job, long offset, boolean follow) {
+        return Mono.fromCallable(() -> job.read(offset, PAGE_BYTES))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(page -> {
+                    if (page.nextOffset() > offset) {
+                        return Flux.just(page).concatWith(Flux.defer(() -> readFrom(job, page.nextOffset(), follow)));
+                    }
+                    if (!follow || page.jobFinished()) {
+                        return Flux.empty();
+                    }
+                    return Mono.delay(properties.getPollInterval()).thenMany(Flux.defer(() -> readFrom(job, offset, true)));
+                });
+    }
+
+    private Job find(String id) {
+        Job job = jobs.get(id);
+        if (job == null) {
+            throw new AiServiceException(HttpStatus.NOT_FOUND, "No job " + id);
+        }
+        return job;
+    }
+
+    // Round robin over jobs with prompts left
+    private Job.Item nextItem() {
+        synchronized (turns) {
+            for (int i = turns.size(); i > 0; i--) {
+                Job job = turns.pollFirst();
+                Job.Item item;
+                try {
+                    item = job.next(now());
+                } catch (IOException | RuntimeException e) {
+                    logger.error("Cannot read prompts of job {}, skipping it.", job.id, e);
+                    continue;
+                }
+                if (job.hasPending()) {
+                    turns.addLast(job);
+                }
+                if (item != null) {
+                    return item;
+                }
+            }
+            return null;
+        }
+    }
+
+    private Mono<Void> complete(Job.Item item) {
+        return aiService.getAiCompletion(item.prompt())
+                .map(response -> BatchCompletionResult.success(item.index(), response))
+                .onErrorResume(RuntimeException.class, e -> {
+                    if (isRetryable(e) && item.job().retry(item, properties.getMaxAttempts(),
+                            properties.getRetryBackoff(), ((AiServiceException) e).getRetryAfter(), now())) {
+                        retried.increment();
+                        requeue(item.job());
+                        return Mono.empty();
+                    }
+                    logger.warn("Prompt {} of job {} failed: {}", item.index(), item.job().id, e.getMessage());
+                    return Mono.just(BatchCompletionResult.failure(item.index(), "Error generating completion: " + e.getMessage()));
+                })
+                .publishOn(Schedulers.boundedElastic()) // File writes stay off the event loop
+                .doOnNext(result -> record(item.job(), result))
+                .then();
+    }
+
+    private void record(Job job, BatchCompletionResult result) {
+        try {
+            job.record(result);
+            (result.getError() != null ? failed : completed).increment();
+            if (job.isFinished()) {
+                logger.info("Job {} finished: {}", job.id, job.status());
+            }
+        } catch (IOException e) {
+            logger.error("Cannot write result {} of job {}; it will be redone after a restart.", result.getIndex(), job.id, e);
+        }
+    }
+
+    private void requeue(Job job) {
+        synchronized (turns) {
+            if (!turns.contains(job)) {
+                turns.addLast(job);
+            }
+        }
+    }
+
+    // Waiting for a rate limit or an overloaded upstream is worth another try later
+    private static boolean isRetryable(Throwable e) {
+        return e instanceof AiServiceException serviceException
+                && (serviceException.getStatus() == HttpStatus.TOO_MANY_REQUESTS
+                || serviceException.getStatus() == HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    // Loads every job on disk; those with work left are queued oldest first
+    private void resume() throws IOException {
+        List<Job> loaded = new ArrayList<>();
+        try (Stream<Path> entries = Files.list(directory)) {
+            for (Path entry : (Iterable<Path>) entries::iterator) {
+                if (!Files.isDirectory(entry)) {
+                    continue;
+                }
+                if (Job.isTemporary(entry)) {
+                    deleteDirectory(entry); // Submission interrupted before it was acknowledged
+                    continue;
+                }
+                try {
+                    loaded.add(Job.load(entry, objectMapper));
+                } catch (IOException | RuntimeException e) {
+                    logger.error("Cannot load job from {}, leaving it alone.", entry, e);
+                }
+            }
+        }
+        loaded.sort(Comparator.comparing(job -> job.createdAt));
+        for (Job job : loaded) {
+            jobs.put(job.id, job);
+            if (job.hasPending()) {
+                turns.addLast(job);
+                logger.info("Resuming job {}: {}", job.id, job.status());
+            }
+        }
+    }
+
+    private void deleteExpired() {
+        long cutoff = now() - properties.getRetention().toMillis();
+        jobs.values().removeIf(job -> {
+            if (!job.isFinished() || job.createdAt.toEpochMilli() > cutoff) {
+                return false;
+            }
+            try {
+                job.delete();
+                logger.info("Deleted job {}, past its retention.", job.id);
+            } catch (IOException e) {
+                logger.warn("Could not delete job {}: {}", job.id, e.toString());
+            }
+            return true;
+        });
+    }
+
+    private static void deleteDirectory(Path path) throws IOException {
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private int activeJobs() {
+        synchronized (turns) {
+            return turns.size();
+        }
+    }
+
+    private static long now() {
+        return Schedulers.parallel().now(TimeUnit.MILLISECONDS);
+    }
+
+    // Prompts in progress are given up; they are done again on the next start
+    @Override
+    public void close() throws IOException {
+        worker.dispose();
+        cleanup.dispose();
+        for (Job job : jobs.values()) {
+            job.close();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.ai_service_integration.AiIntegration.service.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Names and shared helpers of the completion pipeline's meters, so the service-level and the
+ * upstream-level view of the same thing end up in the same series.
+ */
+public final class AiMetrics {
+
+    public static final String COMPLETION_LATENCY = "ai.completion.latency";
+    public static final String COMPLETION_IN_FLIGHT = "ai.completion.in.flight";
+    public static final String COMPLETION_FINISH = "ai.completion.finish";
+    public static final String UPSTREAM_LATENCY = "ai.upstream.latency";
+    public static final String UPSTREAM_STREAM_LATENCY = "ai.upstream.stream.latency";
+    public static final String TOKENS = "ai.tokens";
+    public static final String COST = "ai.cost";
+    public static final String HTTP_BYTES = "ai.http.bytes";
+
+    // Bounds of the latency histograms; LLM calls take from milliseconds (cached) to minutes
+    private static final Duration MIN_EXPECTED_LATENCY = Duration.ofMillis(1);
+    private static final Duration MAX_EXPECTED_LATENCY = Duration.ofMinutes(2);
+
+    private AiMetrics() {
+    }
+
+    /** Latency timer with a percentile histogram, so percentiles can be aggregated across instances. */
+    public static Timer latencyTimer(MeterRegistry meterRegistry, String name, String model, String outcome, String... extraTags) {
+        return Timer.builder(name)
+                .tags("model", tagValue(model), "outcome", outcome)
+                .tags(extraTags)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED_LATENCY)
+                .maximumExpectedValue(MAX_EXPECTED_LATENCY)
+                .register(meterRegistry);
+    }
+
+    /** Why the model stopped: "stop", "length" (cut off at max-tokens), "content_filter", ... */
+    public static void countFinishReason(MeterRegistry meterRegistry, String model, String finishReason) {
+        meterRegistry.counter(COMPLETION_FINISH, "model", tagValue(model), "reason", tagValue(finishReason)).increment();
+    }
+
+    /**
+     * Body bytes of one leg ("client" or "upstream") and direction ("request" or "response"), either
+     * as sent over the wire ("wire", compressed if it was) or as the application reads and writes them
+     * ("content"). Their ratio is what compression saves.
+     */
+    public static Counter httpBytes(MeterRegistry meterRegistry, String leg, String direction, String form) {
+        return Counter.builder(HTTP_BYTES)
+                .baseUnit("bytes")
+                .tags("leg", leg, "direction", direction, "form", form)
+                .register(meterRegistry);
+    }
+
+    public static String outcome(SignalType signal) {
+        return switch (signal) {
+            case ON_COMPLETE -> "success";
+            case ON_ERROR -> "error";
+            default -> "cancelled";
+        };
+    }
+
+    public static String tagValue(String value) {
+        return value == null || value.isBlank() ? "unknown" : value.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.ai_service_integration.AiIntegration.service.metrics;
+
+import com.example.ai_service_integration.AiIntegration.dto.CompletionChunk;
+import com.example.ai_service_integration.AiIntegration.dto.CompletionResponse;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.example.ai_service_integration.AiIntegration.service.AiRequestContext;
+import com.example.ai_service_integration.AiIntegration.service.AiResponseMetadata;
+import com.example.ai_service_integration.AiIntegration.service.AiService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Outermost {@link AiService} decorator: end-to-end latency of every completion as the caller
+ * sees it (cache hits included), tagged by model, outcome and type, plus the number of
+ * completions in flight. Streams also report their finish reason here, from their last chunk,
+ * as there is no complete answer for the upstream metrics to read it from.
+ * <p>
+ * The model is the one model routing sent the call to, read back from the request's
+ * {@link AiResponseMetadata}; without routing, and for answers that never went upstream, it is
+ * the configured model.
+ */
+public class MetricsAiService implements AiService {
+
+    private final AiService delegate;
+    private final String model;
+    private final MeterRegistry meterRegistry;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public MetricsAiService(AiService delegate, String model, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.model = model;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder(AiMetrics.COMPLETION_IN_FLIGHT, inFlight, AtomicInteger::get).register(meterRegistry);
+    }
+
+    @Override
+    public Mono<CompletionResponse> getAiCompletion(String prompt) {
+        return Mono.deferContextual(context -> {
+            AiResponseMetadata metadata = metadataOf(context);
+            long start = started();
+            return delegate.getAiCompletion(prompt)
+                    .doFinally(signal -> finished(start, modelOf(metadata), AiMetrics.outcome(signal), "complete"))
+                    .contextWrite(withMetadata(context, metadata));
+        });
+    }
+
+    @Override
+    public Flux<CompletionChunk> streamAiCompletion(String prompt) {
+        return Flux.deferContextual(context -> {
+            AiResponseMetadata metadata = metadataOf(context);
+            long start = started();
+            return delegate.streamAiCompletion(prompt)
+                    .doOnNext(chunk -> {
+                        if (chunk.getFinishReason() != null) {
+                            AiMetrics.countFinishReason(meterRegistry, modelOf(metadata), chunk.getFinishReason());
+                        }
+                    })
+                    .doFinally(signal -> finished(start, modelOf(metadata), AiMetrics.outcome(signal), "stream"))
+                    .contextWrite(withMetadata(context, metadata));
+        });
+    }
+
+    @Override
+    public Mono<CompletionResponse> getChatCompletion(List<OpenAiApiRequest.Message> messages) {
+        return Mono.deferContextual(context -> {
+            AiResponseMetadata metadata = metadataOf(context);
+            long start = started();
+            return delegate.getChatCompletion(messages)
+                    .doFinally(signal -> finished(start, modelOf(metadata), AiMetrics.outcome(signal), "chat"))
+                    .contextWrite(withMetadata(context, metadata));
+        });
+    }
+
+    // The controller's, if it made one; callers without one (jobs, sessions) get their own
+    private static AiResponseMetadata metadataOf(ContextView context) {
+        AiResponseMetadata metadata = AiRequestContext.getResponseMetadata(context);
+        return metadata != null ? metadata : new AiResponseMetadata();
+    }
+
+    private static Context withMetadata(ContextView context, AiResponseMetadata metadata) {
+        return AiRequestContext.getResponseMetadata(context) == metadata
+                ? Context.empty()
+                : AiRequestContext.withResponseMetadata(metadata);
+    }
+
+    private String modelOf(AiResponseMetadata metadata) {
+        String routed = metadata.getRoutedModel();
+        return routed != null ? routed : model;
+    }
+
+    private long started() {
+        inFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    private void finished(long start, String model, String outcome, String type) {
+        inFlight.decrementAndGet();
+        AiMetrics.latencyTimer(meterRegistry, AiMetrics.COMPLETION_LATENCY, model, outcome, "type", type)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+}
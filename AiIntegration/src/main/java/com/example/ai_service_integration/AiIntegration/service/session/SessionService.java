@@ -0,0 +1,163 @@
+package com.example.ai_service_integration.AiIntegration.service.session;
+
+import com.example.ai_service_integration.AiIntegration.config.SessionProperties;
+import com.example.ai_service_integration.AiIntegration.dto.CompletionResponse;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest.Message;
+import com.example.ai_service_integration.AiIntegration.service.AiService;
+import com.example.ai_service_integration.AiIntegration.service.AiServiceException;
+import com.example.ai_service_integration.AiIntegration.service.token.TokenEstimator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Mono;
+
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Completions within a conversation kept on the server: the client sends only its new message,
+ * and the history of its session is added from the {@link SessionStore}. Sessions are started
+ * here under a random, unguessable id, the only key to them. The request is assembled under a
+ * token budget, newest messages first: the last {@code verbatim-messages} go in full, older
+ * ones are cut to {@code compacted-message-tokens}, and whatever no longer fits is left out,
+ * along with everything older still. An answered turn is then appended to the session, unless
+ * the answer was only the placeholder for an empty completion.
+ * <p>
+ * Two requests of one session in flight at once both see the history from before either of
+ * them, and their turns are appended in the order the answers arrive.
+ */
+public class SessionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionService.class);
+
+    private static final String ELLIPSIS = " …";
+    private static final int ID_BYTES = 16;
+
+    private final SecureRandom random = new SecureRandom();
+
+    private final SessionProperties properties;
+    private final AiService aiService;
+    private final TokenEstimator tokenEstimator;
+    private final int promptTokens;
+    private final SessionStore store;
+
+    private final Counter sent;
+    private final Counter compacted;
+    private final Counter dropped;
+
+    /**
+     * @param promptTokens tokens the assembled request may take, framing included: the model's
+     *                     context window less the room kept for the answer
+     */
+    public SessionService(SessionProperties properties, AiService aiService, TokenEstimator tokenEstimator,
+                          int promptTokens, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.aiService = aiService;
+        this.tokenEstimator = tokenEstimator;
+        this.promptTokens = promptTokens;
+        this.store = new SessionStore(properties.getMaxMemory().toBytes(), (int) properties.getBlockSize().toBytes(),
+                (int) properties.getMaxSessionSize().toBytes(), properties.getIdleTimeout(), properties.getMaxSessions());
+        this.sent = meterRegistry.counter("ai.sessions.history.messages", "result", "sent");
+        this.compacted = meterRegistry.counter("ai.sessions.history.messages", "result", "compacted");
+        this.dropped = meterRegistry.counter("ai.sessions.history.messages", "result", "dropped");
+        Gauge.builder("ai.sessions.active", store, SessionStore::sessions).register(meterRegistry);
+        Gauge.builder("ai.sessions.memory.used", store, SessionStore::usedBytes).baseUnit("bytes").register(meterRegistry);
+        FunctionCounter.builder("ai.sessions.removed", store, SessionStore::evicted).tag("reason", "evicted").register(meterRegistry);
+        FunctionCounter.builder("ai.sessions.removed", store, SessionStore::expired).tag("reason", "expired").register(meterRegistry);
+    }
+
+    /** Starts an empty session and returns its id: 128 random bits, URL-safe Base64. */
+    public String create() {
+        byte[] bytes = new byte[ID_BYTES];
+        String id;
+        do {
+            random.nextBytes(bytes);
+            id = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        } while (!store.create(id));
+        return id;
+    }
+
+    /**
+     * Answers within the session; fails with 404 for a session that was never started, has
+     * expired or was ended. Only answers that hold a completion are added to the history.
+     */
+    public Mono<CompletionResponse> complete(String sessionId, String prompt) {
+        return Mono.defer(() -> {
+            if (!store.contains(sessionId)) {
+                return Mono.error(new AiServiceException(HttpStatus.NOT_FOUND, "No session " + sessionId));
+            }
+            Message question = Message.builder().role("user").content(prompt).build();
+            List<Message> messages = assemble(store.history(sessionId), question);
+            logger.debug("Session {}: sending {} messages.", sessionId, messages.size());
+            return aiService.getChatCompletion(messages)
+                    .doOnNext(response -> {
+                        if (response.hasCompletion()) {
+                            store.append(sessionId, List.of(question,
+                                    Message.builder().role("assistant").content(response.getCompletion()).build()));
+                        }
+                    });
+        });
+    }
+
+    /** Forgets the session; false if there was none. */
+    public boolean end(String sessionId) {
+        return store.delete(sessionId);
+    }
+
+    // System prompt, as much history as the budget allows, then the new message
+    private List<Message> assemble(List<Message> history, Message question) {
+        Message system = properties.getSystemPrompt().isBlank() ? null
+                : Message.builder().role("system").content(properties.getSystemPrompt()).build();
+        int budget = promptTokens - TokenEstimator.TOKENS_PER_REPLY - cost(question) - (system != null ? cost(system) : 0);
+
+        Deque<Message> kept = new ArrayDeque<>();
+        for (int i = history.size() - 1; i >= 0; i--) {
+            boolean recent = history.size() - i <= properties.getVerbatimMessages();
+            Message message = recent ? history.get(i) : compact(history.get(i));
+            if (message == null || cost(message) > budget) {
+                break;
+            }
+            budget -= cost(message);
+            kept.addFirst(message);
+            if (message != history.get(i)) {
+                compacted.increment();
+            }
+        }
+        sent.increment(kept.size());
+        dropped.increment(history.size() - kept.size());
+
+        List<Message> messages = new ArrayList<>(kept.size() + 2);
+        if (system != null) {
+            messages.add(system);
+        }
+        messages.addAll(kept);
+        messages.add(question);
+        return messages;
+    }
+
+    // Null when compaction is off: older messages are then left out
+    private Message compact(Message message) {
+        int maxTokens = properties.getCompactedMessageTokens();
+        if (maxTokens <= 0) {
+            return null;
+        }
+        String content = message.getContent();
+        if (tokenEstimator.estimate(content) <= maxTokens) {
+            return message;
+        }
+        String cut = content.substring(0, tokenEstimator.prefixLength(content, maxTokens)) + ELLIPSIS;
+        return Message.builder().role(message.getRole()).content(cut).build();
+    }
+
+    private int cost(Message message) {
+        return TokenEstimator.TOKENS_PER_MESSAGE + tokenEstimator.estimate(message.getContent());
+    }
+}
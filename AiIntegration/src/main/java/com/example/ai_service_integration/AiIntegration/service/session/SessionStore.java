@@ -0,0 +1,276 @@
+package com.example.ai_service_integration.AiIntegration.service.session;
+
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversation history of every session, kept off the heap: one direct buffer of
+ * {@code maxMemory} bytes, handed out in fixed-size blocks. A session is a chain of blocks its
+ * messages are appended to, one record each:
+ * <pre>
+ * role     1 byte (system, user, assistant)
+ * length   4 bytes
+ * content  UTF-8
+ * </pre>
+ * The heap only holds the block numbers per session. When no block is free, or there are
+ * {@code maxSessions} already, the least recently used sessions are evicted whole; a session
+ * that outgrows {@code maxSessionBytes} loses its oldest messages instead. Sessions idle for
+ * longer than {@code idleTimeout} are forgotten.
+ */
+public final class SessionStore {
+
+    private static final String[] ROLES = {"system", "user", "assistant"};
+    private static final int HEADER = 5;
+
+    private final ByteBuffer memory;
+    private final int blockSize;
+    private final int maxSessionBytes;
+    private final long idleNanos;
+    private final int maxSessions;
+
+    private final int[] freeBlocks;
+    private int freeCount;
+    private final LinkedHashMap<String, Session> sessions = new LinkedHashMap<>(16, 0.75f, true); // Least recently used first
+    private long evicted;
+    private long expired;
+
+    // Offsets count from the start of the session's first block
+    private static final class Session {
+        int[] blocks = new int[4];
+        int blockCount;
+        int start; // Oldest message
+        int end; // Just past the newest message
+        long lastAccess;
+    }
+
+    public SessionStore(long maxMemory, int blockSize, int maxSessionBytes, Duration idleTimeout, int maxSessions) {
+        if (maxMemory > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Session memory is limited to 2 GB, got " + maxMemory + " bytes");
+        }
+        int blocks = (int) (maxMemory / blockSize);
+        // A session may straddle one partly used block at each end
+        if (blocks < maxSessionBytes / blockSize + 2) {
+            throw new IllegalArgumentException("Session memory of " + maxMemory + " bytes cannot hold even one session of "
+                    + maxSessionBytes + " bytes in blocks of " + blockSize);
+        }
+        this.memory = ByteBuffer.allocateDirect(blocks * blockSize);
+        this.blockSize = blockSize;
+        this.maxSessionBytes = maxSessionBytes;
+        this.idleNanos = idleTimeout.toNanos();
+        this.maxSessions = Math.max(1, maxSessions);
+        this.freeBlocks = new int[blocks];
+        for (int i = 0; i < blocks; i++) {
+            freeBlocks[i] = blocks - 1 - i;
+        }
+        this.freeCount = blocks;
+    }
+
+    /** Starts an empty session; false if there is one by that id already. */
+    public synchronized boolean create(String id) {
+        if (live(id) != null) {
+            return false;
+        }
+        add(id);
+        return true;
+    }
+
+    /** Whether the session exists and has not expired. */
+    public synchronized boolean contains(String id) {
+        return live(id) != null;
+    }
+
+    /** The session's messages, oldest first; empty for an unknown or expired session. */
+    public synchronized List<OpenAiApiRequest.Message> history(String id) {
+        Session session = live(id);
+        if (session == null) {
+            return List.of();
+        }
+        session.lastAccess = now();
+        List<OpenAiApiRequest.Message> messages = new ArrayList<>();
+        byte[] header = new byte[HEADER];
+        for (int offset = session.start; offset < session.end; ) {
+            transfer(session, offset, header, false);
+            byte[] content = new byte[contentLength(header)];
+            transfer(session, offset + HEADER, content, false);
+            messages.add(OpenAiApiRequest.Message.builder()
+                    .role(ROLES[header[0]])
+                    .content(new String(content, StandardCharsets.UTF_8))
+                    .build());
+            offset += HEADER + content.length;
+        }
+        return messages;
+    }
+
+    /**
+     * Adds messages to the end of the session; nothing happens for an unknown, expired or evicted
+     * session, which has to be created again. A single message larger than a whole session is not kept.
+     */
+    public synchronized void append(String id, List<OpenAiApiRequest.Message> messages) {
+        Session session = live(id);
+        if (session == null) {
+            return;
+        }
+        session.lastAccess = now();
+        for (OpenAiApiRequest.Message message : messages) {
+            byte[] record = encode(message);
+            if (record.length > maxSessionBytes) {
+                continue;
+            }
+            while (session.end - session.start + record.length > maxSessionBytes) {
+                dropOldest(session);
+            }
+            int blocksNeeded = (session.end + record.length + blockSize - 1) / blockSize;
+            while (session.blockCount < blocksNeeded) {
+                addBlock(session);
+            }
+            transfer(session, session.end, record, true);
+            session.end += record.length;
+        }
+    }
+
+    public synchronized boolean delete(String id) {
+        Session session = sessions.remove(id);
+        if (session == null) {
+            return false;
+        }
+        release(session);
+        return true;
+    }
+
+    public synchronized int sessions() {
+        return sessions.size();
+    }
+
+    public synchronized long usedBytes() {
+        return (long) (freeBlocks.length - freeCount) * blockSize;
+    }
+
+    /** Sessions evicted to make room for others. */
+    public synchronized long evicted() {
+        return evicted;
+    }
+
+    /** Sessions forgotten after their idle timeout. */
+    public synchronized long expired() {
+        return expired;
+    }
+
+    private Session live(String id) {
+        Session session = sessions.get(id);
+        if (session != null && isIdle(session)) {
+            sessions.remove(id);
+            release(session);
+            expired++;
+            return null;
+        }
+        return session;
+    }
+
+    private void add(String id) {
+        Iterator<Session> leastRecent = sessions.values().iterator();
+        while (sessions.size() >= maxSessions) {
+            Session victim = leastRecent.next();
+            leastRecent.remove();
+            evict(victim);
+        }
+        Session session = new Session();
+        session.lastAccess = now();
+        sessions.put(id, session);
+    }
+
+    private void addBlock(Session session) {
+        Iterator<Session> leastRecent = sessions.values().iterator();
+        while (freeCount == 0) {
+            Session victim = leastRecent.next();
+            if (victim == session) {
+                continue; // Cannot be the only session: the constructor made sure one fits
+            }
+            leastRecent.remove();
+            evict(victim);
+        }
+        if (session.blockCount == session.blocks.length) {
+            session.blocks = Arrays.copyOf(session.blocks, session.blockCount * 2);
+        }
+        session.blocks[session.blockCount++] = freeBlocks[--freeCount];
+    }
+
+    // Skips the oldest record, and gives back the blocks that leaves empty
+    private void dropOldest(Session session) {
+        byte[] header = new byte[HEADER];
+        transfer(session, session.start, header, false);
+        session.start += HEADER + contentLength(header);
+        int emptyBlocks = session.start / blockSize;
+        for (int i = 0; i < emptyBlocks; i++) {
+            freeBlocks[freeCount++] = session.blocks[i];
+        }
+        System.arraycopy(session.blocks, emptyBlocks, session.blocks, 0, session.blockCount - emptyBlocks);
+        session.blockCount -= emptyBlocks;
+        session.start -= emptyBlocks * blockSize;
+        session.end -= emptyBlocks * blockSize;
+    }
+
+    private void evict(Session victim) {
+        release(victim);
+        if (isIdle(victim)) {
+            expired++;
+        } else {
+            evicted++;
+        }
+    }
+
+    private void release(Session session) {
+        for (int i = 0; i < session.blockCount; i++) {
+            freeBlocks[freeCount++] = session.blocks[i];
+        }
+        session.blockCount = 0;
+    }
+
+    // Copies between bytes and the session's blocks, starting at a session offset
+    private void transfer(Session session, int offset, byte[] bytes, boolean write) {
+        int done = 0;
+        while (done < bytes.length) {
+            int within = (offset + done) % blockSize;
+            int position = session.blocks[(offset + done) / blockSize] * blockSize + within;
+            int length = Math.min(bytes.length - done, blockSize - within);
+            if (write) {
+                memory.put(position, bytes, done, length);
+            } else {
+                memory.get(position, bytes, done, length);
+            }
+            done += length;
+        }
+    }
+
+    private static byte[] encode(OpenAiApiRequest.Message message) {
+        byte[] content = message.getContent() != null ? message.getContent().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        int role = Arrays.asList(ROLES).indexOf(message.getRole());
+        if (role < 0) {
+            throw new IllegalArgumentException("Unknown message role " + message.getRole());
+        }
+        byte[] record = new byte[HEADER + content.length];
+        ByteBuffer.wrap(record).put((byte) role).putInt(content.length).put(content);
+        return record;
+    }
+
+    private static int contentLength(byte[] header) {
+        return ByteBuffer.wrap(header, 1, 4).getInt();
+    }
+
+    private boolean isIdle(Session session) {
+        return now() - session.lastAccess > idleNanos;
+    }
+
+    private static long now() {
+        return Schedulers.parallel().now(TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,527 @@
+package com.example.ai_service_integration.AiIntegration.service.store;
+
+import com.example.ai_service_integration.AiIntegration.config.CompletionStoreProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Disk-backed key/value store for completions: an append-only log split into {@link Segment}
+ * files plus a {@link HashIndex} from key hash to record location. Both are memory-mapped, so
+ * neither keys nor values live on the heap and a lookup returns a view into the mapping instead
+ * of a copy. The store is sized by disk, not heap: each entry costs 16 bytes of index.
+ * <p>
+ * Recovery: records carry a CRC and are appended length-last. A clean {@link #close()} writes a
+ * manifest with the index and segment state. Opening without one (the process died) rebuilds
+ * the index by scanning the segments in write order, and cuts off a torn record at the end of a
+ * segment. Appends are not forced to disk one by one, so a machine crash can lose the latest
+ * entries; for a cache that only means a few more upstream calls.
+ * <p>
+ * Space: overwritten and expired records stay in their segment as dead bytes. {@link #compact()}
+ * copies the live records of mostly-dead segments to the end of the log and deletes the segment;
+ * segments whose records have all expired are deleted outright.
+ */
+public final class CompletionStore implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompletionStore.class);
+
+    public static final long MAX_SEGMENT_SIZE = 1L << 30; // Offsets are ints
+
+    private static final double MAX_LOAD = 0.7; // Live plus tombstone slots, before the index is rebuilt larger
+    private static final String INDEX_FILE = "index.bin";
+    private static final String MANIFEST_FILE = "MANIFEST";
+    private static final String LOCK_FILE = "LOCK";
+    private static final Pattern SEGMENT_FILE = Pattern.compile("segment-(\\d{8})\\.log");
+
+    private final Path directory;
+    private final int segmentSize;
+    private final long ttlMillis;
+    private final double compactionThreshold;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>(); // By id, which is write order
+    private final FileChannel lockChannel;
+    private final FileLock fileLock;
+    private final AtomicLong compactedSegments = new AtomicLong();
+    private final Disposable compaction;
+
+    // Guarded by the write lock
+    private Segment active;
+    private HashIndex index;
+    private long entries;
+    private long tombstones;
+    private boolean closed;
+
+    private CompletionStore(CompletionStoreProperties properties) throws IOException {
+        long segmentBytes = properties.getSegmentSize().toBytes();
+        if (segmentBytes <= Segment.HEADER_BYTES || segmentBytes > MAX_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Segment size must be between " + Segment.HEADER_BYTES
+                    + " bytes and 1 GB: " + properties.getSegmentSize());
+        }
+        this.directory = Paths.get(properties.getDirectory());
+        this.segmentSize = (int) segmentBytes;
+        this.ttlMillis = properties.getTtl().toMillis();
+        this.compactionThreshold = properties.getCompactionThreshold();
+
+        Files.createDirectories(directory);
+        this.lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        this.fileLock = lock(lockChannel);
+        try {
+            openSegments();
+            if (!loadManifest()) {
+                rebuildIndex(properties.getExpectedEntries());
+            }
+            Files.deleteIfExists(directory.resolve(MANIFEST_FILE)); // Until the next clean close, a restart must rebuild
+            if (segments.isEmpty()) {
+                segments.put(0, Segment.open(directory, 0, segmentSize));
+            }
+            active = segments.lastEntry().getValue();
+        } catch (IOException | RuntimeException e) {
+            fileLock.release();
+            lockChannel.close();
+            throw e;
+        }
+
+        long interval = properties.getCompactionInterval().toMillis();
+        this.compaction = interval > 0
+                ? Schedulers.boundedElastic().schedulePeriodically(this::compactQuietly, interval, interval, TimeUnit.MILLISECONDS)
+                : null;
+        logger.info("Opened completion store {}: {} entries in {} segments.", directory, entries, segments.size());
+    }
+
+    public static CompletionStore open(CompletionStoreProperties properties) throws IOException {
+        return new CompletionStore(properties);
+    }
+
+    /**
+     * Value stored under {@code key}, or null if there is none or it has expired. The buffer is a
+     * read-only view into the log; it stays readable after the record is superseded or compacted away.
+     */
+    public ByteBuffer get(byte[] key) {
+        long hash = hash(key);
+        long now = now();
+        lock.readLock().lock();
+        try {
+            if (closed) {
+                return null;
+            }
+            long slot = find(hash, key);
+            if (slot < 0) {
+                return null;
+            }
+            long location = index.locationAt(slot);
+            Segment segment = segments.get(segmentId(location));
+            int offset = offset(location);
+            return segment.expiresAt(offset) > now ? segment.value(offset) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stores {@code value} under {@code key} for the configured TTL, replacing any earlier value.
+     * Returns false if the record is larger than a segment or the store is closed.
+     */
+    public boolean put(byte[] key, ByteBuffer value) throws IOException {
+        int length = Segment.recordLength(key.length, value.remaining());
+        if (length > segmentSize) {
+            return false;
+        }
+        long hash = hash(key);
+        long expiresAt = now() + ttlMillis;
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            index(hash, key, append(key, value, expiresAt, length));
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reclaims space from sealed segments: those whose records have all expired are deleted, those
+     * with at least {@code compaction-threshold} dead bytes have their live records copied to the end
+     * of the log first. Requests keep being served meanwhile. Returns the number of segments removed.
+     */
+    public int compact() throws IOException {
+        long now = now();
+        List<Segment> candidates = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (closed) {
+                return 0;
+            }
+            for (Segment segment : segments.values()) {
+                if (segment != active && (segment.maxExpiresAt <= now
+                        || segment.deadBytes >= compactionThreshold * segment.writePosition)) {
+                    candidates.add(segment);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        int removed = 0;
+        for (Segment segment : candidates) {
+            // Sealed segments never change size, so the scan needs no lock; each record is moved under it
+            for (int offset = 0, length; offset < segment.writePosition; offset += length) {
+                length = segment.recordLength(offset);
+                lock.writeLock().lock();
+                try {
+                    if (closed) {
+                        return removed;
+                    }
+                    relocate(segment, offset, now);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            lock.writeLock().lock();
+            try {
+                if (closed) {
+                    return removed;
+                }
+                segments.remove(segment.id);
+                segment.delete();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            removed++;
+        }
+        compactedSegments.addAndGet(removed);
+        return removed;
+    }
+
+    /** Live entries in the index (expired entries count until compaction drops them). */
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return entries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Bytes written to the log, dead records included. */
+    public long diskBytes() {
+        lock.readLock().lock();
+        try {
+            return segments.values().stream().mapToLong(segment -> segment.writePosition).sum();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long compactedSegments() {
+        return compactedSegments.get();
+    }
+
+    /** Flushes the mappings and writes the manifest, so the next open skips the index rebuild. */
+    @Override
+    public void close() throws IOException {
+        if (compaction != null) {
+            compaction.dispose();
+        }
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            index.force();
+            for (Segment segment : segments.values()) {
+                segment.force();
+            }
+            writeManifest();
+        } finally {
+            lock.writeLock().unlock();
+            if (closed && fileLock.isValid()) {
+                fileLock.release();
+                lockChannel.close();
+            }
+        }
+        logger.info("Closed completion store {}: {} entries in {} segments.", directory, entries, segments.size());
+    }
+
+    private void compactQuietly() {
+        try {
+            int removed = compact();
+            if (removed > 0) {
+                logger.info("Compacted {} segment(s) of completion store {}.", removed, directory);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Compaction of completion store {} failed: {}", directory, e.toString());
+        }
+    }
+
+    // Moves a still-indexed record to the end of the log, or drops it from the index if it has expired
+    private void relocate(Segment segment, int offset, long now) throws IOException {
+        byte[] key = segment.key(offset);
+        long slot = findLocation(hash(key), location(segment.id, offset));
+        if (slot < 0) {
+            return; // Superseded: already dead
+        }
+        long expiresAt = segment.expiresAt(offset);
+        if (expiresAt <= now) {
+            index.setLocation(slot, HashIndex.TOMBSTONE);
+            entries--;
+            tombstones++;
+            return;
+        }
+        index.setLocation(slot, append(key, segment.value(offset), expiresAt, segment.recordLength(offset)));
+    }
+
+    private long append(byte[] key, ByteBuffer value, long expiresAt, int length) throws IOException {
+        if (!active.fits(length)) {
+            active = Segment.open(directory, active.id + 1, segmentSize);
+            segments.put(active.id, active);
+        }
+        return location(active.id, active.append(key, value, expiresAt));
+    }
+
+    private void index(long hash, byte[] key, long location) throws IOException {
+        long free = -1;
+        long slot = index.firstSlot(hash);
+        for (long slotHash; (slotHash = index.hashAt(slot)) != 0; slot = index.nextSlot(slot)) {
+            long current = index.locationAt(slot);
+            if (current == HashIndex.TOMBSTONE) {
+                if (free < 0) {
+                    free = slot;
+                }
+            } else if (slotHash == hash && keyEquals(current, key)) {
+                markDead(current);
+                index.setLocation(slot, location);
+                return;
+            }
+        }
+        if (free >= 0) {
+            index.set(free, hash, location);
+            tombstones--;
+        } else {
+            index.set(slot, hash, location);
+        }
+        entries++;
+        if (entries + tombstones > index.slots * MAX_LOAD) {
+            rehash();
+        }
+    }
+
+    private long find(long hash, byte[] key) {
+        for (long slot = index.firstSlot(hash), slotHash; (slotHash = index.hashAt(slot)) != 0; slot = index.nextSlot(slot)) {
+            long location = index.locationAt(slot);
+            if (slotHash == hash && location != HashIndex.TOMBSTONE && keyEquals(location, key)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private long findLocation(long hash, long location) {
+        for (long slot = index.firstSlot(hash); index.hashAt(slot) != 0; slot = index.nextSlot(slot)) {
+            if (index.locationAt(slot) == location) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    // Copies the live slots into a table sized for twice the entries and swaps it in; tombstones are left behind.
+    // Writers and readers wait meanwhile, so size expected-entries to make this rare.
+    private void rehash() throws IOException {
+        Path next = directory.resolve(INDEX_FILE + ".next");
+        Files.deleteIfExists(next);
+        HashIndex grown = HashIndex.open(next, HashIndex.slotsFor(entries, MAX_LOAD / 2));
+        for (long slot = 0; slot < index.slots; slot++) {
+            long hash = index.hashAt(slot);
+            long location = index.locationAt(slot);
+            if (hash != 0 && location != HashIndex.TOMBSTONE) {
+                long target = grown.firstSlot(hash);
+                while (grown.hashAt(target) != 0) {
+                    target = grown.nextSlot(target);
+                }
+                grown.set(target, hash, location);
+            }
+        }
+        Files.move(next, directory.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.debug("Resized completion store index from {} to {} slots.", index.slots, grown.slots);
+        index = grown;
+        tombstones = 0;
+    }
+
+    private boolean keyEquals(long location, byte[] key) {
+        return segments.get(segmentId(location)).keyEquals(offset(location), key);
+    }
+
+    private void markDead(long location) {
+        Segment segment = segments.get(segmentId(location));
+        segment.deadBytes += segment.recordLength(offset(location));
+    }
+
+    private void openSegments() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Matcher matcher = SEGMENT_FILE.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    int id = Integer.parseInt(matcher.group(1));
+                    int capacity = (int) Math.max(segmentSize, Math.min(Files.size(file), MAX_SEGMENT_SIZE));
+                    segments.put(id, Segment.open(directory, id, capacity));
+                }
+            }
+        }
+    }
+
+    /*
+     * Scans every record in write order, so a later record for a key wins over an earlier one.
+     * Expired records are indexed too and only dropped at the end: a newer record may expire
+     * before an older one for the same key (a TTL lowered between runs), and it must still hide it.
+     */
+    private void rebuildIndex(long expectedEntries) throws IOException {
+        Path indexFile = directory.resolve(INDEX_FILE);
+        Files.deleteIfExists(indexFile);
+        index = HashIndex.open(indexFile, HashIndex.slotsFor(expectedEntries, MAX_LOAD));
+        for (Segment segment : segments.values()) {
+            int offset = 0;
+            for (int length; (length = segment.validRecordAt(offset)) > 0; offset += length) {
+                segment.maxExpiresAt = Math.max(segment.maxExpiresAt, segment.expiresAt(offset));
+                segment.writePosition = offset + length;
+                byte[] key = segment.key(offset);
+                index(hash(key), key, location(segment.id, offset));
+            }
+            if (offset + 4 <= segment.capacity() && segment.recordLength(offset) != 0) {
+                logger.warn("Discarding torn record at offset {} of {}.", offset, segment.file);
+            }
+            segment.truncateTo(offset);
+        }
+        long now = now();
+        for (long slot = 0; slot < index.slots; slot++) {
+            long location = index.locationAt(slot);
+            if (index.hashAt(slot) != 0 && location != HashIndex.TOMBSTONE
+                    && segments.get(segmentId(location)).expiresAt(offset(location)) <= now) {
+                markDead(location);
+                index.setLocation(slot, HashIndex.TOMBSTONE);
+                entries--;
+                tombstones++;
+            }
+        }
+        logger.info("Rebuilt completion store index from {} segments: {} entries.", segments.size(), entries);
+    }
+
+    // The manifest is only trusted if it describes exactly the files on disk
+    private boolean loadManifest() throws IOException {
+        Path file = directory.resolve(MANIFEST_FILE);
+        Path indexFile = directory.resolve(INDEX_FILE);
+        if (!Files.exists(file) || !Files.exists(indexFile)) {
+            return false;
+        }
+        Properties manifest = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            manifest.load(in);
+            long slots = Long.parseLong(manifest.getProperty("slots"));
+            String ids = segments.keySet().stream().map(String::valueOf).collect(Collectors.joining(","));
+            if (!ids.equals(manifest.getProperty("segments")) || Files.size(indexFile) != slots * 16) {
+                logger.warn("Completion store manifest does not match {}; rebuilding the index.", directory);
+                return false;
+            }
+            for (Segment segment : segments.values()) {
+                String[] state = manifest.getProperty("segment." + segment.id).split(",");
+                segment.writePosition = Integer.parseInt(state[0]);
+                segment.deadBytes = Long.parseLong(state[1]);
+                segment.maxExpiresAt = Long.parseLong(state[2]);
+            }
+            entries = Long.parseLong(manifest.getProperty("entries"));
+            tombstones = Long.parseLong(manifest.getProperty("tombstones"));
+            index = HashIndex.open(indexFile, slots);
+            return true;
+        } catch (RuntimeException e) {
+            logger.warn("Unreadable completion store manifest in {}; rebuilding the index: {}", directory, e.toString());
+            return false;
+        }
+    }
+
+    private void writeManifest() throws IOException {
+        Properties manifest = new Properties();
+        manifest.setProperty("slots", String.valueOf(index.slots));
+        manifest.setProperty("entries", String.valueOf(entries));
+        manifest.setProperty("tombstones", String.valueOf(tombstones));
+        manifest.setProperty("segments", segments.keySet().stream().map(String::valueOf).collect(Collectors.joining(",")));
+        for (Segment segment : segments.values()) {
+            manifest.setProperty("segment." + segment.id,
+                    segment.writePosition + "," + segment.deadBytes + "," + segment.maxExpiresAt);
+        }
+        Path next = directory.resolve(MANIFEST_FILE + ".next");
+        try (OutputStream out = Files.newOutputStream(next)) {
+            manifest.store(out, "Completion store state at clean shutdown");
+        }
+        Files.move(next, directory.resolve(MANIFEST_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private FileLock lock(FileChannel channel) throws IOException {
+        try {
+            FileLock acquired = channel.tryLock();
+            if (acquired != null) {
+                return acquired;
+            }
+        } catch (OverlappingFileLockException e) {
+            // Held by this JVM
+        }
+        channel.close();
+        throw new IOException("Completion store " + directory + " is in use by another process");
+    }
+
+    private static long now() {
+        return Schedulers.parallel().now(TimeUnit.MILLISECONDS);
+    }
+
+    // FNV-1a, then a finalizer: the index uses the low bits, which FNV alone mixes poorly. Zero marks an empty slot.
+    static long hash(byte[] key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key) {
+            hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash != 0 ? hash : 1;
+    }
+
+    private static long location(int segmentId, int offset) {
+        return (long) segmentId << 32 | offset;
+    }
+
+    private static int segmentId(long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static int offset(long location) {
+        return (int) location;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.ai_service_integration.AiIntegration.service.store;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Open-addressing hash table (linear probing) in a memory-mapped file: 16 bytes per slot holding
+ * the key's 64-bit hash and the record's location. Keys themselves stay in the log, so the table
+ * costs the same for any key size and nothing of it lives on the heap. The file is mapped in
+ * chunks, so tables beyond 2 GB work too.
+ * <p>
+ * Slot states: empty (hash 0), live, and tombstone (location {@link #TOMBSTONE}), which keeps
+ * probe chains intact after a removal until the next rehash drops it.
+ */
+final class HashIndex {
+
+    static final long TOMBSTONE = -1L;
+
+    private static final int SLOT_BYTES = 16;
+    private static final int CHUNK_SLOTS_BITS = 24; // 16 Mi slots (256 MB) per mapping
+    private static final int CHUNK_SLOTS = 1 << CHUNK_SLOTS_BITS;
+
+    final long slots;
+    private final long mask;
+    private final MappedByteBuffer[] chunks;
+
+    private HashIndex(long slots, MappedByteBuffer[] chunks) {
+        this.slots = slots;
+        this.mask = slots - 1;
+        this.chunks = chunks;
+    }
+
+    /** Maps {@code file} with {@code slots} slots (a power of two), keeping what it holds; a new file reads as all empty. */
+    static HashIndex open(Path file, long slots) throws IOException {
+        if (Long.bitCount(slots) != 1) {
+            throw new IllegalArgumentException("Slot count must be a power of two: " + slots);
+        }
+        int chunkCount = (int) Math.max(1, slots >>> CHUNK_SLOTS_BITS);
+        long chunkSlots = Math.min(slots, CHUNK_SLOTS);
+        MappedByteBuffer[] chunks = new MappedByteBuffer[chunkCount];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            for (int i = 0; i < chunkCount; i++) {
+                chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * chunkSlots * SLOT_BYTES, chunkSlots * SLOT_BYTES);
+            }
+        }
+        return new HashIndex(slots, chunks);
+    }
+
+    static long slotsFor(long entries, double maxLoad) {
+        long needed = (long) Math.ceil(entries / maxLoad);
+        return Math.max(1024, Long.highestOneBit(Math.max(1, needed - 1)) << 1);
+    }
+
+    long hashAt(long slot) {
+        return chunk(slot).getLong(offset(slot));
+    }
+
+    long locationAt(long slot) {
+        return chunk(slot).getLong(offset(slot) + 8);
+    }
+
+    void set(long slot, long hash, long location) {
+        MappedByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        chunk.putLong(offset + 8, location);
+        chunk.putLong(offset, hash);
+    }
+
+    void setLocation(long slot, long location) {
+        chunk(slot).putLong(offset(slot) + 8, location);
+    }
+
+    long firstSlot(long hash) {
+        return hash & mask;
+    }
+
+    long nextSlot(long slot) {
+        return (slot + 1) & mask;
+    }
+
+    void force() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+    private MappedByteBuffer chunk(long slot) {
+        return chunks[(int) (slot >>> CHUNK_SLOTS_BITS)];
+    }
+
+    private static int offset(long slot) {
+        return (int) (slot & (CHUNK_SLOTS - 1)) * SLOT_BYTES;
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.ai_service_integration.AiIntegration.service.store;
+
+import com.example.ai_service_integration.AiIntegration.dto.CompletionChunk;
+import com.example.ai_service_integration.AiIntegration.dto.CompletionResponse;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.example.ai_service_integration.AiIntegration.service.AiRequestContext;
+import com.example.ai_service_integration.AiIntegration.service.AiService;
+import com.example.ai_service_integration.AiIntegration.service.cache.CompletionCacheKey;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * {@link AiService} decorator that keeps completions in a {@link CompletionStore} on disk, so
+ * answers survive restarts and far outnumber what an in-memory cache can hold. It sits right
+ * above the OpenAI implementation, as the second tier behind the in-memory caches.
+ * <p>
+ * Store I/O runs on the bounded elastic scheduler: page faults on the mapped files must not
+ * stall the event loop. A failing store is treated as a miss, never as a failed request.
+ */
+public class PersistentCachingAiService implements AiService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PersistentCachingAiService.class);
+
+    private final AiService delegate;
+    private final CompletionStore store;
+    private final String model;
+    private final Integer maxTokens;
+    private final Double temperature;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter bypasses;
+
+    public PersistentCachingAiService(AiService delegate, CompletionStore store, String model, Integer maxTokens,
+                                      Double temperature, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.store = store;
+        this.model = model;
+        this.maxTokens = maxTokens;
+        this.temperature = temperature;
+
+        this.hits = meterRegistry.counter("ai.store.requests", "result", "hit");
+        this.misses = meterRegistry.counter("ai.store.requests", "result", "miss");
+        this.bypasses = meterRegistry.counter("ai.store.requests", "result", "bypass");
+        Gauge.builder("ai.store.entries", store, CompletionStore::size).register(meterRegistry);
+        Gauge.builder("ai.store.disk", store, CompletionStore::diskBytes).baseUnit("bytes").register(meterRegistry);
+        FunctionCounter.builder("ai.store.compactions", store, CompletionStore::compactedSegments)
+                .description("Segments removed by compaction")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<CompletionResponse> getAiCompletion(String prompt) {
+        return Mono.deferContextual(context -> {
+            if (AiRequestContext.isCacheBypass(context)) {
+                bypasses.increment();
+                return delegate.getAiCompletion(prompt);
+            }
+
+            byte[] key = key(CompletionCacheKey.of(prompt, model, AiRequestContext.getModelHint(context), maxTokens, temperature));
+            return Mono.fromCallable(() -> decode(store.get(key)))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .onErrorResume(e -> {
+                        logger.warn("Completion store lookup failed: {}", e.toString());
+                        return Mono.empty();
+                    })
+                    .doOnNext(cached -> {
+                        hits.increment();
+                        logger.debug("Serving completion from the persistent store.");
+                    })
+                    .switchIfEmpty(Mono.defer(() -> {
+                        misses.increment();
+                        return delegate.getAiCompletion(prompt)
+                                .doOnNext(response -> {
+                                    if (response.hasCompletion()) {
+                                        Schedulers.boundedElastic().schedule(() -> save(key, response));
+                                    }
+                                });
+                    }));
+        });
+    }
+
+    // Streams are passed through untouched, as in the in-memory caches
+    @Override
+    public Flux<CompletionChunk> streamAiCompletion(String prompt) {
+        return delegate.streamAiCompletion(prompt);
+    }
+
+    @Override
+    public Mono<CompletionResponse> getChatCompletion(List<OpenAiApiRequest.Message> messages) {
+        return delegate.getChatCompletion(messages);
+    }
+
+    private void save(byte[] key, CompletionResponse response) {
+        try {
+            store.put(key, encode(response));
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not write completion to the store: {}", e.toString());
+        }
+    }
+
+    // Every field of the cache key, length-prefixed so no two keys share an encoding
+    static byte[] key(CompletionCacheKey key) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(key.prompt().length() + 32);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeString(out, key.prompt());
+            writeString(out, key.model());
+            writeString(out, key.modelHint());
+            out.writeInt(key.maxTokens() != null ? key.maxTokens() : -1);
+            out.writeBoolean(key.temperature() != null);
+            out.writeDouble(key.temperature() != null ? key.temperature() : 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    // int modelLength (-1 for null) | model | completion, all UTF-8
+    static ByteBuffer encode(CompletionResponse response) {
+        byte[] model = response.getModel() != null ? response.getModel().getBytes(StandardCharsets.UTF_8) : null;
+        byte[] completion = response.getCompletion() != null ? response.getCompletion().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        ByteBuffer buffer = ByteBuffer.allocate(4 + (model != null ? model.length : 0) + completion.length);
+        buffer.putInt(model != null ? model.length : -1);
+        if (model != null) {
+            buffer.put(model);
+        }
+        return buffer.put(completion).flip();
+    }
+
+    // Decodes straight from the mapped view: the only copies are the strings themselves
+    static CompletionResponse decode(ByteBuffer value) {
+        if (value == null) {
+            return null;
+        }
+        int modelLength = value.getInt(value.position());
+        int start = value.position() + 4;
+        String model = modelLength >= 0 ? StandardCharsets.UTF_8.decode(value.slice(start, modelLength)).toString() : null;
+        int completionStart = start + Math.max(0, modelLength);
+        String completion = StandardCharsets.UTF_8.decode(value.slice(completionStart, value.limit() - completionStart)).toString();
+        return new CompletionResponse(completion, model);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
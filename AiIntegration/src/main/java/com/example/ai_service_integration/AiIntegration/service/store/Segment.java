@@ -0,0 +1,145 @@
+package com.example.ai_service_integration.AiIntegration.service.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * One append-only log file of the {@link CompletionStore}, mapped into memory at its full size
+ * (the file is sparse until written). Records are read and written through the mapping, so
+ * neither lookups nor appends copy through the heap.
+ * <p>
+ * Record layout: {@code int length | int crc | long expiresAt | int keyLength | int valueLength | key | value},
+ * where {@code length} covers the whole record and the CRC everything after it. A zero length
+ * marks the end of the written part.
+ */
+final class Segment {
+
+    static final int HEADER_BYTES = 24;
+    private static final int CRC_FROM = 8; // The CRC covers expiresAt onwards
+
+    final int id;
+    final Path file;
+    private final MappedByteBuffer buffer;
+
+    // Guarded by the store's write lock; published to readers through it
+    int writePosition;
+    long deadBytes; // Records superseded, expired or dropped from the index
+    long maxExpiresAt;
+
+    private Segment(int id, Path file, MappedByteBuffer buffer) {
+        this.id = id;
+        this.file = file;
+        this.buffer = buffer;
+    }
+
+    static Segment open(Path directory, int id, int capacity) throws IOException {
+        Path file = directory.resolve(String.format("segment-%08d.log", id));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            return new Segment(id, file, channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity));
+        }
+    }
+
+    static int recordLength(int keyLength, int valueLength) {
+        return HEADER_BYTES + keyLength + valueLength;
+    }
+
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    boolean fits(int recordLength) {
+        return writePosition + recordLength <= buffer.capacity();
+    }
+
+    /** Appends a record and returns its offset. The length goes in last, so a torn write reads as the end. */
+    int append(byte[] key, ByteBuffer value, long expiresAt) {
+        int offset = writePosition;
+        int length = recordLength(key.length, value.remaining());
+        buffer.putLong(offset + 8, expiresAt);
+        buffer.putInt(offset + 16, key.length);
+        buffer.putInt(offset + 20, value.remaining());
+        buffer.put(offset + HEADER_BYTES, key);
+        buffer.put(offset + HEADER_BYTES + key.length, value, value.position(), value.remaining());
+        buffer.putInt(offset + 4, crc(offset, length));
+        buffer.putInt(offset, length);
+        writePosition += length;
+        maxExpiresAt = Math.max(maxExpiresAt, expiresAt);
+        return offset;
+    }
+
+    /** Length of the valid record at {@code offset}, or 0 when there is none (end of log, torn or corrupt record). */
+    int validRecordAt(int offset) {
+        if (offset + HEADER_BYTES > buffer.capacity()) {
+            return 0;
+        }
+        int length = buffer.getInt(offset);
+        if (length < HEADER_BYTES || offset + length > buffer.capacity()) {
+            return 0;
+        }
+        int keyLength = buffer.getInt(offset + 16);
+        int valueLength = buffer.getInt(offset + 20);
+        if (keyLength < 0 || valueLength < 0 || recordLength(keyLength, valueLength) != length) {
+            return 0;
+        }
+        return crc(offset, length) == buffer.getInt(offset + 4) ? length : 0;
+    }
+
+    // Zeroes a torn record after the last valid one, so a later scan cannot mistake its remains for data
+    void truncateTo(int offset) {
+        writePosition = offset;
+        int claimed = offset + 4 <= buffer.capacity() ? buffer.getInt(offset) : 0;
+        int end = claimed > HEADER_BYTES && offset + claimed <= buffer.capacity() ? offset + claimed
+                : Math.min(buffer.capacity(), offset + HEADER_BYTES);
+        for (int i = offset; i < end; i++) {
+            buffer.put(i, (byte) 0);
+        }
+    }
+
+    int recordLength(int offset) {
+        return buffer.getInt(offset);
+    }
+
+    long expiresAt(int offset) {
+        return buffer.getLong(offset + 8);
+    }
+
+    boolean keyEquals(int offset, byte[] key) {
+        int keyLength = buffer.getInt(offset + 16);
+        return keyLength == key.length
+                && buffer.slice(offset + HEADER_BYTES, keyLength).equals(ByteBuffer.wrap(key));
+    }
+
+    byte[] key(int offset) {
+        byte[] key = new byte[buffer.getInt(offset + 16)];
+        buffer.get(offset + HEADER_BYTES, key);
+        return key;
+    }
+
+    /** Read-only view of the record's value inside the mapping. */
+    ByteBuffer value(int offset) {
+        int keyLength = buffer.getInt(offset + 16);
+        int valueLength = buffer.getInt(offset + 20);
+        return buffer.slice(offset + HEADER_BYTES + keyLength, valueLength).asReadOnlyBuffer();
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(file); // Readers still holding a view keep the pages until it is collected
+    }
+
+    private int crc(int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(offset + CRC_FROM, length - CRC_FROM));
+        return (int) crc.getValue();
+    }
+}
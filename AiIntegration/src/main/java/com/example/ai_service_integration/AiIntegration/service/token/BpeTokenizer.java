@@ -0,0 +1,430 @@
+package com.example.ai_service_integration.AiIntegration.service.token;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Byte-pair encoding tokenizer compatible with OpenAI's tiktoken, loaded from a vocabulary in
+ * tiktoken's format (one {@code base64(token) rank} per line, e.g. {@code cl100k_base.tiktoken}).
+ * Counts match what OpenAI bills for the text; chat framing is added by {@link TokenEstimator}.
+ * <p>
+ * Text is split by {@link PreTokenizer}, each piece is UTF-8 encoded into a per-thread scratch
+ * buffer and looked up whole in an open-addressing table over one byte array of all tokens.
+ * Only pieces that are not a token themselves go through the merge loop. Counting allocates
+ * nothing once the scratch buffers have grown to the longest piece.
+ */
+public final class BpeTokenizer implements TokenEstimator {
+
+    private static final int NO_RANK = Integer.MAX_VALUE;
+    private static final int LONG_PIECE = 128; // From here on, merges take the O(n log n) path
+    private static final long FINGERPRINT = 0xffffL << 48;
+    private static final long OFFSET = 0xffffffffL;
+    private static final VarHandle RANK = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    // Tokens back to back, each preceded by its rank (4 bytes), so a match reads one cache line
+    private final byte[] tokenBytes;
+    // Open addressing, one long per slot: hash fingerprint (16 bits) | length (16) | offset of the
+    // token in tokenBytes (32); 0 = empty. A lookup touches this slot and, on a likely match, the token.
+    private final long[] table;
+    private final int tableMask;
+    private final int[] pairs = new int[1 << 16]; // Ranks of two-byte tokens, directly indexed: most merge lookups
+    private final int size;
+
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    private BpeTokenizer(byte[][] tokens) {
+        int count = 0;
+        int totalBytes = 0;
+        for (byte[] token : tokens) {
+            if (token != null) {
+                count++;
+                totalBytes += 4 + token.length;
+            }
+        }
+        this.size = count;
+        this.tokenBytes = new byte[totalBytes];
+        this.table = new long[Integer.highestOneBit(Math.max(16, count * 2 - 1)) << 1]; // Load factor at most 1/2
+        this.tableMask = table.length - 1;
+        Arrays.fill(pairs, NO_RANK);
+
+        int offset = 0;
+        for (int rank = 0; rank < tokens.length; rank++) {
+            byte[] token = tokens[rank];
+            if (token == null) {
+                continue;
+            }
+            RANK.set(tokenBytes, offset, rank);
+            offset += 4;
+            System.arraycopy(token, 0, tokenBytes, offset, token.length);
+
+            long hash = hash(token, 0, token.length);
+            int slot = (int) hash & tableMask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & tableMask;
+            }
+            table[slot] = (hash & FINGERPRINT) | (long) token.length << 32 | offset;
+            offset += token.length;
+            if (token.length == 2) {
+                pairs[(token[0] & 0xff) << 8 | token[1] & 0xff] = rank;
+            }
+        }
+    }
+
+    /** Reads a tiktoken vocabulary. The stream is not closed. */
+    public static BpeTokenizer load(InputStream vocabulary) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(vocabulary, StandardCharsets.US_ASCII));
+        Base64.Decoder base64 = Base64.getDecoder();
+        byte[][] tokens = new byte[1 << 17][];
+        int maxRank = -1;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            int space = line.indexOf(' ');
+            if (space < 0) {
+                throw new IOException("Malformed vocabulary line: " + line);
+            }
+            int rank;
+            try {
+                rank = Integer.parseInt(line, space + 1, line.length(), 10);
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed rank in vocabulary line: " + line, e);
+            }
+            if (rank < 0 || rank >= 1 << 24) {
+                throw new IOException("Rank out of range in vocabulary line: " + line);
+            }
+            if (rank >= tokens.length) {
+                tokens = Arrays.copyOf(tokens, Integer.highestOneBit(rank) << 1);
+            }
+            tokens[rank] = base64.decode(line.substring(0, space));
+            maxRank = Math.max(maxRank, rank);
+        }
+        for (int b = 0; b < 256; b++) {
+            if (!contains(tokens, maxRank, (byte) b)) {
+                throw new IOException("Vocabulary has no token for byte " + b + "; it cannot encode arbitrary text");
+            }
+        }
+        return new BpeTokenizer(Arrays.copyOf(tokens, maxRank + 1));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int estimate(String text) {
+        return text == null ? 0 : countTokens(text);
+    }
+
+    public int countTokens(CharSequence text) {
+        Scratch scratch = this.scratch.get();
+        int tokens = 0;
+        for (int start = 0, length = text.length(); start < length; ) {
+            int end = PreTokenizer.nextPieceEnd(text, start);
+            tokens += encodePiece(text, start, end, scratch, null);
+            start = end;
+        }
+        return tokens;
+    }
+
+    /** Token ranks of {@code text}, as OpenAI would see them (special tokens are not recognized). */
+    public int[] encode(CharSequence text) {
+        Scratch scratch = this.scratch.get();
+        IntList out = new IntList();
+        for (int start = 0, length = text.length(); start < length; ) {
+            int end = PreTokenizer.nextPieceEnd(text, start);
+            encodePiece(text, start, end, scratch, out);
+            start = end;
+        }
+        return out.toArray();
+    }
+
+    /** Cuts at piece boundaries, so the prefix may come out a few tokens short of {@code maxTokens}. */
+    @Override
+    public int prefixLength(String text, int maxTokens) {
+        if (text == null) {
+            return 0;
+        }
+        Scratch scratch = this.scratch.get();
+        int tokens = 0;
+        for (int start = 0, length = text.length(); start < length; ) {
+            int end = PreTokenizer.nextPieceEnd(text, start);
+            tokens += encodePiece(text, start, end, scratch, null);
+            if (tokens > maxTokens) {
+                return start;
+            }
+            start = end;
+        }
+        return text.length();
+    }
+
+    // Number of tokens of one piece; their ranks go to out if it is not null
+    private int encodePiece(CharSequence text, int start, int end, Scratch scratch, IntList out) {
+        int n = scratch.utf8(text, start, end);
+        byte[] bytes = scratch.bytes;
+        int whole = rank(bytes, 0, n);
+        if (whole != NO_RANK) {
+            if (out != null) {
+                out.add(whole);
+            }
+            return 1;
+        }
+        return n < LONG_PIECE ? mergeShort(bytes, n, scratch, out) : mergeLong(bytes, n, scratch, out);
+    }
+
+    // tiktoken's merge loop: repeatedly join the adjacent pair with the lowest rank (leftmost on ties).
+    // parts[i] is a part's start, ranks[i] the rank of the part joined with the next one.
+    private int mergeShort(byte[] bytes, int n, Scratch scratch, IntList out) {
+        scratch.ensureParts(n + 1);
+        int[] parts = scratch.parts;
+        int[] ranks = scratch.ranks;
+        int count = n + 1; // Part starts, plus the end
+        for (int i = 0; i < count; i++) {
+            parts[i] = i;
+            ranks[i] = i + 2 <= n ? rank(bytes, i, i + 2) : NO_RANK;
+        }
+        while (true) {
+            int min = NO_RANK;
+            int at = -1;
+            for (int i = 0; i < count - 1; i++) {
+                if (ranks[i] < min) {
+                    min = ranks[i];
+                    at = i;
+                }
+            }
+            if (at < 0) {
+                break;
+            }
+            if (at > 0) {
+                ranks[at - 1] = at + 2 < count ? rank(bytes, parts[at - 1], parts[at + 2]) : NO_RANK;
+            }
+            ranks[at] = at + 3 < count ? rank(bytes, parts[at], parts[at + 3]) : NO_RANK;
+            System.arraycopy(parts, at + 2, parts, at + 1, count - at - 2);
+            System.arraycopy(ranks, at + 2, ranks, at + 1, count - at - 2);
+            count--;
+        }
+        if (out != null) {
+            for (int i = 0; i < count - 1; i++) {
+                out.add(rank(bytes, parts[i], parts[i + 1]));
+            }
+        }
+        return count - 1;
+    }
+
+    // Same merges for long pieces, where rescanning for the minimum would be quadratic: parts form a
+    // linked list and candidate pairs sit in a heap ordered by (rank, start); outdated entries are skipped
+    private int mergeLong(byte[] bytes, int n, Scratch scratch, IntList out) {
+        scratch.ensureParts(n + 1);
+        int[] next = scratch.parts;
+        int[] prev = scratch.ranks;
+        int[] pairRank = scratch.pairRanks;
+        LongHeap heap = scratch.heap;
+        heap.clear();
+        for (int i = 0; i <= n; i++) {
+            next[i] = i + 1;
+            prev[i] = i - 1;
+            pairRank[i] = i + 2 <= n ? rank(bytes, i, i + 2) : NO_RANK;
+            if (pairRank[i] != NO_RANK) {
+                heap.push((long) pairRank[i] << 32 | i);
+            }
+        }
+        int count = n;
+        while (!heap.isEmpty()) {
+            long entry = heap.pop();
+            int start = (int) entry;
+            int rank = (int) (entry >>> 32);
+            if (pairRank[start] != rank) {
+                continue; // Start was merged away or its pair changed
+            }
+            int removed = next[start];
+            next[start] = next[removed];
+            prev[next[start]] = start;
+            pairRank[removed] = NO_RANK;
+            count--;
+
+            int after = next[start];
+            pairRank[start] = after < n ? rank(bytes, start, next[after]) : NO_RANK;
+            if (pairRank[start] != NO_RANK) {
+                heap.push((long) pairRank[start] << 32 | start);
+            }
+            int before = prev[start];
+            if (before >= 0) {
+                pairRank[before] = rank(bytes, before, after);
+                if (pairRank[before] != NO_RANK) {
+                    heap.push((long) pairRank[before] << 32 | before);
+                }
+            }
+        }
+        if (out != null) {
+            for (int start = 0; start < n; start = next[start]) {
+                out.add(rank(bytes, start, next[start]));
+            }
+        }
+        return count;
+    }
+
+    private int rank(byte[] bytes, int from, int to) {
+        if (to - from == 2) {
+            return pairs[(bytes[from] & 0xff) << 8 | bytes[from + 1] & 0xff];
+        }
+        long hash = hash(bytes, from, to);
+        long expected = (hash & FINGERPRINT) | (long) (to - from) << 32;
+        for (int slot = (int) hash & tableMask; table[slot] != 0; slot = (slot + 1) & tableMask) {
+            long entry = table[slot];
+            if ((entry & ~OFFSET) == expected) {
+                int offset = (int) entry;
+                if (Arrays.equals(tokenBytes, offset, offset + to - from, bytes, from, to)) {
+                    return (int) RANK.get(tokenBytes, offset - 4);
+                }
+            }
+        }
+        return NO_RANK;
+    }
+
+    // FNV-1a, 64 bits: the low bits pick the slot, the top 16 are the fingerprint
+    private static long hash(byte[] bytes, int from, int to) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = from; i < to; i++) {
+            hash = (hash ^ (bytes[i] & 0xff)) * 0x100000001b3L;
+        }
+        return hash ^ (hash >>> 29);
+    }
+
+    private static boolean contains(byte[][] tokens, int maxRank, byte b) {
+        for (int rank = 0; rank <= maxRank; rank++) {
+            if (tokens[rank] != null && tokens[rank].length == 1 && tokens[rank][0] == b) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Per-thread buffers, grown to the longest piece seen
+    private static final class Scratch {
+
+        byte[] bytes = new byte[256];
+        int[] parts = new int[256];
+        int[] ranks = new int[256];
+        int[] pairRanks = new int[256];
+        final LongHeap heap = new LongHeap();
+
+        // UTF-8 of text[start, end) into bytes; unpaired surrogates become '?', as in String.getBytes
+        int utf8(CharSequence text, int start, int end) {
+            int maxBytes = (end - start) * 3;
+            if (bytes.length < maxBytes) {
+                bytes = new byte[Math.max(maxBytes, bytes.length * 2)];
+            }
+            int n = 0;
+            for (int i = start; i < end; i++) {
+                char c = text.charAt(i);
+                if (c < 0x80) {
+                    bytes[n++] = (byte) c;
+                } else if (c < 0x800) {
+                    bytes[n++] = (byte) (0xc0 | c >> 6);
+                    bytes[n++] = (byte) (0x80 | c & 0x3f);
+                } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, text.charAt(++i));
+                    bytes[n++] = (byte) (0xf0 | cp >> 18);
+                    bytes[n++] = (byte) (0x80 | cp >> 12 & 0x3f);
+                    bytes[n++] = (byte) (0x80 | cp >> 6 & 0x3f);
+                    bytes[n++] = (byte) (0x80 | cp & 0x3f);
+                } else if (Character.isSurrogate(c)) {
+                    bytes[n++] = '?';
+                } else {
+                    bytes[n++] = (byte) (0xe0 | c >> 12);
+                    bytes[n++] = (byte) (0x80 | c >> 6 & 0x3f);
+                    bytes[n++] = (byte) (0x80 | c & 0x3f);
+                }
+            }
+            return n;
+        }
+
+        void ensureParts(int count) {
+            if (parts.length < count) {
+                int length = Math.max(count, parts.length * 2);
+                parts = new int[length];
+                ranks = new int[length];
+                pairRanks = new int[length];
+            }
+        }
+    }
+
+    // Binary min-heap of longs
+    private static final class LongHeap {
+
+        private long[] values = new long[256];
+        private int size;
+
+        void clear() {
+            size = 0;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void push(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (values[parent] <= value) {
+                    break;
+                }
+                values[i] = values[parent];
+                i = parent;
+            }
+            values[i] = value;
+        }
+
+        long pop() {
+            long top = values[0];
+            long last = values[--size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && values[child + 1] < values[child]) {
+                    child++;
+                }
+                if (last <= values[child]) {
+                    break;
+                }
+                values[i] = values[child];
+                i = child;
+            }
+            values[i] = last;
+            return top;
+        }
+    }
+
+    private static final class IntList {
+
+        private int[] values = new int[64];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.ai_service_integration.AiIntegration.service.token;
+
+/**
+ * Cheap estimate of roughly four characters per token, which holds well enough for English
+ * text. Good for budgeting; the exact count comes back in the response's usage. Used when no
+ * BPE vocabulary is available (see {@link BpeTokenizer}).
+ */
+public class CharacterTokenEstimator implements TokenEstimator {
+
+    private static final int CHARS_PER_TOKEN = 4;
+
+    @Override
+    public int estimate(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    @Override
+    public int prefixLength(String text, int maxTokens) {
+        if (text == null) {
+            return 0;
+        }
+        int length = (int) Math.min(text.length(), (long) Math.max(0, maxTokens) * CHARS_PER_TOKEN);
+        return length > 0 && length < text.length() && Character.isHighSurrogate(text.charAt(length - 1)) ? length - 1 : length;
+    }
+}
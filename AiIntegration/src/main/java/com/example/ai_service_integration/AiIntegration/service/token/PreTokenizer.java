@@ -0,0 +1,154 @@
+package com.example.ai_service_integration.AiIntegration.service.token;
+
+/**
+ * Splits text into the pieces BPE is applied to, exactly as the {@code cl100k_base} encoding's
+ * regular expression does:
+ * <pre>
+ * (?i:'s|'t|'re|'ve|'m|'ll|'d)|[^\r\n\p{L}\p{N}]?\p{L}+|\p{N}{1,3}| ?[^\s\p{L}\p{N}]+[\r\n]*|\s*[\r\n]+|\s+(?!\S)|\s+
+ * </pre>
+ * Written out by hand: a regex engine allocates per match and backtracks, this walks the text
+ * once with an ASCII lookup table and allocates nothing.
+ */
+public final class PreTokenizer {
+
+    private static final byte LETTER = 1;
+    private static final byte NUMBER = 2;
+    private static final byte WHITESPACE = 3;
+    private static final byte OTHER = 4;
+
+    private static final byte[] ASCII = new byte[128];
+
+    static {
+        for (int c = 0; c < 128; c++) {
+            ASCII[c] = Character.isLetter(c) ? LETTER
+                    : c >= '0' && c <= '9' ? NUMBER
+                    : c == ' ' || (c >= '\t' && c <= '\r') ? WHITESPACE
+                    : OTHER;
+        }
+    }
+
+    private PreTokenizer() {
+    }
+
+    /** End (exclusive) of the piece starting at {@code start}, which must be below the text's length. */
+    public static int nextPieceEnd(CharSequence text, int start) {
+        int length = text.length();
+        int c = Character.codePointAt(text, start);
+        int afterC = start + Character.charCount(c);
+        int type = type(c);
+
+        // (?i:'s|'t|'re|'ve|'m|'ll|'d)
+        if (c == '\'' && afterC < length) {
+            int end = contractionEnd(text, afterC, length);
+            if (end > 0) {
+                return end;
+            }
+        }
+
+        // [^\r\n\p{L}\p{N}]?\p{L}+
+        if (type == LETTER) {
+            return letterRunEnd(text, afterC, length);
+        }
+        if (c != '\r' && c != '\n' && type != NUMBER && afterC < length) {
+            int next = Character.codePointAt(text, afterC);
+            if (type(next) == LETTER) {
+                return letterRunEnd(text, afterC + Character.charCount(next), length);
+            }
+        }
+
+        // \p{N}{1,3}
+        if (type == NUMBER) {
+            int end = afterC;
+            for (int digits = 1; digits < 3 && end < length; digits++) {
+                int next = Character.codePointAt(text, end);
+                if (type(next) != NUMBER) {
+                    break;
+                }
+                end += Character.charCount(next);
+            }
+            return end;
+        }
+
+        // ?[^\s\p{L}\p{N}]+[\r\n]*
+        int symbols = c == ' ' && afterC < length && type(Character.codePointAt(text, afterC)) == OTHER ? afterC : start;
+        if (type(Character.codePointAt(text, symbols)) == OTHER) {
+            int end = symbols;
+            while (end < length) {
+                int next = Character.codePointAt(text, end);
+                if (type(next) != OTHER) {
+                    break;
+                }
+                end += Character.charCount(next);
+            }
+            while (end < length && (text.charAt(end) == '\r' || text.charAt(end) == '\n')) {
+                end++;
+            }
+            return end;
+        }
+
+        // Whitespace (all of it in the BMP): \s*[\r\n]+ ends after the run's last line break,
+        // \s+(?!\S) leaves the run's last character to prefix the next word, \s+ takes what is left
+        int end = start;
+        int lastLineBreak = -1;
+        while (end < length && type(text.charAt(end)) == WHITESPACE) {
+            if (text.charAt(end) == '\r' || text.charAt(end) == '\n') {
+                lastLineBreak = end;
+            }
+            end++;
+        }
+        if (lastLineBreak >= 0) {
+            return lastLineBreak + 1;
+        }
+        return end < length && end - start > 1 ? end - 1 : end;
+    }
+
+    private static int contractionEnd(CharSequence text, int at, int length) {
+        char first = Character.toLowerCase(text.charAt(at));
+        if (first == 's' || first == 't' || first == 'm' || first == 'd') {
+            return at + 1;
+        }
+        if (at + 1 < length) {
+            char second = Character.toLowerCase(text.charAt(at + 1));
+            if ((first == 'r' || first == 'v') && second == 'e' || first == 'l' && second == 'l') {
+                return at + 2;
+            }
+        }
+        return -1;
+    }
+
+    private static int letterRunEnd(CharSequence text, int end, int length) {
+        while (end < length) {
+            char ch = text.charAt(end);
+            if (ch < 128) {
+                if (ASCII[ch] != LETTER) {
+                    break;
+                }
+                end++;
+            } else {
+                int next = Character.codePointAt(text, end);
+                if (!Character.isLetter(next)) {
+                    break;
+                }
+                end += Character.charCount(next);
+            }
+        }
+        return end;
+    }
+
+    // \s follows Unicode White_Space, \p{N} all three number categories
+    private static int type(int c) {
+        if (c < 128) {
+            return ASCII[c];
+        }
+        if (Character.isLetter(c)) {
+            return LETTER;
+        }
+        if (Character.isSpaceChar(c) || c == 0x85) {
+            return WHITESPACE;
+        }
+        return switch (Character.getType(c)) {
+            case Character.DECIMAL_DIGIT_NUMBER, Character.LETTER_NUMBER, Character.OTHER_NUMBER -> NUMBER;
+            default -> OTHER;
+        };
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.ai_service_integration.AiIntegration.service.token;
+
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+
+import java.util.List;
+
+/**
+ * Estimates how many tokens OpenAI will bill for a piece of text, before the call is made.
+ */
+public interface TokenEstimator {
+
+    // Fixed framing the chat format adds around every message and around the reply
+    int TOKENS_PER_MESSAGE = 4;
+    int TOKENS_PER_REPLY = 3;
+
+    int estimate(String text);
+
+    /** Length of the longest prefix of {@code text} estimated at no more than {@code maxTokens} tokens. */
+    int prefixLength(String text, int maxTokens);
+
+    default int estimatePromptTokens(List<OpenAiApiRequest.Message> messages) {
+        int tokens = TOKENS_PER_REPLY;
+        if (messages != null) {
+            for (OpenAiApiRequest.Message message : messages) {
+                tokens += TOKENS_PER_MESSAGE + estimate(message.getContent());
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.ai_service_integration.AiIntegration.service.tracing;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One request's correlation id and, if it was picked for sampling, the timed steps (spans) it
+ * went through: queueing, each upstream call's connect, time to first byte and decoding. The
+ * sampling decision is made once, when the request comes in; unsampled traces record nothing,
+ * so the hot path pays for an id and nothing else.
+ */
+public final class RequestTrace {
+
+    /** Stands in where there is no request to trace, such as background jobs. */
+    public static final RequestTrace NONE = new RequestTrace(null, false);
+
+    private final String id;
+    private final boolean sampled;
+    private final long startNanos;
+    private final List<Span> spans; // Guarded by itself; null unless sampled
+
+    /** A step of the request: start relative to the trace's start, and duration. */
+    public record Span(String name, long offsetNanos, long durationNanos) {
+    }
+
+    public RequestTrace(String id, boolean sampled) {
+        this.id = id;
+        this.sampled = sampled;
+        this.startNanos = System.nanoTime();
+        this.spans = sampled ? new ArrayList<>() : null;
+    }
+
+    /** 32 hex digits, the shape of a W3C trace id; random enough to tell requests apart. */
+    public static String newId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return HexFormat.of().toHexDigits(random.nextLong()) + HexFormat.of().toHexDigits(random.nextLong());
+    }
+
+    /** Null for {@link #NONE}. */
+    public String id() {
+        return id;
+    }
+
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    /** Records a span from {@code startNanos} ({@link System#nanoTime()}) until now; a no-op unless sampled. */
+    public void record(String name, long startNanos) {
+        if (!sampled) {
+            return;
+        }
+        long now = System.nanoTime();
+        synchronized (spans) {
+            spans.add(new Span(name, startNanos - this.startNanos, now - startNanos));
+        }
+    }
+
+    /**
+     * Copies the spans of {@code other}, such as an upstream call shared with other requests, onto
+     * this trace's timeline; a no-op unless sampled.
+     */
+    public void include(RequestTrace other) {
+        if (!sampled || other == this) {
+            return;
+        }
+        long shift = other.startNanos - startNanos;
+        List<Span> included = other.spans();
+        synchronized (spans) {
+            for (Span span : included) {
+                spans.add(new Span(span.name(), span.offsetNanos() + shift, span.durationNanos()));
+            }
+        }
+    }
+
+    public long startNanos() {
+        return startNanos;
+    }
+
+    public List<Span> spans() {
+        if (!sampled) {
+            return List.of();
+        }
+        synchronized (spans) {
+            List<Span> copy = new ArrayList<>(spans);
+            copy.sort(Comparator.comparingLong(Span::offsetNanos));
+            return copy;
+        }
+    }
+
+    /** The spans on one line, in order of start: {@code name@start+duration}, in milliseconds. */
+    public String format() {
+        StringBuilder line = new StringBuilder();
+        for (Span span : spans()) {
+            if (!line.isEmpty()) {
+                line.append(' ');
+            }
+            line.append(span.name()).append('@').append(millis(span.offsetNanos()))
+                    .append('+').append(millis(span.durationNanos()));
+        }
+        return line.toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.ai_service_integration.AiIntegration.service.tracing;
+
+import com.example.ai_service_integration.AiIntegration.service.AiRequestContext;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+/**
+ * Tracing of the calls that go over the wire to OpenAI. Each call of a sampled request is split
+ * into three spans: {@code upstream.connect} (until the request can be written, i.e. pool
+ * acquisition plus any TCP/TLS handshake), {@code upstream.first-byte} (until the response
+ * headers arrive) and a last one for reading and decoding the body. The first two are marked by
+ * Reactor Netty hooks registered on the {@code HttpClient}, which find the call through the
+ * Reactor context.
+ * <p>
+ * Every call also carries the request's correlation id in {@link #REQUEST_ID_HEADER}, so it can
+ * be matched with OpenAI's own logs.
+ */
+public final class UpstreamTracing {
+
+    /** Header OpenAI accepts for a client-chosen request id. */
+    public static final String REQUEST_ID_HEADER = "X-Client-Request-Id";
+
+    private static final String CALL = UpstreamTracing.class.getName() + ".call";
+
+    // Phases of one wire call; hooks run on the connection's event loop, the rest anywhere
+    private static final class Call {
+        final RequestTrace trace;
+        final long start = System.nanoTime();
+        volatile long requestSent;
+        volatile long responseReceived;
+
+        Call(RequestTrace trace) {
+            this.trace = trace;
+        }
+    }
+
+    private UpstreamTracing() {
+    }
+
+    /** Times {@code call} if its request is sampled; {@code lastSpan} names the body phase. */
+    public static <T> Mono<T> trace(Mono<T> call, String lastSpan) {
+        return Mono.deferContextual(context -> {
+            RequestTrace trace = AiRequestContext.getTrace(context);
+            if (!trace.isSampled()) {
+                return call;
+            }
+            Call timing = new Call(trace);
+            return call.doOnNext(response -> finished(timing, lastSpan))
+                    .contextWrite(Context.of(CALL, timing));
+        });
+    }
+
+    public static <T> Flux<T> trace(Flux<T> call, String lastSpan) {
+        return Flux.deferContextual(context -> {
+            RequestTrace trace = AiRequestContext.getTrace(context);
+            if (!trace.isSampled()) {
+                return call;
+            }
+            Call timing = new Call(trace);
+            return call.doFinally(signal -> finished(timing, lastSpan)) // Readers stop at [DONE] by cancelling
+                    .contextWrite(Context.of(CALL, timing));
+        });
+    }
+
+    /** For {@code HttpClient.doOnRequest}: a connection is ready and the request is about to be written. */
+    public static void requestSent(ContextView context) {
+        Call call = context.getOrDefault(CALL, null);
+        if (call != null) {
+            call.requestSent = System.nanoTime();
+            call.trace.record("upstream.connect", call.start);
+        }
+    }
+
+    /** For {@code HttpClient.doOnResponse}: the response headers are in. */
+    public static void responseReceived(ContextView context) {
+        Call call = context.getOrDefault(CALL, null);
+        if (call != null && call.requestSent != 0) {
+            call.responseReceived = System.nanoTime();
+            call.trace.record("upstream.first-byte", call.requestSent);
+        }
+    }
+
+    /** Adds the correlation id header to every call made for a traced request. */
+    public static ExchangeFilterFunction correlationIdFilter() {
+        return (request, next) -> Mono.deferContextual(context -> {
+            String id = AiRequestContext.getTrace(context).id();
+            if (id == null) {
+                return next.exchange(request);
+            }
+            return next.exchange(ClientRequest.from(request).header(REQUEST_ID_HEADER, id).build());
+        });
+    }
+
+    private static void finished(Call call, String lastSpan) {
+        if (call.responseReceived != 0) {
+            call.trace.record(lastSpan, call.responseReceived);
+        }
+    }
+}
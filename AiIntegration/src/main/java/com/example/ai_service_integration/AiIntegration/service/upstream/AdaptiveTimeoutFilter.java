@@ -0,0 +1,98 @@
+package com.example.ai_service_integration.AiIntegration.service.upstream;
+
+import com.example.ai_service_integration.AiIntegration.config.TimeoutProperties;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiResponse;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiStreamChunk;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Gives every upstream attempt its own deadline, learned from recent calls of the same model:
+ * the latency the configured percentile of them stayed within, predicted for an answer of
+ * {@code max_tokens} tokens, times {@code headroom}, kept between {@code min} and {@code max}.
+ * A call asking for a short answer thus fails fast when it hangs, while a long generation gets
+ * the time long generations take. Until a model has {@code min-samples} calls with a known
+ * token count, {@code openai.api.timeout} applies.
+ * <p>
+ * Sits inside the retry filter, so an attempt that times out is retried, and around hedging,
+ * so a hedge races within the same deadline.
+ */
+@Component
+@Order(UpstreamFilterOrder.ATTEMPT_TIMEOUT)
+public class AdaptiveTimeoutFilter implements UpstreamFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveTimeoutFilter.class);
+
+    private final TimeoutProperties properties;
+    private final UpstreamLatencyTracker latencyTracker;
+    private final Duration fallback;
+
+    private final Counter timedOut;
+    private final Timer deadlines;
+
+    public AdaptiveTimeoutFilter(TimeoutProperties properties, UpstreamLatencyTracker latencyTracker,
+                                 @Value("${openai.api.timeout}") long fallbackMillis, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.latencyTracker = latencyTracker;
+        this.fallback = Duration.ofMillis(fallbackMillis);
+        this.timedOut = meterRegistry.counter("ai.upstream.timeouts", "type", "attempt");
+        this.deadlines = Timer.builder("ai.upstream.attempt.deadline")
+                .description("Deadline given to each upstream attempt")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<OpenAiApiResponse> filter(OpenAiApiRequest request, UpstreamExchange next) {
+        return Mono.defer(() -> {
+            Duration timeout = timeoutFor(request);
+            deadlines.record(timeout);
+            return next.exchange(request).timeout(timeout, Mono.defer(() -> timedOut(request, timeout)));
+        });
+    }
+
+    // A stream's first chunk comes no later than a whole answer would, so the same deadline bounds
+    // the wait for it; once chunks flow, the service's idle timeout takes over
+    @Override
+    public Flux<OpenAiStreamChunk> filterStream(OpenAiApiRequest request, UpstreamStreamExchange next) {
+        return Flux.defer(() -> {
+            Duration timeout = timeoutFor(request);
+            deadlines.record(timeout);
+            return next.exchange(request).timeout(Mono.delay(timeout), chunk -> Mono.never(),
+                    Mono.defer(() -> timedOut(request, timeout)));
+        });
+    }
+
+    private <T> Mono<T> timedOut(OpenAiApiRequest request, Duration timeout) {
+        timedOut.increment();
+        logger.warn("Upstream attempt for model {} timed out after {} ms.", request.getModel(), timeout.toMillis());
+        return Mono.error(new UpstreamTimeoutException(request.getModel(), timeout));
+    }
+
+    Duration timeoutFor(OpenAiApiRequest request) {
+        if (!properties.isAdaptive() || request.getMax_tokens() == null) {
+            return fallback;
+        }
+        Optional<Duration> predicted = latencyTracker.predict(request.getModel(), request.getMax_tokens(),
+                properties.getPercentile(), properties.getMinSamples());
+        if (predicted.isEmpty()) {
+            return fallback;
+        }
+        Duration timeout = Duration.ofNanos((long) (predicted.get().toNanos() * properties.getHeadroom()));
+        if (timeout.compareTo(properties.getMin()) < 0) {
+            return properties.getMin();
+        }
+        return timeout.compareTo(properties.getMax()) > 0 ? properties.getMax() : timeout;
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.ai_service_integration.AiIntegration.service.upstream;
+
+import com.example.ai_service_integration.AiIntegration.config.CircuitBreakerProperties;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiResponse;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiStreamChunk;
+import com.example.ai_service_integration.AiIntegration.service.AiServiceException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops calling an upstream that is failing. Outcomes of the last {@code sliding-window-size}
+ * calls are kept; once at least {@code minimum-calls} are known and the share of server
+ * failures reaches the threshold, the circuit opens and calls fail fast with a 503 for
+ * {@code open-duration}. After that a few trial calls are let through (half-open): if all of
+ * them succeed the circuit closes, if one fails it opens again. Client errors such as 400 or
+ * 429 count as successes here; they say nothing about the upstream's health.
+ */
+@Component
+@Order(UpstreamFilterOrder.CIRCUIT_BREAKER)
+@ConditionalOnProperty(name = "openai.circuit-breaker.enabled", havingValue = "true", matchIfMissing = true)
+public class CircuitBreakerFilter implements UpstreamFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreakerFilter.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final CircuitBreakerProperties properties;
+
+    // Guarded by this
+    private State state = State.CLOSED;
+    private long generation; // Bumped on every transition so late outcomes of older calls are ignored
+    private final boolean[] outcomes; // true = failure, ring buffer over the last calls
+    private int outcomeCount;
+    private int nextOutcome;
+    private int failures;
+    private long openedAtMillis;
+    private int trialsStarted;
+    private int trialsSucceeded;
+
+    private final Counter rejected;
+
+    public CircuitBreakerFilter(CircuitBreakerProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.outcomes = new boolean[properties.getSlidingWindowSize()];
+        this.rejected = meterRegistry.counter("ai.upstream.circuit.rejected");
+        // One gauge per state, 1 for the current one, so dashboards can plot and alert on each
+        for (State gaugeState : State.values()) {
+            Gauge.builder("ai.upstream.circuit.state", this, breaker -> breaker.getState() == gaugeState ? 1 : 0)
+                    .tag("state", gaugeState.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public Mono<OpenAiApiResponse> filter(OpenAiApiRequest request, UpstreamExchange next) {
+        return Mono.defer(() -> {
+            long admittedIn = tryAcquire(now());
+            if (admittedIn < 0) {
+                return Mono.error(rejection());
+            }
+            return next.exchange(request)
+                    .doOnSuccess(response -> record(admittedIn, false))
+                    .doOnError(error -> record(admittedIn, UpstreamErrors.isServerFailure(error)))
+                    .doOnCancel(() -> cancelled(admittedIn));
+        });
+    }
+
+    // A stream's outcome is known when it ends; a failure halfway through counts like one before the first chunk
+    @Override
+    public Flux<OpenAiStreamChunk> filterStream(OpenAiApiRequest request, UpstreamStreamExchange next) {
+        return Flux.defer(() -> {
+            long admittedIn = tryAcquire(now());
+            if (admittedIn < 0) {
+                return Flux.error(rejection());
+            }
+            return next.exchange(request)
+                    .doOnComplete(() -> record(admittedIn, false))
+                    .doOnError(error -> record(admittedIn, UpstreamErrors.isServerFailure(error)))
+                    .doOnCancel(() -> cancelled(admittedIn));
+        });
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private AiServiceException rejection() {
+        rejected.increment();
+        return new AiServiceException(HttpStatus.SERVICE_UNAVAILABLE,
+                "OpenAI API is failing, not calling it for now", remainingOpen(now()));
+    }
+
+    // The generation the call was admitted in, or -1 when the circuit rejects it
+    private synchronized long tryAcquire(long nowMillis) {
+        if (state == State.OPEN) {
+            if (nowMillis - openedAtMillis < properties.getOpenDuration().toMillis()) {
+                return -1;
+            }
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialsStarted >= properties.getHalfOpenTrials()) {
+                return -1;
+            }
+            trialsStarted++;
+        }
+        return generation;
+    }
+
+    private synchronized void record(long admittedIn, boolean failed) {
+        if (admittedIn != generation) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            if (failed) {
+                open();
+            } else if (++trialsSucceeded >= properties.getHalfOpenTrials()) {
+                transition(State.CLOSED);
+            }
+            return;
+        }
+        if (outcomeCount == outcomes.length && outcomes[nextOutcome]) {
+            failures--;
+        }
+        outcomes[nextOutcome] = failed;
+        nextOutcome = (nextOutcome + 1) % outcomes.length;
+        outcomeCount = Math.min(outcomeCount + 1, outcomes.length);
+        if (failed) {
+            failures++;
+        }
+        if (outcomeCount >= properties.getMinimumCalls()
+                && failures >= properties.getFailureRateThreshold() * outcomeCount) {
+            open();
+        }
+    }
+
+    // A trial whose caller gave up proves nothing; let another caller probe instead
+    private synchronized void cancelled(long admittedIn) {
+        if (admittedIn == generation && state == State.HALF_OPEN) {
+            trialsStarted--;
+        }
+    }
+
+    private void open() {
+        logger.warn("Upstream failure rate too high, opening circuit for {} s.", properties.getOpenDuration().toSeconds());
+        transition(State.OPEN);
+        openedAtMillis = now();
+    }
+
+    private void transition(State target) {
+        logger.info("Circuit breaker {} -> {}", state, target);
+        state = target;
+        generation++;
+        trialsStarted = 0;
+        trialsSucceeded = 0;
+        if (target == State.CLOSED) {
+            outcomeCount = 0;
+            nextOutcome = 0;
+            failures = 0;
+        }
+    }
+
+    private synchronized Duration remainingOpen(long nowMillis) {
+        long remaining = properties.getOpenDuration().toMillis() - (nowMillis - openedAtMillis);
+        return Duration.ofMillis(Math.max(remaining, 0));
+    }
+
+    // Follows the Reactor scheduler clock so virtual time in tests moves the breaker too
+    private static long now() {
+        return Schedulers.parallel().now(TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.ai_service_integration.AiIntegration.service.upstream;
+
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiResponse;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiStreamChunk;
+import com.example.ai_service_integration.AiIntegration.service.AiRequestContext;
+import com.example.ai_service_integration.AiIntegration.service.AiServiceException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Holds the upstream call to the client's own deadline ({@link AiRequestContext#DEADLINE}),
+ * retries and backoff included: once the client has stopped waiting there is no point in
+ * finishing the call. Runs outside single-flight, so each caller gets its own deadline while
+ * the shared call lives on for the others.
+ */
+@Component
+@Order(UpstreamFilterOrder.DEADLINE)
+public class DeadlineFilter implements UpstreamFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeadlineFilter.class);
+
+    private final Counter exceeded;
+
+    public DeadlineFilter(MeterRegistry meterRegistry) {
+        this.exceeded = meterRegistry.counter("ai.upstream.timeouts", "type", "deadline");
+    }
+
+    @Override
+    public Mono<OpenAiApiResponse> filter(OpenAiApiRequest request, UpstreamExchange next) {
+        return Mono.deferContextual(context -> {
+            Optional<Duration> timeLeft = AiRequestContext.getTimeLeft(context);
+            if (timeLeft.isEmpty()) {
+                return next.exchange(request);
+            }
+            if (timeLeft.get().isZero() || timeLeft.get().isNegative()) {
+                return deadlineExceeded(request);
+            }
+            return next.exchange(request).timeout(timeLeft.get(), Mono.defer(() -> deadlineExceeded(request)));
+        });
+    }
+
+    // A stream that has started is no longer keeping the client waiting, so only its first chunk is held to the deadline
+    @Override
+    public Flux<OpenAiStreamChunk> filterStream(OpenAiApiRequest request, UpstreamStreamExchange next) {
+        return Flux.deferContextual(context -> {
+            Optional<Duration> timeLeft = AiRequestContext.getTimeLeft(context);
+            if (timeLeft.isEmpty()) {
+                return next.exchange(request);
+            }
+            if (timeLeft.get().isZero() || timeLeft.get().isNegative()) {
+                return this.<OpenAiStreamChunk>deadlineExceeded(request).flux();
+            }
+            return next.exchange(request).timeout(Mono.delay(timeLeft.get()), chunk -> Mono.never(),
+                    Mono.defer(() -> deadlineExceeded(request)));
+        });
+    }
+
+    private <T> Mono<T> deadlineExceeded(OpenAiApiRequest request) {
+        exceeded.increment();
+        logger.warn("Client deadline passed before OpenAI answered for model {}.", request.getModel());
+        return Mono.error(new AiServiceException(HttpStatus.GATEWAY_TIMEOUT,
+                "Deadline exceeded before OpenAI answered for model " + request.getModel()));
+    }
+}
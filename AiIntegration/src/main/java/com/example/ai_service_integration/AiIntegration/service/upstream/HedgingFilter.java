@@ -0,0 +1,169 @@
+package com.example.ai_service_integration.AiIntegration.service.upstream;
+
+import com.example.ai_service_integration.AiIntegration.config.HedgingProperties;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cuts tail latency by hedging: when a call has not answered after the configured percentile
+ * of recent latency for its model, an identical second call is sent, the first answer wins and
+ * the other call is cancelled. The number of hedges running at once is capped, so a slow
+ * upstream cannot make us double our own load. A hedge only ever races a call still in flight;
+ * a call that fails is not retried here.
+ */
+@Component
+@Order(UpstreamFilterOrder.HEDGING)
+@ConditionalOnProperty(name = "openai.hedging.enabled", havingValue = "true")
+public class HedgingFilter implements UpstreamFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(HedgingFilter.class);
+
+    private final HedgingProperties properties;
+    private final UpstreamLatencyTracker latencyTracker;
+    private final AtomicInteger hedgesInFlight = new AtomicInteger();
+
+    private final Counter started;
+    private final Counter won;
+    private final Counter skipped;
+
+    public HedgingFilter(HedgingProperties properties, UpstreamLatencyTracker latencyTracker, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.latencyTracker = latencyTracker;
+        this.started = meterRegistry.counter("ai.upstream.hedges", "outcome", "started");
+        this.won = meterRegistry.counter("ai.upstream.hedges", "outcome", "won");
+        this.skipped = meterRegistry.counter("ai.upstream.hedges", "outcome", "skipped");
+        Gauge.builder("ai.upstream.hedges.in.flight", hedgesInFlight, AtomicInteger::get).register(meterRegistry);
+    }
+
+    @Override
+    public Mono<OpenAiApiResponse> filter(OpenAiApiRequest request, UpstreamExchange next) {
+        return Mono.defer(() -> {
+            Optional<Duration> hedgeDelay = hedgeDelay(request.getModel());
+            if (hedgeDelay.isEmpty()) {
+                return next.exchange(request); // Not enough history yet to know what "slow" is
+            }
+            return Mono.create(sink -> new HedgedCall(sink, request, next).start(hedgeDelay.get()));
+        });
+    }
+
+    private Optional<Duration> hedgeDelay(String model) {
+        return latencyTracker.percentile(model, properties.getPercentile(), properties.getMinSamples())
+                .map(latency -> latency.compareTo(properties.getMinDelay()) < 0 ? properties.getMinDelay() : latency);
+    }
+
+    private boolean tryAcquireHedgeSlot() {
+        int current;
+        do {
+            current = hedgesInFlight.get();
+            if (current >= properties.getMaxInFlight()) {
+                return false;
+            }
+        } while (!hedgesInFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    // One caller's primary call, its pending hedge timer and, once fired, the hedge itself
+    private final class HedgedCall {
+
+        private final MonoSink<OpenAiApiResponse> sink;
+        private final OpenAiApiRequest request;
+        private final UpstreamExchange next;
+        private final Disposable.Composite attempts = Disposables.composite();
+
+        private int running; // Attempts still in flight, guarded by this
+        private boolean finished;
+        private Throwable firstError;
+
+        HedgedCall(MonoSink<OpenAiApiResponse> sink, OpenAiApiRequest request, UpstreamExchange next) {
+            this.sink = sink;
+            this.request = request;
+            this.next = next;
+            sink.onDispose(attempts); // Cancels whatever is still running once the caller is done
+        }
+
+        void start(Duration hedgeDelay) {
+            running = 1;
+            attempts.add(attempt(false));
+            attempts.add(Mono.delay(hedgeDelay).subscribe(tick -> hedge()));
+        }
+
+        private void hedge() {
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                if (!tryAcquireHedgeSlot()) {
+                    skipped.increment();
+                    return;
+                }
+                running++;
+            }
+            started.increment();
+            logger.debug("No upstream answer within the hedge delay, sending a hedged request.");
+            attempts.add(attempt(true));
+        }
+
+        private Disposable attempt(boolean hedge) {
+            Mono<OpenAiApiResponse> call = Mono.defer(() -> next.exchange(request))
+                    .contextWrite(sink.contextView());
+            if (hedge) {
+                call = call.doFinally(signal -> hedgesInFlight.decrementAndGet());
+            }
+            return call.subscribe(response -> onValue(response, hedge), this::onError, this::onComplete);
+        }
+
+        private void onValue(OpenAiApiResponse response, boolean hedge) {
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                finished = true;
+            }
+            if (hedge) {
+                won.increment();
+            }
+            sink.success(response);
+        }
+
+        private void onError(Throwable error) {
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                firstError = firstError == null ? error : firstError;
+                if (--running > 0) {
+                    return; // The other attempt may still answer
+                }
+                finished = true;
+            }
+            sink.error(firstError);
+        }
+
+        // An attempt that completed without a value; harmless after onValue, as the sink is then already done
+        private void onComplete() {
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                finished = true;
+            }
+            sink.success();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.ai_service_integration.AiIntegration.service.upstream;
+
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiResponse;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Innermost filter: records how long each successful wire call took, per model, so outer
+ * filters (hedging, timeouts, ...) can reason about recent upstream latency. Failed and cancelled
+ * calls are left out, they say nothing about how long an answer takes.
+ */
+@Component
+@Order(UpstreamFilterOrder.LATENCY_TRACKING)
+public class LatencyTrackingFilter implements UpstreamFilter {
+
+    private final UpstreamLatencyTracker latencyTracker;
+
+    public LatencyTrackingFilter(UpstreamLatencyTracker latencyTracker) {
+        this.latencyTracker = latencyTracker;
+    }
+
+    @Override
+    public Mono<OpenAiApiResponse> filter(OpenAiApiRequest request, UpstreamExchange next) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return next.exchange(request)
+                    .doOnNext(response -> record(request, response, Duration.ofNanos(System.nanoTime() - start)));
+        });
+    }
+
+    // With the token count when the response reports usage, so deadlines can scale with max_tokens
+    private void record(OpenAiApiRequest request, OpenAiApiResponse response, Duration latency) {
+        if (response.getUsage() != null && response.getUsage().getCompletion_tokens() > 0) {
+            latencyTracker.record(request.getModel(), latency, response.getUsage().getCompletion_tokens());
+        } else {
+            latencyTracker.record(request.getModel(), latency);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.ai_service_integration.AiIntegration.service.upstream;
+
+import com.example.ai_service_integration.AiIntegration.config.ModelRoutingProperties;
+import com.example.ai_service_integration.AiIntegration.config.TokenBudgetProperties;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiResponse;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiStreamChunk;
+import com.example.ai_service_integration.AiIntegration.service.AiRequestContext;
+import com.example.ai_service_integration.AiIntegration.service.AiResponseMetadata;
+import com.example.ai_service_integration.AiIntegration.service.AiServiceException;
+import com.example.ai_service_integration.AiIntegration.service.token.TokenEstimator;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Sends each call to a small, fast model or a large one instead of the single configured model.
+ * In order of precedence: the caller's hint ({@code small} or {@code large}), a prompt longer
+ * than {@code max-small-prompt-tokens}, or one of the {@code large-markers} (or a code block) in
+ * the last message picks the large model; everything else gets the small one. When the client
+ * set a deadline the large model would likely miss, going by its recent latency, the small
+ * model is taken instead, unless the caller asked for the large one.
+ * <p>
+ * A call the chosen model turns away as overloaded (429 or 503, from upstream or from our own
+ * rate limiter and circuit breaker) is tried once on the other model, as long as the prompt
+ * fits its context window. Runs outermost, so everything further in sees the chosen model.
+ */
+@Component
+@Order(UpstreamFilterOrder.MODEL_ROUTING)
+@ConditionalOnProperty(name = "openai.model-routing.enabled", havingValue = "true")
+public class ModelRoutingFilter implements UpstreamFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModelRoutingFilter.class);
+
+    private static final String CODE_BLOCK = "```";
+
+    private final ModelRoutingProperties properties;
+    private final TokenBudgetProperties tokenBudgetProperties;
+    private final TokenEstimator tokenEstimator;
+    private final UpstreamLatencyTracker latencyTracker;
+    private final MeterRegistry meterRegistry;
+    private final List<String> largeMarkers;
+
+    // A routing decision: the model and why it was chosen
+    private record Route(String model, String reason) {
+    }
+
+    public ModelRoutingFilter(ModelRoutingProperties properties, TokenBudgetProperties tokenBudgetProperties,
+                              TokenEstimator tokenEstimator, UpstreamLatencyTracker latencyTracker,
+                              MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.tokenBudgetProperties = tokenBudgetProperties;
+        this.tokenEstimator = tokenEstimator;
+        this.latencyTracker = latencyTracker;
+        this.meterRegistry = meterRegistry;
+        this.largeMarkers = properties.getLargeMarkers().stream()
+                .map(marker -> marker.toLowerCase(Locale.ROOT))
+                .toList();
+    }
+
+    @Override
+    public Mono<OpenAiApiResponse> filter(OpenAiApiRequest request, UpstreamExchange next) {
+        return Mono.deferContextual(context -> {
+            int promptTokens = tokenEstimator.estimatePromptTokens(request.getMessages());
+            Route route = decide(request, promptTokens, context);
+            return next.exchange(withModel(request, route.model()))
+                    .onErrorResume(ModelRoutingFilter::isOverload, error -> fallback(route, promptTokens, error, context)
+                            .map(other -> next.exchange(withModel(request, other))
+                                    .onErrorMap(ModelRoutingFilter::isOverload, fallbackError -> error)) // The first model's hint is as good as any
+                            .orElseGet(() -> Mono.error(error)));
+        });
+    }
+
+    // Overload is refused before the first chunk, so a stream falls back the same way
+    @Override
+    public Flux<OpenAiStreamChunk> filterStream(OpenAiApiRequest request, UpstreamStreamExchange next) {
+        return Flux.deferContextual(context -> {
+            int promptTokens = tokenEstimator.estimatePromptTokens(request.getMessages());
+            Route route = decide(request, promptTokens, context);
+            return next.exchange(withModel(request, route.model()))
+                    .onErrorResume(ModelRoutingFilter::isOverload, error -> fallback(route, promptTokens, error, context)
+                            .map(other -> next.exchange(withModel(request, other))
+                                    .onErrorMap(ModelRoutingFilter::isOverload, fallbackError -> error))
+                            .orElseGet(() -> Flux.error(error)));
+        });
+    }
+
+    private Route decide(OpenAiApiRequest request, int promptTokens, ContextView context) {
+        Route route = route(request, promptTokens, context);
+        meterRegistry.counter("ai.upstream.model.decisions", "model", route.model(), "reason", route.reason()).increment();
+        logger.debug("Routing call to model {} ({}).", route.model(), route.reason());
+        recordModel(context, route.model());
+        return route;
+    }
+
+    // The other model, if falling back to it is allowed and the prompt fits it
+    private Optional<String> fallback(Route route, int promptTokens, Throwable error, ContextView context) {
+        String other = other(route.model());
+        if (!properties.isFallback() || !fits(other, promptTokens)) {
+            return Optional.empty();
+        }
+        meterRegistry.counter("ai.upstream.model.fallbacks", "from", route.model(), "to", other).increment();
+        logger.info("Model {} is overloaded, trying {}: {}", route.model(), other, error.getMessage());
+        recordModel(context, other);
+        return Optional.of(other);
+    }
+
+    // So that end-to-end metrics are tagged with the model that answered, not the configured one
+    private static void recordModel(ContextView context, String model) {
+        AiResponseMetadata metadata = AiRequestContext.getResponseMetadata(context);
+        if (metadata != null) {
+            metadata.recordRoutedModel(model);
+        }
+    }
+
+    private Route route(OpenAiApiRequest request, int promptTokens, ContextView context) {
+        String hint = AiRequestContext.getModelHint(context);
+        if ("small".equals(hint) && fits(properties.getSmallModel(), promptTokens)) {
+            return new Route(properties.getSmallModel(), "hint");
+        }
+        if ("large".equals(hint)) {
+            return new Route(properties.getLargeModel(), "hint");
+        }
+
+        Route route;
+        if (promptTokens > properties.getMaxSmallPromptTokens() || !fits(properties.getSmallModel(), promptTokens)) {
+            route = new Route(properties.getLargeModel(), "length");
+        } else if (hasLargeMarker(request)) {
+            route = new Route(properties.getLargeModel(), "content");
+        } else {
+            return new Route(properties.getSmallModel(), "default");
+        }
+        if (properties.isDeadlineAware() && fits(properties.getSmallModel(), promptTokens)
+                && missesDeadline(route.model(), request.getMax_tokens(), context)) {
+            return new Route(properties.getSmallModel(), "deadline");
+        }
+        return route;
+    }
+
+    // Markers are looked for in the last message only: earlier turns were already answered
+    private boolean hasLargeMarker(OpenAiApiRequest request) {
+        List<OpenAiApiRequest.Message> messages = request.getMessages();
+        if (messages == null || messages.isEmpty() || messages.get(messages.size() - 1).getContent() == null) {
+            return false;
+        }
+        String content = messages.get(messages.size() - 1).getContent();
+        if (content.contains(CODE_BLOCK)) {
+            return true;
+        }
+        String lowerCase = content.toLowerCase(Locale.ROOT);
+        for (String marker : largeMarkers) {
+            if (lowerCase.contains(marker)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean missesDeadline(String model, Integer maxTokens, ContextView context) {
+        Optional<Duration> timeLeft = AiRequestContext.getTimeLeft(context);
+        if (timeLeft.isEmpty()) {
+            return false;
+        }
+        Optional<Duration> expected = maxTokens != null
+                ? latencyTracker.predict(model, maxTokens, properties.getLatencyPercentile(), properties.getMinSamples())
+                : latencyTracker.percentile(model, properties.getLatencyPercentile(), properties.getMinSamples());
+        return expected.isPresent() && expected.get().compareTo(timeLeft.get()) > 0;
+    }
+
+    private boolean fits(String model, int promptTokens) {
+        return promptTokens + tokenBudgetProperties.getMinCompletionTokens() <= tokenBudgetProperties.contextWindowFor(model);
+    }
+
+    private String other(String model) {
+        return model.equals(properties.getSmallModel()) ? properties.getLargeModel() : properties.getSmallModel();
+    }
+
+    // Turned away for lack of capacity, whether by OpenAI or by our own limiter and breaker
+    private static boolean isOverload(Throwable error) {
+        int status;
+        if (error instanceof WebClientResponseException response) {
+            status = response.getStatusCode().value();
+        } else if (error instanceof AiServiceException serviceException) {
+            status = serviceException.getStatus().value();
+        } else {
+            return false;
+        }
+        return status == HttpStatus.TOO_MANY_REQUESTS.value() || status == HttpStatus.SERVICE_UNAVAILABLE.value();
+    }
+
+    private static OpenAiApiRequest withModel(OpenAiApiRequest request, String model) {
+        return OpenAiApiRequest.builder()
+                .model(model)
+                .messages(request.getMessages())
+                .max_tokens(request.getMax_tokens())
+                .temperature(request.getTemperature())
+                .stream(request.getStream())
+                .build();
+    }
+}
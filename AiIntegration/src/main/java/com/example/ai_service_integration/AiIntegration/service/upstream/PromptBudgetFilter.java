@@ -0,0 +1,135 @@
+package com.example.ai_service_integration.AiIntegration.service.upstream;
+
+import com.example.ai_service_integration.AiIntegration.config.TokenBudgetProperties;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiResponse;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiStreamChunk;
+import com.example.ai_service_integration.AiIntegration.service.AiServiceException;
+import com.example.ai_service_integration.AiIntegration.service.token.TokenEstimator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks the prompt against the model's context window before anything is sent. A prompt that
+ * leaves less than {@code min-completion-tokens} for the answer is rejected with a 400 (or, with
+ * {@code overflow: truncate}, cut to fit), instead of costing a round trip only to be refused
+ * upstream. {@code max_tokens} is clamped to the room that is left, which also keeps the rate
+ * limiter from reserving tokens the call can never use.
+ * <p>
+ * Runs right after model routing, so the budget is that of the chosen model's context window, and
+ * before everything else, so a rejected prompt is never retried, hedged or counted against the circuit.
+ */
+@Component
+@Order(UpstreamFilterOrder.PROMPT_BUDGET)
+@ConditionalOnProperty(name = "openai.token-budget.enabled", havingValue = "true", matchIfMissing = true)
+public class PromptBudgetFilter implements UpstreamFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(PromptBudgetFilter.class);
+
+    private final TokenBudgetProperties properties;
+    private final TokenEstimator tokenEstimator;
+
+    private final Counter passed;
+    private final Counter clamped;
+    private final Counter truncated;
+    private final Counter rejected;
+    private final DistributionSummary promptTokens;
+
+    public PromptBudgetFilter(TokenBudgetProperties properties, TokenEstimator tokenEstimator, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.tokenEstimator = tokenEstimator;
+        this.passed = meterRegistry.counter("ai.token-budget.requests", "result", "passed");
+        this.clamped = meterRegistry.counter("ai.token-budget.requests", "result", "clamped");
+        this.truncated = meterRegistry.counter("ai.token-budget.requests", "result", "truncated");
+        this.rejected = meterRegistry.counter("ai.token-budget.requests", "result", "rejected");
+        this.promptTokens = DistributionSummary.builder("ai.prompt.tokens")
+                .description("Prompt tokens counted before the call, chat framing included")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<OpenAiApiResponse> filter(OpenAiApiRequest request, UpstreamExchange next) {
+        return Mono.defer(() -> next.exchange(budgeted(request)));
+    }
+
+    @Override
+    public Flux<OpenAiStreamChunk> filterStream(OpenAiApiRequest request, UpstreamStreamExchange next) {
+        return Flux.defer(() -> next.exchange(budgeted(request)));
+    }
+
+    // The request as it may be sent, or an AiServiceException (400) if its prompt does not fit
+    private OpenAiApiRequest budgeted(OpenAiApiRequest request) {
+        int contextWindow = properties.contextWindowFor(request.getModel());
+        int tokens = tokenEstimator.estimatePromptTokens(request.getMessages());
+        promptTokens.record(tokens);
+
+        OpenAiApiRequest budgeted = request;
+        if (contextWindow - tokens < properties.getMinCompletionTokens()) {
+            budgeted = properties.getOverflow() == TokenBudgetProperties.Overflow.TRUNCATE
+                    ? truncate(request, tokens - (contextWindow - properties.getMinCompletionTokens()))
+                    : null;
+            if (budgeted == null) {
+                throw reject(request, tokens, contextWindow);
+            }
+            tokens = tokenEstimator.estimatePromptTokens(budgeted.getMessages());
+            truncated.increment();
+            logger.debug("Truncated prompt for model {} to {} tokens.", request.getModel(), tokens);
+        }
+
+        int room = contextWindow - tokens;
+        if (budgeted.getMax_tokens() != null && budgeted.getMax_tokens() > room) {
+            budgeted = copy(budgeted).max_tokens(room).build();
+            clamped.increment();
+        } else if (budgeted == request) {
+            passed.increment();
+        }
+        return budgeted;
+    }
+
+    // Drops the last message's tail; null if that message alone cannot absorb the excess
+    private OpenAiApiRequest truncate(OpenAiApiRequest request, int excessTokens) {
+        List<OpenAiApiRequest.Message> messages = request.getMessages();
+        if (messages == null || messages.isEmpty()) {
+            return null;
+        }
+        OpenAiApiRequest.Message last = messages.get(messages.size() - 1);
+        int keep = tokenEstimator.estimate(last.getContent()) - excessTokens;
+        if (keep <= 0) {
+            return null;
+        }
+        String content = last.getContent().substring(0, tokenEstimator.prefixLength(last.getContent(), keep));
+
+        List<OpenAiApiRequest.Message> kept = new ArrayList<>(messages.subList(0, messages.size() - 1));
+        kept.add(OpenAiApiRequest.Message.builder().role(last.getRole()).content(content).build());
+        return copy(request).messages(kept).build();
+    }
+
+    private static OpenAiApiRequest.OpenAiApiRequestBuilder copy(OpenAiApiRequest request) {
+        return OpenAiApiRequest.builder()
+                .model(request.getModel())
+                .messages(request.getMessages())
+                .max_tokens(request.getMax_tokens())
+                .temperature(request.getTemperature())
+                .stream(request.getStream());
+    }
+
+    private AiServiceException reject(OpenAiApiRequest request, int tokens, int contextWindow) {
+        rejected.increment();
+        logger.warn("Prompt of {} tokens does not fit the {}-token context window of model {}.", tokens, contextWindow, request.getModel());
+        return new AiServiceException(HttpStatus.BAD_REQUEST,
+                "Prompt is too long: " + tokens + " tokens, but model " + request.getModel() + " allows "
+                        + (contextWindow - properties.getMinCompletionTokens()) + " to leave room for the answer");
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.ai_service_integration.AiIntegration.service.upstream;
+
+import com.example.ai_service_integration.AiIntegration.config.RateLimitProperties;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiResponse;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiStreamChunk;
+import com.example.ai_service_integration.AiIntegration.service.AiRequestContext;
+import com.example.ai_service_integration.AiIntegration.service.AiServiceException;
+import com.example.ai_service_integration.AiIntegration.service.token.TokenEstimator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps upstream calls inside the requests-per-minute and tokens-per-minute budget of each
+ * API key and model, so peaks queue here instead of coming back as upstream 429s. A call is
+ * charged its estimated tokens (prompt plus {@code max_tokens}) up front and reconciled with
+ * the reported usage afterwards. Calls that cannot be admitted within {@code max-wait}, or
+ * that find the wait queue full, fail fast with a 429 carrying a Retry-After hint.
+ */
+@Component
+@Order(UpstreamFilterOrder.RATE_LIMIT)
+@ConditionalOnProperty(name = "openai.rate-limit.enabled", havingValue = "true")
+public class RateLimitFilter implements UpstreamFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    private static final long PERIOD_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final RateLimitProperties properties;
+    private final TokenEstimator tokenEstimator;
+    private final ConcurrentMap<BudgetKey, Budget> budgets = new ConcurrentHashMap<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private final Counter admitted;
+    private final Counter delayed;
+    private final Counter rejected;
+
+    public RateLimitFilter(RateLimitProperties properties, TokenEstimator tokenEstimator, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.tokenEstimator = tokenEstimator;
+        this.admitted = meterRegistry.counter("ai.ratelimit.requests", "result", "admitted");
+        this.delayed = meterRegistry.counter("ai.ratelimit.requests", "result", "delayed");
+        this.rejected = meterRegistry.counter("ai.ratelimit.requests", "result", "rejected");
+        Gauge.builder("ai.ratelimit.waiting", waiting, AtomicInteger::get).register(meterRegistry);
+    }
+
+    @Override
+    public Mono<OpenAiApiResponse> filter(OpenAiApiRequest request, UpstreamExchange next) {
+        return Mono.deferContextual(context -> {
+            Budget budget = budgetFor(request, context);
+            long estimatedTokens = estimateTokens(request);
+            return acquire(request, budget, estimatedTokens, context)
+                    .then(Mono.defer(() -> next.exchange(request)))
+                    .doOnNext(response -> reconcile(budget, estimatedTokens, response));
+        });
+    }
+
+    // Chunks carry no usage, so a stream keeps the estimate it was charged
+    @Override
+    public Flux<OpenAiStreamChunk> filterStream(OpenAiApiRequest request, UpstreamStreamExchange next) {
+        return Flux.deferContextual(context -> {
+            Budget budget = budgetFor(request, context);
+            return acquire(request, budget, estimateTokens(request), context)
+                    .thenMany(Flux.defer(() -> next.exchange(request)));
+        });
+    }
+
+    private Budget budgetFor(OpenAiApiRequest request, ContextView context) {
+        return budgets.computeIfAbsent(new BudgetKey(AiRequestContext.getApiKeyId(context), request.getModel()),
+                key -> new Budget(properties.limitsFor(key.keyId(), key.model()), now()));
+    }
+
+    // Completes once the call may go, right away or after queueing; fails with a 429 if it may not
+    private Mono<Void> acquire(OpenAiApiRequest request, Budget budget, long estimatedTokens, ContextView context) {
+        long waitNanos = budget.reserve(estimatedTokens, now(), properties.getMaxWait().toNanos());
+        if (waitNanos < 0) {
+            return reject(request, Duration.ofNanos(-waitNanos));
+        }
+        if (waitNanos == 0) {
+            admitted.increment();
+            return Mono.empty();
+        }
+
+        if (waiting.incrementAndGet() > properties.getMaxQueue()) {
+            waiting.decrementAndGet();
+            budget.release(estimatedTokens);
+            return reject(request, Duration.ofNanos(waitNanos));
+        }
+        delayed.increment();
+        logger.debug("Delaying upstream call by {} ms to stay within the rate limit.", TimeUnit.NANOSECONDS.toMillis(waitNanos));
+        long queuedAt = System.nanoTime();
+        return Mono.delay(Duration.ofNanos(waitNanos))
+                .doOnNext(tick -> AiRequestContext.getTrace(context).record("queue.rate-limit", queuedAt))
+                .doOnCancel(() -> budget.release(estimatedTokens)) // Gave up while queued: hand the budget back
+                .doFinally(signal -> waiting.decrementAndGet())
+                .then();
+    }
+
+    private Mono<Void> reject(OpenAiApiRequest request, Duration retryAfter) {
+        rejected.increment();
+        logger.warn("Rate limit for model {} exhausted, rejecting request (retry after {} ms).", request.getModel(), retryAfter.toMillis());
+        return Mono.error(new AiServiceException(HttpStatus.TOO_MANY_REQUESTS,
+                "Rate limit exceeded for model " + request.getModel() + ", please retry later", retryAfter));
+    }
+
+    private long estimateTokens(OpenAiApiRequest request) {
+        long completionTokens = request.getMax_tokens() != null ? request.getMax_tokens() : 0;
+        return tokenEstimator.estimatePromptTokens(request.getMessages()) + completionTokens;
+    }
+
+    // Replace the up-front estimate with what OpenAI actually billed
+    private static void reconcile(Budget budget, long estimatedTokens, OpenAiApiResponse response) {
+        if (response.getUsage() != null && response.getUsage().getTotal_tokens() > 0) {
+            budget.adjustTokens(estimatedTokens - response.getUsage().getTotal_tokens());
+        }
+    }
+
+    // Follows the Reactor scheduler clock so virtual time in tests moves the buckets too
+    private static long now() {
+        return Schedulers.parallel().now(TimeUnit.NANOSECONDS);
+    }
+
+    private record BudgetKey(String keyId, String model) {
+    }
+
+    // The request and token buckets of one API key and model, reserved together
+    private static final class Budget {
+
+        private final TokenBucket requests;
+        private final TokenBucket tokens;
+
+        Budget(RateLimitProperties.Limits limits, long nowNanos) {
+            this.requests = new TokenBucket(limits.getRequestsPerMinute(), PERIOD_NANOS, nowNanos);
+            this.tokens = new TokenBucket(limits.getTokensPerMinute(), PERIOD_NANOS, nowNanos);
+        }
+
+        /** Takes one request and {@code tokenCount} tokens; returns the wait, or minus the wait when it exceeds {@code maxWaitNanos}. */
+        synchronized long reserve(long tokenCount, long nowNanos, long maxWaitNanos) {
+            long wait = Math.max(requests.nanosUntilAvailable(1, nowNanos), tokens.nanosUntilAvailable(tokenCount, nowNanos));
+            if (wait > maxWaitNanos) {
+                return -wait;
+            }
+            requests.take(1);
+            tokens.take(tokenCount);
+            return wait;
+        }
+
+        synchronized void release(long tokenCount) {
+            requests.give(1);
+            tokens.give(tokenCount);
+        }
+
+        synchronized void adjustTokens(long refund) {
+            if (refund > 0) {
+                tokens.give(refund);
+            } else {
+                tokens.take(-refund);
+            }
+        }
+    }
+}
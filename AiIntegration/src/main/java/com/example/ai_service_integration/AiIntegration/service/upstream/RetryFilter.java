@@ -0,0 +1,93 @@
+package com.example.ai_service_integration.AiIntegration.service.upstream;
+
+import com.example.ai_service_integration.AiIntegration.config.RetryProperties;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiResponse;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiStreamChunk;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Retries upstream calls that failed with a retryable error (429, 5xx, connection failures).
+ * The wait honours the server's Retry-After when it sends one and otherwise is an exponential
+ * backoff with full jitter, so clients that failed together do not come back together.
+ */
+@Component
+@Order(UpstreamFilterOrder.RETRY)
+@ConditionalOnProperty(name = "openai.retry.enabled", havingValue = "true", matchIfMissing = true)
+public class RetryFilter implements UpstreamFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RetryFilter.class);
+
+    private final RetryProperties properties;
+    private final Retry retrySpec;
+
+    private final Counter retries;
+
+    public RetryFilter(RetryProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.retries = meterRegistry.counter("ai.upstream.retries");
+        this.retrySpec = Retry.from(failures -> failures.concatMap(this::retryOrFail));
+    }
+
+    @Override
+    public Mono<OpenAiApiResponse> filter(OpenAiApiRequest request, UpstreamExchange next) {
+        return Mono.defer(() -> next.exchange(request)).retryWhen(retrySpec);
+    }
+
+    // Only a stream that has sent nothing yet is retried; the client already has the chunks of one that has
+    @Override
+    public Flux<OpenAiStreamChunk> filterStream(OpenAiApiRequest request, UpstreamStreamExchange next) {
+        return Flux.defer(() -> {
+            AtomicBoolean started = new AtomicBoolean();
+            return Flux.defer(() -> next.exchange(request))
+                    .doOnNext(chunk -> started.set(true))
+                    .retryWhen(Retry.from(failures -> failures.concatMap(signal ->
+                            started.get() ? Mono.error(signal.failure()) : retryOrFail(signal))));
+        });
+    }
+
+    private Mono<Long> retryOrFail(Retry.RetrySignal signal) {
+        Throwable failure = signal.failure();
+        Optional<Duration> delay = retryDelay(failure, signal.totalRetries());
+        if (delay.isEmpty()) {
+            return Mono.error(failure);
+        }
+        retries.increment();
+        logger.debug("Retrying upstream call in {} ms after: {}", delay.get().toMillis(), failure.getMessage());
+        return Mono.delay(delay.get());
+    }
+
+    // Empty when the failure should be passed on instead of retried
+    private Optional<Duration> retryDelay(Throwable failure, long retriesSoFar) {
+        if (!UpstreamErrors.isRetryable(failure) || retriesSoFar + 1 >= properties.getMaxAttempts()) {
+            return Optional.empty();
+        }
+        Optional<Duration> retryAfter = UpstreamErrors.retryAfter(failure);
+        if (retryAfter.isPresent()) {
+            // A long Retry-After is better answered by the caller than by holding the request open
+            return retryAfter.get().compareTo(properties.getMaxRetryAfter()) > 0 ? Optional.empty() : retryAfter;
+        }
+        return Optional.of(backoff(retriesSoFar));
+    }
+
+    // Full jitter: uniformly random between zero and the exponential backoff ceiling
+    private Duration backoff(long retriesSoFar) {
+        long ceiling = properties.getInitialBackoff().toMillis() << Math.min(retriesSoFar, 20);
+        ceiling = Math.min(ceiling, properties.getMaxBackoff().toMillis());
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(ceiling + 1));
+    }
+}
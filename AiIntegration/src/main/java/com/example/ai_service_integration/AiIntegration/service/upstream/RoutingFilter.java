@@ -0,0 +1,178 @@
+package com.example.ai_service_integration.AiIntegration.service.upstream;
+
+import com.example.ai_service_integration.AiIntegration.config.RoutingProperties;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiResponse;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiStreamChunk;
+import com.example.ai_service_integration.AiIntegration.service.AiRequestContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spreads upstream calls over every configured backend (API key / endpoint). Each call goes to
+ * the better of two randomly drawn healthy backends ("power of two choices"), judged by
+ * outstanding requests or by outstanding requests weighted with a moving average of latency.
+ * A backend whose last {@code ejection-threshold} calls all ended in a 429 or a server error sits
+ * out for a while, so one unlucky call does not take it out of rotation; since retries run
+ * outside this filter, a retried call lands on another backend. If every backend is
+ * sitting out, the one due back first is used rather than failing the call here.
+ */
+@Component
+@Order(UpstreamFilterOrder.ROUTING)
+@ConditionalOnProperty(name = "openai.routing.enabled", havingValue = "true")
+public class RoutingFilter implements UpstreamFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoutingFilter.class);
+
+    private final RoutingProperties properties;
+    private final List<Route> routes = new ArrayList<>();
+
+    public RoutingFilter(RoutingProperties properties, UpstreamBackends backends, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        for (UpstreamBackend backend : backends.all()) {
+            routes.add(new Route(backend, meterRegistry));
+        }
+    }
+
+    @Override
+    public Mono<OpenAiApiResponse> filter(OpenAiApiRequest request, UpstreamExchange next) {
+        return Mono.defer(() -> {
+            Route route = choose(now());
+            route.outstanding.incrementAndGet();
+            route.requests.increment();
+            long start = System.nanoTime();
+            return next.exchange(request)
+                    .contextWrite(AiRequestContext.withUpstreamBackend(route.backend))
+                    .doOnSuccess(response -> {
+                        route.recordLatency(System.nanoTime() - start, properties.getEwmaWeight());
+                        route.consecutiveFailures.set(0);
+                    })
+                    .doOnError(error -> failed(route, error))
+                    .doFinally(signal -> route.outstanding.decrementAndGet());
+        });
+    }
+
+    // Latency is left alone: how long a stream runs says nothing about how fast the backend answers
+    @Override
+    public Flux<OpenAiStreamChunk> filterStream(OpenAiApiRequest request, UpstreamStreamExchange next) {
+        return Flux.defer(() -> {
+            Route route = choose(now());
+            route.outstanding.incrementAndGet();
+            route.requests.increment();
+            return next.exchange(request)
+                    .contextWrite(AiRequestContext.withUpstreamBackend(route.backend))
+                    .doOnComplete(() -> route.consecutiveFailures.set(0))
+                    .doOnError(error -> failed(route, error))
+                    .doFinally(signal -> route.outstanding.decrementAndGet());
+        });
+    }
+
+    private Route choose(long nowMillis) {
+        List<Route> healthy = new ArrayList<>(routes.size());
+        for (Route route : routes) {
+            if (route.ejectedUntilMillis <= nowMillis) {
+                healthy.add(route);
+            }
+        }
+        if (healthy.isEmpty()) {
+            Route soonestBack = routes.get(0);
+            for (Route route : routes) {
+                if (route.ejectedUntilMillis < soonestBack.ejectedUntilMillis) {
+                    soonestBack = route;
+                }
+            }
+            return soonestBack;
+        }
+        if (healthy.size() == 1) {
+            return healthy.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(healthy.size());
+        int second = random.nextInt(healthy.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        Route a = healthy.get(first);
+        Route b = healthy.get(second);
+        return isBetter(b, a) ? b : a;
+    }
+
+    /*
+     * Latency-weighted only when both have a latency sample: an EWMA of 0 means "no sample yet",
+     * and scoring that as 0 would send every call to a backend that has not answered once (or to
+     * either, for stream-only traffic), however many calls it already holds.
+     */
+    private boolean isBetter(Route candidate, Route other) {
+        int candidateOutstanding = candidate.outstanding.get();
+        int otherOutstanding = other.outstanding.get();
+        if (properties.getStrategy() == RoutingProperties.Strategy.EWMA_LATENCY
+                && candidate.ewmaLatencyNanos > 0 && other.ewmaLatencyNanos > 0) {
+            return candidate.ewmaLatencyNanos * (candidateOutstanding + 1) < other.ewmaLatencyNanos * (otherOutstanding + 1);
+        }
+        return candidateOutstanding < otherOutstanding;
+    }
+
+    // Errors that are the request's own fault (400, ...) say the backend is up
+    private void failed(Route route, Throwable error) {
+        if (!UpstreamErrors.isRetryable(error)) {
+            route.consecutiveFailures.set(0);
+        } else if (route.consecutiveFailures.incrementAndGet() >= properties.getEjectionThreshold()) {
+            route.consecutiveFailures.set(0);
+            eject(route, UpstreamErrors.retryAfter(error).orElse(Duration.ZERO));
+        }
+    }
+
+    // Sit out for the ejection period, or as long as the backend asked us to back off
+    private void eject(Route route, Duration retryAfter) {
+        Duration ejection = retryAfter.compareTo(properties.getEjectionDuration()) > 0 ? retryAfter : properties.getEjectionDuration();
+        route.ejectedUntilMillis = now() + ejection.toMillis();
+        route.ejections.increment();
+        logger.warn("Ejecting upstream backend '{}' for {} s.", route.backend.id(), ejection.toSeconds());
+    }
+
+    // Follows the Reactor scheduler clock so virtual time in tests moves ejections too
+    private static long now() {
+        return Schedulers.parallel().now(TimeUnit.MILLISECONDS);
+    }
+
+    private static final class Route {
+
+        private final UpstreamBackend backend;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private volatile double ewmaLatencyNanos;
+        private volatile long ejectedUntilMillis;
+
+        private final Counter requests;
+        private final Counter ejections;
+
+        Route(UpstreamBackend backend, MeterRegistry meterRegistry) {
+            this.backend = backend;
+            this.requests = meterRegistry.counter("ai.upstream.backend.requests", "backend", backend.id());
+            this.ejections = meterRegistry.counter("ai.upstream.backend.ejections", "backend", backend.id());
+            Gauge.builder("ai.upstream.backend.outstanding", outstanding, AtomicInteger::get)
+                    .tag("backend", backend.id())
+                    .register(meterRegistry);
+        }
+
+        synchronized void recordLatency(long nanos, double weight) {
+            ewmaLatencyNanos = ewmaLatencyNanos == 0 ? nanos : ewmaLatencyNanos + weight * (nanos - ewmaLatencyNanos);
+        }
+    }
+}
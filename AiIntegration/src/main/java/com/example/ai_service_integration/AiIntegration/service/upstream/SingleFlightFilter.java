@@ -0,0 +1,89 @@
+package com.example.ai_service_integration.AiIntegration.service.upstream;
+
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiResponse;
+import com.example.ai_service_integration.AiIntegration.service.AiRequestContext;
+import com.example.ai_service_integration.AiIntegration.service.tracing.RequestTrace;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Coalesces concurrent identical requests into a single upstream call. Every caller subscribes to
+ * the same shared flight; the upstream call is only cancelled once all of them have cancelled.
+ * A flight is forgotten as soon as it signals, so neither results nor errors outlive it.
+ * <p>
+ * The flight runs under a context of its own rather than its first caller's: no deadline, backend
+ * choice or response metadata of one request leaks into the others, and the upstream call carries
+ * the flight's correlation id. Each caller's deadline still applies to that caller alone, from
+ * {@link DeadlineFilter} outside this filter, and each sampled caller gets the flight's spans.
+ */
+@Component
+@Order(UpstreamFilterOrder.SINGLE_FLIGHT)
+@ConditionalOnProperty(name = "openai.single-flight.enabled", havingValue = "true", matchIfMissing = true)
+public class SingleFlightFilter implements UpstreamFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SingleFlightFilter.class);
+
+    private final ConcurrentMap<OpenAiApiRequest, Flight> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter coalesced;
+
+    public SingleFlightFilter(MeterRegistry meterRegistry) {
+        this.coalesced = meterRegistry.counter("ai.upstream.coalesced");
+    }
+
+    @Override
+    public Mono<OpenAiApiResponse> filter(OpenAiApiRequest request, UpstreamExchange next) {
+        return Mono.deferContextual(context -> {
+            RequestTrace trace = AiRequestContext.getTrace(context);
+            Flight existing = inFlight.get(request);
+            if (existing == null) {
+                Flight started = new Flight(request, next, trace.isSampled());
+                existing = inFlight.putIfAbsent(request, started);
+                if (existing == null) {
+                    logger.debug("Request {} starts upstream call {}.", trace.id(), started.trace.id());
+                    return started.join(trace);
+                }
+            }
+            coalesced.increment();
+            logger.debug("Request {} joins in-flight upstream call {} for an identical request.", trace.id(), existing.trace.id());
+            return existing.join(trace);
+        });
+    }
+
+    private final class Flight {
+
+        private final RequestTrace trace; // The shared call's spans, copied into each sampled caller's trace
+        private final Mono<OpenAiApiResponse> shared;
+
+        Flight(OpenAiApiRequest request, UpstreamExchange next, boolean sampled) {
+            this.trace = new RequestTrace(RequestTrace.newId(), sampled);
+            // replay(1) covers callers that join between the value and completion signals;
+            // refCount(1) cancels upstream only when the last caller goes away
+            this.shared = Mono.fromDirect(Flux.from(Mono.defer(() -> next.exchange(request)))
+                    .contextWrite(context -> AiRequestContext.forSharedCall(context, trace))
+                    .doOnEach(signal -> inFlight.remove(request, this))
+                    .doOnCancel(() -> inFlight.remove(request, this))
+                    .replay(1)
+                    .refCount(1));
+        }
+
+        Mono<OpenAiApiResponse> join(RequestTrace caller) {
+            return shared.doOnEach(signal -> {
+                if (signal.isOnNext() || signal.isOnError()) {
+                    caller.include(trace);
+                }
+            });
+        }
+    }
+}
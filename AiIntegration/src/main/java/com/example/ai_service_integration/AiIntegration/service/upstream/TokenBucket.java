@@ -0,0 +1,44 @@
+package com.example.ai_service_integration.AiIntegration.service.upstream;
+
+/**
+ * Token bucket refilled continuously at {@code capacity} permits per period. The balance may go
+ * negative: a caller that reserves more than is available takes on debt and waits it off, which
+ * makes the bucket a FIFO queue without keeping one. Not thread-safe; guarded by its owner.
+ */
+final class TokenBucket {
+
+    private final long capacity;
+    private final double permitsPerNano;
+    private double available;
+    private long lastRefillNanos;
+
+    TokenBucket(long capacity, long periodNanos, long nowNanos) {
+        this.capacity = capacity;
+        this.permitsPerNano = (double) capacity / periodNanos;
+        this.available = capacity;
+        this.lastRefillNanos = nowNanos;
+    }
+
+    /** Time until {@code permits} could be taken without going into debt (0 if they can now). */
+    long nanosUntilAvailable(long permits, long nowNanos) {
+        refill(nowNanos);
+        // A reservation larger than the bucket only ever needs a full bucket
+        double missing = Math.min(permits, capacity) - available;
+        return missing <= 0 ? 0 : (long) Math.ceil(missing / permitsPerNano);
+    }
+
+    void take(long permits) {
+        available -= permits;
+    }
+
+    void give(long permits) {
+        available = Math.min(capacity, available + permits);
+    }
+
+    private void refill(long nowNanos) {
+        if (nowNanos > lastRefillNanos) {
+            available = Math.min(capacity, available + (nowNanos - lastRefillNanos) * permitsPerNano);
+            lastRefillNanos = nowNanos;
+        }
+    }
+}
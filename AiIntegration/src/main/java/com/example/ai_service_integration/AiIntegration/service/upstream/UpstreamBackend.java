@@ -0,0 +1,9 @@
+package com.example.ai_service_integration.AiIntegration.service.upstream;
+
+import org.springframework.web.reactive.function.client.WebClient;
+
+/**
+ * One endpoint/API key pair upstream calls can be sent to.
+ */
+public record UpstreamBackend(String id, WebClient webClient) {
+}
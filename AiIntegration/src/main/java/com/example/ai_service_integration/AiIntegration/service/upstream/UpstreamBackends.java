@@ -0,0 +1,28 @@
+package com.example.ai_service_integration.AiIntegration.service.upstream;
+
+import com.example.ai_service_integration.AiIntegration.service.AiRequestContext;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Every configured upstream backend; the first one is the default {@code openai.api} backend.
+ */
+public record UpstreamBackends(List<UpstreamBackend> all) {
+
+    // Pools, health and rate limits are all kept by id, so two backends may not share one
+    public UpstreamBackends {
+        all = List.copyOf(all);
+        Set<String> ids = new HashSet<>();
+        for (UpstreamBackend backend : all) {
+            if (backend.id() == null || backend.id().isBlank()) {
+                throw new IllegalArgumentException("Every upstream backend needs an id (openai.routing.backends[].id)");
+            }
+            if (!ids.add(backend.id())) {
+                throw new IllegalArgumentException("Duplicate upstream backend id '" + backend.id()
+                        + "' (openai.routing.backends; '" + AiRequestContext.DEFAULT_API_KEY_ID + "' is openai.api)");
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.ai_service_integration.AiIntegration.service.upstream;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Classification of the raw errors of an upstream call, shared by the filters that react to them.
+ */
+public final class UpstreamErrors {
+
+    private static final String RETRY_AFTER_MS = "retry-after-ms"; // Millisecond variant sent by OpenAI and Azure
+
+    private UpstreamErrors() {
+    }
+
+    /** Throttling (429), server errors (5xx) and failures to reach the server at all. */
+    public static boolean isRetryable(Throwable error) {
+        return isServerFailure(error)
+                || error instanceof WebClientResponseException response && response.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value();
+    }
+
+    /** Failures that say the upstream is unhealthy, as opposed to rejecting this particular request. */
+    public static boolean isServerFailure(Throwable error) {
+        return error instanceof WebClientRequestException || error instanceof UpstreamTimeoutException
+                || error instanceof WebClientResponseException response && response.getStatusCode().is5xxServerError();
+    }
+
+    /** How long the server asked us to wait, from {@code retry-after-ms} or {@code Retry-After} (seconds or HTTP date). */
+    public static Optional<Duration> retryAfter(Throwable error) {
+        if (!(error instanceof WebClientResponseException response)) {
+            return Optional.empty();
+        }
+        HttpHeaders headers = response.getHeaders();
+        try {
+            String millis = headers.getFirst(RETRY_AFTER_MS);
+            if (millis != null) {
+                return Optional.of(Duration.ofMillis((long) Double.parseDouble(millis.trim())));
+            }
+            String value = headers.getFirst(HttpHeaders.RETRY_AFTER);
+            if (value == null) {
+                return Optional.empty();
+            }
+            if (value.trim().chars().allMatch(Character::isDigit)) {
+                return Optional.of(Duration.ofSeconds(Long.parseLong(value.trim())));
+            }
+            long untilMillis = headers.getFirstDate(HttpHeaders.RETRY_AFTER) - System.currentTimeMillis();
+            return Optional.of(Duration.ofMillis(Math.max(0, untilMillis)));
+        } catch (IllegalArgumentException e) { // Unparseable hint: fall back to our own backoff
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.ai_service_integration.AiIntegration.service.upstream;
+
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * One step of the upstream call: either the next {@link UpstreamFilter} or the HTTP call itself.
+ */
+@FunctionalInterface
+public interface UpstreamExchange {
+    Mono<OpenAiApiResponse> exchange(OpenAiApiRequest request);
+}
@@ -0,0 +1,27 @@
+package com.example.ai_service_integration.AiIntegration.service.upstream;
+
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiResponse;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiStreamChunk;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Interceptor around the raw OpenAI call made by {@code OpenAiServiceImpl}. Filters are Spring
+ * beans ordered with {@link org.springframework.core.annotation.Order} (see {@link UpstreamFilterOrder});
+ * lower values run further from the wire. Filters see the upstream errors unwrapped, before the
+ * service maps them for its callers.
+ */
+public interface UpstreamFilter {
+
+    Mono<OpenAiApiResponse> filter(OpenAiApiRequest request, UpstreamExchange next);
+
+    /**
+     * The same for a streamed call. Streams pass untouched unless a filter overrides this: a stream
+     * cannot be shared, hedged or replayed once chunks have reached the client, and its duration
+     * says nothing about how long a complete answer takes.
+     */
+    default Flux<OpenAiStreamChunk> filterStream(OpenAiApiRequest request, UpstreamStreamExchange next) {
+        return next.exchange(request);
+    }
+}
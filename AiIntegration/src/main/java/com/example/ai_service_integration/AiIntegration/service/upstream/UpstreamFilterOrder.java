@@ -0,0 +1,23 @@
+package com.example.ai_service_integration.AiIntegration.service.upstream;
+
+/**
+ * Positions of the built-in {@link UpstreamFilter}s, outermost first.
+ */
+public final class UpstreamFilterOrder {
+
+    public static final int MODEL_ROUTING = 80;
+    public static final int PROMPT_BUDGET = 100;
+    public static final int DEADLINE = 150;
+    public static final int SINGLE_FLIGHT = 200;
+    public static final int CIRCUIT_BREAKER = 300;
+    public static final int RETRY = 400;
+    public static final int ATTEMPT_TIMEOUT = 450;
+    public static final int HEDGING = 500;
+    public static final int ROUTING = 600;
+    public static final int RATE_LIMIT = 700;
+    public static final int UPSTREAM_METRICS = 800;
+    public static final int LATENCY_TRACKING = 900;
+
+    private UpstreamFilterOrder() {
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.ai_service_integration.AiIntegration.service.upstream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Recent upstream latencies per model, kept in a fixed-size sliding window so percentiles
+ * follow the current behaviour of the API rather than its all-time history. Next to the plain
+ * latencies it keeps how long calls took for how many completion tokens, so the latency of a
+ * call can be predicted from the size of the answer it asks for.
+ */
+@Component
+public class UpstreamLatencyTracker {
+
+    private final int windowSize;
+    private final ConcurrentMap<String, Window> windows = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, TokenWindow> tokenWindows = new ConcurrentHashMap<>();
+
+    public UpstreamLatencyTracker(@Value("${openai.latency.window-size:1000}") int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    public void record(String model, Duration latency) {
+        windows.computeIfAbsent(model, key -> new Window(windowSize)).record(latency.toNanos());
+    }
+
+    /**
+     * The given percentile (0-1) of the recent latencies of {@code model}, or empty while fewer
+     * than {@code minSamples} calls have been seen.
+     */
+    public Optional<Duration> percentile(String model, double percentile, int minSamples) {
+        Window window = windows.get(model);
+        return window == null ? Optional.empty() : window.percentile(percentile, minSamples);
+    }
+
+    public void record(String model, Duration latency, int completionTokens) {
+        record(model, latency);
+        tokenWindows.computeIfAbsent(model, key -> new TokenWindow(windowSize)).record(completionTokens, latency.toNanos());
+    }
+
+    /**
+     * Latency that the given percentile (0-1) of recent calls of {@code model} would have stayed
+     * within, had they generated {@code completionTokens} tokens; empty while fewer than
+     * {@code minSamples} calls with a known token count have been seen.
+     */
+    public Optional<Duration> predict(String model, int completionTokens, double percentile, int minSamples) {
+        TokenWindow window = tokenWindows.get(model);
+        return window == null ? Optional.empty() : window.predict(completionTokens, percentile, minSamples);
+    }
+
+    private static final class Window {
+
+        // Re-sort after this many new samples; percentiles are read far more often than they move
+        private static final int RESORT_EVERY = 16;
+
+        private final long[] samples;
+        private int next;
+        private int count;
+        private long[] sorted = new long[0];
+        private int unsorted;
+
+        Window(int size) {
+            this.samples = new long[size];
+        }
+
+        synchronized void record(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+            unsorted++;
+        }
+
+        synchronized Optional<Duration> percentile(double percentile, int minSamples) {
+            if (count == 0 || count < minSamples) {
+                return Optional.empty();
+            }
+            if (unsorted >= RESORT_EVERY || sorted.length == 0) {
+                sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                unsorted = 0;
+            }
+            return Optional.of(Duration.ofNanos(at(sorted, percentile)));
+        }
+    }
+
+    /**
+     * Latency as a straight line over completion tokens (time to start plus time per token),
+     * fitted by least squares, plus how far calls landed above the line. The fit is redone
+     * every {@link Window#RESORT_EVERY} samples.
+     */
+    private static final class TokenWindow {
+
+        private final int[] tokens;
+        private final long[] nanos;
+        private int next;
+        private int count;
+        private int unfitted;
+
+        private double intercept;
+        private double slope;
+        private long[] residuals = new long[0]; // Sorted
+
+        TokenWindow(int size) {
+            this.tokens = new int[size];
+            this.nanos = new long[size];
+        }
+
+        synchronized void record(int completionTokens, long latencyNanos) {
+            tokens[next] = completionTokens;
+            nanos[next] = latencyNanos;
+            next = (next + 1) % tokens.length;
+            count = Math.min(count + 1, tokens.length);
+            unfitted++;
+        }
+
+        synchronized Optional<Duration> predict(int completionTokens, double percentile, int minSamples) {
+            if (count == 0 || count < minSamples) {
+                return Optional.empty();
+            }
+            if (unfitted >= Window.RESORT_EVERY || residuals.length == 0) {
+                fit();
+            }
+            double predicted = intercept + slope * completionTokens + at(residuals, percentile);
+            return Optional.of(Duration.ofNanos(Math.max(0, (long) predicted)));
+        }
+
+        private void fit() {
+            double meanTokens = 0;
+            double meanNanos = 0;
+            for (int i = 0; i < count; i++) {
+                meanTokens += tokens[i];
+                meanNanos += nanos[i];
+            }
+            meanTokens /= count;
+            meanNanos /= count;
+            double covariance = 0;
+            double variance = 0;
+            for (int i = 0; i < count; i++) {
+                covariance += (tokens[i] - meanTokens) * (nanos[i] - meanNanos);
+                variance += (tokens[i] - meanTokens) * (tokens[i] - meanTokens);
+            }
+            // All answers the same size, or longer ones somehow faster: fall back to a flat line
+            slope = variance > 0 ? Math.max(0, covariance / variance) : 0;
+            intercept = meanNanos - slope * meanTokens;
+            residuals = new long[count];
+            for (int i = 0; i < count; i++) {
+                residuals[i] = (long) (nanos[i] - (intercept + slope * tokens[i]));
+            }
+            Arrays.sort(residuals);
+            unfitted = 0;
+        }
+    }
+
+    private static long at(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.ai_service_integration.AiIntegration.service.upstream;
+
+import com.example.ai_service_integration.AiIntegration.config.PricingProperties;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiResponse;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiStreamChunk;
+import com.example.ai_service_integration.AiIntegration.service.metrics.AiMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters every call that actually goes over the wire (retries and hedges each count, coalesced
+ * callers do not): latency by model and outcome, the tokens OpenAI billed and what they cost,
+ * and why each completion finished. Streams are timed until they end.
+ */
+@Component
+@Order(UpstreamFilterOrder.UPSTREAM_METRICS)
+public class UpstreamMetricsFilter implements UpstreamFilter {
+
+    private final MeterRegistry meterRegistry;
+    private final PricingProperties pricing;
+
+    public UpstreamMetricsFilter(MeterRegistry meterRegistry, PricingProperties pricing) {
+        this.meterRegistry = meterRegistry;
+        this.pricing = pricing;
+    }
+
+    @Override
+    public Mono<OpenAiApiResponse> filter(OpenAiApiRequest request, UpstreamExchange next) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            String model = AiMetrics.tagValue(request.getModel());
+            return next.exchange(request)
+                    .doOnSuccess(response -> {
+                        record(model, "success", start);
+                        if (response != null) {
+                            recordUsage(request.getModel(), response);
+                        }
+                    })
+                    .doOnError(error -> record(model, outcome(error), start))
+                    .doOnCancel(() -> record(model, "cancelled", start));
+        });
+    }
+
+    // Streams run as long as the answer takes to generate, so they get a timer of their own
+    @Override
+    public Flux<OpenAiStreamChunk> filterStream(OpenAiApiRequest request, UpstreamStreamExchange next) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            String model = AiMetrics.tagValue(request.getModel());
+            return next.exchange(request)
+                    .doOnComplete(() -> record(AiMetrics.UPSTREAM_STREAM_LATENCY, model, "success", start))
+                    .doOnError(error -> record(AiMetrics.UPSTREAM_STREAM_LATENCY, model, outcome(error), start))
+                    .doOnCancel(() -> record(AiMetrics.UPSTREAM_STREAM_LATENCY, model, "cancelled", start));
+        });
+    }
+
+    private void record(String model, String outcome, long start) {
+        record(AiMetrics.UPSTREAM_LATENCY, model, outcome, start);
+    }
+
+    private void record(String timer, String model, String outcome, long start) {
+        AiMetrics.latencyTimer(meterRegistry, timer, model, outcome)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private void recordUsage(String requestedModel, OpenAiApiResponse response) {
+        String model = AiMetrics.tagValue(requestedModel);
+        OpenAiApiResponse.Usage usage = response.getUsage();
+        if (usage != null) {
+            meterRegistry.counter(AiMetrics.TOKENS, "model", model, "type", "prompt").increment(usage.getPrompt_tokens());
+            meterRegistry.counter(AiMetrics.TOKENS, "model", model, "type", "completion").increment(usage.getCompletion_tokens());
+            meterRegistry.counter(AiMetrics.TOKENS, "model", model, "type", "total").increment(usage.getTotal_tokens());
+            double cost = pricing.costOf(requestedModel, usage.getPrompt_tokens(), usage.getCompletion_tokens());
+            if (cost > 0) {
+                Counter.builder(AiMetrics.COST).tag("model", model).baseUnit("usd").register(meterRegistry).increment(cost);
+            }
+        }
+        if (response.getChoices() != null) {
+            for (OpenAiApiResponse.Choice choice : response.getChoices()) {
+                AiMetrics.countFinishReason(meterRegistry, model, choice.getFinish_reason());
+            }
+        }
+    }
+
+    private static String outcome(Throwable error) {
+        if (error instanceof WebClientResponseException response) {
+            int status = response.getStatusCode().value();
+            return status == 429 ? "throttled" : response.getStatusCode().is5xxServerError() ? "server_error" : "client_error";
+        }
+        return error instanceof WebClientRequestException ? "connection_error" : "error";
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.ai_service_integration.AiIntegration.service.upstream;
+
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiStreamChunk;
+import reactor.core.publisher.Flux;
+
+/**
+ * One step of a streamed upstream call: either the next {@link UpstreamFilter} or the HTTP call
+ * itself, whose answer arrives as chunks until the stream ends.
+ */
+@FunctionalInterface
+public interface UpstreamStreamExchange {
+    Flux<OpenAiStreamChunk> exchange(OpenAiApiRequest request);
+}
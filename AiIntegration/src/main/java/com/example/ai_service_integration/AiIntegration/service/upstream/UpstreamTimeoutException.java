@@ -0,0 +1,14 @@
+package com.example.ai_service_integration.AiIntegration.service.upstream;
+
+import java.time.Duration;
+
+/**
+ * An upstream call that did not answer within the deadline chosen for it. Counts as a server
+ * failure: it is retried, and trips the circuit breaker like any other sign of a sick upstream.
+ */
+public class UpstreamTimeoutException extends RuntimeException {
+
+    public UpstreamTimeoutException(String model, Duration timeout) {
+        super("OpenAI API did not answer for model " + model + " within " + timeout.toMillis() + " ms");
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.ai_service_integration.AiIntegration.service.upstream;
+
+import com.example.ai_service_integration.AiIntegration.config.RoutingProperties;
+import com.example.ai_service_integration.AiIntegration.config.WarmupProperties;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiResponse;
+import com.example.ai_service_integration.AiIntegration.service.codec.OpenAiRequestEncoder;
+import com.example.ai_service_integration.AiIntegration.service.codec.OpenAiResponseDecoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gets the service ready for its first requests before it says it is ready: opens
+ * {@code connections} pooled connections to {@code openai.api.url}, and to every
+ * {@code openai.routing.backends} entry when routing is on, all at once, so the first burst
+ * of traffic does not pay for DNS, TCP and TLS handshakes, and runs the request and response codecs
+ * until the JIT has seen them. Application runners finish before Spring Boot turns readiness to
+ * ACCEPTING_TRAFFIC, so the readiness probe stays red until this is done or has timed out.
+ * <p>
+ * Anything going wrong here is logged and otherwise ignored; a cold start beats no start.
+ */
+@Component
+@ConditionalOnProperty(name = "openai.warmup.enabled", havingValue = "true", matchIfMissing = true)
+public class UpstreamWarmup implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamWarmup.class);
+
+    private static final String SAMPLE_RESPONSE = "{\"id\":\"chatcmpl-warmup\",\"object\":\"chat.completion\","
+            + "\"created\":0,\"model\":\"warmup\",\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\","
+            + "\"content\":\"Warming up.\"},\"finish_reason\":\"stop\"}],"
+            + "\"usage\":{\"prompt_tokens\":3,\"completion_tokens\":3,\"total_tokens\":6}}";
+
+    private final WarmupProperties properties;
+    private final List<UpstreamBackend> backends; // The ones calls can be sent to
+    private final ObjectMapper objectMapper;
+
+    public UpstreamWarmup(WarmupProperties properties, UpstreamBackends backends, RoutingProperties routingProperties,
+                          ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.backends = routingProperties.isEnabled() ? backends.all() : backends.all().subList(0, 1);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.nanoTime();
+        try {
+            exerciseCodecs();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Codec warm-up failed: {}", e.toString());
+        }
+        long opened = openConnections();
+        long wanted = (long) properties.getConnections() * backends.size();
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (opened < wanted) {
+            logger.warn("Warm-up done in {} ms, but only {} of {} upstream connections could be opened.",
+                    millis, opened, wanted);
+        } else {
+            logger.info("Warm-up done in {} ms: {} upstream connections open.", millis, opened);
+        }
+    }
+
+    /**
+     * Opens {@code connections} connections to each backend in use and returns how many are up.
+     * All requests go out at once, so each takes its own connection; any answer, even an error
+     * status, means the connection is up and goes back to the pool for keeps. Each request gets
+     * {@code timeout}, so the connections that did open are counted even when others hang.
+     */
+    public long openConnections() {
+        int count = properties.getConnections();
+        return Flux.fromIterable(backends)
+                .flatMap(backend -> Flux.range(0, count).map(i -> backend))
+                .flatMap(backend -> backend.webClient().head()
+                        .retrieve()
+                        .toBodilessEntity()
+                        .thenReturn(true)
+                        .timeout(properties.getTimeout())
+                        .onErrorResume(WebClientResponseException.class, e -> Mono.just(true))
+                        .onErrorResume(e -> {
+                            logger.debug("Could not open a connection to upstream backend '{}' during warm-up: {}",
+                                    backend.id(), e.toString());
+                            return Mono.just(false);
+                        }), Math.max(1, count * backends.size()))
+                .filter(Boolean::booleanValue)
+                .count()
+                .blockOptional()
+                .orElse(0L);
+    }
+
+    // Both the Jackson and the compact codecs, whichever openai.http.compact-codec picked
+    private void exerciseCodecs() throws IOException {
+        OpenAiRequestEncoder encoder = new OpenAiRequestEncoder();
+        OpenAiResponseDecoder decoder = new OpenAiResponseDecoder();
+        ResolvableType requestType = ResolvableType.forClass(OpenAiApiRequest.class);
+        ResolvableType responseType = ResolvableType.forClass(OpenAiApiResponse.class);
+        OpenAiApiRequest request = OpenAiApiRequest.builder()
+                .model("warmup")
+                .messages(List.of(OpenAiApiRequest.Message.builder().role("user").content("Warm \"up\"\n").build()))
+                .max_tokens(16)
+                .temperature(0.7)
+                .build();
+        for (int i = 0; i < properties.getCodecRounds(); i++) {
+            objectMapper.writeValueAsBytes(request);
+            objectMapper.readValue(SAMPLE_RESPONSE, OpenAiApiResponse.class);
+
+            DataBuffer encoded = encoder.encodeValue(request, DefaultDataBufferFactory.sharedInstance,
+                    requestType, MediaType.APPLICATION_JSON, null);
+            DataBufferUtils.release(encoded);
+            DataBuffer response = DefaultDataBufferFactory.sharedInstance.wrap(SAMPLE_RESPONSE.getBytes(StandardCharsets.UTF_8));
+            decoder.decode(response, responseType, MediaType.APPLICATION_JSON, null);
+        }
+    }
+}
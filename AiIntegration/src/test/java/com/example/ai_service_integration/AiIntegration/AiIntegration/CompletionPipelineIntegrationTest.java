@@ -0,0 +1,263 @@
+package com.example.ai_service_integration.AiIntegration.AiIntegration;
+
+import com.example.ai_service_integration.AiIntegration.AiIntegration.support.FakeOpenAiServer;
+import com.example.ai_service_integration.AiIntegration.AiIntegration.support.LatencyProfile;
+import com.example.ai_service_integration.AiIntegration.AiIntegration.support.LoadGenerator;
+import com.example.ai_service_integration.AiIntegration.dto.CompletionChunk;
+import com.example.ai_service_integration.AiIntegration.dto.CompletionRequest;
+import com.example.ai_service_integration.AiIntegration.service.AiRequestContext;
+import com.example.ai_service_integration.AiIntegration.service.OpenAiServiceImpl;
+import com.example.ai_service_integration.AiIntegration.service.metrics.AiMetrics;
+import com.example.ai_service_integration.AiIntegration.service.tracing.RequestTrace;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.ByteBufFlux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.HttpClientResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The whole application, over real HTTP, against the in-process OpenAI stand-in
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class CompletionPipelineIntegrationTest {
+
+    private static final FakeOpenAiServer fakeOpenAi = FakeOpenAiServer.builder()
+            .latency(LatencyProfile.uniform(Duration.ofMillis(5), Duration.ofMillis(30)))
+            .streaming(5, Duration.ofMillis(20))
+            .compress(0)
+            .start();
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private OpenAiServiceImpl openAiService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @LocalServerPort
+    private int port;
+
+    @DynamicPropertySource
+    static void upstream(DynamicPropertyRegistry registry) {
+        registry.add("openai.api.url", fakeOpenAi::url);
+        registry.add("openai.retry.initial-backoff", () -> "10ms");
+        registry.add("openai.warmup.enabled", () -> "false");
+        registry.add("server.compression.min-response-size", () -> "64B");
+        registry.add("openai.compression.max-inflated-request-size", () -> "64KB");
+    }
+
+    @AfterAll
+    static void stopUpstream() {
+        fakeOpenAi.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        fakeOpenAi.failNext(0, 0);
+    }
+
+    @Test
+    void complete_ReturnsUpstreamCompletion() {
+        webTestClient.post().uri("/api/ai/complete")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new CompletionRequest("Integration prompt"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.completion").value(completion ->
+                        assertTrue(((String) completion).startsWith("This is a fake completion.")))
+                .jsonPath("$.model").isEqualTo("gpt-3.5-turbo");
+    }
+
+    @Test
+    void complete_RetriesInjectedServerError() {
+        int before = fakeOpenAi.requestCount();
+        fakeOpenAi.failNext(1, 503);
+
+        webTestClient.post().uri("/api/ai/complete")
+                .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new CompletionRequest("Retried prompt"))
+                .exchange()
+                .expectStatus().isOk();
+
+        assertEquals(2, fakeOpenAi.requestCount() - before);
+    }
+
+    @Test
+    void complete_PersistentThrottlingIsReportedAs429WithRetryAfter() {
+        fakeOpenAi.failNext(3, 429);
+
+        webTestClient.post().uri("/api/ai/complete")
+                .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new CompletionRequest("Throttled prompt"))
+                .exchange()
+                .expectStatus().isEqualTo(429)
+                .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "1");
+    }
+
+    @Test
+    void complete_EchoesTheRequestId() {
+        webTestClient.post().uri("/api/ai/complete")
+                .header("X-Request-Id", "integration-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new CompletionRequest("Correlated prompt"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("X-Request-Id", "integration-1");
+    }
+
+    @Test
+    void complete_SampledTraceHasEveryUpstreamPhase() {
+        RequestTrace trace = new RequestTrace("integration-2", true);
+
+        openAiService.getAiCompletion("Traced prompt")
+                .contextWrite(AiRequestContext.withTrace(trace))
+                .block(Duration.ofSeconds(10));
+
+        List<String> spans = trace.spans().stream().map(RequestTrace.Span::name).toList();
+        assertEquals(List.of("upstream.connect", "upstream.first-byte", "upstream.decode"), spans, trace::format);
+    }
+
+    @Test
+    void complete_RejectsGzipBodiesThatInflatePastTheLimit() throws IOException {
+        int before = fakeOpenAi.requestCount();
+        byte[] bomb = gzip("{\"prompt\":\"" + " ".repeat(128 * 1024) + "\"}"); // Within the codec limit, past ours
+
+        Integer status = HttpClient.create()
+                .headers(headers -> headers.set(HttpHeaders.CONTENT_ENCODING, "gzip")
+                        .set(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE))
+                .post()
+                .uri("http://127.0.0.1:" + port + "/api/ai/complete")
+                .send(ByteBufFlux.fromInbound(Mono.just(bomb)))
+                .responseSingle((head, content) -> Mono.just(head.status().code()))
+                .block(Duration.ofSeconds(10));
+
+        assertTrue(bomb.length < 1024, "sent " + bomb.length);
+        assertEquals(413, status);
+        assertEquals(before, fakeOpenAi.requestCount());
+    }
+
+    @Test
+    void complete_InflatesGzipRequestsAndCompressesAnswersForClientsThatAsk() throws IOException {
+        double requestWire = bytes("client", "request", "wire");
+        double requestContent = bytes("client", "request", "content");
+        double responseWire = bytes("client", "response", "wire");
+        double responseContent = bytes("client", "response", "content");
+        String json = "{\"prompt\":\"Compressed prompt\"}";
+        byte[] request = gzip(json);
+
+        // Plain Reactor Netty client: WebClient's default connector would inflate the answer itself
+        HttpClientResponse[] response = new HttpClientResponse[1];
+        byte[] body = HttpClient.create()
+                .headers(headers -> headers.set(HttpHeaders.CONTENT_ENCODING, "gzip")
+                        .set(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                        .set(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE))
+                .post()
+                .uri("http://127.0.0.1:" + port + "/api/ai/complete")
+                .send(ByteBufFlux.fromInbound(Mono.just(request)))
+                .responseSingle((head, content) -> {
+                    response[0] = head;
+                    return content.asByteArray();
+                })
+                .block(Duration.ofSeconds(10));
+
+        assertEquals(200, response[0].status().code());
+        assertEquals("gzip", response[0].responseHeaders().get(HttpHeaders.CONTENT_ENCODING));
+        String answer = gunzip(body);
+        assertTrue(answer.contains("This is a fake completion."), answer);
+        assertEquals(request.length, bytes("client", "request", "wire") - requestWire);
+        assertEquals(json.length(), bytes("client", "request", "content") - requestContent);
+        assertEquals(body.length, bytes("client", "response", "wire") - responseWire);
+        assertEquals(answer.length(), bytes("client", "response", "content") - responseContent);
+    }
+
+    @Test
+    void complete_UpstreamAnswersArriveCompressed() {
+        double wire = bytes("upstream", "response", "wire");
+        double content = bytes("upstream", "response", "content");
+
+        webTestClient.post().uri("/api/ai/complete")
+                .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new CompletionRequest("Prompt answered in gzip"))
+                .exchange()
+                .expectStatus().isOk();
+
+        double wireDelta = bytes("upstream", "response", "wire") - wire;
+        double contentDelta = bytes("upstream", "response", "content") - content;
+        assertTrue(wireDelta > 0 && wireDelta < contentDelta, wireDelta + " wire vs. " + contentDelta + " content bytes");
+    }
+
+    @Test
+    void stream_DeliversSlowDripChunksAsTheyArrive() {
+        List<CompletionChunk> chunks = webTestClient.post().uri("/api/ai/complete/stream")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new CompletionRequest("Streamed prompt"))
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(CompletionChunk.class)
+                .getResponseBody()
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertEquals(6, chunks.size()); // Five content chunks and the finish chunk
+        assertEquals("stop", chunks.get(chunks.size() - 1).getFinishReason());
+    }
+
+    @Test
+    void load_SustainsTargetRateWithoutErrors() {
+        WebClient client = WebClient.create("http://127.0.0.1:" + port);
+        LoadGenerator load = new LoadGenerator(client, "/api/ai/complete",
+                index -> new CompletionRequest("Load prompt " + index), Duration.ofSeconds(5));
+
+        LoadGenerator.Report report = load.run(50, Duration.ofSeconds(2));
+
+        assertEquals(report.sent(), report.completed());
+        assertEquals(0.0, report.errorRate(), report::toString);
+        assertTrue(report.percentile(0.99).compareTo(Duration.ofSeconds(1)) < 0, report::toString);
+    }
+
+    private double bytes(String leg, String direction, String form) {
+        return meterRegistry.get(AiMetrics.HTTP_BYTES).tags("leg", leg, "direction", direction, "form", form).counter().count();
+    }
+
+    private static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String gunzip(byte[] compressed) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
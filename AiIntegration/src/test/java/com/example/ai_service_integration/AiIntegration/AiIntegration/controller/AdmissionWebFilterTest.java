@@ -0,0 +1,133 @@
+package com.example.ai_service_integration.AiIntegration.AiIntegration.controller;
+
+import com.example.ai_service_integration.AiIntegration.config.AdmissionProperties;
+import com.example.ai_service_integration.AiIntegration.controller.AdmissionWebFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AdmissionWebFilterTest {
+
+    private AdmissionWebFilter filter;
+
+    // Chain stub: counts requests that got through and never finishes, so slots stay taken
+    private final AtomicInteger admitted = new AtomicInteger();
+    private final WebFilterChain busyChain = exchange -> Mono.<Void>never().doOnSubscribe(s -> admitted.incrementAndGet());
+
+    @BeforeEach
+    void setUp() {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setEnabled(true);
+        properties.setMaxConcurrency(1);
+        properties.setMaxQueuePerTenant(1);
+        properties.getTenants().put("a", tenant("key-a"));
+        properties.getTenants().put("b", tenant("key-b"));
+        filter = new AdmissionWebFilter(properties, new ObjectMapper(), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void filter_Returns503WithRetryAfterWhenTheTenantQueueIsFull() {
+        filter.filter(exchange("key-a"), busyChain).subscribe();
+        filter.filter(exchange("key-a"), busyChain).subscribe();
+        MockServerWebExchange rejected = exchange("key-a");
+
+        StepVerifier.create(filter.filter(rejected, busyChain)).verifyComplete();
+
+        assertEquals(1, admitted.get());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.getResponse().getStatusCode());
+        assertEquals("1", rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertThat(rejected.getResponse().getBodyAsString().block(), containsString("Too many queued requests for tenant a"));
+    }
+
+    @Test
+    void filter_QueuesTenantsSeparately() {
+        filter.filter(exchange("key-a"), busyChain).subscribe();
+        filter.filter(exchange("key-a"), busyChain).subscribe();
+        MockServerWebExchange other = exchange("key-b");
+
+        filter.filter(other, busyChain).subscribe();
+
+        // Another tenant's request waits in its own queue instead of being turned away
+        assertNull(other.getResponse().getStatusCode());
+    }
+
+    @Test
+    void filter_UnknownKeysShareTheAnonymousQueue() {
+        filter.filter(exchange("key-a"), busyChain).subscribe();
+        filter.filter(exchange("made-up-1"), busyChain).subscribe();
+        MockServerWebExchange madeUp = exchange("made-up-2");
+        MockServerWebExchange tenantHeader = MockServerWebExchange.from(MockServerHttpRequest.post("/api/ai/complete")
+                .header("X-Tenant-Id", "b"));
+
+        StepVerifier.create(filter.filter(madeUp, busyChain)).verifyComplete();
+        StepVerifier.create(filter.filter(tenantHeader, busyChain)).verifyComplete();
+
+        // All land in the one anonymous queue, which holds a single request here
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, madeUp.getResponse().getStatusCode());
+        assertThat(madeUp.getResponse().getBodyAsString().block(), containsString("tenant anonymous"));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, tenantHeader.getResponse().getStatusCode());
+        MockServerWebExchange configured = exchange("key-b");
+        filter.filter(configured, busyChain).subscribe();
+        assertNull(configured.getResponse().getStatusCode());
+    }
+
+    @Test
+    void constructor_RejectsAKeyListedForTwoTenants() {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.getTenants().put("a", tenant("shared"));
+        properties.getTenants().put("b", tenant("shared"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new AdmissionWebFilter(properties, new ObjectMapper(), new SimpleMeterRegistry()));
+    }
+
+    @Test
+    void filter_LeavesOtherPathsAlone() {
+        filter.filter(exchange("key-a"), busyChain).subscribe();
+        MockServerWebExchange health = MockServerWebExchange.from(MockServerHttpRequest.get("/actuator/health"));
+
+        filter.filter(health, busyChain).subscribe();
+
+        assertEquals(2, admitted.get());
+    }
+
+    @Test
+    void filter_JobResultStreamsTakeNoSlot() {
+        MockServerWebExchange follower = MockServerWebExchange.from(MockServerHttpRequest
+                .get("/api/ai/jobs/job-1/results?follow=true").header("X-Api-Key", "key-a"));
+        filter.filter(follower, busyChain).subscribe();
+        MockServerWebExchange interactive = exchange("key-a");
+
+        filter.filter(interactive, busyChain).subscribe();
+
+        // The one slot goes to the completion request, not to the still open result stream
+        assertEquals(2, admitted.get());
+        assertNull(interactive.getResponse().getStatusCode());
+    }
+
+    private static AdmissionProperties.Tenant tenant(String apiKey) {
+        AdmissionProperties.Tenant tenant = new AdmissionProperties.Tenant();
+        tenant.getApiKeys().add(apiKey);
+        return tenant;
+    }
+
+    private static MockServerWebExchange exchange(String apiKey) {
+        return MockServerWebExchange.from(MockServerHttpRequest.post("/api/ai/complete").header("X-Api-Key", apiKey));
+    }
+}
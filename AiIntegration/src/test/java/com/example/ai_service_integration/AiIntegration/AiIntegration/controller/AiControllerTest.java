@@ -1,18 +1,35 @@
 package com.example.ai_service_integration.AiIntegration.AiIntegration.controller;
 
 import com.example.ai_service_integration.AiIntegration.controller.AiController;
+import com.example.ai_service_integration.AiIntegration.dto.BatchCompletionResult;
+import com.example.ai_service_integration.AiIntegration.dto.CompletionChunk;
 import com.example.ai_service_integration.AiIntegration.dto.CompletionRequest;
 import com.example.ai_service_integration.AiIntegration.dto.CompletionResponse;
+import com.example.ai_service_integration.AiIntegration.service.AiRequestContext;
 import com.example.ai_service_integration.AiIntegration.service.AiService;
+import com.example.ai_service_integration.AiIntegration.service.AiServiceException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -21,9 +38,18 @@ class AiControllerTest {
     @Mock // Mock the dependency AiService
     private AiService aiService;
 
+    @Spy // Real mapper for parsing NDJSON batch lines
+    private ObjectMapper objectMapper = new ObjectMapper();
+
     @InjectMocks // Inject mocks into the controller instance
     private AiController aiController;
 
+    @BeforeEach
+    void setUp() {
+        // Manually inject the @Value fields into the controller instance for unit tests
+        ReflectionTestUtils.setField(aiController, "batchConcurrency", 4);
+    }
+
     @Test
     void generateCompletion_Success() {
         // Arrange: Define the expected service response
@@ -39,7 +65,7 @@ class AiControllerTest {
         CompletionRequest request = new CompletionRequest(prompt);
 
         // Act & Assert: Test the controller method's Mono output
-        StepVerifier.create(aiController.generateCompletion(request))
+        StepVerifier.create(aiController.generateCompletion(request, null, null))
                 .expectNextMatches(responseEntity ->
                         responseEntity.getStatusCode().equals(HttpStatus.OK) &&
                                 responseEntity.getBody() != null &&
@@ -62,7 +88,7 @@ class AiControllerTest {
         CompletionRequest request = new CompletionRequest(prompt);
 
         // Act & Assert
-        StepVerifier.create(aiController.generateCompletion(request))
+        StepVerifier.create(aiController.generateCompletion(request, null, null))
                 .expectNextMatches(responseEntity ->
                         responseEntity.getStatusCode().equals(HttpStatus.INTERNAL_SERVER_ERROR) &&
                                 responseEntity.getBody() != null &&
@@ -73,10 +99,119 @@ class AiControllerTest {
                 .verifyComplete(); // Expect it to complete with the error response entity
     }
 
-    // Note: Testing @Valid (like @NotBlank) is typically done with Spring's
-    // @WebMvcTest or a combination of Spring test context and MockMvc,
+    @Test
+    void generateCompletion_ServiceExceptionKeepsStatusAndRetryAfter() {
+        // Arrange: The service layer asks for a 429 with a retry hint
+        String prompt = "Test prompt";
+        when(aiService.getAiCompletion(prompt))
+                .thenReturn(Mono.error(new AiServiceException(HttpStatus.TOO_MANY_REQUESTS, "Rate limit exceeded", Duration.ofMillis(1500))));
+
+        // Act & Assert: Status is kept and the hint is rounded up to whole seconds
+        StepVerifier.create(aiController.generateCompletion(new CompletionRequest(prompt), null, null))
+                .expectNextMatches(responseEntity ->
+                        responseEntity.getStatusCode().equals(HttpStatus.TOO_MANY_REQUESTS) &&
+                                "2".equals(responseEntity.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)) &&
+                                responseEntity.getBody().getCompletion().contains("Rate limit exceeded")
+                )
+                .verifyComplete();
+    }
+
+    @Test
+    void generateCompletion_NoCacheHeaderBypassesCache() {
+        // Arrange: The service reports whether the bypass flag reached it through the Reactor context
+        String prompt = "Test prompt";
+        when(aiService.getAiCompletion(prompt))
+                .thenReturn(Mono.deferContextual(context -> Mono.just(
+                        new CompletionResponse(String.valueOf(AiRequestContext.isCacheBypass(context)), null))));
+
+        CompletionRequest request = new CompletionRequest(prompt);
+
+        // Act & Assert
+        StepVerifier.create(aiController.generateCompletion(request, "no-cache", null))
+                .expectNextMatches(responseEntity -> "true".equals(responseEntity.getBody().getCompletion()))
+                .verifyComplete();
+    }
+
+    @Test
+    void streamCompletion_EmitsOneEventPerChunk() {
+        // Arrange
+        String prompt = "Test prompt";
+        when(aiService.streamAiCompletion(prompt))
+                .thenReturn(Flux.just(new CompletionChunk("Hel", "test-model", null),
+                        new CompletionChunk("lo", "test-model", "stop")));
+
+        // Act & Assert
+        StepVerifier.create(aiController.streamCompletion(new CompletionRequest(prompt)))
+                .expectNextMatches(event -> event.data().getDelta().equals("Hel"))
+                .expectNextMatches(event -> event.data().getDelta().equals("lo") &&
+                        event.data().getFinishReason().equals("stop"))
+                .verifyComplete();
+    }
+
+    @Test
+    void streamCompletion_ServiceErrorBecomesErrorEvent() {
+        // Arrange: The stream fails after the first chunk
+        String prompt = "Test prompt that causes error";
+        when(aiService.streamAiCompletion(prompt))
+                .thenReturn(Flux.concat(Flux.just(new CompletionChunk("partial", "test-model", null)),
+                        Flux.error(new RuntimeException("Stream broke"))));
+
+        // Act & Assert
+        StepVerifier.create(aiController.streamCompletion(new CompletionRequest(prompt)))
+                .expectNextMatches(event -> event.data().getDelta().equals("partial"))
+                .expectNextMatches(event -> "error".equals(event.event()) &&
+                        event.data().getDelta().contains("Stream broke"))
+                .verifyComplete();
+    }
+
+    @Test
+    void generateBatchCompletion_FailedItemsDoNotFailTheBatch() {
+        // Arrange: One prompt succeeds, one fails upstream, one is blank
+        when(aiService.getAiCompletion("good prompt"))
+                .thenReturn(Mono.just(new CompletionResponse("good answer", "test-model")));
+        when(aiService.getAiCompletion("bad prompt"))
+                .thenReturn(Mono.error(new RuntimeException("Service failed to get completion")));
+
+        List<CompletionRequest> requests = List.of(
+                new CompletionRequest("good prompt"), new CompletionRequest("bad prompt"), new CompletionRequest(" "));
+
+        // Act
+        List<BatchCompletionResult> results = aiController.generateBatchCompletion(Flux.fromIterable(requests))
+                .collectSortedList(Comparator.comparingInt(BatchCompletionResult::getIndex))
+                .block();
+
+        // Assert: Every item is reported under its original index
+        assertEquals(3, results.size());
+        assertEquals("good answer", results.get(0).getCompletion());
+        assertNull(results.get(0).getError());
+        assertTrue(results.get(1).getError().contains("Service failed to get completion"));
+        assertEquals("Prompt cannot be empty", results.get(2).getError());
+    }
+
+    @Test
+    void generateBatchCompletionFromNdjson_ReportsMalformedLinesPerItem() {
+        // Arrange
+        when(aiService.getAiCompletion("first"))
+                .thenReturn(Mono.just(new CompletionResponse("first answer", "test-model")));
+        when(aiService.getAiCompletion("third"))
+                .thenReturn(Mono.just(new CompletionResponse("third answer", "test-model")));
+
+        Flux<String> ndjsonLines = Flux.just("{\"prompt\":\"first\"}", "{not json", "", "{\"prompt\":\"third\"}");
+
+        // Act
+        List<BatchCompletionResult> results = aiController.generateBatchCompletionFromNdjson(ndjsonLines)
+                .collectSortedList(Comparator.comparingInt(BatchCompletionResult::getIndex))
+                .block();
+
+        // Assert: Blank lines are skipped, the malformed line fails alone
+        assertEquals(3, results.size());
+        assertEquals("first answer", results.get(0).getCompletion());
+        assertTrue(results.get(1).getError().startsWith("Malformed request"));
+        assertEquals("third answer", results.get(2).getCompletion());
+    }
+
+    // Note: Testing @Valid (like @NotBlank) needs the WebFlux request pipeline,
     // as the validation process happens before the controller method body
-    // is executed in a typical web request flow. Pure Mockito unit test
-    // doesn't easily simulate this pre-method validation.
+    // is executed in a typical web request flow. See AiControllerWebTest.
 
 }
\ No newline at end of file
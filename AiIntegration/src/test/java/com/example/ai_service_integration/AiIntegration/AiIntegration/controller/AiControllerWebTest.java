@@ -0,0 +1,110 @@
+package com.example.ai_service_integration.AiIntegration.AiIntegration.controller;
+
+import com.example.ai_service_integration.AiIntegration.controller.AiController;
+import com.example.ai_service_integration.AiIntegration.dto.CompletionResponse;
+import com.example.ai_service_integration.AiIntegration.service.AiRequestContext;
+import com.example.ai_service_integration.AiIntegration.service.AiService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+// Runs requests through the WebFlux pipeline: decoding, @Valid and the exception handler
+@WebFluxTest(AiController.class)
+class AiControllerWebTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private AiService aiService;
+
+    @Test
+    void generateCompletion_Success() {
+        when(aiService.getAiCompletion("Test prompt"))
+                .thenReturn(Mono.just(new CompletionResponse("Generated text", "test-model")));
+
+        webTestClient.post().uri("/api/ai/complete")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"prompt\":\"Test prompt\"}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.completion").isEqualTo("Generated text")
+                .jsonPath("$.model").isEqualTo("test-model");
+        // Exact answers carry no approximation marker
+        webTestClient.post().uri("/api/ai/complete")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"prompt\":\"Test prompt\"}")
+                .exchange()
+                .expectHeader().doesNotExist(AiController.APPROXIMATE_MATCH_HEADER);
+    }
+
+    @Test
+    void generateCompletion_ApproximateCacheHitIsMarkedWithHeader() {
+        when(aiService.getAiCompletion("Test prompt")).thenReturn(Mono.deferContextual(context -> {
+            AiRequestContext.getResponseMetadata(context).recordApproximateMatch(0.9375);
+            return Mono.just(new CompletionResponse("Cached text", "test-model"));
+        }));
+
+        webTestClient.post().uri("/api/ai/complete")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"prompt\":\"Test prompt\"}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(AiController.APPROXIMATE_MATCH_HEADER, "0.938");
+    }
+
+    @Test
+    void generateCompletion_BlankPromptIsRejected() {
+        webTestClient.post().uri("/api/ai/complete")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"prompt\":\"  \"}")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.completion").isEqualTo("Invalid request: Prompt cannot be empty");
+
+        verifyNoInteractions(aiService);
+    }
+
+    @Test
+    void generateCompletion_MalformedBodyIsRejected() {
+        webTestClient.post().uri("/api/ai/complete")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"prompt\":")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.completion").value(startsWith("Invalid request"));
+    }
+
+    @Test
+    void generateBatchCompletion_StreamsNdjsonResults() {
+        when(aiService.getAiCompletion(anyString()))
+                .thenAnswer(invocation -> Mono.just(new CompletionResponse("echo " + invocation.getArgument(0), "test-model")));
+
+        webTestClient.post().uri("/api/ai/complete/batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue("{\"prompt\":\"one\"}\n{\"prompt\":\"two\"}\n")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class)
+                .value(body -> {
+                    String[] lines = body.strip().split("\n");
+                    if (lines.length != 2 || !body.contains("\"completion\":\"echo one\"") || !body.contains("\"index\":1")) {
+                        throw new AssertionError("Unexpected batch output: " + body);
+                    }
+                });
+    }
+}
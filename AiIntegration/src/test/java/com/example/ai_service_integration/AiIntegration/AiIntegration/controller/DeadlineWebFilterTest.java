@@ -0,0 +1,65 @@
+package com.example.ai_service_integration.AiIntegration.AiIntegration.controller;
+
+import com.example.ai_service_integration.AiIntegration.controller.DeadlineWebFilter;
+import com.example.ai_service_integration.AiIntegration.service.AiRequestContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeadlineWebFilterTest {
+
+    private final DeadlineWebFilter filter = new DeadlineWebFilter("X-Request-Timeout", Duration.ofSeconds(120));
+    private final AtomicReference<Optional<Duration>> seen = new AtomicReference<>();
+    private final WebFilterChain chain = exchange -> Mono.deferContextual(context -> {
+        seen.set(AiRequestContext.getTimeLeft(context));
+        return Mono.empty();
+    });
+
+    @Test
+    void filter_SetsTheClientsDeadline() {
+        StepVerifier.create(filter.filter(exchange("5000"), chain)).verifyComplete();
+
+        Duration left = seen.get().orElseThrow();
+        assertTrue(left.compareTo(Duration.ofSeconds(4)) > 0 && left.compareTo(Duration.ofSeconds(5)) <= 0, "left " + left);
+    }
+
+    @Test
+    void filter_CutsHugeBudgetsDownToTheMaximum() {
+        for (String value : new String[]{"9223372036854775", "9223372036854775807"}) {
+            StepVerifier.create(filter.filter(exchange(value), chain)).verifyComplete();
+
+            Duration left = seen.get().orElseThrow();
+            assertTrue(left.compareTo(Duration.ofSeconds(119)) > 0 && left.compareTo(Duration.ofSeconds(120)) <= 0, "left " + left);
+        }
+    }
+
+    @Test
+    void filter_IgnoresMalformedAndOutOfRangeValues() {
+        for (String value : new String[]{"soon", "-1", "0", "99999999999999999999"}) {
+            StepVerifier.create(filter.filter(exchange(value), chain)).verifyComplete();
+
+            assertEquals(Optional.empty(), seen.get(), value);
+        }
+    }
+
+    @Test
+    void withDeadline_HugeTimeoutsDoNotOverflow() {
+        Duration left = AiRequestContext.getTimeLeft(AiRequestContext.withDeadline(Duration.ofSeconds(Long.MAX_VALUE))).orElseThrow();
+
+        assertTrue(left.compareTo(Duration.ofDays(364)) > 0, "left " + left);
+    }
+
+    private static MockServerWebExchange exchange(String timeout) {
+        return MockServerWebExchange.from(MockServerHttpRequest.post("/api/ai/complete").header("X-Request-Timeout", timeout));
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.ai_service_integration.AiIntegration.AiIntegration.controller;
+
+import com.example.ai_service_integration.AiIntegration.config.JobProperties;
+import com.example.ai_service_integration.AiIntegration.controller.JobController;
+import com.example.ai_service_integration.AiIntegration.dto.BatchCompletionResult;
+import com.example.ai_service_integration.AiIntegration.dto.JobStatus;
+import com.example.ai_service_integration.AiIntegration.service.AiServiceException;
+import com.example.ai_service_integration.AiIntegration.service.job.JobService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class JobControllerTest {
+
+    @Mock
+    private JobService jobService;
+
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void setUp() {
+        JobProperties properties = new JobProperties();
+        properties.setMaxPrompts(2);
+        webTestClient = WebTestClient.bindToController(new JobController(jobService, properties, new ObjectMapper())).build();
+    }
+
+    @Test
+    void submitJob_ReturnsAcceptedWithTheJobLocation() throws IOException {
+        when(jobService.submit(List.of("first", "second")))
+                .thenReturn(new JobStatus("job-1", JobStatus.State.QUEUED, 2, 0, 0, Instant.EPOCH));
+
+        webTestClient.post().uri("/api/ai/jobs")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue("{\"prompt\":\"first\"}\n{\"prompt\":\"second\"}\n")
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectHeader().location("/api/ai/jobs/job-1")
+                .expectBody()
+                .jsonPath("$.id").isEqualTo("job-1")
+                .jsonPath("$.state").isEqualTo("QUEUED")
+                .jsonPath("$.total").isEqualTo(2);
+    }
+
+    @Test
+    void submitJob_RejectsTheWholeJobForOneEmptyPromptOrTooManyPrompts() throws IOException {
+        webTestClient.post().uri("/api/ai/jobs")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[{\"prompt\":\"first\"},{\"prompt\":\" \"}]")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.completion").value(startsWith("Job request failed: Prompt 1 cannot be empty"));
+        webTestClient.post().uri("/api/ai/jobs")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[{\"prompt\":\"a\"},{\"prompt\":\"b\"},{\"prompt\":\"c\"}]")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        verify(jobService, never()).submit(anyList());
+    }
+
+    @Test
+    void getJobResults_StreamsResultsAsNdjson() {
+        when(jobService.results("job-1", true)).thenReturn(Flux.just(
+                new BatchCompletionResult(1, "two", "gpt-test-model", null),
+                new BatchCompletionResult(0, "one", "gpt-test-model", null)));
+
+        webTestClient.get().uri("/api/ai/jobs/job-1/results?follow=true")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(BatchCompletionResult.class)
+                .hasSize(2);
+    }
+
+    @Test
+    void getJob_UnknownJobIsNotFound() {
+        when(jobService.status("missing")).thenThrow(new AiServiceException(HttpStatus.NOT_FOUND, "No job missing"));
+
+        webTestClient.get().uri("/api/ai/jobs/missing")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+}
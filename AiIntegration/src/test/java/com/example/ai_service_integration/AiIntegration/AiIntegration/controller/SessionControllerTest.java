@@ -0,0 +1,122 @@
+package com.example.ai_service_integration.AiIntegration.AiIntegration.controller;
+
+import com.example.ai_service_integration.AiIntegration.controller.SessionController;
+import com.example.ai_service_integration.AiIntegration.dto.CompletionResponse;
+import com.example.ai_service_integration.AiIntegration.service.AiServiceException;
+import com.example.ai_service_integration.AiIntegration.service.session.SessionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SessionControllerTest {
+
+    @Mock
+    private SessionService sessionService;
+
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void setUp() {
+        webTestClient = WebTestClient.bindToController(new SessionController(sessionService)).build();
+    }
+
+    @Test
+    void createSession_IssuesAnId() {
+        when(sessionService.create()).thenReturn("abc123");
+
+        webTestClient.post().uri("/api/ai/sessions")
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().valueEquals("Location", "/api/ai/sessions/abc123")
+                .expectBody()
+                .jsonPath("$.id").isEqualTo("abc123");
+    }
+
+    @Test
+    void complete_AnswersWithinTheSession() {
+        when(sessionService.complete("chat-1", "Hello"))
+                .thenReturn(Mono.just(new CompletionResponse("Hi there", "gpt-test-model")));
+
+        webTestClient.post().uri("/api/ai/sessions/chat-1/complete")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"prompt\":\"Hello\"}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.completion").isEqualTo("Hi there");
+    }
+
+    @Test
+    void complete_RejectsMalformedSessionIds() {
+        webTestClient.post().uri("/api/ai/sessions/{id}/complete", "a".repeat(129))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"prompt\":\"Hello\"}")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        verify(sessionService, never()).complete(anyString(), anyString());
+    }
+
+    @Test
+    void complete_PassesOnServiceErrorsWithRetryAfter() {
+        when(sessionService.complete("chat-1", "Hello")).thenReturn(Mono.error(
+                new AiServiceException(HttpStatus.TOO_MANY_REQUESTS, "Rate limited", Duration.ofMillis(1500))));
+
+        webTestClient.post().uri("/api/ai/sessions/chat-1/complete")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"prompt\":\"Hello\"}")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.TOO_MANY_REQUESTS)
+                .expectHeader().valueEquals("Retry-After", "2");
+    }
+
+    @Test
+    void complete_UnknownSessionIsNotFound() {
+        when(sessionService.complete("missing", "Hello"))
+                .thenReturn(Mono.error(new AiServiceException(HttpStatus.NOT_FOUND, "No session missing")));
+
+        webTestClient.post().uri("/api/ai/sessions/missing/complete")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"prompt\":\"Hello\"}")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody()
+                .jsonPath("$.completion").isEqualTo("Error generating completion: No session missing");
+    }
+
+    @Test
+    void complete_UnexpectedFailureKeepsTheErrorShape() {
+        when(sessionService.complete("chat-1", "Hello")).thenReturn(Mono.error(new IllegalStateException("Boom")));
+
+        webTestClient.post().uri("/api/ai/sessions/chat-1/complete")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"prompt\":\"Hello\"}")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR)
+                .expectBody()
+                .jsonPath("$.completion").isEqualTo("Error generating completion: Boom");
+    }
+
+    @Test
+    void endSession_UnknownSessionIsNotFound() {
+        when(sessionService.end("chat-1")).thenReturn(true);
+        when(sessionService.end("missing")).thenReturn(false);
+
+        webTestClient.delete().uri("/api/ai/sessions/chat-1").exchange().expectStatus().isNoContent();
+        webTestClient.delete().uri("/api/ai/sessions/missing").exchange().expectStatus().isNotFound();
+    }
+}
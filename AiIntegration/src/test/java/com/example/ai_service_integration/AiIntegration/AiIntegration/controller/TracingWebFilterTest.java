@@ -0,0 +1,64 @@
+package com.example.ai_service_integration.AiIntegration.AiIntegration.controller;
+
+import com.example.ai_service_integration.AiIntegration.controller.TracingWebFilter;
+import com.example.ai_service_integration.AiIntegration.service.AiRequestContext;
+import com.example.ai_service_integration.AiIntegration.service.tracing.RequestTrace;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TracingWebFilterTest {
+
+    private final AtomicReference<RequestTrace> seen = new AtomicReference<>();
+    private final WebFilterChain chain = exchange -> Mono.deferContextual(context -> {
+        seen.set(AiRequestContext.getTrace(context));
+        return Mono.empty();
+    });
+
+    @Test
+    void filter_KeepsTheClientsRequestIdAndEchoesIt() {
+        MockServerWebExchange exchange = exchange("client-id-1");
+
+        StepVerifier.create(new TracingWebFilter(0, "X-Request-Id").filter(exchange, chain)).verifyComplete();
+
+        assertEquals("client-id-1", seen.get().id());
+        assertFalse(seen.get().isSampled());
+        assertEquals("client-id-1", exchange.getResponse().getHeaders().getFirst("X-Request-Id"));
+    }
+
+    @Test
+    void filter_ReplacesMissingOrUnusableRequestIds() {
+        MockServerWebExchange exchange = exchange("not a usable\nid");
+
+        StepVerifier.create(new TracingWebFilter(0, "X-Request-Id").filter(exchange, chain)).verifyComplete();
+
+        assertEquals(32, seen.get().id().length());
+        assertNotEquals("not a usable\nid", exchange.getResponse().getHeaders().getFirst("X-Request-Id"));
+    }
+
+    @Test
+    void filter_SampledRequestsRecordTheControllerSpan() {
+        StepVerifier.create(new TracingWebFilter(1, "X-Request-Id").filter(exchange(null), chain)).verifyComplete();
+
+        assertTrue(seen.get().isSampled());
+        assertEquals("controller", seen.get().spans().get(0).name());
+    }
+
+    private static MockServerWebExchange exchange(String requestId) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.post("/api/ai/complete");
+        if (requestId != null) {
+            request.header("X-Request-Id", requestId);
+        }
+        return MockServerWebExchange.from(request);
+    }
+}
@@ -1,29 +1,47 @@
 package com.example.ai_service_integration.AiIntegration.AiIntegration.service;
 
 
+import com.example.ai_service_integration.AiIntegration.dto.CompletionChunk;
 import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
 import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiResponse;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiStreamChunk;
+import com.example.ai_service_integration.AiIntegration.service.AiServiceException;
 import com.example.ai_service_integration.AiIntegration.service.OpenAiServiceImpl;
+import com.example.ai_service_integration.AiIntegration.service.upstream.UpstreamExchange;
+import com.example.ai_service_integration.AiIntegration.service.upstream.UpstreamFilter;
+import com.example.ai_service_integration.AiIntegration.service.upstream.UpstreamStreamExchange;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClient.RequestBodySpec;
 import org.springframework.web.reactive.function.client.WebClient.RequestHeadersSpec;
 import org.springframework.web.reactive.function.client.WebClient.ResponseSpec;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.when;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
 
 @ExtendWith(MockitoExtension.class) // Use JUnit 5 extension for Mockito
 class OpenAiServiceImplTest {
@@ -40,6 +58,9 @@ class OpenAiServiceImplTest {
     @Mock
     private ResponseSpec responseSpec;
 
+    @Spy // Real mapper for decoding streamed events
+    private ObjectMapper objectMapper = new ObjectMapper();
+
     @InjectMocks // Inject mocks into the service instance
     private OpenAiServiceImpl openAiService;
 
@@ -209,6 +230,29 @@ class OpenAiServiceImplTest {
                 .verify(); // Use verify() for error scenarios
     }
 
+    @Test
+    void getAiCompletion_UpstreamThrottlingKeepsStatusAndRetryHint() {
+        // Arrange: OpenAI answers 429 with a Retry-After header
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "7");
+        WebClientResponseException throttled = WebClientResponseException.create(
+                TOO_MANY_REQUESTS.value(), "Too Many Requests", headers,
+                "{\"error\": {\"message\": \"Rate limit reached.\"}}".getBytes(), null);
+
+        when(responseSpec.bodyToMono(OpenAiApiResponse.class))
+                .thenReturn(Mono.error(throttled));
+
+        // Act & Assert
+        StepVerifier.create(openAiService.getAiCompletion("Test prompt"))
+                .expectErrorMatches(throwable ->
+                        throwable instanceof AiServiceException serviceException &&
+                                serviceException.getStatus() == TOO_MANY_REQUESTS &&
+                                Duration.ofSeconds(7).equals(serviceException.getRetryAfter()) &&
+                                serviceException.getMessage().contains("Rate limit reached.")
+                )
+                .verify();
+    }
+
     @Test
     void getAiCompletion_ApiReturnsChoiceWithEmptyContent() {
         // Arrange: Mock an API response with a choice containing empty content
@@ -260,4 +304,73 @@ class OpenAiServiceImplTest {
                 )
                 .verifyComplete();
     }
-}
\ No newline at end of file
+
+    @Test
+    void streamAiCompletion_EmitsDeltasUntilDone() {
+        // Arrange: Upstream events as OpenAI sends them, ending with the [DONE] sentinel
+        when(requestBodySpec.accept(any())).thenReturn(requestBodySpec);
+        Flux<ServerSentEvent<String>> upstreamEvents = Flux.just(
+                sse("{\"model\":\"gpt-test-model\",\"choices\":[{\"index\":0,\"delta\":{\"role\":\"assistant\"}}]}"),
+                sse("{\"model\":\"gpt-test-model\",\"choices\":[{\"index\":0,\"delta\":{\"content\":\"Hello\"}}]}"),
+                sse("{\"model\":\"gpt-test-model\",\"choices\":[{\"index\":0,\"delta\":{\"content\":\" world\"}}]}"),
+                sse("{\"model\":\"gpt-test-model\",\"choices\":[{\"index\":0,\"delta\":{},\"finish_reason\":\"stop\"}]}"),
+                sse("[DONE]"),
+                sse("{\"unexpected\":\"event after done\"}"));
+        doReturn(upstreamEvents).when(responseSpec).bodyToFlux(any(ParameterizedTypeReference.class));
+
+        // Act & Assert: Role-only events are skipped and nothing after [DONE] is read
+        StepVerifier.create(openAiService.streamAiCompletion("Test prompt"))
+                .expectNext(new CompletionChunk("Hello", model, null))
+                .expectNext(new CompletionChunk(" world", model, null))
+                .expectNext(new CompletionChunk(null, model, "stop"))
+                .verifyComplete();
+    }
+
+    @Test
+    void streamAiCompletion_ApiReturnsWebClientResponseException() {
+        // Arrange: Upstream rejects the streamed request
+        when(requestBodySpec.accept(any())).thenReturn(requestBodySpec);
+        WebClientResponseException mockException = new WebClientResponseException(
+                BAD_REQUEST.value(), "Bad Request", null,
+                "{\"error\": {\"message\": \"Invalid request format.\"}}".getBytes(), null, null);
+        doReturn(Flux.error(mockException)).when(responseSpec).bodyToFlux(any(ParameterizedTypeReference.class));
+
+        // Act & Assert
+        StepVerifier.create(openAiService.streamAiCompletion("Invalid test prompt"))
+                .expectErrorMatches(throwable ->
+                        throwable.getMessage().contains("Error calling OpenAI API") &&
+                                throwable.getMessage().contains("Invalid request format."))
+                .verify();
+    }
+
+    @Test
+    void streamAiCompletion_GoesThroughUpstreamFilters() {
+        // Arrange: A filter that only watches streamed calls go by
+        when(requestBodySpec.accept(any())).thenReturn(requestBodySpec);
+        doReturn(Flux.just(sse("{\"model\":\"gpt-test-model\",\"choices\":[{\"index\":0,\"delta\":{\"content\":\"Hi\"}}]}"), sse("[DONE]")))
+                .when(responseSpec).bodyToFlux(any(ParameterizedTypeReference.class));
+        AtomicReference<OpenAiApiRequest> filtered = new AtomicReference<>();
+        openAiService.setUpstreamFilters(List.of(new UpstreamFilter() {
+            @Override
+            public Mono<OpenAiApiResponse> filter(OpenAiApiRequest request, UpstreamExchange next) {
+                return next.exchange(request);
+            }
+
+            @Override
+            public Flux<OpenAiStreamChunk> filterStream(OpenAiApiRequest request, UpstreamStreamExchange next) {
+                filtered.set(request);
+                return next.exchange(request);
+            }
+        }));
+
+        // Act & Assert
+        StepVerifier.create(openAiService.streamAiCompletion("Test prompt"))
+                .expectNext(new CompletionChunk("Hi", model, null))
+                .verifyComplete();
+        assertEquals(Boolean.TRUE, filtered.get().getStream());
+    }
+
+    private static ServerSentEvent<String> sse(String data) {
+        return ServerSentEvent.builder(data).build();
+    }
+}
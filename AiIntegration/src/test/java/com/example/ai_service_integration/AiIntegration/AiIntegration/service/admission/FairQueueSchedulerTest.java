@@ -0,0 +1,227 @@
+package com.example.ai_service_integration.AiIntegration.AiIntegration.service.admission;
+
+import com.example.ai_service_integration.AiIntegration.config.AdmissionProperties;
+import com.example.ai_service_integration.AiIntegration.config.AdmissionProperties.Priority;
+import com.example.ai_service_integration.AiIntegration.service.AiServiceException;
+import com.example.ai_service_integration.AiIntegration.service.admission.FairQueueScheduler;
+import com.example.ai_service_integration.AiIntegration.service.admission.FairQueueScheduler.Permit;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import reactor.core.Disposable;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FairQueueSchedulerTest {
+
+    private AdmissionProperties properties;
+    private VirtualTimeScheduler time;
+
+    // Permits in the order they were granted, labelled by the caller
+    private final List<String> granted = new ArrayList<>();
+    private final List<Permit> permits = new ArrayList<>();
+    private final List<Throwable> failures = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        time = VirtualTimeScheduler.getOrSet();
+        properties = new AdmissionProperties();
+        properties.setEnabled(true);
+        properties.setMaxConcurrency(1);
+        properties.setTarget(Duration.ofMillis(100));
+        properties.setInterval(Duration.ofSeconds(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        VirtualTimeScheduler.reset();
+    }
+
+    @Test
+    void acquire_QueuesBeyondMaxConcurrencyUntilAPermitIsReleased() {
+        FairQueueScheduler scheduler = newScheduler();
+
+        acquire(scheduler, "a", Priority.NORMAL, "a1");
+        acquire(scheduler, "a", Priority.NORMAL, "a2");
+        assertEquals(List.of("a1"), granted);
+        assertEquals(1, scheduler.queued());
+
+        permits.get(0).release();
+        permits.get(0).release(); // Releasing twice frees one slot only
+        assertEquals(List.of("a1", "a2"), granted);
+        assertEquals(1, scheduler.inFlight());
+    }
+
+    @Test
+    void acquire_SharesSlotsBetweenTenantsByWeight() {
+        properties.getTenants().put("heavy", tenant(3, Priority.NORMAL));
+        FairQueueScheduler scheduler = newScheduler();
+
+        acquire(scheduler, "blocker", Priority.NORMAL, "blocker");
+        for (int i = 1; i <= 6; i++) {
+            acquire(scheduler, "heavy", Priority.NORMAL, "h" + i);
+        }
+        for (int i = 1; i <= 2; i++) {
+            acquire(scheduler, "light", Priority.NORMAL, "l" + i);
+        }
+        releaseAll(8);
+
+        // The light tenant queued last but is not stuck behind the heavy tenant's backlog
+        assertEquals(List.of("blocker", "h1", "h2", "h3", "l1", "h4", "h5", "h6", "l2"), granted);
+    }
+
+    @Test
+    void acquire_ServesHigherPriorityClassesFirst() {
+        FairQueueScheduler scheduler = newScheduler();
+
+        acquire(scheduler, "blocker", Priority.NORMAL, "blocker");
+        acquire(scheduler, "batch", Priority.LOW, "low");
+        acquire(scheduler, "web", Priority.NORMAL, "normal");
+        acquire(scheduler, "checkout", Priority.HIGH, "high");
+        releaseAll(3);
+
+        assertEquals(List.of("blocker", "high", "normal", "low"), granted);
+    }
+
+    @Test
+    void acquire_RejectsWith503WhenTheTenantQueueIsFull() {
+        properties.setMaxQueuePerTenant(1);
+        FairQueueScheduler scheduler = newScheduler();
+
+        acquire(scheduler, "a", Priority.NORMAL, "a1");
+        acquire(scheduler, "a", Priority.NORMAL, "a2");
+        acquire(scheduler, "a", Priority.NORMAL, "a3");
+        acquire(scheduler, "b", Priority.NORMAL, "b1"); // Other tenants still get in line
+
+        assertEquals(1, failures.size());
+        assertOverloaded(failures.get(0));
+        assertEquals(2, scheduler.queued());
+    }
+
+    @Test
+    void acquire_RejectsWith503WhenTooManyRequestsAreQueuedOverall() {
+        properties.setMaxQueued(2);
+        FairQueueScheduler scheduler = newScheduler();
+
+        acquire(scheduler, "a", Priority.NORMAL, "a1");
+        acquire(scheduler, "a", Priority.NORMAL, "a2");
+        acquire(scheduler, "b", Priority.NORMAL, "b1");
+        acquire(scheduler, "c", Priority.NORMAL, "c1");
+
+        assertEquals(1, failures.size());
+        assertOverloaded(failures.get(0));
+        assertEquals(2, scheduler.queued());
+    }
+
+    @Test
+    void acquire_TenantsBeyondMaxTenantQueuesShareTheAnonymousQueue() {
+        properties.setMaxTenantQueues(2);
+        properties.setMaxQueuePerTenant(2);
+        FairQueueScheduler scheduler = newScheduler();
+
+        acquire(scheduler, "a", Priority.NORMAL, "a1");
+        acquire(scheduler, "a", Priority.NORMAL, "a2");
+        acquire(scheduler, "b", Priority.NORMAL, "b1");
+        for (String tenant : new String[]{"c", "d", "e"}) {
+            acquire(scheduler, tenant, Priority.NORMAL, tenant + "1"); // Made-up tenants get no queue of their own
+        }
+
+        assertEquals(1, failures.size());
+        assertTrue(failures.get(0).getMessage().contains("tenant " + FairQueueScheduler.ANONYMOUS), failures.get(0).getMessage());
+        assertEquals(4, scheduler.queued());
+
+        // Once a's and b's queues are gone, a new tenant gets a queue of its own again
+        permits.get(0).release();
+        permits.get(1).release();
+        assertEquals(List.of("a1", "a2", "b1"), granted);
+        acquire(scheduler, "f", Priority.NORMAL, "f1");
+        acquire(scheduler, "f", Priority.NORMAL, "f2");
+        assertEquals(1, failures.size());
+        assertEquals(4, scheduler.queued());
+    }
+
+    @Test
+    void acquire_ShedsRequestsOfAStandingQueueAfterTheTarget() {
+        FairQueueScheduler scheduler = newScheduler();
+        acquire(scheduler, "blocker", Priority.NORMAL, "blocker");
+
+        // A fresh queue lets requests wait for the whole interval
+        acquire(scheduler, "a", Priority.NORMAL, "a1");
+        time.advanceTimeBy(Duration.ofMillis(900));
+        assertTrue(failures.isEmpty());
+        time.advanceTimeBy(Duration.ofMillis(200));
+        assertEquals(1, failures.size());
+        assertOverloaded(failures.get(0));
+
+        // Not empty for a whole interval: the queue is standing and only the target applies
+        acquire(scheduler, "b", Priority.NORMAL, "b1");
+        time.advanceTimeBy(Duration.ofMillis(600));
+        acquire(scheduler, "b", Priority.NORMAL, "b2");
+        time.advanceTimeBy(Duration.ofMillis(500)); // b1 times out after the interval
+        acquire(scheduler, "b", Priority.NORMAL, "b3");
+        time.advanceTimeBy(Duration.ofMillis(150)); // b3 times out after the target
+        assertEquals(3, failures.size());
+
+        // b2 was queued before the queue stood, but is dropped when dequeued 650 ms later
+        permits.get(0).release();
+        assertEquals(List.of("blocker"), granted);
+        assertEquals(4, failures.size());
+        failures.forEach(FairQueueSchedulerTest::assertOverloaded);
+        assertEquals(0, scheduler.queued());
+        assertEquals(0, scheduler.inFlight());
+    }
+
+    @Test
+    void acquire_CancellingWhileQueuedGivesUpThePlace() {
+        FairQueueScheduler scheduler = newScheduler();
+        acquire(scheduler, "a", Priority.NORMAL, "a1");
+        Disposable waiting = acquire(scheduler, "a", Priority.NORMAL, "a2");
+        acquire(scheduler, "a", Priority.NORMAL, "a3");
+
+        waiting.dispose();
+        permits.get(0).release();
+
+        assertEquals(List.of("a1", "a3"), granted);
+        assertEquals(0, scheduler.queued());
+    }
+
+    private FairQueueScheduler newScheduler() {
+        return new FairQueueScheduler(properties, new SimpleMeterRegistry());
+    }
+
+    private Disposable acquire(FairQueueScheduler scheduler, String tenant, Priority priority, String label) {
+        return scheduler.acquire(tenant, priority).subscribe(permit -> {
+            granted.add(label);
+            permits.add(permit);
+        }, failures::add);
+    }
+
+    // Releases the permits granted so far one at a time, in grant order
+    private void releaseAll(int count) {
+        for (int i = 0; i < count; i++) {
+            permits.get(i).release();
+        }
+    }
+
+    private static AdmissionProperties.Tenant tenant(int weight, Priority priority) {
+        AdmissionProperties.Tenant tenant = new AdmissionProperties.Tenant();
+        tenant.setWeight(weight);
+        tenant.setPriority(priority);
+        return tenant;
+    }
+
+    private static void assertOverloaded(Throwable failure) {
+        AiServiceException e = assertInstanceOf(AiServiceException.class, failure);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatus());
+        assertEquals(Duration.ofSeconds(1), e.getRetryAfter());
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.ai_service_integration.AiIntegration.AiIntegration.service.cache;
+
+import com.example.ai_service_integration.AiIntegration.dto.CompletionResponse;
+import com.example.ai_service_integration.AiIntegration.service.AiRequestContext;
+import com.example.ai_service_integration.AiIntegration.service.AiService;
+import com.example.ai_service_integration.AiIntegration.service.cache.CachingAiService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CachingAiServiceTest {
+
+    @Mock
+    private AiService delegate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private CachingAiService cachingAiService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cachingAiService = new CachingAiService(delegate, "gpt-test-model", 100, 0.5,
+                2, Duration.ofMinutes(5), meterRegistry);
+    }
+
+    @Test
+    void getAiCompletion_RepeatedPromptIsServedFromCache() {
+        when(delegate.getAiCompletion("Test prompt"))
+                .thenReturn(Mono.just(new CompletionResponse("cached answer", "gpt-test-model")));
+
+        StepVerifier.create(cachingAiService.getAiCompletion("Test prompt"))
+                .expectNextMatches(response -> response.getCompletion().equals("cached answer"))
+                .verifyComplete();
+        // Whitespace differences normalize to the same key
+        StepVerifier.create(cachingAiService.getAiCompletion("  Test   prompt \n"))
+                .expectNextMatches(response -> response.getCompletion().equals("cached answer"))
+                .verifyComplete();
+
+        verify(delegate, times(1)).getAiCompletion(anyString());
+        assertEquals(1.0, meterRegistry.counter("ai.cache.requests", "result", "hit").count());
+        assertEquals(1.0, meterRegistry.counter("ai.cache.requests", "result", "miss").count());
+    }
+
+    @Test
+    void getAiCompletion_ErrorsAreNotCached() {
+        when(delegate.getAiCompletion("Test prompt"))
+                .thenReturn(Mono.error(new RuntimeException("upstream failed")))
+                .thenReturn(Mono.just(new CompletionResponse("recovered", "gpt-test-model")));
+
+        StepVerifier.create(cachingAiService.getAiCompletion("Test prompt"))
+                .expectError(RuntimeException.class)
+                .verify();
+        StepVerifier.create(cachingAiService.getAiCompletion("Test prompt"))
+                .expectNextMatches(response -> response.getCompletion().equals("recovered"))
+                .verifyComplete();
+
+        verify(delegate, times(2)).getAiCompletion("Test prompt");
+    }
+
+    @Test
+    void getAiCompletion_PlaceholderAnswersAreNotCached() {
+        when(delegate.getAiCompletion("Test prompt"))
+                .thenReturn(Mono.just(new CompletionResponse(CompletionResponse.NO_COMPLETION, "gpt-test-model")))
+                .thenReturn(Mono.just(new CompletionResponse("real answer", "gpt-test-model")));
+
+        StepVerifier.create(cachingAiService.getAiCompletion("Test prompt"))
+                .expectNextMatches(response -> !response.hasCompletion())
+                .verifyComplete();
+        StepVerifier.create(cachingAiService.getAiCompletion("Test prompt"))
+                .expectNextMatches(response -> response.getCompletion().equals("real answer"))
+                .verifyComplete();
+
+        verify(delegate, times(2)).getAiCompletion("Test prompt");
+    }
+
+    @Test
+    void getAiCompletion_ModelHintsAreCachedApart() {
+        when(delegate.getAiCompletion("Test prompt"))
+                .thenReturn(Mono.just(new CompletionResponse("small answer", "gpt-small")))
+                .thenReturn(Mono.just(new CompletionResponse("large answer", "gpt-large")));
+
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(cachingAiService.getAiCompletion("Test prompt")
+                            .contextWrite(AiRequestContext.withModelHint("small")))
+                    .expectNextMatches(response -> response.getCompletion().equals("small answer"))
+                    .verifyComplete();
+            StepVerifier.create(cachingAiService.getAiCompletion("Test prompt")
+                            .contextWrite(AiRequestContext.withModelHint("large")))
+                    .expectNextMatches(response -> response.getCompletion().equals("large answer"))
+                    .verifyComplete();
+        }
+
+        verify(delegate, times(2)).getAiCompletion("Test prompt");
+        assertEquals(2.0, meterRegistry.counter("ai.cache.requests", "result", "hit").count());
+    }
+
+    @Test
+    void getAiCompletion_BypassSkipsCache() {
+        when(delegate.getAiCompletion("Test prompt"))
+                .thenReturn(Mono.just(new CompletionResponse("fresh answer", "gpt-test-model")));
+
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(cachingAiService.getAiCompletion("Test prompt")
+                            .contextWrite(AiRequestContext.withCacheBypass(true)))
+                    .expectNextCount(1)
+                    .verifyComplete();
+        }
+
+        verify(delegate, times(2)).getAiCompletion("Test prompt");
+        assertEquals(2.0, meterRegistry.counter("ai.cache.requests", "result", "bypass").count());
+    }
+
+    @Test
+    void getAiCompletion_EvictsBeyondMaximumSize() {
+        when(delegate.getAiCompletion(anyString()))
+                .thenAnswer(invocation -> Mono.just(new CompletionResponse(invocation.getArgument(0), "gpt-test-model")));
+
+        for (String prompt : new String[]{"one", "two", "three", "four"}) {
+            StepVerifier.create(cachingAiService.getAiCompletion(prompt))
+                    .expectNextCount(1)
+                    .verifyComplete();
+        }
+
+        assertEquals(2.0, meterRegistry.counter("ai.cache.evictions", "cause", "size").count());
+    }
+}
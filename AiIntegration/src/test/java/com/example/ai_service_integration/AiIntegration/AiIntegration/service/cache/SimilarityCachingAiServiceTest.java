@@ -0,0 +1,189 @@
+package com.example.ai_service_integration.AiIntegration.AiIntegration.service.cache;
+
+import com.example.ai_service_integration.AiIntegration.config.SimilarityCacheProperties;
+import com.example.ai_service_integration.AiIntegration.dto.CompletionResponse;
+import com.example.ai_service_integration.AiIntegration.service.AiRequestContext;
+import com.example.ai_service_integration.AiIntegration.service.AiResponseMetadata;
+import com.example.ai_service_integration.AiIntegration.service.AiService;
+import com.example.ai_service_integration.AiIntegration.service.cache.SimilarityCachingAiService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SimilarityCachingAiServiceTest {
+
+    private static final String PROMPT = "Explain the difference between optimistic and pessimistic locking in a "
+            + "relational database, with an example of when each one is the better choice.";
+
+    @Mock
+    private AiService delegate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private SimilarityCacheProperties properties;
+    private SimilarityCachingAiService similarityCachingAiService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new SimilarityCacheProperties();
+        properties.setEnabled(true);
+        similarityCachingAiService = new SimilarityCachingAiService(delegate, properties, meterRegistry);
+    }
+
+    @Test
+    void getAiCompletion_CaseWhitespaceAndClosingPunctuationVariantsAreServedAsApproximateHits() {
+        when(delegate.getAiCompletion(anyString())).thenReturn(Mono.just(new CompletionResponse("answer", "gpt-test-model")));
+        complete(PROMPT, new AiResponseMetadata()).block();
+        AiResponseMetadata metadata = new AiResponseMetadata();
+
+        StepVerifier.create(complete("  EXPLAIN the difference between optimistic and pessimistic   locking in a relational "
+                        + "database, with an example of when each one is the better choice?! ", metadata))
+                .expectNextMatches(response -> response.getCompletion().equals("answer"))
+                .verifyComplete();
+
+        verify(delegate, times(1)).getAiCompletion(anyString());
+        assertEquals(1.0, metadata.getApproximateMatchSimilarity());
+        assertEquals(1.0, meterRegistry.counter("ai.similarity-cache.requests", "result", "approximate").count());
+    }
+
+    @Test
+    void getAiCompletion_SmallWordingChangeAboveThresholdIsServed() {
+        when(delegate.getAiCompletion(anyString())).thenReturn(Mono.just(new CompletionResponse("answer", "gpt-test-model")));
+        complete(PROMPT, new AiResponseMetadata()).block();
+        AiResponseMetadata metadata = new AiResponseMetadata();
+
+        StepVerifier.create(complete(PROMPT.replace("the better choice", "a better choice"), metadata))
+                .expectNextMatches(response -> response.getCompletion().equals("answer"))
+                .verifyComplete();
+
+        verify(delegate, times(1)).getAiCompletion(anyString());
+        double similarity = metadata.getApproximateMatchSimilarity();
+        assertTrue(similarity >= 0.9 && similarity < 1.0, "similarity " + similarity);
+    }
+
+    @Test
+    void getAiCompletion_DifferentPromptsAndBelowThresholdAreMisses() {
+        when(delegate.getAiCompletion(anyString()))
+                .thenAnswer(invocation -> Mono.just(new CompletionResponse("answer to " + invocation.getArgument(0), "gpt-test-model")));
+        complete(PROMPT, new AiResponseMetadata()).block();
+        AiResponseMetadata metadata = new AiResponseMetadata();
+
+        // Shares most of its wording, but not enough for the default 0.9 threshold
+        StepVerifier.create(complete(PROMPT.replace("optimistic and pessimistic locking", "row and table level locks"), metadata))
+                .expectNextMatches(response -> response.getCompletion().startsWith("answer to Explain the difference between row"))
+                .verifyComplete();
+        complete("What is the capital of France?", new AiResponseMetadata()).block();
+
+        verify(delegate, times(3)).getAiCompletion(anyString());
+        assertNull(metadata.getApproximateMatchSimilarity());
+        assertEquals(3.0, meterRegistry.counter("ai.similarity-cache.requests", "result", "miss").count());
+    }
+
+    @Test
+    void getAiCompletion_OperatorsAndSymbolsTellPromptsApart() {
+        when(delegate.getAiCompletion(anyString()))
+                .thenAnswer(invocation -> Mono.just(new CompletionResponse("answer to " + invocation.getArgument(0), "gpt-test-model")));
+
+        complete("What is 2+2?", new AiResponseMetadata()).block();
+        complete("What is 2*2?", new AiResponseMetadata()).block();
+        complete("Is a < b here?", new AiResponseMetadata()).block();
+        StepVerifier.create(complete("Is a > b here?", new AiResponseMetadata()))
+                .expectNextMatches(response -> response.getCompletion().equals("answer to Is a > b here?"))
+                .verifyComplete();
+
+        verify(delegate, times(4)).getAiCompletion(anyString());
+    }
+
+    @Test
+    void getAiCompletion_ModelHintsAreNeverMatchedWithEachOther() {
+        when(delegate.getAiCompletion(anyString()))
+                .thenReturn(Mono.just(new CompletionResponse("small answer", "gpt-small")))
+                .thenReturn(Mono.just(new CompletionResponse("large answer", "gpt-large")));
+
+        similarityCachingAiService.getAiCompletion(PROMPT).contextWrite(AiRequestContext.withModelHint("small")).block();
+        StepVerifier.create(similarityCachingAiService.getAiCompletion(PROMPT)
+                        .contextWrite(AiRequestContext.withModelHint("large")))
+                .expectNextMatches(response -> response.getCompletion().equals("large answer"))
+                .verifyComplete();
+        StepVerifier.create(similarityCachingAiService.getAiCompletion(PROMPT.replace("the better choice", "a better choice"))
+                        .contextWrite(AiRequestContext.withModelHint("small")))
+                .expectNextMatches(response -> response.getCompletion().equals("small answer"))
+                .verifyComplete();
+
+        verify(delegate, times(2)).getAiCompletion(anyString());
+    }
+
+    @Test
+    void getAiCompletion_IdenticalPromptIsAnExactHit() {
+        when(delegate.getAiCompletion(anyString())).thenReturn(Mono.just(new CompletionResponse("answer", "gpt-test-model")));
+        complete(PROMPT, new AiResponseMetadata()).block();
+        AiResponseMetadata metadata = new AiResponseMetadata();
+
+        complete(PROMPT, metadata).block();
+
+        verify(delegate, times(1)).getAiCompletion(anyString());
+        assertNull(metadata.getApproximateMatchSimilarity());
+        assertEquals(1.0, meterRegistry.counter("ai.similarity-cache.requests", "result", "hit").count());
+    }
+
+    @Test
+    void getAiCompletion_PlaceholderAnswersAreNotStored() {
+        when(delegate.getAiCompletion(anyString()))
+                .thenReturn(Mono.just(new CompletionResponse(CompletionResponse.NO_COMPLETION, "gpt-test-model")))
+                .thenReturn(Mono.just(new CompletionResponse("answer", "gpt-test-model")));
+
+        complete(PROMPT, new AiResponseMetadata()).block();
+        StepVerifier.create(complete(PROMPT, new AiResponseMetadata()))
+                .expectNextMatches(response -> response.getCompletion().equals("answer"))
+                .verifyComplete();
+
+        verify(delegate, times(2)).getAiCompletion(anyString());
+        assertEquals(0.0, meterRegistry.counter("ai.similarity-cache.requests", "result", "hit").count());
+    }
+
+    @Test
+    void getAiCompletion_CacheBypassSkipsLookupAndStore() {
+        when(delegate.getAiCompletion(anyString())).thenReturn(Mono.just(new CompletionResponse("answer", "gpt-test-model")));
+
+        similarityCachingAiService.getAiCompletion(PROMPT).contextWrite(AiRequestContext.withCacheBypass(true)).block();
+        complete(PROMPT, new AiResponseMetadata()).block();
+
+        verify(delegate, times(2)).getAiCompletion(anyString());
+        assertEquals(1.0, meterRegistry.counter("ai.similarity-cache.requests", "result", "bypass").count());
+    }
+
+    @Test
+    void getAiCompletion_EvictedEntriesLeaveTheIndex() {
+        properties.setMaxSize(1);
+        similarityCachingAiService = new SimilarityCachingAiService(delegate, properties, meterRegistry);
+        when(delegate.getAiCompletion(anyString()))
+                .thenAnswer(invocation -> Mono.just(new CompletionResponse("answer to " + invocation.getArgument(0), "gpt-test-model")));
+
+        for (int i = 0; i < 20; i++) {
+            complete("Prompt number " + i + " about a completely separate topic " + "xyz".repeat(i), new AiResponseMetadata()).block();
+        }
+
+        assertTrue(meterRegistry.get("ai.similarity-cache.size").gauge().value() <= 1);
+        // Only the surviving entry's bands are still indexed
+        assertTrue(meterRegistry.get("ai.similarity-cache.buckets").gauge().value() <= properties.getBands());
+    }
+
+    private Mono<CompletionResponse> complete(String prompt, AiResponseMetadata metadata) {
+        return similarityCachingAiService.getAiCompletion(prompt)
+                .contextWrite(AiRequestContext.withResponseMetadata(metadata));
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.ai_service_integration.AiIntegration.AiIntegration.service.codec;
+
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiResponse;
+import com.example.ai_service_integration.AiIntegration.service.codec.OpenAiRequestEncoder;
+import com.example.ai_service_integration.AiIntegration.service.codec.OpenAiResponseDecoder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OpenAiCodecTest {
+
+    private static final ResolvableType REQUEST = ResolvableType.forClass(OpenAiApiRequest.class);
+    private static final ResolvableType RESPONSE = ResolvableType.forClass(OpenAiApiResponse.class);
+
+    private final OpenAiRequestEncoder encoder = new OpenAiRequestEncoder();
+    private final OpenAiResponseDecoder decoder = new OpenAiResponseDecoder();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void encode_WritesTheSameDocumentAsJackson() throws Exception {
+        OpenAiApiRequest request = request("Quotes \" backslash \\ newline \n tab \t control \u0001 unicode café 日本語 😀");
+
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsBytes(request)), encode(request));
+    }
+
+    @Test
+    void encode_SizesTheBufferExactly() {
+        DataBuffer buffer = encoder.encodeValue(request("Escapes \" \\ \n \u0001 and 2-, 3- and 4-byte UTF-8: é 日 😀"),
+                DefaultDataBufferFactory.sharedInstance, REQUEST, MediaType.APPLICATION_JSON, null);
+
+        assertEquals(buffer.capacity(), buffer.readableByteCount());
+    }
+
+    @Test
+    void encode_ReusesThePrefixAcrossPromptsAndHandlesHistoryAndStreaming() throws Exception {
+        OpenAiApiRequest first = request("First prompt");
+        OpenAiApiRequest second = OpenAiApiRequest.builder()
+                .model("gpt-test-model")
+                .messages(List.of(
+                        OpenAiApiRequest.Message.builder().role("system").content("Be brief").build(),
+                        OpenAiApiRequest.Message.builder().role("user").content(null).build()))
+                .max_tokens(100)
+                .temperature(0.5)
+                .stream(true)
+                .build();
+
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsBytes(first)), encode(first));
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsBytes(second)), encode(second));
+    }
+
+    @Test
+    void encode_LeavesOutNullParameters() throws Exception {
+        OpenAiApiRequest request = OpenAiApiRequest.builder()
+                .model("gpt-test-model")
+                .messages(Collections.emptyList())
+                .build();
+
+        JsonNode json = encode(request);
+
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsBytes(request)), json);
+        assertFalse(json.has("max_tokens"));
+    }
+
+    @Test
+    void decode_KeepsTheFirstChoiceAndUsageAndSkipsTheRest() {
+        String body = "{\"id\":\"chatcmpl-1\",\"object\":\"chat.completion\",\"created\":1717171717,"
+                + "\"model\":\"gpt-test-model\",\"system_fingerprint\":\"fp\",\"extra\":{\"nested\":[1,{\"a\":null}]},"
+                + "\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":\"Answer \\\"quoted\\\" caf\\u00e9\","
+                + "\"tool_calls\":[]},\"logprobs\":null,\"finish_reason\":\"length\"},"
+                + "{\"index\":1,\"message\":{\"role\":\"assistant\",\"content\":\"Second\"},\"finish_reason\":\"stop\"}],"
+                + "\"usage\":{\"prompt_tokens\":5,\"completion_tokens\":7,\"total_tokens\":12,\"details\":{\"cached\":0}}}";
+
+        OpenAiApiResponse response = decode(body);
+
+        assertEquals("chatcmpl-1", response.getId());
+        assertEquals(1717171717L, response.getCreated());
+        assertEquals("gpt-test-model", response.getModel());
+        assertEquals(1, response.getChoices().size());
+        assertEquals("Answer \"quoted\" café", response.getFirstCompletionContent());
+        assertEquals("length", response.getChoices().get(0).getFinish_reason());
+        assertEquals(new OpenAiApiResponse.Usage(5, 7, 12), response.getUsage());
+    }
+
+    @Test
+    void decode_ToleratesNullsAndMissingFields() {
+        OpenAiApiResponse response = decode("{\"model\":\"m\",\"choices\":[{\"message\":{\"content\":null}}],\"usage\":null}");
+
+        assertNull(response.getFirstCompletionContent());
+        assertNull(response.getUsage());
+        assertTrue(decode("{\"choices\":[]}").getChoices().isEmpty());
+    }
+
+    @Test
+    void decode_MalformedBodyFailsWithDecodingException() {
+        assertThrows(DecodingException.class, () -> decode("{\"choices\":[{\"message\":"));
+        assertThrows(DecodingException.class, () -> decode("[]"));
+    }
+
+    @Test
+    void decodeToMono_JoinsABodySplitAcrossBuffers() {
+        byte[] body = "{\"model\":\"split\",\"choices\":[{\"message\":{\"content\":\"café\"}}]}".getBytes(StandardCharsets.UTF_8);
+        int split = body.length - 8; // Inside the two-byte é
+        Flux<DataBuffer> buffers = Flux.just(
+                DefaultDataBufferFactory.sharedInstance.wrap(Arrays.copyOfRange(body, 0, split)),
+                DefaultDataBufferFactory.sharedInstance.wrap(Arrays.copyOfRange(body, split, body.length)));
+
+        StepVerifier.create(decoder.decodeToMono(buffers, RESPONSE, MediaType.APPLICATION_JSON, null))
+                .expectNextMatches(response -> "café".equals(response.getFirstCompletionContent()))
+                .verifyComplete();
+    }
+
+    private JsonNode encode(OpenAiApiRequest request) throws Exception {
+        DataBuffer buffer = encoder.encodeValue(request, DefaultDataBufferFactory.sharedInstance, REQUEST,
+                MediaType.APPLICATION_JSON, null);
+        return objectMapper.readTree(buffer.toString(StandardCharsets.UTF_8));
+    }
+
+    private OpenAiApiResponse decode(String body) {
+        DataBuffer buffer = DefaultDataBufferFactory.sharedInstance.wrap(body.getBytes(StandardCharsets.UTF_8));
+        return decoder.decode(buffer, RESPONSE, MediaType.APPLICATION_JSON, null);
+    }
+
+    private static OpenAiApiRequest request(String prompt) {
+        return OpenAiApiRequest.builder()
+                .model("gpt-test-model")
+                .messages(Collections.singletonList(
+                        OpenAiApiRequest.Message.builder().role("user").content(prompt).build()))
+                .max_tokens(100)
+                .temperature(0.5)
+                .build();
+    }
+}
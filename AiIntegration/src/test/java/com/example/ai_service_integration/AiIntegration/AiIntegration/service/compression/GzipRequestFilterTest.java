@@ -0,0 +1,139 @@
+package com.example.ai_service_integration.AiIntegration.AiIntegration.service.compression;
+
+import com.example.ai_service_integration.AiIntegration.AiIntegration.support.FakeOpenAiServer;
+import com.example.ai_service_integration.AiIntegration.service.compression.GzipRequestFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.codec.HttpMessageWriter;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.client.reactive.MockClientHttpRequest;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GzipRequestFilterTest {
+
+    private final Counter contentBytes = new SimpleMeterRegistry().counter("content");
+    private final GzipRequestFilter filter = new GzipRequestFilter(1024, 6, contentBytes);
+
+    @Test
+    void filter_SendsSmallBodiesAsTheyAre() {
+        MockClientHttpRequest sent = send(BodyInserters.fromValue("{\"prompt\":\"short\"}"));
+
+        assertNull(sent.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("{\"prompt\":\"short\"}", sent.getBodyAsString().block());
+        assertEquals(18, contentBytes.count());
+    }
+
+    @Test
+    void filter_CompressesLargeBodiesTheUpstreamCanRead() {
+        try (FakeOpenAiServer fakeOpenAi = FakeOpenAiServer.builder().start()) {
+            String body = "{\"model\":\"gpt-test-model\",\"messages\":[{\"role\":\"user\",\"content\":\"" + prompt(8000) + "\"}]}";
+            WebClient webClient = WebClient.builder().baseUrl(fakeOpenAi.url()).filter(filter).build();
+
+            String answer = webClient.post()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(body)
+                    .retrieve()
+                    .bodyToMono(String.class)
+                    .block(Duration.ofSeconds(5));
+
+            assertTrue(answer.contains("This is a fake completion."));
+            assertEquals("gzip", fakeOpenAi.lastContentEncoding());
+            assertEquals(body.length(), contentBytes.count());
+        }
+    }
+
+    @Test
+    void filter_CompressesStreamedBodiesPieceByPiece() throws IOException {
+        List<String> pieces = List.of(prompt(5000), prompt(7000), prompt(300));
+        Flux<DataBuffer> body = Flux.fromIterable(pieces)
+                .map(piece -> DefaultDataBufferFactory.sharedInstance.wrap(piece.getBytes(StandardCharsets.UTF_8)));
+
+        MockClientHttpRequest sent = send(BodyInserters.fromDataBuffers(body));
+
+        assertEquals("gzip", sent.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertFalse(sent.getHeaders().containsKey(HttpHeaders.CONTENT_LENGTH));
+        byte[] compressed = DataBufferUtils.join(sent.getBody()).map(buffer -> {
+            byte[] bytes = new byte[buffer.readableByteCount()];
+            buffer.read(bytes);
+            return bytes;
+        }).block();
+        assertTrue(compressed.length < 12300 / 2);
+        assertEquals(String.join("", pieces), gunzip(compressed));
+        assertEquals(12300, contentBytes.count());
+    }
+
+    private MockClientHttpRequest send(BodyInserter<?, ? super ClientHttpRequest> body) {
+        MockClientHttpRequest sent = new MockClientHttpRequest(HttpMethod.POST, URI.create("http://upstream/v1"));
+        ClientRequest request = ClientRequest.create(HttpMethod.POST, URI.create("http://upstream/v1")).body(body).build();
+        filter.filter(request, filtered -> filtered.body().insert(sent, context())
+                        .then(Mono.fromSupplier(() -> ClientResponse.create(HttpStatus.OK).build())))
+                .block(Duration.ofSeconds(5));
+        return sent;
+    }
+
+    private static BodyInserter.Context context() {
+        List<HttpMessageWriter<?>> writers = ExchangeStrategies.withDefaults().messageWriters();
+        return new BodyInserter.Context() {
+            @Override
+            public List<HttpMessageWriter<?>> messageWriters() {
+                return writers;
+            }
+
+            @Override
+            public Optional<ServerHttpRequest> serverRequest() {
+                return Optional.empty();
+            }
+
+            @Override
+            public Map<String, Object> hints() {
+                return Map.of();
+            }
+        };
+    }
+
+    // Varied enough text that deflate cannot just repeat one phrase
+    private static String prompt(int chars) {
+        StringBuilder prompt = new StringBuilder(chars);
+        for (int i = 0; prompt.length() < chars; i++) {
+            prompt.append("Sentence ").append(i * 7919 % 1000).append(" of the prompt asks about item ").append(i).append(". ");
+        }
+        return prompt.substring(0, chars);
+    }
+
+    private static String gunzip(byte[] compressed) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.ai_service_integration.AiIntegration.AiIntegration.service.job;
+
+import com.example.ai_service_integration.AiIntegration.config.JobProperties;
+import com.example.ai_service_integration.AiIntegration.dto.BatchCompletionResult;
+import com.example.ai_service_integration.AiIntegration.dto.CompletionResponse;
+import com.example.ai_service_integration.AiIntegration.dto.JobStatus;
+import com.example.ai_service_integration.AiIntegration.service.AiService;
+import com.example.ai_service_integration.AiIntegration.service.AiServiceException;
+import com.example.ai_service_integration.AiIntegration.service.job.JobService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class JobServiceTest {
+
+    @Mock
+    private AiService aiService;
+
+    @TempDir
+    Path directory;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private JobProperties properties;
+    private JobService jobService;
+
+    @BeforeEach
+    void setUp() {
+        properties = new JobProperties();
+        properties.setEnabled(true);
+        properties.setDirectory(directory.toString());
+        properties.setRate(1000);
+        properties.setPollInterval(Duration.ofMillis(20));
+        properties.setRetryBackoff(Duration.ofMillis(10));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (jobService != null) {
+            jobService.close();
+        }
+    }
+
+    @Test
+    void submit_CompletesEveryPromptInTheBackground() throws IOException {
+        when(aiService.getAiCompletion("first")).thenReturn(Mono.just(new CompletionResponse("one", "gpt-test-model")));
+        when(aiService.getAiCompletion("second")).thenReturn(Mono.error(new RuntimeException("Boom")));
+        jobService = newService();
+
+        JobStatus submitted = jobService.submit(List.of("first", "second"));
+
+        List<BatchCompletionResult> results = followAll(submitted.getId());
+        assertEquals(2, results.size());
+        assertEquals("one", results.get(0).getCompletion());
+        assertEquals("Error generating completion: Boom", results.get(1).getError());
+        JobStatus status = jobService.status(submitted.getId());
+        assertEquals(JobStatus.State.COMPLETED, status.getState());
+        assertEquals(1, status.getCompleted());
+        assertEquals(1, status.getFailed());
+    }
+
+    @Test
+    void submit_RetriesThrottledPromptsBeforeGivingUp() throws IOException {
+        when(aiService.getAiCompletion("Test prompt"))
+                .thenReturn(Mono.error(new AiServiceException(HttpStatus.TOO_MANY_REQUESTS, "Slow down")))
+                .thenReturn(Mono.just(new CompletionResponse("answer", "gpt-test-model")));
+        jobService = newService();
+
+        JobStatus submitted = jobService.submit(List.of("Test prompt"));
+
+        List<BatchCompletionResult> results = followAll(submitted.getId());
+        assertEquals(1, results.size());
+        assertEquals("answer", results.get(0).getCompletion());
+        assertEquals(1.0, meterRegistry.counter("ai.jobs.prompts", "result", "retried").count());
+    }
+
+    @Test
+    void submit_HoldsThrottledPromptsForTheirRetryAfter() throws IOException {
+        List<Long> calls = new CopyOnWriteArrayList<>();
+        when(aiService.getAiCompletion("Test prompt")).thenAnswer(invocation -> {
+            calls.add(System.nanoTime());
+            return calls.size() == 1
+                    ? Mono.error(new AiServiceException(HttpStatus.TOO_MANY_REQUESTS, "Slow down", Duration.ofMillis(300)))
+                    : Mono.just(new CompletionResponse("answer", "gpt-test-model"));
+        });
+        jobService = newService();
+
+        JobStatus submitted = jobService.submit(List.of("Test prompt"));
+
+        assertEquals("answer", followAll(submitted.getId()).get(0).getCompletion());
+        assertEquals(2, calls.size());
+        // The service clock counts whole milliseconds, so the hold may end up to 1 ms early
+        assertTrue(calls.get(1) - calls.get(0) >= Duration.ofMillis(299).toNanos(),
+                "retried after " + Duration.ofNanos(calls.get(1) - calls.get(0)).toMillis() + " ms");
+    }
+
+    @Test
+    void restart_ResumesUnfinishedJobsWithoutRedoingFinishedPrompts() throws IOException {
+        when(aiService.getAiCompletion("first")).thenReturn(Mono.just(new CompletionResponse("one", "gpt-test-model")));
+        when(aiService.getAiCompletion("second"))
+                .thenReturn(Mono.never()) // Still running at shutdown
+                .thenReturn(Mono.just(new CompletionResponse("two", "gpt-test-model")));
+        jobService = newService();
+        String id = jobService.submit(List.of("first", "second")).getId();
+        awaitStatus(id, status -> status.getCompleted() == 1);
+        verify(aiService, timeout(5000)).getAiCompletion("second"); // Handed out before the shutdown, not after the restart
+        jobService.close();
+
+        // A crash in the middle of a write leaves half a line behind
+        Files.writeString(directory.resolve(id).resolve("results.ndjson"), "{\"index\":1,\"compl",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        Files.createDirectories(directory.resolve("interrupted-submission.tmp"));
+        jobService = newService();
+
+        List<BatchCompletionResult> results = followAll(id);
+        assertEquals(List.of("one", "two"), results.stream().map(BatchCompletionResult::getCompletion).toList());
+        assertEquals(JobStatus.State.COMPLETED, jobService.status(id).getState());
+        verify(aiService, times(1)).getAiCompletion("first");
+        assertFalse(Files.exists(directory.resolve("interrupted-submission.tmp")));
+    }
+
+    @Test
+    void restart_SkipsUnreadableResultLinesAndRedoesTheirPrompts() throws IOException {
+        when(aiService.getAiCompletion("first")).thenReturn(Mono.just(new CompletionResponse("one", "gpt-test-model")));
+        when(aiService.getAiCompletion("second"))
+                .thenReturn(Mono.never())
+                .thenReturn(Mono.just(new CompletionResponse("two", "gpt-test-model")));
+        jobService = newService();
+        String id = jobService.submit(List.of("first", "second")).getId();
+        awaitStatus(id, status -> status.getCompleted() == 1);
+        verify(aiService, timeout(5000)).getAiCompletion("second");
+        jobService.close();
+
+        // Complete lines, but not results of this job
+        Files.writeString(directory.resolve(id).resolve("results.ndjson"), "{\"index\":1,\"compl#tion\n{\"index\":7,\"completion\":\"seven\"}\n",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        jobService = newService();
+
+        List<BatchCompletionResult> results = followAll(id);
+        assertEquals(List.of("one", "two"), results.stream().map(BatchCompletionResult::getCompletion).toList());
+        assertEquals(JobStatus.State.COMPLETED, jobService.status(id).getState());
+        verify(aiService, times(1)).getAiCompletion("first");
+    }
+
+    @Test
+    void cancel_StopsHandingOutPromptsAndEndsFollowedResults() throws IOException {
+        when(aiService.getAiCompletion("first")).thenReturn(Mono.never());
+        properties.setConcurrency(1);
+        jobService = newService();
+        String id = jobService.submit(List.of("first", "second")).getId();
+        awaitStatus(id, status -> status.getState() == JobStatus.State.RUNNING);
+
+        assertEquals(JobStatus.State.CANCELLED, jobService.cancel(id).getState());
+
+        assertEquals(List.of(), followAll(id));
+        verify(aiService, times(0)).getAiCompletion("second");
+    }
+
+    @Test
+    void status_UnknownJobIsNotFound() throws IOException {
+        jobService = newService();
+
+        AiServiceException e = assertThrows(AiServiceException.class, () -> jobService.status("no-such-job"));
+        assertEquals(HttpStatus.NOT_FOUND, e.getStatus());
+        assertNull(e.getRetryAfter());
+    }
+
+    private JobService newService() throws IOException {
+        return new JobService(properties, aiService, objectMapper, meterRegistry);
+    }
+
+    // Results sorted by prompt, once the job is finished
+    private List<BatchCompletionResult> followAll(String id) {
+        return jobService.results(id, true)
+                .collectSortedList(Comparator.comparingInt(BatchCompletionResult::getIndex))
+                .block(Duration.ofSeconds(5));
+    }
+
+    private void awaitStatus(String id, Predicate<JobStatus> condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.test(jobService.status(id))) {
+            if (System.nanoTime() > deadline) {
+                fail("Job did not reach the expected state: " + jobService.status(id));
+            }
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.ai_service_integration.AiIntegration.AiIntegration.service.metrics;
+
+import com.example.ai_service_integration.AiIntegration.dto.CompletionChunk;
+import com.example.ai_service_integration.AiIntegration.dto.CompletionResponse;
+import com.example.ai_service_integration.AiIntegration.service.AiRequestContext;
+import com.example.ai_service_integration.AiIntegration.service.AiService;
+import com.example.ai_service_integration.AiIntegration.service.metrics.MetricsAiService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MetricsAiServiceTest {
+
+    @Mock
+    private AiService delegate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private MetricsAiService metricsAiService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        metricsAiService = new MetricsAiService(delegate, "gpt-test-model", meterRegistry);
+    }
+
+    @Test
+    void getAiCompletion_RecordsLatencyByOutcomeAndTracksInFlight() {
+        Sinks.One<CompletionResponse> pending = Sinks.one();
+        when(delegate.getAiCompletion("Test prompt")).thenReturn(pending.asMono());
+        when(delegate.getAiCompletion("Failing prompt")).thenReturn(Mono.error(new RuntimeException("failed")));
+
+        StepVerifier.create(metricsAiService.getAiCompletion("Test prompt"))
+                .then(() -> assertEquals(1.0, meterRegistry.get("ai.completion.in.flight").gauge().value()))
+                .then(() -> pending.tryEmitValue(new CompletionResponse("Generated text", "gpt-test-model")))
+                .expectNextCount(1)
+                .verifyComplete();
+        StepVerifier.create(metricsAiService.getAiCompletion("Failing prompt")).verifyError();
+
+        assertEquals(0.0, meterRegistry.get("ai.completion.in.flight").gauge().value());
+        assertEquals(1, meterRegistry.get("ai.completion.latency")
+                .tags("model", "gpt-test-model", "outcome", "success", "type", "complete").timer().count());
+        assertEquals(1, meterRegistry.get("ai.completion.latency")
+                .tags("model", "gpt-test-model", "outcome", "error", "type", "complete").timer().count());
+    }
+
+    @Test
+    void getAiCompletion_TagsTheModelTheCallWasRoutedTo() {
+        // Stands in for model routing, which records its choice deep inside the delegate
+        when(delegate.getAiCompletion("Routed prompt")).thenReturn(Mono.deferContextual(context -> {
+            AiRequestContext.getResponseMetadata(context).recordRoutedModel("gpt-small-model");
+            return Mono.just(new CompletionResponse("Generated text", "gpt-small-model"));
+        }));
+        when(delegate.streamAiCompletion("Routed prompt")).thenReturn(Flux.deferContextual(context -> {
+            AiRequestContext.getResponseMetadata(context).recordRoutedModel("gpt-large-model");
+            return Flux.just(new CompletionChunk("Generated", "gpt-large-model", "stop"));
+        }));
+
+        StepVerifier.create(metricsAiService.getAiCompletion("Routed prompt")).expectNextCount(1).verifyComplete();
+        StepVerifier.create(metricsAiService.streamAiCompletion("Routed prompt")).expectNextCount(1).verifyComplete();
+
+        assertEquals(1, meterRegistry.get("ai.completion.latency")
+                .tags("model", "gpt-small-model", "outcome", "success", "type", "complete").timer().count());
+        assertEquals(1, meterRegistry.get("ai.completion.latency")
+                .tags("model", "gpt-large-model", "outcome", "success", "type", "stream").timer().count());
+        assertEquals(1.0, meterRegistry.get("ai.completion.finish").tags("model", "gpt-large-model", "reason", "stop").counter().count());
+    }
+
+    @Test
+    void streamAiCompletion_CountsFinishReason() {
+        when(delegate.streamAiCompletion("Test prompt")).thenReturn(Flux.just(
+                new CompletionChunk("Generated", "gpt-test-model", null),
+                new CompletionChunk(null, "gpt-test-model", "length")));
+
+        StepVerifier.create(metricsAiService.streamAiCompletion("Test prompt"))
+                .expectNextCount(2)
+                .verifyComplete();
+
+        assertEquals(1.0, meterRegistry.get("ai.completion.finish").tags("model", "gpt-test-model", "reason", "length").counter().count());
+        assertEquals(1, meterRegistry.get("ai.completion.latency").tags("outcome", "success", "type", "stream").timer().count());
+    }
+}
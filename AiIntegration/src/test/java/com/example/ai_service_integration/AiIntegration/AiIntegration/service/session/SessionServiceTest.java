@@ -0,0 +1,165 @@
+package com.example.ai_service_integration.AiIntegration.AiIntegration.service.session;
+
+import com.example.ai_service_integration.AiIntegration.config.SessionProperties;
+import com.example.ai_service_integration.AiIntegration.dto.CompletionResponse;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest.Message;
+import com.example.ai_service_integration.AiIntegration.service.AiService;
+import com.example.ai_service_integration.AiIntegration.service.AiServiceException;
+import com.example.ai_service_integration.AiIntegration.service.session.SessionService;
+import com.example.ai_service_integration.AiIntegration.service.token.CharacterTokenEstimator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SessionServiceTest {
+
+    @Mock
+    private AiService aiService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private SessionProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new SessionProperties();
+        properties.setEnabled(true);
+    }
+
+    @Test
+    void complete_SendsEarlierTurnsOfTheSession() {
+        properties.setSystemPrompt("Be brief.");
+        when(aiService.getChatCompletion(anyList()))
+                .thenReturn(Mono.just(new CompletionResponse("Paris", "gpt-test-model")))
+                .thenReturn(Mono.just(new CompletionResponse("About 2 million", "gpt-test-model")));
+        SessionService service = newService(1000);
+        String id = service.create();
+
+        StepVerifier.create(service.complete(id, "Capital of France?")).expectNextCount(1).verifyComplete();
+        StepVerifier.create(service.complete(id, "Its population?"))
+                .expectNextMatches(response -> response.getCompletion().equals("About 2 million"))
+                .verifyComplete();
+
+        List<Message> sent = sentMessages(2).get(1);
+        assertEquals(List.of("system", "user", "assistant", "user"), sent.stream().map(Message::getRole).toList());
+        assertEquals(List.of("Be brief.", "Capital of France?", "Paris", "Its population?"),
+                sent.stream().map(Message::getContent).toList());
+    }
+
+    @Test
+    void complete_CompactsOlderMessagesAndDropsWhatDoesNotFit() {
+        properties.setVerbatimMessages(2);
+        properties.setCompactedMessageTokens(2);
+        String longText = "z".repeat(80); // 20 tokens
+        when(aiService.getChatCompletion(anyList())).thenReturn(Mono.just(new CompletionResponse(longText, "gpt-test-model")));
+        // Room for the last question and the reply framing (4 + 1 + 3), two verbatim messages (2 x 24)
+        // and two compacted ones (2 x 7)
+        SessionService service = newService(8 + 48 + 14);
+        String id = service.create();
+
+        for (int i = 0; i < 4; i++) {
+            StepVerifier.create(service.complete(id, longText)).expectNextCount(1).verifyComplete();
+        }
+        double droppedBefore = dropped();
+        StepVerifier.create(service.complete(id, "q")).expectNextCount(1).verifyComplete();
+
+        List<Message> sent = sentMessages(5).get(4);
+        assertEquals(5, sent.size());
+        assertEquals("z".repeat(8) + " …", sent.get(0).getContent());
+        assertEquals("z".repeat(8) + " …", sent.get(1).getContent());
+        assertEquals(longText, sent.get(2).getContent());
+        assertEquals(longText, sent.get(3).getContent());
+        assertEquals("q", sent.get(4).getContent());
+        assertEquals(4.0, dropped() - droppedBefore);
+    }
+
+    @Test
+    void complete_FailedAnswerLeavesTheSessionUnchanged() {
+        when(aiService.getChatCompletion(anyList()))
+                .thenReturn(Mono.error(new RuntimeException("Boom")))
+                .thenReturn(Mono.just(new CompletionResponse("ok", "gpt-test-model")));
+        SessionService service = newService(1000);
+        String id = service.create();
+
+        StepVerifier.create(service.complete(id, "first")).verifyError();
+        StepVerifier.create(service.complete(id, "second")).expectNextCount(1).verifyComplete();
+
+        assertEquals(1, sentMessages(2).get(1).size());
+    }
+
+    @Test
+    void complete_PlaceholderAnswerIsNotAddedToTheHistory() {
+        when(aiService.getChatCompletion(anyList()))
+                .thenReturn(Mono.just(new CompletionResponse(CompletionResponse.NO_COMPLETION, "gpt-test-model")))
+                .thenReturn(Mono.just(new CompletionResponse("ok", "gpt-test-model")));
+        SessionService service = newService(1000);
+        String id = service.create();
+
+        StepVerifier.create(service.complete(id, "first")).expectNextCount(1).verifyComplete();
+        StepVerifier.create(service.complete(id, "second")).expectNextCount(1).verifyComplete();
+
+        assertEquals(1, sentMessages(2).get(1).size());
+    }
+
+    @Test
+    void complete_UnknownSessionIsNotFound() {
+        SessionService service = newService(1000);
+
+        StepVerifier.create(service.complete("made-up", "hello"))
+                .expectErrorMatches(e -> e instanceof AiServiceException ex && ex.getStatus() == HttpStatus.NOT_FOUND)
+                .verify();
+        String id = service.create();
+        service.end(id);
+        StepVerifier.create(service.complete(id, "hello")).verifyError(AiServiceException.class);
+
+        verify(aiService, never()).getChatCompletion(anyList());
+    }
+
+    @Test
+    void create_IssuesDistinctUrlSafeIds() {
+        SessionService service = newService(1000);
+        Set<String> ids = new HashSet<>();
+
+        for (int i = 0; i < 100; i++) {
+            String id = service.create();
+            assertTrue(id.matches("[A-Za-z0-9_-]{22}"), id);
+            ids.add(id);
+        }
+
+        assertEquals(100, ids.size());
+    }
+
+    private SessionService newService(int promptTokens) {
+        return new SessionService(properties, aiService, new CharacterTokenEstimator(), promptTokens, meterRegistry);
+    }
+
+    private double dropped() {
+        return meterRegistry.get("ai.sessions.history.messages").tag("result", "dropped").counter().count();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<List<Message>> sentMessages(int calls) {
+        ArgumentCaptor<List<Message>> captor = ArgumentCaptor.forClass(List.class);
+        verify(aiService, times(calls)).getChatCompletion(captor.capture());
+        return captor.getAllValues();
+    }
+}
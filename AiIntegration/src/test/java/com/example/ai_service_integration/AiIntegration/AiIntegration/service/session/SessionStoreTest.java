@@ -0,0 +1,134 @@
+package com.example.ai_service_integration.AiIntegration.AiIntegration.service.session;
+
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest.Message;
+import com.example.ai_service_integration.AiIntegration.service.session.SessionStore;
+import org.junit.jupiter.api.Test;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionStoreTest {
+
+    @Test
+    void append_KeepsMessagesAcrossBlocksInOrder() {
+        SessionStore store = new SessionStore(4096, 64, 1024, Duration.ofHours(1), 1000);
+        String longAnswer = "ä".repeat(100); // Multi-byte, and longer than a block
+        store.create("s1");
+
+        store.append("s1", List.of(message("user", "hello"), message("assistant", longAnswer)));
+        store.append("s1", List.of(message("user", "again")));
+
+        List<Message> history = store.history("s1");
+        assertEquals(3, history.size());
+        assertEquals("user", history.get(0).getRole());
+        assertEquals("hello", history.get(0).getContent());
+        assertEquals("assistant", history.get(1).getRole());
+        assertEquals(longAnswer, history.get(1).getContent());
+        assertEquals("again", history.get(2).getContent());
+        assertTrue(store.history("unknown").isEmpty());
+    }
+
+    @Test
+    void append_DropsOldestMessagesBeyondTheSessionLimit() {
+        SessionStore store = new SessionStore(4096, 64, 256, Duration.ofHours(1), 1000);
+        store.create("s1");
+
+        for (int i = 0; i < 20; i++) {
+            store.append("s1", List.of(message("user", "message number " + i + " " + "x".repeat(20))));
+        }
+
+        List<Message> history = store.history("s1");
+        assertTrue(history.size() < 20);
+        assertTrue(history.get(history.size() - 1).getContent().startsWith("message number 19 "));
+        assertTrue(store.usedBytes() <= 256 + 2 * 64);
+    }
+
+    @Test
+    void append_EvictsLeastRecentlyUsedSessionsWhenMemoryRunsOut() {
+        SessionStore store = new SessionStore(448, 64, 256, Duration.ofHours(1), 1000); // Seven blocks
+        String content = "y".repeat(120); // Two blocks per message
+
+        for (String id : List.of("old", "recent", "new")) {
+            store.create(id);
+        }
+        store.append("old", List.of(message("user", content)));
+        store.append("recent", List.of(message("user", content)));
+        store.history("old"); // Now "recent" is the least recently used
+        store.append("new", List.of(message("user", content)));
+        store.append("new", List.of(message("assistant", content)));
+
+        assertTrue(store.history("recent").isEmpty());
+        assertEquals(1, store.history("old").size());
+        assertEquals(2, store.history("new").size());
+        assertEquals(1, store.evicted());
+    }
+
+    @Test
+    void history_ForgetsIdleSessions() {
+        VirtualTimeScheduler clock = VirtualTimeScheduler.getOrSet();
+        try {
+            SessionStore store = new SessionStore(4096, 64, 1024, Duration.ofMinutes(30), 1000);
+            store.create("s1");
+            store.append("s1", List.of(message("user", "hello")));
+
+            clock.advanceTimeBy(Duration.ofMinutes(20));
+            assertEquals(1, store.history("s1").size()); // Reading counts as use
+            clock.advanceTimeBy(Duration.ofMinutes(31));
+
+            assertTrue(store.history("s1").isEmpty());
+            assertFalse(store.contains("s1"));
+            assertEquals(1, store.expired());
+            assertEquals(0, store.usedBytes());
+        } finally {
+            VirtualTimeScheduler.reset();
+        }
+    }
+
+    @Test
+    void delete_FreesTheSessionsMemory() {
+        SessionStore store = new SessionStore(4096, 64, 1024, Duration.ofHours(1), 1000);
+        store.create("s1");
+        store.append("s1", List.of(message("user", "hello")));
+
+        assertTrue(store.delete("s1"));
+        assertFalse(store.delete("s1"));
+        assertEquals(0, store.sessions());
+        assertEquals(0, store.usedBytes());
+    }
+
+    @Test
+    void create_KeepsAtMostMaxSessionsAndIgnoresUnknownOnes() {
+        SessionStore store = new SessionStore(4096, 64, 1024, Duration.ofHours(1), 2);
+
+        assertTrue(store.create("a"));
+        assertFalse(store.create("a"));
+        assertTrue(store.create("b"));
+        store.history("a"); // Now "b" is the least recently used
+        assertTrue(store.create("c"));
+
+        assertTrue(store.contains("a"));
+        assertFalse(store.contains("b"));
+        assertTrue(store.contains("c"));
+        assertEquals(2, store.sessions());
+        assertEquals(1, store.evicted());
+
+        store.append("b", List.of(message("user", "hello")));
+        assertFalse(store.contains("b"));
+        assertEquals(0, store.usedBytes());
+    }
+
+    @Test
+    void constructor_RejectsMemoryThatCannotHoldOneSession() {
+        assertThrows(IllegalArgumentException.class, () -> new SessionStore(256, 64, 256, Duration.ofHours(1), 1000));
+    }
+
+    private static Message message(String role, String content) {
+        return Message.builder().role(role).content(content).build();
+    }
+}
@@ -0,0 +1,264 @@
+package com.example.ai_service_integration.AiIntegration.AiIntegration.service.store;
+
+import com.example.ai_service_integration.AiIntegration.config.CompletionStoreProperties;
+import com.example.ai_service_integration.AiIntegration.service.store.CompletionStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompletionStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void tearDown() {
+        VirtualTimeScheduler.reset();
+    }
+
+    @Test
+    void put_ValueIsReadBack() throws IOException {
+        try (CompletionStore store = CompletionStore.open(properties(directory))) {
+            assertTrue(store.put(bytes("prompt"), value("answer")));
+
+            assertEquals("answer", text(store.get(bytes("prompt"))));
+            assertNull(store.get(bytes("other prompt")));
+            assertEquals(1, store.size());
+        }
+    }
+
+    @Test
+    void put_SameKeyReplacesValue() throws IOException {
+        try (CompletionStore store = CompletionStore.open(properties(directory))) {
+            store.put(bytes("prompt"), value("first"));
+            store.put(bytes("prompt"), value("second"));
+
+            assertEquals("second", text(store.get(bytes("prompt"))));
+            assertEquals(1, store.size());
+        }
+    }
+
+    @Test
+    void put_RecordLargerThanSegmentIsRejected() throws IOException {
+        CompletionStoreProperties properties = properties(directory);
+        properties.setSegmentSize(DataSize.ofKilobytes(1));
+        try (CompletionStore store = CompletionStore.open(properties)) {
+            assertFalse(store.put(bytes("prompt"), value("x".repeat(2000))));
+            assertNull(store.get(bytes("prompt")));
+        }
+    }
+
+    @Test
+    void get_ExpiredEntryIsMissAndCompactionDropsItsSegment() throws IOException {
+        VirtualTimeScheduler scheduler = VirtualTimeScheduler.getOrSet();
+        CompletionStoreProperties properties = properties(directory);
+        properties.setSegmentSize(DataSize.ofKilobytes(1));
+        properties.setTtl(Duration.ofHours(1));
+        try (CompletionStore store = CompletionStore.open(properties)) {
+            for (int i = 0; i < 20; i++) {
+                store.put(bytes("old prompt " + i), value("x".repeat(100)));
+            }
+            scheduler.advanceTimeBy(Duration.ofMinutes(59));
+            assertEquals("x".repeat(100), text(store.get(bytes("old prompt 0"))));
+
+            scheduler.advanceTimeBy(Duration.ofMinutes(2));
+            store.put(bytes("new prompt"), value("y".repeat(900))); // Fills a segment of its own
+
+            assertNull(store.get(bytes("old prompt 0")));
+            assertEquals(3, store.compact());
+            assertEquals(1, store.size());
+            assertEquals("y".repeat(900), text(store.get(bytes("new prompt"))));
+        }
+    }
+
+    @Test
+    void compact_RewritesMostlyDeadSegmentsKeepingLatestValues() throws IOException {
+        CompletionStoreProperties properties = properties(directory);
+        properties.setSegmentSize(DataSize.ofKilobytes(4));
+        try (CompletionStore store = CompletionStore.open(properties)) {
+            for (int round = 0; round < 10; round++) {
+                for (int i = 0; i < 20; i++) {
+                    store.put(bytes("prompt " + i), value("answer " + i + " round " + round));
+                }
+            }
+            long before = store.diskBytes();
+
+            assertTrue(store.compact() > 0);
+
+            assertTrue(store.diskBytes() < before / 2, "disk bytes " + store.diskBytes() + " of " + before);
+            assertEquals(20, store.size());
+            for (int i = 0; i < 20; i++) {
+                assertEquals("answer " + i + " round 9", text(store.get(bytes("prompt " + i))));
+            }
+        }
+    }
+
+    @Test
+    void put_IndexGrowsPastExpectedEntries() throws IOException {
+        CompletionStoreProperties properties = properties(directory);
+        properties.setExpectedEntries(10);
+        properties.setSegmentSize(DataSize.ofKilobytes(64));
+        try (CompletionStore store = CompletionStore.open(properties)) {
+            for (int i = 0; i < 5000; i++) {
+                store.put(bytes("prompt " + i), value("answer " + i));
+            }
+            assertEquals(5000, store.size());
+            for (int i = 0; i < 5000; i++) {
+                assertEquals("answer " + i, text(store.get(bytes("prompt " + i))));
+            }
+        }
+    }
+
+    @Test
+    void open_AfterCleanCloseKeepsEntries() throws IOException {
+        CompletionStoreProperties properties = properties(directory);
+        properties.setSegmentSize(DataSize.ofKilobytes(4));
+        try (CompletionStore store = CompletionStore.open(properties)) {
+            for (int i = 0; i < 200; i++) {
+                store.put(bytes("prompt " + i), value("answer " + i));
+            }
+            store.put(bytes("prompt 7"), value("replaced"));
+        }
+        assertTrue(Files.exists(directory.resolve("MANIFEST")));
+
+        try (CompletionStore store = CompletionStore.open(properties)) {
+            assertEquals(200, store.size());
+            assertEquals("answer 199", text(store.get(bytes("prompt 199"))));
+            assertEquals("replaced", text(store.get(bytes("prompt 7"))));
+            store.put(bytes("prompt 200"), value("answer 200"));
+            assertEquals("answer 200", text(store.get(bytes("prompt 200"))));
+        }
+    }
+
+    @Test
+    void open_AfterCrashRebuildsIndexAndCutsOffTornRecord(@TempDir Path crashed) throws IOException {
+        CompletionStoreProperties properties = properties(directory);
+        properties.setSegmentSize(DataSize.ofKilobytes(4));
+        try (CompletionStore store = CompletionStore.open(properties)) {
+            for (int i = 0; i < 100; i++) {
+                store.put(bytes("prompt " + i), value("answer " + i));
+            }
+            store.put(bytes("prompt 3"), value("replaced"));
+            // What the disk holds if the process dies now: no manifest, the mappings' contents as written
+            copyStoreFiles(directory, crashed);
+        }
+        Path lastSegment = lastSegment(crashed);
+        int end = endOfLog(lastSegment);
+        try (FileChannel channel = FileChannel.open(lastSegment, StandardOpenOption.WRITE)) {
+            // Half-written record: a length, then garbage that fails the CRC
+            channel.write(ByteBuffer.allocate(40).putInt(40).putInt(12345).flip(), end);
+        }
+
+        CompletionStoreProperties crashedProperties = properties(crashed);
+        crashedProperties.setSegmentSize(DataSize.ofKilobytes(4));
+        try (CompletionStore store = CompletionStore.open(crashedProperties)) {
+            assertEquals(100, store.size());
+            assertEquals("replaced", text(store.get(bytes("prompt 3"))));
+            assertEquals("answer 99", text(store.get(bytes("prompt 99"))));
+
+            store.put(bytes("after crash"), value("appended over the torn record"));
+            assertEquals("appended over the torn record", text(store.get(bytes("after crash"))));
+        }
+        try (CompletionStore store = CompletionStore.open(crashedProperties)) {
+            assertEquals(101, store.size());
+        }
+    }
+
+    @Test
+    void open_RebuiltIndexDoesNotReviveAnOlderValueWhenTheNewerOneExpired(@TempDir Path crashed) throws IOException {
+        VirtualTimeScheduler scheduler = VirtualTimeScheduler.getOrSet();
+        CompletionStoreProperties properties = properties(directory);
+        properties.setTtl(Duration.ofHours(10));
+        try (CompletionStore store = CompletionStore.open(properties)) {
+            store.put(bytes("prompt"), value("stale"));
+        }
+        properties.setTtl(Duration.ofHours(1)); // Lowered between runs
+        try (CompletionStore store = CompletionStore.open(properties)) {
+            store.put(bytes("prompt"), value("fresh"));
+            store.put(bytes("other prompt"), value("kept"));
+            copyStoreFiles(directory, crashed);
+        }
+        scheduler.advanceTimeBy(Duration.ofHours(2));
+
+        CompletionStoreProperties crashedProperties = properties(crashed);
+        crashedProperties.setTtl(Duration.ofHours(1));
+        try (CompletionStore store = CompletionStore.open(crashedProperties)) {
+            assertNull(store.get(bytes("prompt")));
+            assertNull(store.get(bytes("other prompt")));
+            assertEquals(0, store.size());
+        }
+    }
+
+    @Test
+    void open_DirectoryInUseIsRejected() throws IOException {
+        try (CompletionStore ignored = CompletionStore.open(properties(directory))) {
+            assertThrows(IOException.class, () -> CompletionStore.open(properties(directory)));
+        }
+    }
+
+    private static CompletionStoreProperties properties(Path directory) {
+        CompletionStoreProperties properties = new CompletionStoreProperties();
+        properties.setEnabled(true);
+        properties.setDirectory(directory.toString());
+        properties.setSegmentSize(DataSize.ofMegabytes(1));
+        properties.setExpectedEntries(1000);
+        properties.setCompactionInterval(Duration.ZERO);
+        return properties;
+    }
+
+    private static void copyStoreFiles(Path from, Path to) throws IOException {
+        try (Stream<Path> files = Files.list(from)) {
+            for (Path file : files.filter(file -> !file.getFileName().toString().equals("LOCK")).toList()) {
+                Files.copy(file, to.resolve(file.getFileName()));
+            }
+        }
+    }
+
+    private static Path lastSegment(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = files.filter(file -> file.getFileName().toString().startsWith("segment-")).sorted().toList();
+            return segments.get(segments.size() - 1);
+        }
+    }
+
+    // Walks the record lengths to the first zero one
+    private static int endOfLog(Path segment) throws IOException {
+        ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(segment));
+        int offset = 0;
+        while (offset + 4 <= content.limit() && content.getInt(offset) > 0) {
+            offset += content.getInt(offset);
+        }
+        return offset;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer value(String text) {
+        return ByteBuffer.wrap(bytes(text));
+    }
+
+    private static String text(ByteBuffer value) {
+        return value == null ? null : StandardCharsets.UTF_8.decode(value).toString();
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.ai_service_integration.AiIntegration.AiIntegration.service.store;
+
+import com.example.ai_service_integration.AiIntegration.config.CompletionStoreProperties;
+import com.example.ai_service_integration.AiIntegration.dto.CompletionResponse;
+import com.example.ai_service_integration.AiIntegration.service.AiRequestContext;
+import com.example.ai_service_integration.AiIntegration.service.AiService;
+import com.example.ai_service_integration.AiIntegration.service.store.CompletionStore;
+import com.example.ai_service_integration.AiIntegration.service.store.PersistentCachingAiService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PersistentCachingAiServiceTest {
+
+    @Mock
+    private AiService delegate;
+
+    @TempDir
+    Path directory;
+
+    private SimpleMeterRegistry meterRegistry;
+    private CompletionStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        meterRegistry = new SimpleMeterRegistry();
+        store = CompletionStore.open(properties());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        store.close();
+    }
+
+    @Test
+    void getAiCompletion_AnswerSurvivesRestart() throws IOException {
+        when(delegate.getAiCompletion("Test prompt"))
+                .thenReturn(Mono.just(new CompletionResponse("stored answer", "gpt-test-model")));
+
+        StepVerifier.create(service().getAiCompletion("Test prompt"))
+                .expectNextMatches(response -> response.getCompletion().equals("stored answer"))
+                .verifyComplete();
+        awaitEntries(1);
+
+        store.close();
+        store = CompletionStore.open(properties());
+        StepVerifier.create(service().getAiCompletion("  Test   prompt "))
+                .expectNextMatches(response -> response.getCompletion().equals("stored answer")
+                        && response.getModel().equals("gpt-test-model"))
+                .verifyComplete();
+
+        verify(delegate, times(1)).getAiCompletion("Test prompt");
+        assertEquals(1.0, meterRegistry.counter("ai.store.requests", "result", "hit").count());
+    }
+
+    @Test
+    void getAiCompletion_ModelHintsAreStoredApart() {
+        when(delegate.getAiCompletion("Test prompt"))
+                .thenReturn(Mono.just(new CompletionResponse("small answer", "gpt-small")))
+                .thenReturn(Mono.just(new CompletionResponse("large answer", "gpt-large")));
+        PersistentCachingAiService service = service();
+
+        StepVerifier.create(service.getAiCompletion("Test prompt").contextWrite(AiRequestContext.withModelHint("small")))
+                .expectNextMatches(response -> response.getCompletion().equals("small answer"))
+                .verifyComplete();
+        awaitEntries(1);
+        StepVerifier.create(service.getAiCompletion("Test prompt").contextWrite(AiRequestContext.withModelHint("large")))
+                .expectNextMatches(response -> response.getCompletion().equals("large answer"))
+                .verifyComplete();
+        awaitEntries(2);
+        StepVerifier.create(service.getAiCompletion("Test prompt").contextWrite(AiRequestContext.withModelHint("small")))
+                .expectNextMatches(response -> response.getCompletion().equals("small answer"))
+                .verifyComplete();
+
+        verify(delegate, times(2)).getAiCompletion("Test prompt");
+        assertEquals(1.0, meterRegistry.counter("ai.store.requests", "result", "hit").count());
+    }
+
+    @Test
+    void getAiCompletion_BypassSkipsStore() {
+        when(delegate.getAiCompletion("Test prompt"))
+                .thenReturn(Mono.just(new CompletionResponse("fresh answer", "gpt-test-model")));
+        PersistentCachingAiService service = service();
+
+        StepVerifier.create(service.getAiCompletion("Test prompt")
+                        .contextWrite(AiRequestContext.withCacheBypass(true)))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        verify(delegate, timeout(1000).times(1)).getAiCompletion("Test prompt");
+        assertEquals(0, store.size());
+        assertEquals(1.0, meterRegistry.counter("ai.store.requests", "result", "bypass").count());
+    }
+
+    @Test
+    void getAiCompletion_ErrorsAreNotStored() {
+        when(delegate.getAiCompletion("Test prompt"))
+                .thenReturn(Mono.error(new RuntimeException("upstream failed")));
+
+        StepVerifier.create(service().getAiCompletion("Test prompt"))
+                .expectError(RuntimeException.class)
+                .verify();
+
+        assertEquals(0, store.size());
+        assertEquals(1.0, meterRegistry.counter("ai.store.requests", "result", "miss").count());
+    }
+
+    @Test
+    void getAiCompletion_PlaceholderAnswersAreNotStored() {
+        when(delegate.getAiCompletion("Test prompt"))
+                .thenReturn(Mono.just(new CompletionResponse(CompletionResponse.NO_COMPLETION, "gpt-test-model")))
+                .thenReturn(Mono.just(new CompletionResponse("real answer", "gpt-test-model")));
+        PersistentCachingAiService service = service();
+
+        StepVerifier.create(service.getAiCompletion("Test prompt"))
+                .expectNextMatches(response -> !response.hasCompletion())
+                .verifyComplete();
+        StepVerifier.create(service.getAiCompletion("Test prompt"))
+                .expectNextMatches(response -> response.getCompletion().equals("real answer"))
+                .verifyComplete();
+        awaitEntries(1);
+
+        verify(delegate, times(2)).getAiCompletion("Test prompt");
+        assertEquals(2.0, meterRegistry.counter("ai.store.requests", "result", "miss").count());
+    }
+
+    private PersistentCachingAiService service() {
+        return new PersistentCachingAiService(delegate, store, "gpt-test-model", 100, 0.5, meterRegistry);
+    }
+
+    // Answers are written in the background, after the response has gone out
+    private void awaitEntries(long expected) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (store.size() < expected && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(expected, store.size());
+    }
+
+    private CompletionStoreProperties properties() {
+        CompletionStoreProperties properties = new CompletionStoreProperties();
+        properties.setEnabled(true);
+        properties.setDirectory(directory.toString());
+        properties.setCompactionInterval(Duration.ZERO);
+        properties.setExpectedEntries(100);
+        return properties;
+    }
+}
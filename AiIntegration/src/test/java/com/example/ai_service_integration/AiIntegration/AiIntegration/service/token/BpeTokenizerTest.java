@@ -0,0 +1,107 @@
+package com.example.ai_service_integration.AiIntegration.AiIntegration.service.token;
+
+import com.example.ai_service_integration.AiIntegration.service.token.BpeTokenizer;
+import com.example.ai_service_integration.AiIntegration.service.token.PreTokenizer;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BpeTokenizerTest {
+
+    // The cl100k_base pattern as tiktoken defines it; Java's regex engine with Unicode classes agrees with it
+    private static final Pattern CL100K = Pattern.compile(
+            "(?i:'s|'t|'re|'ve|'m|'ll|'d)|[^\\r\\n\\p{L}\\p{N}]?\\p{L}+|\\p{N}{1,3}| ?[^\\s\\p{L}\\p{N}]+[\\r\\n]*|\\s*[\\r\\n]+|\\s+(?!\\S)|\\s+",
+            Pattern.UNICODE_CHARACTER_CLASS);
+
+    private static BpeTokenizer tokenizer;
+
+    @BeforeAll
+    static void loadVocabulary() throws IOException {
+        try (InputStream in = BpeTokenizerTest.class.getResourceAsStream("/tokenizer/cl100k_base.tiktoken")) {
+            tokenizer = BpeTokenizer.load(in);
+        }
+    }
+
+    @Test
+    void encode_MatchesTiktoken() {
+        assertEquals(100256, tokenizer.size());
+        assertArrayEquals(new int[]{15339, 1917}, tokenizer.encode("hello world"));
+        assertArrayEquals(new int[]{83, 1609, 5963, 374, 2294, 0}, tokenizer.encode("tiktoken is great!"));
+        assertArrayEquals(new int[]{262, 1280, 16243, 1679}, tokenizer.encode("    indented();\r\n"));
+        assertEquals(17, tokenizer.countTokens("I'm here\n\n  they've  gone 12345 🙂 日本語"));
+        assertEquals(0, tokenizer.countTokens(""));
+        assertEquals(0, tokenizer.estimate(null));
+    }
+
+    @Test
+    void encode_LongPiecesMergeLikeShortOnes() {
+        // Single pieces far beyond the quadratic merge loop's range
+        assertEquals(125, tokenizer.countTokens("a".repeat(1000)));
+        int[] tokens = tokenizer.encode("antidisestablishmentarianism".repeat(10));
+        assertEquals(60, tokens.length);
+        assertArrayEquals(new int[]{519, 85342, 34500, 479, 8997, 2191}, Arrays.copyOf(tokens, 6));
+    }
+
+    @Test
+    void nextPieceEnd_SplitsLikeTheCl100kPattern() {
+        Random random = new Random(42);
+        String alphabet = "aZéß日م 09٣Ⅵ½ \t\n\r 　'sSrRvlLdmt.,!?-_(){}́";
+        for (int sample = 0; sample < 5000; sample++) {
+            StringBuilder text = new StringBuilder();
+            for (int i = random.nextInt(40); i > 0; i--) {
+                text.append(random.nextInt(20) == 0 ? "🙂" : String.valueOf(alphabet.charAt(random.nextInt(alphabet.length()))));
+            }
+            assertEquals(regexPieces(text.toString()), pieces(text.toString()), () -> "Pieces of \"" + text + "\"");
+        }
+    }
+
+    @Test
+    void prefixLength_KeepsWholePiecesWithinBudget() {
+        String text = "The quick brown fox jumps over the lazy dog";
+        assertEquals(text.length(), tokenizer.prefixLength(text, 100));
+        int length = tokenizer.prefixLength(text, 4);
+        assertEquals("The quick brown fox", text.substring(0, length));
+        assertTrue(tokenizer.countTokens(text.substring(0, length)) <= 4);
+        assertEquals(0, tokenizer.prefixLength(text, 0));
+    }
+
+    @Test
+    void load_RejectsVocabularyMissingSingleBytes() {
+        InputStream vocabulary = new ByteArrayInputStream("YQ== 0\nYg== 1\n".getBytes(StandardCharsets.US_ASCII));
+        assertThrows(IOException.class, () -> BpeTokenizer.load(vocabulary));
+    }
+
+    private static List<String> pieces(String text) {
+        List<String> pieces = new ArrayList<>();
+        for (int start = 0; start < text.length(); ) {
+            int end = PreTokenizer.nextPieceEnd(text, start);
+            pieces.add(text.substring(start, end));
+            start = end;
+        }
+        return pieces;
+    }
+
+    private static List<String> regexPieces(String text) {
+        List<String> pieces = new ArrayList<>();
+        Matcher matcher = CL100K.matcher(text);
+        while (matcher.find()) {
+            pieces.add(matcher.group());
+        }
+        return pieces;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.ai_service_integration.AiIntegration.AiIntegration.service.upstream;
+
+import com.example.ai_service_integration.AiIntegration.config.TimeoutProperties;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiResponse;
+import com.example.ai_service_integration.AiIntegration.service.upstream.AdaptiveTimeoutFilter;
+import com.example.ai_service_integration.AiIntegration.service.upstream.UpstreamExchange;
+import com.example.ai_service_integration.AiIntegration.service.upstream.UpstreamLatencyTracker;
+import com.example.ai_service_integration.AiIntegration.service.upstream.UpstreamTimeoutException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AdaptiveTimeoutFilterTest {
+
+    private static final String MODEL = "gpt-test-model";
+    private static final long FALLBACK_MILLIS = 10_000;
+
+    private final UpstreamExchange hangingUpstream = request -> Mono.never();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private TimeoutProperties properties;
+    private UpstreamLatencyTracker latencyTracker;
+
+    @BeforeEach
+    void setUp() {
+        properties = new TimeoutProperties();
+        properties.setPercentile(0.99);
+        properties.setHeadroom(1.5);
+        properties.setMinSamples(20);
+        properties.setMin(Duration.ofSeconds(1));
+        properties.setMax(Duration.ofSeconds(60));
+        latencyTracker = new UpstreamLatencyTracker(100);
+    }
+
+    @Test
+    void filter_UsesTheConfiguredTimeoutUntilEnoughCallsAreSeen() {
+        recordCalls(19);
+
+        StepVerifier.withVirtualTime(() -> newFilter().filter(request(100), hangingUpstream))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(FALLBACK_MILLIS - 1))
+                .thenAwait(Duration.ofMillis(1))
+                .expectError(UpstreamTimeoutException.class)
+                .verify();
+    }
+
+    @Test
+    void filter_DeadlineGrowsWithTheRequestedAnswerSize() {
+        // 500 ms to start, then 20 ms per token: 100 tokens take 2.5 s, 1.5 x that is 3.75 s
+        recordCalls(50);
+
+        StepVerifier.withVirtualTime(() -> newFilter().filter(request(100), hangingUpstream))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(3740))
+                .thenAwait(Duration.ofMillis(20))
+                .expectError(UpstreamTimeoutException.class)
+                .verify();
+        // 400 tokens take 8.5 s, 1.5 x that is 12.75 s
+        StepVerifier.withVirtualTime(() -> newFilter().filter(request(400), hangingUpstream))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(12_740))
+                .thenAwait(Duration.ofMillis(20))
+                .expectError(UpstreamTimeoutException.class)
+                .verify();
+
+        assertEquals(2.0, meterRegistry.counter("ai.upstream.timeouts", "type", "attempt").count());
+    }
+
+    @Test
+    void filter_AdaptiveDeadlineIsKeptWithinBounds() {
+        recordCalls(50);
+        properties.setMin(Duration.ofSeconds(5));
+
+        StepVerifier.withVirtualTime(() -> newFilter().filter(request(10), hangingUpstream))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(4999))
+                .thenAwait(Duration.ofMillis(1))
+                .expectError(UpstreamTimeoutException.class)
+                .verify();
+    }
+
+    @Test
+    void filter_AnswerWithinTheDeadlinePassesThrough() {
+        OpenAiApiResponse answer = new OpenAiApiResponse();
+
+        StepVerifier.withVirtualTime(() -> newFilter().filter(request(100),
+                        request -> Mono.delay(Duration.ofSeconds(9)).thenReturn(answer)))
+                .expectSubscription()
+                .thenAwait(Duration.ofSeconds(9))
+                .expectNext(answer)
+                .verifyComplete();
+    }
+
+    // Calls of 10 to 400 tokens, 500 ms + 20 ms per token each
+    private void recordCalls(int count) {
+        for (int i = 0; i < count; i++) {
+            int tokens = 10 + (i * 390) / Math.max(1, count - 1);
+            latencyTracker.record(MODEL, Duration.ofMillis(500 + 20L * tokens), tokens);
+        }
+    }
+
+    private AdaptiveTimeoutFilter newFilter() {
+        return new AdaptiveTimeoutFilter(properties, latencyTracker, FALLBACK_MILLIS, meterRegistry);
+    }
+
+    private static OpenAiApiRequest request(int maxTokens) {
+        return OpenAiApiRequest.builder().model(MODEL).max_tokens(maxTokens).build();
+    }
+}
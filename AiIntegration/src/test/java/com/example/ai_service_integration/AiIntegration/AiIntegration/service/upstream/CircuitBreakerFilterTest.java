@@ -0,0 +1,131 @@
+package com.example.ai_service_integration.AiIntegration.AiIntegration.service.upstream;
+
+import com.example.ai_service_integration.AiIntegration.config.CircuitBreakerProperties;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiResponse;
+import com.example.ai_service_integration.AiIntegration.service.AiServiceException;
+import com.example.ai_service_integration.AiIntegration.service.upstream.CircuitBreakerFilter;
+import com.example.ai_service_integration.AiIntegration.service.upstream.UpstreamExchange;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CircuitBreakerFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private CircuitBreakerFilter circuitBreaker;
+    private VirtualTimeScheduler clock;
+
+    // Upstream stub: answers or fails with the configured status
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private HttpStatus upstreamStatus = HttpStatus.OK;
+    private final UpstreamExchange upstream = request -> Mono.defer(() -> {
+        upstreamCalls.incrementAndGet();
+        if (upstreamStatus == HttpStatus.OK) {
+            return Mono.just(new OpenAiApiResponse());
+        }
+        return Mono.error(WebClientResponseException.create(upstreamStatus.value(), upstreamStatus.getReasonPhrase(),
+                new HttpHeaders(), new byte[0], StandardCharsets.UTF_8));
+    });
+
+    @BeforeEach
+    void setUp() {
+        clock = VirtualTimeScheduler.getOrSet();
+        CircuitBreakerProperties properties = new CircuitBreakerProperties();
+        properties.setFailureRateThreshold(0.5);
+        properties.setSlidingWindowSize(10);
+        properties.setMinimumCalls(4);
+        properties.setOpenDuration(Duration.ofSeconds(30));
+        properties.setHalfOpenTrials(2);
+        meterRegistry = new SimpleMeterRegistry();
+        circuitBreaker = new CircuitBreakerFilter(properties, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        VirtualTimeScheduler.reset();
+    }
+
+    @Test
+    void filter_OpensOnceFailureRateCrossesThresholdAndFailsFast() {
+        call(HttpStatus.OK);
+        call(HttpStatus.OK);
+        call(HttpStatus.SERVICE_UNAVAILABLE);
+        assertEquals(CircuitBreakerFilter.State.CLOSED, circuitBreaker.getState());
+        call(HttpStatus.SERVICE_UNAVAILABLE);
+        assertEquals(CircuitBreakerFilter.State.OPEN, circuitBreaker.getState());
+
+        upstreamStatus = HttpStatus.OK;
+        StepVerifier.create(circuitBreaker.filter(request(), upstream))
+                .expectErrorMatches(error -> error instanceof AiServiceException unavailable
+                        && unavailable.getStatus() == HttpStatus.SERVICE_UNAVAILABLE
+                        && unavailable.getRetryAfter().equals(Duration.ofSeconds(30)))
+                .verify();
+        assertEquals(4, upstreamCalls.get());
+        assertEquals(1.0, meterRegistry.get("ai.upstream.circuit.state").tag("state", "open").gauge().value());
+    }
+
+    @Test
+    void filter_ClientErrorsDoNotOpenTheCircuit() {
+        for (int i = 0; i < 10; i++) {
+            call(HttpStatus.BAD_REQUEST);
+        }
+        assertEquals(CircuitBreakerFilter.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void filter_HalfOpenTrialsCloseTheCircuitOnSuccess() {
+        openCircuit();
+        clock.advanceTimeBy(Duration.ofSeconds(30));
+
+        call(HttpStatus.OK);
+        assertEquals(CircuitBreakerFilter.State.HALF_OPEN, circuitBreaker.getState());
+        call(HttpStatus.OK);
+        assertEquals(CircuitBreakerFilter.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void filter_FailedHalfOpenTrialReopensTheCircuit() {
+        openCircuit();
+        clock.advanceTimeBy(Duration.ofSeconds(30));
+
+        call(HttpStatus.INTERNAL_SERVER_ERROR);
+        assertEquals(CircuitBreakerFilter.State.OPEN, circuitBreaker.getState());
+    }
+
+    private void openCircuit() {
+        for (int i = 0; i < 4; i++) {
+            call(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        assertEquals(CircuitBreakerFilter.State.OPEN, circuitBreaker.getState());
+    }
+
+    private void call(HttpStatus status) {
+        upstreamStatus = status;
+        circuitBreaker.filter(request(), upstream).onErrorResume(error -> Mono.empty()).block();
+    }
+
+    private static OpenAiApiRequest request() {
+        return OpenAiApiRequest.builder()
+                .model("gpt-test-model")
+                .messages(Collections.singletonList(
+                        OpenAiApiRequest.Message.builder().role("user").content("Test prompt").build()))
+                .max_tokens(100)
+                .temperature(0.5)
+                .build();
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.ai_service_integration.AiIntegration.AiIntegration.service.upstream;
+
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiResponse;
+import com.example.ai_service_integration.AiIntegration.service.AiRequestContext;
+import com.example.ai_service_integration.AiIntegration.service.AiServiceException;
+import com.example.ai_service_integration.AiIntegration.service.upstream.DeadlineFilter;
+import com.example.ai_service_integration.AiIntegration.service.upstream.UpstreamExchange;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DeadlineFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final UpstreamExchange hangingUpstream = request -> Mono.defer(() -> {
+        calls.incrementAndGet();
+        return Mono.never();
+    });
+
+    @Test
+    void filter_FailsWithGatewayTimeoutWhenTheClientDeadlinePasses() {
+        StepVerifier.withVirtualTime(() -> new DeadlineFilter(meterRegistry).filter(request(), hangingUpstream)
+                        .contextWrite(AiRequestContext.withDeadline(Duration.ofSeconds(3))))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(2999))
+                .thenAwait(Duration.ofMillis(1))
+                .expectErrorSatisfies(e -> assertEquals(HttpStatus.GATEWAY_TIMEOUT, ((AiServiceException) e).getStatus()))
+                .verify();
+
+        assertEquals(1.0, meterRegistry.counter("ai.upstream.timeouts", "type", "deadline").count());
+    }
+
+    @Test
+    void filter_DeadlineAlreadyPassedSkipsTheCall() {
+        StepVerifier.withVirtualTime(() -> Mono.delay(Duration.ofSeconds(2))
+                        .then(new DeadlineFilter(meterRegistry).filter(request(), hangingUpstream))
+                        .contextWrite(AiRequestContext.withDeadline(Duration.ofSeconds(1))))
+                .expectSubscription()
+                .thenAwait(Duration.ofSeconds(2))
+                .expectError(AiServiceException.class)
+                .verify();
+
+        assertEquals(0, calls.get());
+    }
+
+    @Test
+    void filter_WithoutDeadlinePassesThrough() {
+        OpenAiApiResponse answer = new OpenAiApiResponse();
+
+        StepVerifier.create(new DeadlineFilter(meterRegistry).filter(request(), request -> Mono.just(answer)))
+                .expectNext(answer)
+                .verifyComplete();
+    }
+
+    private static OpenAiApiRequest request() {
+        return OpenAiApiRequest.builder().model("gpt-test-model").build();
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.ai_service_integration.AiIntegration.AiIntegration.service.upstream;
+
+import com.example.ai_service_integration.AiIntegration.config.HedgingProperties;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiResponse;
+import com.example.ai_service_integration.AiIntegration.service.upstream.HedgingFilter;
+import com.example.ai_service_integration.AiIntegration.service.upstream.UpstreamExchange;
+import com.example.ai_service_integration.AiIntegration.service.upstream.UpstreamLatencyTracker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HedgingFilterTest {
+
+    private static final String MODEL = "gpt-test-model";
+
+    private HedgingProperties properties;
+    private UpstreamLatencyTracker latencyTracker;
+
+    // Upstream stub: every call gets its own sink, completed by the test
+    private final List<Sinks.One<OpenAiApiResponse>> calls = new ArrayList<>();
+    private final List<AtomicBoolean> cancelled = new ArrayList<>();
+    private final UpstreamExchange upstream = request -> Mono.defer(() -> {
+        Sinks.One<OpenAiApiResponse> call = Sinks.one();
+        AtomicBoolean callCancelled = new AtomicBoolean();
+        calls.add(call);
+        cancelled.add(callCancelled);
+        return call.asMono().doOnCancel(() -> callCancelled.set(true));
+    });
+
+    @BeforeEach
+    void setUp() {
+        properties = new HedgingProperties();
+        properties.setEnabled(true);
+        properties.setPercentile(0.95);
+        properties.setMinDelay(Duration.ofMillis(10));
+        properties.setMinSamples(10);
+        properties.setMaxInFlight(1);
+
+        // Recent history: 95% of calls answered within 200 ms
+        latencyTracker = new UpstreamLatencyTracker(100);
+        for (int i = 1; i <= 100; i++) {
+            latencyTracker.record(MODEL, Duration.ofMillis(i <= 95 ? 200 : 2000));
+        }
+    }
+
+    @Test
+    void filter_SlowCallIsHedgedAndLoserCancelled() {
+        OpenAiApiResponse hedgedAnswer = new OpenAiApiResponse();
+
+        StepVerifier.withVirtualTime(() -> newFilter().filter(request(), upstream))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(199))
+                .then(() -> assertEquals(1, calls.size()))
+                .thenAwait(Duration.ofMillis(1))
+                .then(() -> calls.get(1).tryEmitValue(hedgedAnswer))
+                .expectNext(hedgedAnswer)
+                .verifyComplete();
+
+        assertEquals(2, calls.size());
+        assertTrue(cancelled.get(0).get());
+    }
+
+    @Test
+    void filter_FastCallIsNotHedged() {
+        OpenAiApiResponse answer = new OpenAiApiResponse();
+
+        StepVerifier.withVirtualTime(() -> newFilter().filter(request(), upstream))
+                .expectSubscription()
+                .then(() -> calls.get(0).tryEmitValue(answer))
+                .expectNext(answer)
+                .verifyComplete();
+
+        assertEquals(1, calls.size());
+    }
+
+    @Test
+    void filter_HedgeCapLeavesSlowCallsWaiting() {
+        properties.setMaxInFlight(0);
+        OpenAiApiResponse answer = new OpenAiApiResponse();
+
+        StepVerifier.withVirtualTime(() -> newFilter().filter(request(), upstream))
+                .expectSubscription()
+                .thenAwait(Duration.ofSeconds(5))
+                .then(() -> calls.get(0).tryEmitValue(answer))
+                .expectNext(answer)
+                .verifyComplete();
+
+        assertEquals(1, calls.size());
+    }
+
+    @Test
+    void filter_FailureOfOneAttemptWaitsForTheOther() {
+        RuntimeException failure = new RuntimeException("upstream failed");
+        OpenAiApiResponse answer = new OpenAiApiResponse();
+
+        StepVerifier.withVirtualTime(() -> newFilter().filter(request(), upstream))
+                .expectSubscription()
+                .thenAwait(Duration.ofMillis(200))
+                .then(() -> calls.get(0).tryEmitError(failure))
+                .expectNoEvent(Duration.ofMillis(50))
+                .then(() -> calls.get(1).tryEmitValue(answer))
+                .expectNext(answer)
+                .verifyComplete();
+    }
+
+    @Test
+    void filter_EarlyFailureIsReportedWithoutHedging() {
+        RuntimeException failure = new RuntimeException("upstream failed");
+
+        StepVerifier.withVirtualTime(() -> newFilter().filter(request(), upstream))
+                .expectSubscription()
+                .then(() -> calls.get(0).tryEmitError(failure))
+                .expectErrorMatches(error -> error == failure)
+                .verify();
+
+        assertEquals(1, calls.size());
+    }
+
+    @Test
+    void filter_NoHedgingWithoutEnoughLatencyHistory() {
+        latencyTracker = new UpstreamLatencyTracker(100);
+        OpenAiApiResponse answer = new OpenAiApiResponse();
+
+        StepVerifier.withVirtualTime(() -> newFilter().filter(request(), upstream))
+                .expectSubscription()
+                .thenAwait(Duration.ofSeconds(5))
+                .then(() -> calls.get(0).tryEmitValue(answer))
+                .expectNext(answer)
+                .verifyComplete();
+
+        assertEquals(1, calls.size());
+        assertFalse(cancelled.get(0).get());
+    }
+
+    private HedgingFilter newFilter() {
+        return new HedgingFilter(properties, latencyTracker, new SimpleMeterRegistry());
+    }
+
+    private static OpenAiApiRequest request() {
+        return OpenAiApiRequest.builder()
+                .model(MODEL)
+                .messages(Collections.singletonList(
+                        OpenAiApiRequest.Message.builder().role("user").content("Test prompt").build()))
+                .max_tokens(100)
+                .temperature(0.5)
+                .build();
+    }
+}
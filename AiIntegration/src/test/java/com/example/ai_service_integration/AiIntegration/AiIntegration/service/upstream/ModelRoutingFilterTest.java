@@ -0,0 +1,149 @@
+package com.example.ai_service_integration.AiIntegration.AiIntegration.service.upstream;
+
+import com.example.ai_service_integration.AiIntegration.config.ModelRoutingProperties;
+import com.example.ai_service_integration.AiIntegration.config.TokenBudgetProperties;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiResponse;
+import com.example.ai_service_integration.AiIntegration.service.AiRequestContext;
+import com.example.ai_service_integration.AiIntegration.service.AiServiceException;
+import com.example.ai_service_integration.AiIntegration.service.token.CharacterTokenEstimator;
+import com.example.ai_service_integration.AiIntegration.service.upstream.ModelRoutingFilter;
+import com.example.ai_service_integration.AiIntegration.service.upstream.UpstreamLatencyTracker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ModelRoutingFilterTest {
+
+    private static final String SMALL = "small-model";
+    private static final String LARGE = "large-model";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<String> calledModels = new ArrayList<>();
+    private ModelRoutingProperties properties;
+    private TokenBudgetProperties tokenBudgetProperties;
+    private UpstreamLatencyTracker latencyTracker;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ModelRoutingProperties();
+        properties.setEnabled(true);
+        properties.setSmallModel(SMALL);
+        properties.setLargeModel(LARGE);
+        properties.setMaxSmallPromptTokens(50);
+        properties.setLargeMarkers(List.of("Step by step"));
+        properties.setMinSamples(5);
+        tokenBudgetProperties = new TokenBudgetProperties();
+        latencyTracker = new UpstreamLatencyTracker(100);
+    }
+
+    @Test
+    void filter_ShortPlainPromptsGoToTheSmallModel() {
+        StepVerifier.create(newFilter().filter(request("What is 2 + 2?"), this::answer)).expectNextCount(1).verifyComplete();
+
+        assertEquals(List.of(SMALL), calledModels);
+        assertEquals(1.0, meterRegistry.get("ai.upstream.model.decisions").tags("model", SMALL, "reason", "default").counter().count());
+    }
+
+    @Test
+    void filter_LongPromptsMarkersAndCodeGoToTheLargeModel() {
+        ModelRoutingFilter filter = newFilter();
+
+        StepVerifier.create(filter.filter(request("x".repeat(400)), this::answer)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(filter.filter(request("Explain it step by step"), this::answer)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(filter.filter(request("Why?\n```int x;```"), this::answer)).expectNextCount(1).verifyComplete();
+
+        assertEquals(List.of(LARGE, LARGE, LARGE), calledModels);
+        assertEquals(2.0, meterRegistry.get("ai.upstream.model.decisions").tags("reason", "content").counter().count());
+    }
+
+    @Test
+    void filter_CallerHintWins() {
+        StepVerifier.create(newFilter().filter(request("Hi"), this::answer)
+                        .contextWrite(AiRequestContext.withModelHint("Large")))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertEquals(List.of(LARGE), calledModels);
+    }
+
+    @Test
+    void filter_TakesTheSmallModelWhenTheLargeOneWouldMissTheDeadline() {
+        for (int i = 0; i < 5; i++) {
+            latencyTracker.record(LARGE, Duration.ofSeconds(8));
+        }
+        OpenAiApiRequest request = request("Explain it step by step");
+        request.setMax_tokens(null);
+
+        StepVerifier.create(newFilter().filter(request, this::answer)
+                        .contextWrite(AiRequestContext.withDeadline(Duration.ofSeconds(5))))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertEquals(List.of(SMALL), calledModels);
+        assertEquals(1.0, meterRegistry.get("ai.upstream.model.decisions").tags("reason", "deadline").counter().count());
+    }
+
+    @Test
+    void filter_FallsBackToTheOtherModelWhenOverloaded() {
+        WebClientResponseException throttled = WebClientResponseException.create(429, "Too Many Requests",
+                new HttpHeaders(), new byte[0], StandardCharsets.UTF_8);
+
+        StepVerifier.create(newFilter().filter(request("Hi"), req -> {
+                    calledModels.add(req.getModel());
+                    return SMALL.equals(req.getModel()) ? Mono.error(throttled) : Mono.just(new OpenAiApiResponse());
+                }))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertEquals(List.of(SMALL, LARGE), calledModels);
+        assertEquals(1.0, meterRegistry.get("ai.upstream.model.fallbacks").tags("from", SMALL, "to", LARGE).counter().count());
+    }
+
+    @Test
+    void filter_DoesNotFallBackForOtherErrorsOrPromptsTheOtherModelCannotTake() {
+        tokenBudgetProperties.getModels().put(SMALL, 64);
+        AiServiceException badRequest = new AiServiceException(HttpStatus.BAD_REQUEST, "Bad request");
+        AiServiceException overloaded = new AiServiceException(HttpStatus.SERVICE_UNAVAILABLE, "Circuit open");
+        ModelRoutingFilter filter = newFilter();
+
+        StepVerifier.create(filter.filter(request("Hi"), req -> fail(req, badRequest))).verifyErrorMatches(e -> e == badRequest);
+        StepVerifier.create(filter.filter(request("x".repeat(400)), req -> fail(req, overloaded))).verifyErrorMatches(e -> e == overloaded);
+
+        assertEquals(List.of(SMALL, LARGE), calledModels);
+    }
+
+    private ModelRoutingFilter newFilter() {
+        return new ModelRoutingFilter(properties, tokenBudgetProperties, new CharacterTokenEstimator(), latencyTracker, meterRegistry);
+    }
+
+    private Mono<OpenAiApiResponse> answer(OpenAiApiRequest request) {
+        calledModels.add(request.getModel());
+        return Mono.just(new OpenAiApiResponse());
+    }
+
+    private Mono<OpenAiApiResponse> fail(OpenAiApiRequest request, Throwable error) {
+        calledModels.add(request.getModel());
+        return Mono.error(error);
+    }
+
+    private static OpenAiApiRequest request(String prompt) {
+        return OpenAiApiRequest.builder()
+                .model("configured-model")
+                .messages(List.of(OpenAiApiRequest.Message.builder().role("user").content(prompt).build()))
+                .max_tokens(100)
+                .build();
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.ai_service_integration.AiIntegration.AiIntegration.service.upstream;
+
+import com.example.ai_service_integration.AiIntegration.config.TokenBudgetProperties;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiResponse;
+import com.example.ai_service_integration.AiIntegration.service.AiServiceException;
+import com.example.ai_service_integration.AiIntegration.service.token.CharacterTokenEstimator;
+import com.example.ai_service_integration.AiIntegration.service.upstream.PromptBudgetFilter;
+import com.example.ai_service_integration.AiIntegration.service.upstream.UpstreamExchange;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class PromptBudgetFilterTest {
+
+    private TokenBudgetProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+
+    // Upstream stub: records the request that actually went out
+    private final AtomicReference<OpenAiApiRequest> sent = new AtomicReference<>();
+    private final UpstreamExchange upstream = request -> {
+        sent.set(request);
+        return Mono.just(new OpenAiApiResponse());
+    };
+
+    @BeforeEach
+    void setUp() {
+        properties = new TokenBudgetProperties();
+        properties.setContextWindow(1000);
+        properties.setMinCompletionTokens(16);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void filter_PromptThatFitsIsSentUnchanged() {
+        OpenAiApiRequest request = request("x".repeat(400), 500); // 100 + 7 framing tokens
+
+        StepVerifier.create(filter().filter(request, upstream)).expectNextCount(1).verifyComplete();
+
+        assertSame(request, sent.get());
+        assertEquals(1.0, meterRegistry.counter("ai.token-budget.requests", "result", "passed").count());
+    }
+
+    @Test
+    void filter_MaxTokensIsClampedToTheRemainingWindow() {
+        StepVerifier.create(filter().filter(request("x".repeat(2000), 800), upstream)).expectNextCount(1).verifyComplete();
+
+        assertEquals(1000 - 507, sent.get().getMax_tokens());
+        assertEquals(1.0, meterRegistry.counter("ai.token-budget.requests", "result", "clamped").count());
+    }
+
+    @Test
+    void filter_PerModelWindowApplies() {
+        properties.getModels().put("gpt-test-model", 600);
+
+        StepVerifier.create(filter().filter(request("x".repeat(2000), 800), upstream)).expectNextCount(1).verifyComplete();
+
+        assertEquals(600 - 507, sent.get().getMax_tokens());
+    }
+
+    @Test
+    void filter_OversizedPromptIsRejectedWithoutCallingUpstream() {
+        StepVerifier.create(filter().filter(request("x".repeat(4000), 100), upstream))
+                .expectErrorMatches(e -> e instanceof AiServiceException
+                        && ((AiServiceException) e).getStatus() == HttpStatus.BAD_REQUEST)
+                .verify();
+
+        assertNull(sent.get());
+        assertEquals(1.0, meterRegistry.counter("ai.token-budget.requests", "result", "rejected").count());
+    }
+
+    @Test
+    void filter_OversizedPromptIsTruncatedWhenConfigured() {
+        properties.setOverflow(TokenBudgetProperties.Overflow.TRUNCATE);
+
+        StepVerifier.create(filter().filter(request("x".repeat(4000), 100), upstream)).expectNextCount(1).verifyComplete();
+
+        // 1000 - 16 for the prompt, minus 7 framing tokens, at four characters per token
+        assertEquals((1000 - 16 - 7) * 4, sent.get().getMessages().get(0).getContent().length());
+        assertEquals(16, sent.get().getMax_tokens());
+        assertEquals(1.0, meterRegistry.counter("ai.token-budget.requests", "result", "truncated").count());
+    }
+
+    private PromptBudgetFilter filter() {
+        return new PromptBudgetFilter(properties, new CharacterTokenEstimator(), meterRegistry);
+    }
+
+    private static OpenAiApiRequest request(String prompt, int maxTokens) {
+        return OpenAiApiRequest.builder()
+                .model("gpt-test-model")
+                .messages(Collections.singletonList(OpenAiApiRequest.Message.builder().role("user").content(prompt).build()))
+                .max_tokens(maxTokens)
+                .temperature(0.5)
+                .build();
+    }
+}
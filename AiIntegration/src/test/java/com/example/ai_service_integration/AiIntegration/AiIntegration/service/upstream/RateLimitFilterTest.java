@@ -0,0 +1,154 @@
+package com.example.ai_service_integration.AiIntegration.AiIntegration.service.upstream;
+
+import com.example.ai_service_integration.AiIntegration.config.RateLimitProperties;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiResponse;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiStreamChunk;
+import com.example.ai_service_integration.AiIntegration.service.AiServiceException;
+import com.example.ai_service_integration.AiIntegration.service.token.CharacterTokenEstimator;
+import com.example.ai_service_integration.AiIntegration.service.upstream.RateLimitFilter;
+import com.example.ai_service_integration.AiIntegration.service.upstream.UpstreamExchange;
+import com.example.ai_service_integration.AiIntegration.service.upstream.UpstreamStreamExchange;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RateLimitFilterTest {
+
+    private RateLimitProperties properties;
+
+    // Upstream stub: counts calls and reports the given usage
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private int reportedTotalTokens = 0;
+    private final UpstreamExchange upstream = request -> Mono.fromSupplier(() -> {
+        upstreamCalls.incrementAndGet();
+        OpenAiApiResponse response = new OpenAiApiResponse();
+        response.setUsage(new OpenAiApiResponse.Usage(0, 0, reportedTotalTokens));
+        return response;
+    });
+
+    @BeforeEach
+    void setUp() {
+        properties = new RateLimitProperties();
+        properties.setEnabled(true);
+        properties.setMaxWait(Duration.ZERO);
+        properties.setRequestsPerMinute(100);
+        properties.setTokensPerMinute(100_000);
+    }
+
+    @Test
+    void filter_AdmitsRequestsWithinBudgetImmediately() {
+        RateLimitFilter filter = newFilter();
+
+        StepVerifier.create(filter.filter(request("gpt-test-model", 100), upstream)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(filter.filter(request("gpt-test-model", 100), upstream)).expectNextCount(1).verifyComplete();
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void filter_QueuesUntilBudgetRefillsWithinMaxWait() {
+        properties.setRequestsPerMinute(1);
+        properties.setMaxWait(Duration.ofMinutes(2));
+
+        StepVerifier.withVirtualTime(() -> {
+                    RateLimitFilter filter = newFilter();
+                    return filter.filter(request("gpt-test-model", 100), upstream)
+                            .then(filter.filter(request("gpt-test-model", 100), upstream));
+                })
+                .expectSubscription()
+                .expectNoEvent(Duration.ofSeconds(59))
+                .thenAwait(Duration.ofSeconds(1))
+                .expectNextCount(1)
+                .verifyComplete();
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void filter_RejectsWith429WhenWaitWouldExceedMaxWait() {
+        properties.setRequestsPerMinute(1);
+        properties.setMaxWait(Duration.ofSeconds(1));
+        RateLimitFilter filter = newFilter();
+
+        StepVerifier.create(filter.filter(request("gpt-test-model", 100), upstream)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(filter.filter(request("gpt-test-model", 100), upstream))
+                .expectErrorMatches(e -> e instanceof AiServiceException rateLimited
+                        && rateLimited.getStatus() == HttpStatus.TOO_MANY_REQUESTS
+                        && rateLimited.getRetryAfter().compareTo(Duration.ofSeconds(50)) > 0)
+                .verify();
+        assertEquals(1, upstreamCalls.get());
+    }
+
+    @Test
+    void filter_ReconcilesEstimateWithReportedUsage() {
+        // Each request is estimated at ~600 tokens but only 10 are billed, so the refund admits the second
+        properties.setTokensPerMinute(1000);
+        reportedTotalTokens = 10;
+        RateLimitFilter filter = newFilter();
+
+        StepVerifier.create(filter.filter(request("gpt-test-model", 590), upstream)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(filter.filter(request("gpt-test-model", 590), upstream)).expectNextCount(1).verifyComplete();
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void filter_AppliesLimitsPerModelAndApiKey() {
+        RateLimitProperties.Limits strict = new RateLimitProperties.Limits();
+        strict.setRequestsPerMinute(1);
+        properties.getModels().put("gpt-strict-model", strict);
+        RateLimitFilter filter = newFilter();
+
+        StepVerifier.create(filter.filter(request("gpt-strict-model", 100), upstream)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(filter.filter(request("gpt-strict-model", 100), upstream)).expectError(AiServiceException.class).verify();
+        StepVerifier.create(filter.filter(request("gpt-test-model", 100), upstream)).expectNextCount(1).verifyComplete();
+
+        RateLimitProperties.KeyLimits key = new RateLimitProperties.KeyLimits();
+        key.setRequestsPerMinute(7);
+        key.getModels().put("gpt-strict-model", new RateLimitProperties.Limits());
+        properties.getKeys().put("secondary", key);
+        assertEquals(1, properties.limitsFor("default", "gpt-strict-model").getRequestsPerMinute());
+        assertEquals(7, properties.limitsFor("secondary", "gpt-strict-model").getRequestsPerMinute());
+        assertEquals(100_000, properties.limitsFor("secondary", "gpt-strict-model").getTokensPerMinute());
+    }
+
+    @Test
+    void filterStream_SharesTheBudgetOfCompleteCalls() {
+        properties.setRequestsPerMinute(1);
+        RateLimitFilter filter = newFilter();
+        UpstreamStreamExchange stream = request -> Flux.defer(() -> {
+            upstreamCalls.incrementAndGet();
+            return Flux.just(new OpenAiStreamChunk());
+        });
+
+        StepVerifier.create(filter.filterStream(request("gpt-test-model", 100), stream)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(filter.filterStream(request("gpt-test-model", 100), stream))
+                .expectErrorMatches(e -> e instanceof AiServiceException rateLimited
+                        && rateLimited.getStatus() == HttpStatus.TOO_MANY_REQUESTS)
+                .verify();
+        StepVerifier.create(filter.filter(request("gpt-test-model", 100), upstream)).expectError(AiServiceException.class).verify();
+        assertEquals(1, upstreamCalls.get());
+    }
+
+    private RateLimitFilter newFilter() {
+        return new RateLimitFilter(properties, new CharacterTokenEstimator(), new SimpleMeterRegistry());
+    }
+
+    private static OpenAiApiRequest request(String model, int maxTokens) {
+        return OpenAiApiRequest.builder()
+                .model(model)
+                .messages(Collections.singletonList(
+                        OpenAiApiRequest.Message.builder().role("user").content("Test prompt").build()))
+                .max_tokens(maxTokens)
+                .temperature(0.5)
+                .build();
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.ai_service_integration.AiIntegration.AiIntegration.service.upstream;
+
+import com.example.ai_service_integration.AiIntegration.config.RetryProperties;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiResponse;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiStreamChunk;
+import com.example.ai_service_integration.AiIntegration.service.upstream.RetryFilter;
+import com.example.ai_service_integration.AiIntegration.service.upstream.UpstreamExchange;
+import com.example.ai_service_integration.AiIntegration.service.upstream.UpstreamStreamExchange;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RetryFilterTest {
+
+    private RetryProperties properties;
+
+    // Upstream stub: fails with the queued errors in turn, then answers
+    private final Deque<Throwable> failures = new ArrayDeque<>();
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private final UpstreamExchange upstream = request -> Mono.defer(() -> {
+        upstreamCalls.incrementAndGet();
+        Throwable failure = failures.poll();
+        return failure != null ? Mono.error(failure) : Mono.just(new OpenAiApiResponse());
+    });
+
+    @BeforeEach
+    void setUp() {
+        properties = new RetryProperties();
+        properties.setMaxAttempts(3);
+        properties.setInitialBackoff(Duration.ofMillis(100));
+        properties.setMaxBackoff(Duration.ofSeconds(1));
+        properties.setMaxRetryAfter(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void filter_RetriesServerErrorsWithBackoff() {
+        failures.add(error(HttpStatus.SERVICE_UNAVAILABLE, null));
+        failures.add(error(HttpStatus.BAD_GATEWAY, null));
+
+        StepVerifier.withVirtualTime(() -> newFilter().filter(request(), upstream))
+                .thenAwait(Duration.ofSeconds(2)) // Longer than both jittered backoffs can be
+                .expectNextCount(1)
+                .verifyComplete();
+        assertEquals(3, upstreamCalls.get());
+    }
+
+    @Test
+    void filter_HonoursRetryAfter() {
+        failures.add(error(HttpStatus.TOO_MANY_REQUESTS, "3"));
+
+        StepVerifier.withVirtualTime(() -> newFilter().filter(request(), upstream))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(2999))
+                .thenAwait(Duration.ofMillis(1))
+                .expectNextCount(1)
+                .verifyComplete();
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void filter_GivesUpWhenRetryAfterIsTooLong() {
+        WebClientResponseException throttled = error(HttpStatus.TOO_MANY_REQUESTS, "60");
+        failures.add(throttled);
+
+        StepVerifier.create(newFilter().filter(request(), upstream))
+                .expectErrorMatches(error -> error == throttled)
+                .verify();
+        assertEquals(1, upstreamCalls.get());
+    }
+
+    @Test
+    void filter_DoesNotRetryClientErrors() {
+        WebClientResponseException badRequest = error(HttpStatus.BAD_REQUEST, null);
+        failures.add(badRequest);
+
+        StepVerifier.create(newFilter().filter(request(), upstream))
+                .expectErrorMatches(error -> error == badRequest)
+                .verify();
+        assertEquals(1, upstreamCalls.get());
+    }
+
+    @Test
+    void filter_StopsAfterMaxAttempts() {
+        for (int i = 0; i < 5; i++) {
+            failures.add(error(HttpStatus.INTERNAL_SERVER_ERROR, null));
+        }
+
+        StepVerifier.withVirtualTime(() -> newFilter().filter(request(), upstream))
+                .thenAwait(Duration.ofSeconds(5))
+                .expectError(WebClientResponseException.InternalServerError.class)
+                .verify();
+        assertEquals(3, upstreamCalls.get());
+    }
+
+    @Test
+    void filterStream_RetriesUntilTheFirstChunk() {
+        failures.add(error(HttpStatus.SERVICE_UNAVAILABLE, null));
+        UpstreamStreamExchange stream = request -> Flux.defer(() -> {
+            upstreamCalls.incrementAndGet();
+            Throwable failure = failures.poll();
+            return failure != null ? Flux.error(failure) : Flux.just(new OpenAiStreamChunk(), new OpenAiStreamChunk());
+        });
+
+        StepVerifier.withVirtualTime(() -> newFilter().filterStream(request(), stream))
+                .thenAwait(Duration.ofSeconds(1))
+                .expectNextCount(2)
+                .verifyComplete();
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void filterStream_DoesNotRetryOnceChunksWereSent() {
+        WebClientResponseException broken = error(HttpStatus.BAD_GATEWAY, null);
+        UpstreamStreamExchange stream = request -> Flux.defer(() -> {
+            upstreamCalls.incrementAndGet();
+            return Flux.just(new OpenAiStreamChunk()).concatWith(Flux.error(broken));
+        });
+
+        StepVerifier.create(newFilter().filterStream(request(), stream))
+                .expectNextCount(1)
+                .expectErrorMatches(error -> error == broken)
+                .verify();
+        assertEquals(1, upstreamCalls.get());
+    }
+
+    private RetryFilter newFilter() {
+        return new RetryFilter(properties, new SimpleMeterRegistry());
+    }
+
+    private static WebClientResponseException error(HttpStatus status, String retryAfter) {
+        HttpHeaders headers = new HttpHeaders();
+        if (retryAfter != null) {
+            headers.set(HttpHeaders.RETRY_AFTER, retryAfter);
+        }
+        return WebClientResponseException.create(status.value(), status.getReasonPhrase(), headers,
+                "{\"error\": {\"message\": \"upstream failed\"}}".getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+    }
+
+    private static OpenAiApiRequest request() {
+        return OpenAiApiRequest.builder()
+                .model("gpt-test-model")
+                .messages(Collections.singletonList(
+                        OpenAiApiRequest.Message.builder().role("user").content("Test prompt").build()))
+                .max_tokens(100)
+                .temperature(0.5)
+                .build();
+    }
+}
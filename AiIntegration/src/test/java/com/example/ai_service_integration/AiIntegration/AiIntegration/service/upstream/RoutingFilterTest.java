@@ -0,0 +1,183 @@
+package com.example.ai_service_integration.AiIntegration.AiIntegration.service.upstream;
+
+import com.example.ai_service_integration.AiIntegration.config.RoutingProperties;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiResponse;
+import com.example.ai_service_integration.AiIntegration.service.AiRequestContext;
+import com.example.ai_service_integration.AiIntegration.service.upstream.RoutingFilter;
+import com.example.ai_service_integration.AiIntegration.service.upstream.UpstreamBackend;
+import com.example.ai_service_integration.AiIntegration.service.upstream.UpstreamBackends;
+import com.example.ai_service_integration.AiIntegration.service.upstream.UpstreamExchange;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoutingFilterTest {
+
+    private RoutingFilter routingFilter;
+    private VirtualTimeScheduler clock;
+    private UpstreamBackends backends;
+
+    // Upstream stub: records the backend and API key id each call was routed with
+    private final List<String> routedTo = new ArrayList<>();
+    private final List<String> apiKeyIds = new ArrayList<>();
+    private Mono<OpenAiApiResponse> upstreamResult = Mono.just(new OpenAiApiResponse());
+    private String failingBackend; // Answers 503 from this backend only, when set
+    private final UpstreamExchange upstream = request -> Mono.deferContextual(context -> {
+        String backend = AiRequestContext.getUpstreamBackend(context).id();
+        routedTo.add(backend);
+        apiKeyIds.add(AiRequestContext.getApiKeyId(context));
+        return backend.equals(failingBackend) ? Mono.error(error(HttpStatus.SERVICE_UNAVAILABLE)) : upstreamResult;
+    });
+
+    @BeforeEach
+    void setUp() {
+        clock = VirtualTimeScheduler.getOrSet();
+        RoutingProperties properties = new RoutingProperties();
+        properties.setEnabled(true);
+        properties.setEjectionDuration(Duration.ofSeconds(30));
+        backends = new UpstreamBackends(List.of(
+                new UpstreamBackend("default", WebClient.create()),
+                new UpstreamBackend("secondary", WebClient.create())));
+        routingFilter = new RoutingFilter(properties, backends, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        VirtualTimeScheduler.reset();
+    }
+
+    @Test
+    void filter_PrefersBackendWithFewerOutstandingRequests() {
+        upstreamResult = Sinks.<OpenAiApiResponse>one().asMono(); // Never answers, stays outstanding
+        routingFilter.filter(request(), upstream).subscribe();
+
+        upstreamResult = Mono.just(new OpenAiApiResponse());
+        routingFilter.filter(request(), upstream).block();
+
+        assertNotEquals(routedTo.get(0), routedTo.get(1));
+        assertEquals(routedTo, apiKeyIds); // Rate limits follow the chosen backend
+    }
+
+    @Test
+    void filter_EwmaLatencySpreadsABurstByOutstandingUntilBothHaveASample() {
+        RoutingProperties properties = new RoutingProperties();
+        properties.setEnabled(true);
+        properties.setStrategy(RoutingProperties.Strategy.EWMA_LATENCY);
+        routingFilter = new RoutingFilter(properties, backends, new SimpleMeterRegistry());
+        routingFilter.filter(request(), upstream).block(); // One backend has a latency sample, the other none
+
+        upstreamResult = Sinks.<OpenAiApiResponse>one().asMono(); // Never answers, stays outstanding
+        for (int i = 0; i < 10; i++) {
+            routingFilter.filter(request(), upstream).subscribe();
+        }
+
+        List<String> burst = routedTo.subList(1, routedTo.size());
+        assertEquals(5, Collections.frequency(burst, "default"));
+        assertEquals(5, Collections.frequency(burst, "secondary"));
+    }
+
+    @Test
+    void filter_EjectsBackendAfterConsecutiveFailuresUntilEjectionEnds() {
+        failingBackend = "secondary";
+        for (int i = 0; i < 30; i++) {
+            routingFilter.filter(request(), upstream).onErrorResume(e -> Mono.empty()).block();
+        }
+        assertEquals(3, Collections.frequency(routedTo, "secondary")); // Ejected on its third failure in a row
+
+        failingBackend = null;
+        clock.advanceTimeBy(Duration.ofSeconds(30));
+        Set<String> afterEjection = new HashSet<>();
+        for (int i = 0; i < 50; i++) {
+            routingFilter.filter(request(), upstream).block();
+            afterEjection.add(routedTo.get(routedTo.size() - 1));
+        }
+        assertEquals(Set.of("default", "secondary"), afterEjection);
+    }
+
+    @Test
+    void filter_SuccessInBetweenResetsTheFailureCount() {
+        // Every third call to the secondary backend succeeds, so it never fails three times in a row
+        AtomicInteger secondaryCalls = new AtomicInteger();
+        UpstreamExchange flaky = request -> Mono.deferContextual(context -> {
+            String backend = AiRequestContext.getUpstreamBackend(context).id();
+            routedTo.add(backend);
+            return backend.equals("secondary") && secondaryCalls.incrementAndGet() % 3 != 0
+                    ? Mono.error(error(HttpStatus.SERVICE_UNAVAILABLE))
+                    : Mono.just(new OpenAiApiResponse());
+        });
+
+        for (int i = 0; i < 100; i++) {
+            routingFilter.filter(request(), flaky).onErrorResume(e -> Mono.empty()).block();
+        }
+        assertTrue(secondaryCalls.get() > 10, () -> "secondary got " + secondaryCalls.get() + " calls");
+    }
+
+    @Test
+    void filter_ClientErrorsDoNotEject() {
+        upstreamResult = Mono.error(error(HttpStatus.BAD_REQUEST));
+        for (int i = 0; i < 50; i++) {
+            routingFilter.filter(request(), upstream).onErrorResume(e -> Mono.empty()).block();
+        }
+        assertEquals(Set.of("default", "secondary"), new HashSet<>(routedTo));
+    }
+
+    @Test
+    void filter_StillRoutesWhenEveryBackendIsEjected() {
+        upstreamResult = Mono.error(error(HttpStatus.TOO_MANY_REQUESTS));
+        for (int i = 0; i < 6; i++) {
+            routingFilter.filter(request(), upstream).onErrorResume(e -> Mono.empty()).block();
+        }
+        assertEquals(Set.of("default", "secondary"), new HashSet<>(routedTo));
+
+        upstreamResult = Mono.just(new OpenAiApiResponse());
+        routingFilter.filter(request(), upstream).block();
+        assertEquals(7, routedTo.size());
+    }
+
+    @Test
+    void upstreamBackends_RejectDuplicateIds() {
+        List<UpstreamBackend> duplicates = List.of(
+                new UpstreamBackend("default", WebClient.create()),
+                new UpstreamBackend("default", WebClient.create()));
+
+        assertThrows(IllegalArgumentException.class, () -> new UpstreamBackends(duplicates));
+    }
+
+    private static WebClientResponseException error(HttpStatus status) {
+        return WebClientResponseException.create(status.value(), status.getReasonPhrase(), new HttpHeaders(),
+                new byte[0], StandardCharsets.UTF_8);
+    }
+
+    private static OpenAiApiRequest request() {
+        return OpenAiApiRequest.builder()
+                .model("gpt-test-model")
+                .messages(Collections.singletonList(
+                        OpenAiApiRequest.Message.builder().role("user").content("Test prompt").build()))
+                .max_tokens(100)
+                .temperature(0.5)
+                .build();
+    }
+}
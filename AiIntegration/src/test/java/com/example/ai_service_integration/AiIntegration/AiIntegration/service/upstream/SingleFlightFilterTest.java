@@ -0,0 +1,193 @@
+package com.example.ai_service_integration.AiIntegration.AiIntegration.service.upstream;
+
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiResponse;
+import com.example.ai_service_integration.AiIntegration.service.AiRequestContext;
+import com.example.ai_service_integration.AiIntegration.service.AiServiceException;
+import com.example.ai_service_integration.AiIntegration.service.tracing.RequestTrace;
+import com.example.ai_service_integration.AiIntegration.service.upstream.DeadlineFilter;
+import com.example.ai_service_integration.AiIntegration.service.upstream.SingleFlightFilter;
+import com.example.ai_service_integration.AiIntegration.service.upstream.UpstreamExchange;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightFilterTest {
+
+    private SingleFlightFilter singleFlightFilter;
+
+    // Upstream stub: counts calls and lets the test decide when (and how) each call finishes
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private final AtomicBoolean upstreamCancelled = new AtomicBoolean();
+    private Sinks.One<OpenAiApiResponse> upstreamResult;
+    private final UpstreamExchange upstream = request -> Mono.defer(() -> {
+        upstreamCalls.incrementAndGet();
+        return upstreamResult.asMono().doOnCancel(() -> upstreamCancelled.set(true));
+    });
+
+    @BeforeEach
+    void setUp() {
+        singleFlightFilter = new SingleFlightFilter(new SimpleMeterRegistry());
+        upstreamResult = Sinks.one();
+    }
+
+    @Test
+    void filter_ConcurrentIdenticalRequestsShareOneUpstreamCall() {
+        OpenAiApiResponse response = new OpenAiApiResponse();
+        AtomicReference<OpenAiApiResponse> first = new AtomicReference<>();
+        AtomicReference<OpenAiApiResponse> second = new AtomicReference<>();
+
+        singleFlightFilter.filter(request("Test prompt"), upstream).subscribe(first::set);
+        singleFlightFilter.filter(request("Test prompt"), upstream).subscribe(second::set);
+        upstreamResult.tryEmitValue(response);
+
+        assertEquals(1, upstreamCalls.get());
+        assertSame(response, first.get());
+        assertSame(response, second.get());
+    }
+
+    @Test
+    void filter_OneCallerCancellingDoesNotAbortTheOthers() {
+        AtomicReference<OpenAiApiResponse> survivor = new AtomicReference<>();
+
+        Disposable leaving = singleFlightFilter.filter(request("Test prompt"), upstream).subscribe();
+        singleFlightFilter.filter(request("Test prompt"), upstream).subscribe(survivor::set);
+        leaving.dispose();
+
+        assertFalse(upstreamCancelled.get());
+        upstreamResult.tryEmitValue(new OpenAiApiResponse());
+        assertEquals(1, upstreamCalls.get());
+        assertTrue(survivor.get() != null);
+    }
+
+    @Test
+    void filter_LastCallerCancellingAbortsUpstream() {
+        Disposable first = singleFlightFilter.filter(request("Test prompt"), upstream).subscribe();
+        Disposable second = singleFlightFilter.filter(request("Test prompt"), upstream).subscribe();
+
+        first.dispose();
+        second.dispose();
+
+        assertTrue(upstreamCancelled.get());
+    }
+
+    @Test
+    void filter_ErrorsReachEveryWaiterAndAreNotCached() {
+        AtomicReference<Throwable> first = new AtomicReference<>();
+        AtomicReference<Throwable> second = new AtomicReference<>();
+        RuntimeException failure = new RuntimeException("upstream failed");
+
+        singleFlightFilter.filter(request("Test prompt"), upstream).subscribe(value -> { }, first::set);
+        singleFlightFilter.filter(request("Test prompt"), upstream).subscribe(value -> { }, second::set);
+        upstreamResult.tryEmitError(failure);
+
+        assertSame(failure, first.get());
+        assertSame(failure, second.get());
+
+        // The next caller starts a fresh upstream call
+        upstreamResult = Sinks.one();
+        upstreamResult.tryEmitValue(new OpenAiApiResponse());
+        StepVerifier.create(singleFlightFilter.filter(request("Test prompt"), upstream))
+                .expectNextCount(1)
+                .verifyComplete();
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void filter_DifferentRequestsAreNotCoalesced() {
+        AtomicReference<Throwable> error = new AtomicReference<>();
+
+        singleFlightFilter.filter(request("First prompt"), upstream).subscribe(value -> { }, error::set);
+        singleFlightFilter.filter(request("Second prompt"), upstream).subscribe(value -> { }, error::set);
+
+        assertEquals(2, upstreamCalls.get());
+        assertNull(error.get());
+    }
+
+    @Test
+    void filter_SharedCallDoesNotSeeTheFirstCallersContext() {
+        AtomicReference<ContextView> seen = new AtomicReference<>();
+        UpstreamExchange recording = request -> Mono.deferContextual(context -> {
+            seen.set(context);
+            return upstreamResult.asMono();
+        });
+        RequestTrace leader = new RequestTrace("leader-trace", false);
+
+        singleFlightFilter.filter(request("Test prompt"), recording)
+                .contextWrite(AiRequestContext.withDeadline(Duration.ofSeconds(5)))
+                .contextWrite(AiRequestContext.withTrace(leader))
+                .subscribe();
+
+        assertTrue(AiRequestContext.getTimeLeft(seen.get()).isEmpty());
+        assertNotEquals("leader-trace", AiRequestContext.getTrace(seen.get()).id());
+    }
+
+    @Test
+    void filter_FollowerWithShorterDeadlineTimesOutWhileLeaderGetsTheAnswer() {
+        DeadlineFilter deadlineFilter = new DeadlineFilter(new SimpleMeterRegistry());
+        UpstreamExchange coalescing = request -> singleFlightFilter.filter(request, upstream);
+        AtomicReference<OpenAiApiResponse> leader = new AtomicReference<>();
+        OpenAiApiResponse response = new OpenAiApiResponse();
+
+        deadlineFilter.filter(request("Test prompt"), coalescing)
+                .contextWrite(AiRequestContext.withDeadline(Duration.ofSeconds(5)))
+                .subscribe(leader::set);
+        StepVerifier.create(deadlineFilter.filter(request("Test prompt"), coalescing)
+                        .contextWrite(AiRequestContext.withDeadline(Duration.ofMillis(50))))
+                .expectErrorSatisfies(error -> assertEquals(HttpStatus.GATEWAY_TIMEOUT, ((AiServiceException) error).getStatus()))
+                .verify(Duration.ofSeconds(2));
+
+        assertFalse(upstreamCancelled.get());
+        upstreamResult.tryEmitValue(response);
+        assertSame(response, leader.get());
+        assertEquals(1, upstreamCalls.get());
+    }
+
+    @Test
+    void filter_SampledCallersGetTheSharedCallsSpans() {
+        UpstreamExchange traced = request -> Mono.deferContextual(context -> {
+            RequestTrace flight = AiRequestContext.getTrace(context);
+            long start = System.nanoTime();
+            return upstreamResult.asMono().doOnNext(value -> flight.record("upstream.decode", start));
+        });
+        RequestTrace first = new RequestTrace("first", true);
+        RequestTrace second = new RequestTrace("second", true);
+
+        singleFlightFilter.filter(request("Test prompt"), traced).contextWrite(AiRequestContext.withTrace(first)).subscribe();
+        singleFlightFilter.filter(request("Test prompt"), traced).contextWrite(AiRequestContext.withTrace(second)).subscribe();
+        upstreamResult.tryEmitValue(new OpenAiApiResponse());
+
+        assertEquals(List.of("upstream.decode"), first.spans().stream().map(RequestTrace.Span::name).toList());
+        assertEquals(List.of("upstream.decode"), second.spans().stream().map(RequestTrace.Span::name).toList());
+    }
+
+    private static OpenAiApiRequest request(String prompt) {
+        return OpenAiApiRequest.builder()
+                .model("gpt-test-model")
+                .messages(Collections.singletonList(
+                        OpenAiApiRequest.Message.builder().role("user").content(prompt).build()))
+                .max_tokens(100)
+                .temperature(0.5)
+                .build();
+    }
+}
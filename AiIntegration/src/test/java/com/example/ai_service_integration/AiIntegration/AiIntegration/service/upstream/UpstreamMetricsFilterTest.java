@@ -0,0 +1,76 @@
+package com.example.ai_service_integration.AiIntegration.AiIntegration.service.upstream;
+
+import com.example.ai_service_integration.AiIntegration.config.PricingProperties;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiRequest;
+import com.example.ai_service_integration.AiIntegration.dto.OpenAiApiResponse;
+import com.example.ai_service_integration.AiIntegration.service.upstream.UpstreamMetricsFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UpstreamMetricsFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private UpstreamMetricsFilter metricsFilter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        PricingProperties pricing = new PricingProperties();
+        PricingProperties.Price price = new PricingProperties.Price();
+        price.setPrompt(1.0);
+        price.setCompletion(4.0);
+        pricing.getModels().put("gpt-test-model", price);
+        metricsFilter = new UpstreamMetricsFilter(meterRegistry, pricing);
+    }
+
+    @Test
+    void filter_RecordsLatencyTokensCostAndFinishReason() {
+        OpenAiApiResponse response = new OpenAiApiResponse();
+        response.setChoices(List.of(new OpenAiApiResponse.Choice(0,
+                OpenAiApiRequest.Message.builder().role("assistant").content("Generated text").build(), "length")));
+        response.setUsage(new OpenAiApiResponse.Usage(12, 100, 112));
+
+        StepVerifier.create(metricsFilter.filter(request(), req -> Mono.just(response)))
+                .expectNext(response)
+                .verifyComplete();
+
+        assertEquals(1, meterRegistry.get("ai.upstream.latency").tags("model", "gpt-test-model", "outcome", "success").timer().count());
+        assertEquals(12.0, meterRegistry.get("ai.tokens").tags("model", "gpt-test-model", "type", "prompt").counter().count());
+        assertEquals(100.0, meterRegistry.get("ai.tokens").tags("type", "completion").counter().count());
+        assertEquals(112.0, meterRegistry.get("ai.tokens").tags("type", "total").counter().count());
+        assertEquals((12 * 1.0 + 100 * 4.0) / 1_000_000, meterRegistry.get("ai.cost").tags("model", "gpt-test-model").counter().count(), 1e-12);
+        assertEquals(1.0, meterRegistry.get("ai.completion.finish").tags("reason", "length").counter().count());
+    }
+
+    @Test
+    void filter_TagsFailuresByKind() {
+        WebClientResponseException throttled = WebClientResponseException.create(429, "Too Many Requests",
+                new HttpHeaders(), new byte[0], StandardCharsets.UTF_8);
+
+        StepVerifier.create(metricsFilter.filter(request(), req -> Mono.error(throttled)))
+                .verifyError(WebClientResponseException.class);
+
+        assertEquals(1, meterRegistry.get("ai.upstream.latency").tags("outcome", "throttled").timer().count());
+    }
+
+    private static OpenAiApiRequest request() {
+        return OpenAiApiRequest.builder()
+                .model("gpt-test-model")
+                .messages(Collections.singletonList(
+                        OpenAiApiRequest.Message.builder().role("user").content("Test prompt").build()))
+                .max_tokens(100)
+                .temperature(0.5)
+                .build();
+    }
+}
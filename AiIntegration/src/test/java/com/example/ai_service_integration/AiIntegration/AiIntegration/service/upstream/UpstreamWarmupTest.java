@@ -0,0 +1,60 @@
+package com.example.ai_service_integration.AiIntegration.AiIntegration.service.upstream;
+
+import com.example.ai_service_integration.AiIntegration.AiIntegration.support.FakeOpenAiServer;
+import com.example.ai_service_integration.AiIntegration.config.RoutingProperties;
+import com.example.ai_service_integration.AiIntegration.config.WarmupProperties;
+import com.example.ai_service_integration.AiIntegration.service.upstream.UpstreamBackend;
+import com.example.ai_service_integration.AiIntegration.service.upstream.UpstreamBackends;
+import com.example.ai_service_integration.AiIntegration.service.upstream.UpstreamWarmup;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UpstreamWarmupTest {
+
+    private final WarmupProperties properties = new WarmupProperties();
+    private final RoutingProperties routingProperties = new RoutingProperties();
+
+    @Test
+    void openConnections_WarmsEveryRoutingBackend() {
+        properties.setConnections(3);
+        routingProperties.setEnabled(true);
+        try (FakeOpenAiServer first = FakeOpenAiServer.builder().start();
+             FakeOpenAiServer second = FakeOpenAiServer.builder().start()) {
+
+            assertEquals(6, warmup(first.url(), second.url()).openConnections());
+
+            routingProperties.setEnabled(false);
+            assertEquals(3, warmup(first.url(), second.url()).openConnections()); // Only the default backend is in use
+        }
+    }
+
+    @Test
+    void openConnections_CountsWhatOpenedWhenOthersHang() {
+        properties.setConnections(2);
+        properties.setTimeout(Duration.ofMillis(300));
+        routingProperties.setEnabled(true);
+        DisposableServer hanging = HttpServer.create().port(0).handle((request, response) -> Mono.never()).bindNow();
+        try (FakeOpenAiServer answering = FakeOpenAiServer.builder().start()) {
+
+            assertEquals(2, warmup(answering.url(), "http://127.0.0.1:" + hanging.port()).openConnections());
+        } finally {
+            hanging.disposeNow();
+        }
+    }
+
+    private UpstreamWarmup warmup(String defaultUrl, String secondaryUrl) {
+        UpstreamBackends backends = new UpstreamBackends(List.of(
+                new UpstreamBackend("default", WebClient.create(defaultUrl)),
+                new UpstreamBackend("secondary", WebClient.create(secondaryUrl))));
+        return new UpstreamWarmup(properties, backends, routingProperties, new ObjectMapper());
+    }
+}
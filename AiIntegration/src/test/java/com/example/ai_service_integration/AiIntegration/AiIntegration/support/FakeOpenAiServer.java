@@ -0,0 +1,277 @@
+package com.example.ai_service_integration.AiIntegration.AiIntegration.support;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.NettyOutbound;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+import reactor.netty.resources.LoopResources;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * In-process stand-in for the OpenAI chat completions API, for tests and load runs that must
+ * work offline. It answers {@code POST /v1/chat/completions} after a latency drawn from a
+ * {@link LatencyProfile}, can inject 429/5xx errors at random or on demand, streams Server-Sent
+ * Events slowly chunk by chunk when asked to stream, and can return arbitrarily large answers.
+ * Gzip request bodies are inflated; answers are gzipped for clients that ask, if configured to.
+ * <pre>{@code
+ * try (FakeOpenAiServer fake = FakeOpenAiServer.builder().latency(LatencyProfile.logNormal(ofMillis(300), 0.5)).start()) {
+ *     ... openai.api.url = fake.url() ...
+ * }
+ * }</pre>
+ */
+public final class FakeOpenAiServer implements AutoCloseable {
+
+    public static final String PATH = "/v1/chat/completions";
+
+    private final Builder config;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LoopResources loops = LoopResources.create("fake-openai", 2, true); // Outlives any app under test
+    private final DisposableServer server;
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger failNextCount = new AtomicInteger();
+    private volatile int failNextStatus;
+    private volatile String lastContentEncoding;
+
+    private FakeOpenAiServer(Builder config) {
+        this.config = config;
+        HttpServer httpServer = HttpServer.create()
+                .host("127.0.0.1")
+                .port(config.port)
+                .runOn(loops)
+                .route(routes -> routes.post(PATH, this::handle));
+        this.server = (config.compressAbove >= 0 ? httpServer.compress(config.compressAbove) : httpServer).bindNow();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** Full chat completions URL, as {@code openai.api.url} expects it. */
+    public String url() {
+        return "http://127.0.0.1:" + server.port() + PATH;
+    }
+
+    public int port() {
+        return server.port();
+    }
+
+    /** Requests received so far, failed ones included. */
+    public int requestCount() {
+        return requests.get();
+    }
+
+    /** Content-Encoding of the last request body, or null if it was sent as is. */
+    public String lastContentEncoding() {
+        return lastContentEncoding;
+    }
+
+    /** Answers the next {@code count} requests with {@code status} (429 comes with Retry-After: 1). */
+    public void failNext(int count, int status) {
+        failNextStatus = status;
+        failNextCount.set(count);
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+        loops.disposeLater().block();
+    }
+
+    private Mono<Void> handle(HttpServerRequest request, HttpServerResponse response) {
+        requests.incrementAndGet();
+        Random random = ThreadLocalRandom.current();
+        Duration latency = config.latency.sample(random);
+        String contentEncoding = request.requestHeaders().get(HttpHeaderNames.CONTENT_ENCODING);
+        lastContentEncoding = contentEncoding;
+        return request.receive().aggregate().asByteArray()
+                .map(bytes -> readTree("gzip".equals(contentEncoding) ? gunzip(bytes) : bytes))
+                .delayUntil(body -> Mono.delay(latency))
+                .flatMap(body -> {
+                    int status = injectedStatus(random);
+                    if (status != 0) {
+                        return error(response, status);
+                    }
+                    String model = body.path("model").asText("gpt-fake");
+                    if (body.path("stream").asBoolean(false)) {
+                        return stream(response, model);
+                    }
+                    return Mono.from(response.header(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON)
+                            .sendString(Mono.just(completion(model, body))));
+                });
+    }
+
+    private int injectedStatus(Random random) {
+        if (failNextCount.getAndUpdate(count -> Math.max(0, count - 1)) > 0) {
+            return failNextStatus;
+        }
+        double draw = random.nextDouble();
+        if (draw < config.throttleRate) {
+            return 429;
+        }
+        return draw < config.throttleRate + config.serverErrorRate ? 503 : 0;
+    }
+
+    private Mono<Void> error(HttpServerResponse response, int status) {
+        if (status == 429) {
+            response.header(HttpHeaderNames.RETRY_AFTER, "1");
+        }
+        String body = "{\"error\":{\"message\":\"Injected failure\",\"type\":\"fake_error\",\"code\":" + status + "}}";
+        return Mono.from(response.status(HttpResponseStatus.valueOf(status))
+                .header(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON)
+                .sendString(Mono.just(body)));
+    }
+
+    private String completion(String model, JsonNode body) {
+        ObjectNode root = objectMapper.createObjectNode()
+                .put("id", "chatcmpl-fake-" + requests.get())
+                .put("object", "chat.completion")
+                .put("created", System.currentTimeMillis() / 1000)
+                .put("model", model);
+        ObjectNode choice = root.putArray("choices").addObject().put("index", 0).put("finish_reason", "stop");
+        choice.putObject("message").put("role", "assistant").put("content", answer());
+        int promptTokens = body.path("messages").toString().length() / 4;
+        int completionTokens = config.completionChars / 4;
+        root.putObject("usage")
+                .put("prompt_tokens", promptTokens)
+                .put("completion_tokens", completionTokens)
+                .put("total_tokens", promptTokens + completionTokens);
+        return root.toString();
+    }
+
+    // Role chunk, the answer split over the configured number of chunks, a finish chunk and [DONE]
+    private Mono<Void> stream(HttpServerResponse response, String model) {
+        String answer = answer();
+        List<String> events = new ArrayList<>();
+        events.add(streamChunk(model, "role", "assistant", null));
+        int chunkSize = Math.max(1, (answer.length() + config.streamChunks - 1) / config.streamChunks);
+        for (int start = 0; start < answer.length(); start += chunkSize) {
+            events.add(streamChunk(model, "content", answer.substring(start, Math.min(answer.length(), start + chunkSize)), null));
+        }
+        events.add(streamChunk(model, null, null, "stop"));
+        events.add("[DONE]");
+
+        NettyOutbound outbound = response.header(HttpHeaderNames.CONTENT_TYPE, "text/event-stream")
+                .sendString(Flux.fromIterable(events)
+                        .delayElements(config.streamChunkDelay)
+                        .map(data -> "data: " + data + "\n\n"));
+        return Mono.from(outbound);
+    }
+
+    private String streamChunk(String model, String deltaField, String deltaValue, String finishReason) {
+        ObjectNode root = objectMapper.createObjectNode()
+                .put("id", "chatcmpl-fake-" + requests.get())
+                .put("object", "chat.completion.chunk")
+                .put("model", model);
+        ObjectNode choice = root.putArray("choices").addObject().put("index", 0);
+        ObjectNode delta = choice.putObject("delta");
+        if (deltaField != null) {
+            delta.put(deltaField, deltaValue);
+        }
+        choice.put("finish_reason", finishReason);
+        return root.toString();
+    }
+
+    private String answer() {
+        StringBuilder answer = new StringBuilder(config.completionChars);
+        while (answer.length() < config.completionChars) {
+            answer.append("This is a fake completion. ");
+        }
+        return answer.substring(0, config.completionChars).trim();
+    }
+
+    private JsonNode readTree(byte[] body) {
+        try {
+            return objectMapper.readTree(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] gunzip(byte[] body) {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static final class Builder {
+
+        private int port = 0; // Any free port
+        private LatencyProfile latency = LatencyProfile.none();
+        private double throttleRate;
+        private double serverErrorRate;
+        private int completionChars = 200;
+        private int streamChunks = 10;
+        private Duration streamChunkDelay = Duration.ofMillis(20);
+        private int compressAbove = -1;
+
+        private Builder() {
+        }
+
+        public Builder port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        public Builder latency(LatencyProfile latency) {
+            this.latency = latency;
+            return this;
+        }
+
+        /** Share of requests (0-1) answered with 429 Too Many Requests. */
+        public Builder throttleRate(double throttleRate) {
+            this.throttleRate = throttleRate;
+            return this;
+        }
+
+        /** Share of requests (0-1) answered with 503 Service Unavailable. */
+        public Builder serverErrorRate(double serverErrorRate) {
+            this.serverErrorRate = serverErrorRate;
+            return this;
+        }
+
+        /** Length of every answer; large values exercise big response bodies. */
+        public Builder completionChars(int completionChars) {
+            this.completionChars = completionChars;
+            return this;
+        }
+
+        /** Streamed answers arrive in this many content chunks, {@code delay} apart. */
+        public Builder streaming(int chunks, Duration delay) {
+            this.streamChunks = chunks;
+            this.streamChunkDelay = delay;
+            return this;
+        }
+
+        /** Gzip answers of at least {@code minBytes} for requests with Accept-Encoding: gzip. */
+        public Builder compress(int minBytes) {
+            this.compressAbove = minBytes;
+            return this;
+        }
+
+        public FakeOpenAiServer start() {
+            return new FakeOpenAiServer(this);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.ai_service_integration.AiIntegration.AiIntegration.support;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.Random;
+
+/**
+ * Distribution the {@link FakeOpenAiServer} draws its response latency from.
+ */
+@FunctionalInterface
+public interface LatencyProfile {
+
+    Duration sample(Random random);
+
+    static LatencyProfile none() {
+        return random -> Duration.ZERO;
+    }
+
+    static LatencyProfile fixed(Duration latency) {
+        return random -> latency;
+    }
+
+    static LatencyProfile uniform(Duration min, Duration max) {
+        long spread = max.toNanos() - min.toNanos();
+        return random -> min.plusNanos((long) (random.nextDouble() * spread));
+    }
+
+    /**
+     * Long-tailed latency like real LLM APIs: half the calls are faster than {@code median}, and
+     * {@code sigma} stretches the tail (0.5 puts p99 at ~3x the median, 1.0 at ~10x).
+     */
+    static LatencyProfile logNormal(Duration median, double sigma) {
+        return random -> Duration.ofNanos((long) (median.toNanos() * Math.exp(sigma * random.nextGaussian())));
+    }
+
+    /** Parses {@code none}, {@code fixed:200ms}, {@code uniform:50ms-500ms} or {@code lognormal:300ms,0.8}. */
+    static LatencyProfile parse(String spec) {
+        String[] typeAndArgs = spec.trim().split(":", 2);
+        return switch (typeAndArgs[0]) {
+            case "none" -> none();
+            case "fixed" -> fixed(DurationStyle.detectAndParse(typeAndArgs[1]));
+            case "uniform" -> {
+                String[] range = typeAndArgs[1].split("-");
+                yield uniform(DurationStyle.detectAndParse(range[0]), DurationStyle.detectAndParse(range[1]));
+            }
+            case "lognormal" -> {
+                String[] args = typeAndArgs[1].split(",");
+                yield logNormal(DurationStyle.detectAndParse(args[0]), Double.parseDouble(args[1]));
+            }
+            default -> throw new IllegalArgumentException("Unknown latency profile: " + spec);
+        };
+    }
+}
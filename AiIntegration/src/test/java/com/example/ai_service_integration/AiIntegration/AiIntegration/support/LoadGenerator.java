@@ -0,0 +1,118 @@
+package com.example.ai_service_integration.AiIntegration.AiIntegration.support;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongFunction;
+
+/**
+ * Open-loop load generator: sends requests at a fixed rate whether or not earlier ones have
+ * answered, so a slow server shows up as rising latency and errors instead of quietly lowering
+ * the offered load (coordinated omission). Latency is measured from each request's scheduled
+ * start time.
+ */
+public final class LoadGenerator {
+
+    private static final int CONNECTION_ERROR = -1; // Status recorded when no HTTP answer arrived
+
+    private final WebClient client;
+    private final String path;
+    private final LongFunction<Object> body; // Request body for the n-th request
+    private final Duration timeout;
+
+    public LoadGenerator(WebClient client, String path, LongFunction<Object> body, Duration timeout) {
+        this.client = client;
+        this.path = path;
+        this.body = body;
+        this.timeout = timeout;
+    }
+
+    /** Offers {@code rps} requests per second for {@code duration} and waits for the stragglers. */
+    public Report run(int rps, Duration duration) {
+        long periodNanos = 1_000_000_000L / rps;
+        int total = (int) Math.max(1, duration.toNanos() / periodNanos);
+        AtomicLongArray latencies = new AtomicLongArray(total);
+        AtomicInteger completed = new AtomicInteger();
+        Map<Integer, AtomicInteger> statuses = new ConcurrentHashMap<>();
+
+        long start = System.nanoTime();
+        Flux.interval(Duration.ofNanos(periodNanos))
+                .take(total)
+                .flatMap(index -> {
+                    long scheduledAt = start + (index + 1) * periodNanos;
+                    return send(index).map(status -> {
+                        latencies.set(index.intValue(), System.nanoTime() - scheduledAt);
+                        completed.incrementAndGet();
+                        statuses.computeIfAbsent(status, key -> new AtomicInteger()).incrementAndGet();
+                        return status;
+                    });
+                }, Integer.MAX_VALUE)
+                .blockLast(duration.plus(timeout).plusSeconds(5));
+        long elapsed = System.nanoTime() - start;
+
+        long[] sorted = new long[completed.get()];
+        for (int i = 0, j = 0; i < total && j < sorted.length; i++) {
+            if (latencies.get(i) > 0) {
+                sorted[j++] = latencies.get(i);
+            }
+        }
+        Arrays.sort(sorted);
+        Map<Integer, Integer> byStatus = new TreeMap<>();
+        statuses.forEach((status, count) -> byStatus.put(status, count.get()));
+        return new Report(rps, total, completed.get(), Duration.ofNanos(elapsed), sorted, byStatus);
+    }
+
+    private Mono<Integer> send(long index) {
+        return client.post()
+                .uri(path)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body.apply(index))
+                .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode().value()))
+                .timeout(timeout)
+                .onErrorReturn(CONNECTION_ERROR);
+    }
+
+    /** Outcome of one run; latencies are sorted, in nanoseconds. */
+    public record Report(int targetRps, int sent, int completed, Duration elapsed, long[] latencies,
+                         Map<Integer, Integer> statuses) {
+
+        public double throughput() {
+            return completed / (elapsed.toNanos() / 1e9);
+        }
+
+        /** Share of requests that did not get a 2xx answer. */
+        public double errorRate() {
+            int ok = statuses.entrySet().stream()
+                    .filter(entry -> entry.getKey() >= 200 && entry.getKey() < 300)
+                    .mapToInt(Map.Entry::getValue)
+                    .sum();
+            return sent == 0 ? 0 : 1 - (double) ok / sent;
+        }
+
+        public Duration percentile(double percentile) {
+            if (latencies.length == 0) {
+                return Duration.ZERO;
+            }
+            int index = (int) Math.ceil(percentile * latencies.length) - 1;
+            return Duration.ofNanos(latencies[Math.max(0, Math.min(index, latencies.length - 1))]);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("target=%d rps sent=%d completed=%d throughput=%.1f rps errors=%.2f%% "
+                            + "p50=%d ms p90=%d ms p99=%d ms max=%d ms statuses=%s",
+                    targetRps, sent, completed, throughput(), errorRate() * 100,
+                    percentile(0.50).toMillis(), percentile(0.90).toMillis(), percentile(0.99).toMillis(),
+                    percentile(1.0).toMillis(), statuses);
+        }
+    }
+}
@@ -3,7 +3,7 @@ package com.example.ai_service_integration.AiIntegration;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "openai.warmup.enabled=false")
 class AiIntegrationApplicationTests {
 
 	@Test